@@ -2,8 +2,11 @@ package ru.averkiev.greenchat_auth;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.redis.RedisRepositoriesAutoConfiguration;
 
-@SpringBootApplication
+// Подключение к Redis создаётся TokenStoreConfig только для хранилища токенов redis.
+@SpringBootApplication(exclude = {RedisAutoConfiguration.class, RedisRepositoriesAutoConfiguration.class})
 public class GreenChatAuthServiceApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,34 @@
+package ru.averkiev.greenchat_auth.clients;
+
+import ru.averkiev.greenchat_auth.models.User;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Интерфейс для асинхронного взаимодействия с микросервисом пользователей. В отличие от UserServiceClient вызов не
+ * занимает поток на время ожидания ответа микросервиса.
+ * @author mrGreenNV
+ */
+public interface AsyncUserServiceClient {
+    CompletableFuture<User> getUserByLoginAsync(String login);
+
+    /**
+     * Асинхронно возвращает данные пользователя по логину, допуская при недоступности микросервиса пользователей
+     * последние известные данные. По умолчанию совпадает с getUserByLoginAsync().
+     * @param login имя пользователя.
+     * @return объект User или null, если пользователь не найден.
+     */
+    default CompletableFuture<User> getUserByLoginAllowStaleAsync(String login) {
+        return getUserByLoginAsync(login);
+    }
+
+    /**
+     * Асинхронно возвращает данные пользователя по логину, повторно запрашивая их у микросервиса пользователей
+     * в обход кэша (см. UserServiceClient.getUserByLoginFresh()). По умолчанию совпадает с getUserByLoginAsync().
+     * @param login имя пользователя.
+     * @return объект User или null, если пользователь не найден.
+     */
+    default CompletableFuture<User> getUserByLoginFreshAsync(String login) {
+        return getUserByLoginAsync(login);
+    }
+}
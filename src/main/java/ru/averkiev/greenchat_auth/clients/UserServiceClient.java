@@ -8,4 +8,26 @@ import ru.averkiev.greenchat_auth.models.User;
  */
 public interface UserServiceClient {
     User getUserByLogin(String login);
+
+    /**
+     * Возвращает данные пользователя по логину, допуская при недоступности микросервиса пользователей последние
+     * известные данные. Используется при обновлении токенов, когда пользователь уже подтверждён refresh токеном.
+     * По умолчанию последние известные данные не хранятся и метод совпадает с getUserByLogin().
+     * @param login имя пользователя.
+     * @return объект User или null, если пользователь не найден.
+     */
+    default User getUserByLoginAllowStale(String login) {
+        return getUserByLogin(login);
+    }
+
+    /**
+     * Возвращает данные пользователя по логину, повторно запрашивая их у микросервиса пользователей в обход
+     * кэша. Используется при несовпадении пароля: пароль мог быть изменён после кэширования данных пользователя.
+     * По умолчанию кэш не используется и метод совпадает с getUserByLogin().
+     * @param login имя пользователя.
+     * @return объект User или null, если пользователь не найден.
+     */
+    default User getUserByLoginFresh(String login) {
+        return getUserByLogin(login);
+    }
 }
@@ -0,0 +1,313 @@
+package ru.averkiev.greenchat_auth.clients.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import ru.averkiev.greenchat_auth.clients.AsyncUserServiceClient;
+import ru.averkiev.greenchat_auth.clients.UserServiceClient;
+import ru.averkiev.greenchat_auth.exceptions.UserServiceUnavailableException;
+import ru.averkiev.greenchat_auth.models.User;
+import ru.averkiev.greenchat_auth.utils.FutureUtils;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Класс представляет собой кэширующую обёртку над ResilientUserServiceClient. Данные пользователей хранятся в
+ * ограниченном по размеру кэше по логину в течение короткого времени (user_management.cache.ttl-ms), поэтому
+ * повторные входы и обновления токенов одного пользователя не обращаются к микросервису пользователей.
+ * Неизвестные логины (пустой ответ или 404) также кэшируются на меньшее время
+ * (user_management.cache.negative-ttl-ms), что ограничивает нагрузку от перебора логинов. Часто запрашиваемые
+ * записи обновляются в фоне по истечении user_management.cache.refresh-after-ms, поэтому запрос не ждёт
+ * микросервис, пока запись не устарела окончательно; при ошибке фонового обновления остаётся прежнее значение.
+ * Одновременные промахи по одному логину приводят к единственному запросу. Статистика кэша публикуется в
+ * метриках под именем user-service.users.
+ * Последние полученные данные каждого пользователя дополнительно хранятся в течение
+ * user_management.cache.stale-ttl-ms и возвращаются методом getUserByLoginAllowStale(), если микросервис
+ * пользователей недоступен. Количество таких ответов публикуется в метрике user-service.stale-fallback.
+ * Асинхронные запросы обслуживаются тем же кэшем: попадание возвращает готовый результат, а при промахе
+ * результат асинхронного запроса сохраняется в кэш. При несовпадении пароля данные пользователя запрашиваются
+ * повторно (getUserByLoginFresh()), если они получены раньше user_management.cache.recheck-after-ms: так новый
+ * пароль принимается сразу после смены, а перебор паролей не обращается к микросервису при каждой попытке.
+ * @author mrGreenNV
+ */
+@Slf4j
+@Primary
+@Service
+public class CachingUserServiceClient implements UserServiceClient, AsyncUserServiceClient {
+
+    /**
+     * Имя кэша, под которым публикуются метрики попаданий, промахов и вытеснений.
+     */
+    public static final String CACHE_NAME = "user-service.users";
+
+    private final UserServiceClient delegate;
+    private final AsyncUserServiceClient asyncDelegate;
+    private final boolean enabled;
+    private final long recheckAfterMillis;
+    private final LoadingCache<String, Optional<User>> cache;
+
+    /**
+     * Последние известные данные пользователей для ответа при недоступности микросервиса пользователей.
+     */
+    private final Cache<String, User> lastKnown;
+    private final LongAdder staleFallbacks = new LongAdder();
+
+    @Autowired
+    public CachingUserServiceClient(ResilientUserServiceClient delegate,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${user_management.cache.enabled:true}") boolean enabled,
+                                    @Value("${user_management.cache.max-size:10000}") long maxSize,
+                                    @Value("${user_management.cache.ttl-ms:60000}") long ttlMillis,
+                                    @Value("${user_management.cache.negative-ttl-ms:10000}") long negativeTtlMillis,
+                                    @Value("${user_management.cache.refresh-after-ms:30000}") long refreshAfterMillis,
+                                    @Value("${user_management.cache.stale-ttl-ms:86400000}") long staleTtlMillis,
+                                    @Value("${user_management.cache.recheck-after-ms:1000}") long recheckAfterMillis) {
+        this(delegate, delegate, enabled, maxSize, ttlMillis, negativeTtlMillis, refreshAfterMillis, staleTtlMillis,
+                recheckAfterMillis, Ticker.systemTicker(), ForkJoinPool.commonPool());
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        FunctionCounter.builder("user-service.stale-fallback", staleFallbacks, LongAdder::sum)
+                .description("Количество ответов последними известными данными при недоступности микросервиса")
+                .register(meterRegistry);
+    }
+
+    public CachingUserServiceClient(UserServiceClient delegate,
+                                    AsyncUserServiceClient asyncDelegate,
+                                    boolean enabled,
+                                    long maxSize,
+                                    long ttlMillis,
+                                    long negativeTtlMillis,
+                                    long refreshAfterMillis,
+                                    long staleTtlMillis,
+                                    long recheckAfterMillis,
+                                    Ticker ticker,
+                                    Executor executor) {
+        this.delegate = delegate;
+        this.asyncDelegate = asyncDelegate;
+        this.enabled = enabled;
+        this.recheckAfterMillis = recheckAfterMillis;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new PositiveNegativeExpiry(ttlMillis, negativeTtlMillis))
+                .refreshAfterWrite(refreshAfterMillis, TimeUnit.MILLISECONDS)
+                .ticker(ticker)
+                .executor(executor)
+                .recordStats()
+                .build(this::load);
+        this.lastKnown = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(staleTtlMillis, TimeUnit.MILLISECONDS)
+                .ticker(ticker)
+                .build();
+        log.info("IN CachingUserServiceClient - кэш пользователей {}, максимальный размер: {}",
+                enabled ? "включён" : "выключен", maxSize);
+    }
+
+    /**
+     * Возвращает данные пользователя по логину из кэша или, при промахе, из микросервиса пользователей.
+     * @param login - имя пользователя, для которого требуется получить информацию.
+     * @return - объект User или null, если пользователь не найден.
+     */
+    @Override
+    public User getUserByLogin(String login) {
+        if (!enabled) {
+            return delegate.getUserByLogin(login);
+        }
+        return cache.get(login).orElse(null);
+    }
+
+    /**
+     * Возвращает данные пользователя по логину, а при недоступности микросервиса пользователей - последние
+     * известные данные, если они есть.
+     * @param login имя пользователя.
+     * @return объект User или null, если пользователь не найден.
+     * @throws UserServiceUnavailableException выбрасывается, если микросервис недоступен и данных пользователя нет.
+     */
+    @Override
+    public User getUserByLoginAllowStale(String login) {
+        try {
+            return getUserByLogin(login);
+        } catch (UserServiceUnavailableException ex) {
+            return lastKnownOrThrow(login, ex);
+        }
+    }
+
+    /**
+     * Возвращает данные пользователя по логину, повторно запрашивая их у микросервиса пользователей, если данные
+     * в кэше получены раньше user_management.cache.recheck-after-ms. Более свежие данные возвращаются из кэша.
+     * @param login имя пользователя.
+     * @return объект User или null, если пользователь не найден.
+     */
+    @Override
+    public User getUserByLoginFresh(String login) {
+        if (!enabled) {
+            return delegate.getUserByLogin(login);
+        }
+        if (!isRecentlyLoaded(login)) {
+            log.debug("IN getUserByLoginFresh - повторный запрос данных пользователя с логином: {}", login);
+            cache.invalidate(login);
+        }
+        return cache.get(login).orElse(null);
+    }
+
+    /**
+     * Асинхронно возвращает данные пользователя по логину, повторно запрашивая их у микросервиса пользователей,
+     * если данные в кэше получены раньше user_management.cache.recheck-after-ms (см. getUserByLoginFresh()).
+     * Поток не блокируется на время обращения к микросервису пользователей.
+     * @param login имя пользователя.
+     * @return объект User или null, если пользователь не найден.
+     */
+    @Override
+    public CompletableFuture<User> getUserByLoginFreshAsync(String login) {
+        if (!enabled) {
+            return asyncDelegate.getUserByLoginAsync(login);
+        }
+        if (!isRecentlyLoaded(login)) {
+            log.debug("IN getUserByLoginFreshAsync - повторный запрос данных пользователя с логином: {}", login);
+            cache.invalidate(login);
+        }
+        return getUserByLoginAsync(login);
+    }
+
+    /**
+     * Асинхронно возвращает данные пользователя по логину. При попадании в кэш результат готов сразу, при
+     * промахе выполняется асинхронный запрос к микросервису пользователей, результат которого сохраняется в кэш.
+     * @param login имя пользователя.
+     * @return объект User или null, если пользователь не найден.
+     */
+    @Override
+    public CompletableFuture<User> getUserByLoginAsync(String login) {
+        if (!enabled) {
+            return asyncDelegate.getUserByLoginAsync(login);
+        }
+        final Optional<User> cached = cache.getIfPresent(login);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached.orElse(null));
+        }
+        return asyncDelegate.getUserByLoginAsync(login).thenApply(user -> {
+            cache.put(login, remember(login, user));
+            return user;
+        });
+    }
+
+    /**
+     * Асинхронно возвращает данные пользователя по логину, а при недоступности микросервиса пользователей -
+     * последние известные данные, если они есть.
+     * @param login имя пользователя.
+     * @return объект User или null, если пользователь не найден.
+     */
+    @Override
+    public CompletableFuture<User> getUserByLoginAllowStaleAsync(String login) {
+        return getUserByLoginAsync(login).exceptionally(ex -> {
+            final Throwable cause = FutureUtils.unwrap(ex);
+            if (cause instanceof UserServiceUnavailableException unavailable) {
+                return lastKnownOrThrow(login, unavailable);
+            }
+            throw FutureUtils.rethrow(cause);
+        });
+    }
+
+    /**
+     * Удаляет данные пользователя из кэша.
+     * @param login логин пользователя.
+     */
+    public void invalidate(String login) {
+        cache.invalidate(login);
+        lastKnown.invalidate(login);
+    }
+
+    /**
+     * Возвращает статистику кэша: количество попаданий, промахов и вытеснений.
+     * @return снимок статистики кэша.
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    private boolean isRecentlyLoaded(String login) {
+        return cache.policy().refreshAfterWrite()
+                .map(refresh -> refresh.ageOf(login, TimeUnit.MILLISECONDS).orElse(Long.MAX_VALUE))
+                .map(ageMillis -> ageMillis < recheckAfterMillis)
+                .orElse(false);
+    }
+
+    private Optional<User> load(String login) {
+        User user;
+        try {
+            user = delegate.getUserByLogin(login);
+        } catch (HttpClientErrorException.NotFound ex) {
+            log.debug("IN load - пользователь с логином: {} не найден", login);
+            user = null;
+        }
+        return remember(login, user);
+    }
+
+    /**
+     * Обновляет последние известные данные пользователя по ответу микросервиса пользователей.
+     * @return значение для основного кэша.
+     */
+    private Optional<User> remember(String login, User user) {
+        if (user == null) {
+            lastKnown.invalidate(login);
+            return Optional.empty();
+        }
+        lastKnown.put(login, user);
+        return Optional.of(user);
+    }
+
+    private User lastKnownOrThrow(String login, UserServiceUnavailableException ex) {
+        final User user = enabled ? lastKnown.getIfPresent(login) : null;
+        if (user == null) {
+            throw ex;
+        }
+        staleFallbacks.increment();
+        log.warn("IN getUserByLoginAllowStale - микросервис пользователей недоступен, для логина: {} "
+                + "используются последние известные данные", login);
+        return user;
+    }
+
+    /**
+     * Политика истечения с разным временем жизни найденных и не найденных пользователей.
+     */
+    private static final class PositiveNegativeExpiry implements Expiry<String, Optional<User>> {
+
+        private final long ttlNanos;
+        private final long negativeTtlNanos;
+
+        private PositiveNegativeExpiry(long ttlMillis, long negativeTtlMillis) {
+            this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+            this.negativeTtlNanos = TimeUnit.MILLISECONDS.toNanos(negativeTtlMillis);
+        }
+
+        @Override
+        public long expireAfterCreate(String key, Optional<User> value, long currentTime) {
+            return value.isPresent() ? ttlNanos : negativeTtlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Optional<User> value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Optional<User> value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package ru.averkiev.greenchat_auth.clients.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.util.DefaultUriBuilderFactory;
+import org.springframework.web.util.UriBuilderFactory;
+import ru.averkiev.greenchat_auth.clients.AsyncUserServiceClient;
+import ru.averkiev.greenchat_auth.exceptions.UserServiceUnavailableException;
+import ru.averkiev.greenchat_auth.models.User;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Класс представляет собой асинхронный клиент API микросервиса пользователей на основе неблокирующего
+ * java.net.http.HttpClient. Ожидание ответа не занимает поток, поэтому количество потоков не растёт при увеличении
+ * задержки микросервиса пользователей. Ответы разбираются пулом из user_management.async.threads потоков, по
+ * умолчанию - по числу процессоров. Этот же пул используется HTTP-клиентом, поэтому зависимые от ответа этапы
+ * (проверка пароля, выпуск и сохранение токенов) выполняются не в нём, а в пуле authExecutor.
+ * Одновременные запросы одного логина объединяет ResilientUserServiceClient.
+ * @author mrGreenNV
+ */
+@Slf4j
+@Service
+public class HttpAsyncUserServiceClient implements AsyncUserServiceClient {
+
+    private final HttpClient httpClient;
+    private final ExecutorService executor;
+    private final ObjectMapper objectMapper;
+    private final UriBuilderFactory uriBuilderFactory = new DefaultUriBuilderFactory();
+    private final String apiUrl;
+    private final Duration requestTimeout;
+
+    @Autowired
+    public HttpAsyncUserServiceClient(ObjectMapper objectMapper,
+                                      @Value("${user_management.url}") String apiUrl,
+                                      @Value("${user_management.http.connect-timeout-ms:1000}")
+                                      long connectTimeoutMillis,
+                                      @Value("${user_management.http.request-timeout-ms:3000}")
+                                      long requestTimeoutMillis,
+                                      @Value("${user_management.async.threads:0}") int threads) {
+        if (threads <= 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        this.objectMapper = objectMapper;
+        this.apiUrl = apiUrl;
+        this.requestTimeout = requestTimeoutMillis > 0 ? Duration.ofMillis(requestTimeoutMillis) : null;
+        final AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            final Thread thread = new Thread(runnable, "user-service-async-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+                .executor(executor)
+                .build();
+        log.info("IN HttpAsyncUserServiceClient - асинхронный клиент микросервиса пользователей, потоков: {}",
+                threads);
+    }
+
+    /**
+     * Асинхронно выполняет GET-запрос к API микросервиса пользователей. Ответ 404 и пустой ответ означают, что
+     * пользователь не найден; ответ 5xx завершает вызов исключением UserServiceUnavailableException, прочие
+     * ответы 4xx - исключением HttpClientErrorException.
+     * @param login имя пользователя, для которого требуется получить информацию.
+     * @return объект User или null, если пользователь не найден.
+     */
+    @Override
+    public CompletableFuture<User> getUserByLoginAsync(String login) {
+        final HttpRequest.Builder request = HttpRequest.newBuilder(uriBuilderFactory.expand(apiUrl, login))
+                .header("Accept", "application/json")
+                .GET();
+        if (requestTimeout != null) {
+            request.timeout(requestTimeout);
+        }
+        return httpClient.sendAsync(request.build(), HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(this::toUser);
+    }
+
+    /**
+     * Останавливает пул потоков обработки ответов.
+     */
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private User toUser(HttpResponse<byte[]> response) {
+        final int status = response.statusCode();
+        if (status == 404) {
+            return null;
+        }
+        if (status >= 500) {
+            throw new UserServiceUnavailableException("Микросервис пользователей ответил статусом " + status, 0);
+        }
+        if (status >= 400) {
+            throw HttpClientErrorException.create(HttpStatusCode.valueOf(status), "", null, response.body(), null);
+        }
+        final byte[] body = response.body();
+        if (body == null || body.length == 0) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(body, User.class);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package ru.averkiev.greenchat_auth.clients.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import ru.averkiev.greenchat_auth.clients.AsyncUserServiceClient;
+import ru.averkiev.greenchat_auth.clients.UserServiceClient;
+import ru.averkiev.greenchat_auth.exceptions.UserServiceUnavailableException;
+import ru.averkiev.greenchat_auth.models.User;
+import ru.averkiev.greenchat_auth.utils.CircuitBreaker;
+import ru.averkiev.greenchat_auth.utils.FutureUtils;
+import ru.averkiev.greenchat_auth.utils.SingleFlight;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Класс представляет собой обёртку над UserServiceClientImpl и HttpAsyncUserServiceClient, защищающую сервис
+ * аутентификации от деградации микросервиса пользователей. Количество одновременных запросов ограничено
+ * (user_management.bulkhead.*), поэтому медленный микросервис занимает не больше заданного числа потоков. После
+ * серии ошибок подряд автоматический выключатель (user_management.breaker.*) на время отклоняет запросы, а затем
+ * пропускает пробные запросы.
+ * Отклонённые и неудачные запросы завершаются исключением UserServiceUnavailableException, которое
+ * GlobalExceptionHandler преобразует в ответ 503. Ответы 4xx (например, 404 для неизвестного логина) ошибкой
+ * сервиса не считаются, кроме ответа 429: перегруженный микросервис должен открывать выключатель. Состояние
+ * выключателя, его переходы и количество отклонённых запросов публикуются в метриках user-service.breaker.* и
+ * user-service.rejected. Синхронные и асинхронные запросы используют общие выключатель и ограничение количества
+ * одновременных запросов; асинхронный запрос не ожидает свободного места.
+ * Одновременные запросы одного логина (например, при одновременном обновлении токенов на нескольких устройствах)
+ * объединяются до выключателя и ограничения, поэтому занимают одно место и учитываются выключателем как один
+ * запрос; результат или ошибка возвращается всем ожидающим. Количество объединённых запросов публикуется в
+ * метриках user-service.coalesced и user-service.async.coalesced.
+ * @author mrGreenNV
+ */
+@Slf4j
+@Service
+public class ResilientUserServiceClient implements UserServiceClient, AsyncUserServiceClient {
+
+    private final UserServiceClient delegate;
+    private final AsyncUserServiceClient asyncDelegate;
+    private final CircuitBreaker circuitBreaker;
+    private final Semaphore bulkhead;
+    private final long maxWaitMillis;
+    private final Counter rejectedByBreaker;
+    private final Counter rejectedByBulkhead;
+    private final SingleFlight<String, User> inFlightLookups = new SingleFlight<>();
+    private final SingleFlight<String, User> asyncInFlightLookups = new SingleFlight<>();
+
+    @Autowired
+    public ResilientUserServiceClient(UserServiceClientImpl delegate,
+                                      HttpAsyncUserServiceClient asyncDelegate,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${user_management.breaker.failure-threshold:5}") int failureThreshold,
+                                      @Value("${user_management.breaker.open-ms:10000}") long openMillis,
+                                      @Value("${user_management.breaker.half-open-probes:1}") int halfOpenProbes,
+                                      @Value("${user_management.bulkhead.max-concurrent:20}") int maxConcurrent,
+                                      @Value("${user_management.bulkhead.max-wait-ms:0}") long maxWaitMillis) {
+        this(delegate, asyncDelegate, meterRegistry, failureThreshold, openMillis, halfOpenProbes, maxConcurrent,
+                maxWaitMillis, System::nanoTime);
+    }
+
+    public ResilientUserServiceClient(UserServiceClient delegate,
+                                      AsyncUserServiceClient asyncDelegate,
+                                      MeterRegistry meterRegistry,
+                                      int failureThreshold,
+                                      long openMillis,
+                                      int halfOpenProbes,
+                                      int maxConcurrent,
+                                      long maxWaitMillis,
+                                      LongSupplier nanoTime) {
+        this.delegate = delegate;
+        this.asyncDelegate = asyncDelegate;
+        this.maxWaitMillis = maxWaitMillis;
+        this.bulkhead = new Semaphore(maxConcurrent);
+        this.circuitBreaker = new CircuitBreaker(failureThreshold, openMillis, halfOpenProbes, nanoTime,
+                (from, to) -> {
+                    log.warn("IN ResilientUserServiceClient - выключатель микросервиса пользователей: {} -> {}",
+                            from, to);
+                    Counter.builder("user-service.breaker.transitions")
+                            .description("Количество переходов выключателя микросервиса пользователей")
+                            .tag("from", from.name())
+                            .tag("to", to.name())
+                            .register(meterRegistry)
+                            .increment();
+                });
+        this.rejectedByBreaker = Counter.builder("user-service.rejected")
+                .description("Количество запросов пользователя, отклонённых без обращения к микросервису")
+                .tag("reason", "circuit_open")
+                .register(meterRegistry);
+        this.rejectedByBulkhead = Counter.builder("user-service.rejected")
+                .description("Количество запросов пользователя, отклонённых без обращения к микросервису")
+                .tag("reason", "bulkhead_full")
+                .register(meterRegistry);
+        Gauge.builder("user-service.breaker.state", circuitBreaker, breaker -> breaker.state().ordinal())
+                .description("Состояние выключателя микросервиса пользователей: 0 - CLOSED, 1 - OPEN, 2 - HALF_OPEN")
+                .register(meterRegistry);
+        Gauge.builder("user-service.bulkhead.available", bulkhead, Semaphore::availablePermits)
+                .description("Количество свободных мест для одновременных запросов к микросервису пользователей")
+                .register(meterRegistry);
+        FunctionCounter.builder("user-service.coalesced", inFlightLookups, SingleFlight::coalescedCount)
+                .description("Количество запросов пользователя, объединённых с уже выполняемым запросом того же логина")
+                .register(meterRegistry);
+        FunctionCounter.builder("user-service.async.coalesced", asyncInFlightLookups, SingleFlight::coalescedCount)
+                .description("Количество асинхронных запросов пользователя, объединённых с уже выполняемым запросом")
+                .register(meterRegistry);
+        log.info("IN ResilientUserServiceClient - порог ошибок: {}, одновременных запросов: {}",
+                failureThreshold, maxConcurrent);
+    }
+
+    /**
+     * Запрашивает данные пользователя у микросервиса пользователей, если это разрешают ограничение количества
+     * одновременных запросов и автоматический выключатель.
+     * @param login - имя пользователя, для которого требуется получить информацию.
+     * @return - объект User или null, если пользователь не найден.
+     * @throws UserServiceUnavailableException - выбрасывается, если запрос отклонён или завершился ошибкой.
+     */
+    @Override
+    public User getUserByLogin(String login) {
+        return inFlightLookups.execute(login, () -> guardedCall(login));
+    }
+
+    /**
+     * Асинхронно запрашивает данные пользователя у микросервиса пользователей. Отклонённый запрос завершается
+     * сразу, без ожидания свободного места.
+     * @param login имя пользователя, для которого требуется получить информацию.
+     * @return объект User или null, если пользователь не найден; при отклонении или ошибке запроса результат
+     * завершается исключением UserServiceUnavailableException.
+     */
+    @Override
+    public CompletableFuture<User> getUserByLoginAsync(String login) {
+        return asyncInFlightLookups.executeAsync(login, () -> guardedCallAsync(login));
+    }
+
+    /**
+     * Возвращает текущее состояние автоматического выключателя.
+     * @return состояние выключателя.
+     */
+    public CircuitBreaker.State state() {
+        return circuitBreaker.state();
+    }
+
+    /**
+     * Возвращает количество запросов, объединённых с уже выполняемым запросом того же логина.
+     * @return количество объединённых синхронных и асинхронных запросов.
+     */
+    public long coalescedCount() {
+        return inFlightLookups.coalescedCount() + asyncInFlightLookups.coalescedCount();
+    }
+
+    private User guardedCall(String login) {
+        if (!acquireBulkhead()) {
+            rejectedByBulkhead.increment();
+            throw new UserServiceUnavailableException(
+                    "Превышено количество одновременных запросов к микросервису пользователей", 0);
+        }
+        try {
+            if (!circuitBreaker.tryAcquirePermission()) {
+                rejectedByBreaker.increment();
+                throw new UserServiceUnavailableException("Микросервис пользователей временно недоступен",
+                        circuitBreaker.remainingOpenMillis());
+            }
+            return call(login);
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    private CompletableFuture<User> guardedCallAsync(String login) {
+        if (!bulkhead.tryAcquire()) {
+            rejectedByBulkhead.increment();
+            return CompletableFuture.failedFuture(new UserServiceUnavailableException(
+                    "Превышено количество одновременных запросов к микросервису пользователей", 0));
+        }
+        if (!circuitBreaker.tryAcquirePermission()) {
+            bulkhead.release();
+            rejectedByBreaker.increment();
+            return CompletableFuture.failedFuture(new UserServiceUnavailableException(
+                    "Микросервис пользователей временно недоступен", circuitBreaker.remainingOpenMillis()));
+        }
+        CompletableFuture<User> call;
+        try {
+            call = asyncDelegate.getUserByLoginAsync(login);
+        } catch (RuntimeException ex) {
+            call = CompletableFuture.failedFuture(ex);
+        }
+        return call.handle((user, ex) -> {
+            bulkhead.release();
+            if (ex == null) {
+                circuitBreaker.onSuccess();
+                return user;
+            }
+            throw translateFailure(FutureUtils.unwrap(ex));
+        });
+    }
+
+    private User call(String login) {
+        try {
+            final User user = delegate.getUserByLogin(login);
+            circuitBreaker.onSuccess();
+            return user;
+        } catch (RuntimeException ex) {
+            throw translateFailure(ex);
+        }
+    }
+
+    /**
+     * Отмечает результат неудачного запроса в выключателе и возвращает исключение для вызывающего.
+     */
+    private RuntimeException translateFailure(Throwable ex) {
+        if (ex instanceof HttpClientErrorException clientError
+                && clientError.getStatusCode().value() != HttpStatus.TOO_MANY_REQUESTS.value()) {
+            // Ответ 4xx, кроме 429, означает, что микросервис пользователей работает.
+            circuitBreaker.onSuccess();
+            return clientError;
+        }
+        circuitBreaker.onFailure();
+        log.warn("IN getUserByLogin - ошибка запроса к микросервису пользователей: {}", ex.getMessage());
+        if (ex instanceof UserServiceUnavailableException unavailable) {
+            return unavailable;
+        }
+        return new UserServiceUnavailableException("Микросервис пользователей недоступен", ex);
+    }
+
+    private boolean acquireBulkhead() {
+        if (maxWaitMillis <= 0) {
+            return bulkhead.tryAcquire();
+        }
+        try {
+            return bulkhead.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package ru.averkiev.greenchat_auth.configs;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.averkiev.greenchat_auth.utils.CachedClock;
+
+import java.time.Clock;
+
+/**
+ * Класс представляет собой конфигурацию часов, по которым выпускаются токены и проверяется срок их действия.
+ * Все компоненты получают время только из этого бина, поэтому в тестах и бенчмарках его можно заменить
+ * фиксированными часами.
+ * @author mrGreenNV
+ */
+@Slf4j
+@Configuration
+public class ClockConfig {
+
+    /**
+     * Создаёт часы UTC. При положительном шаге обновления используются кэшированные часы CachedClock,
+     * иначе - системные часы. Потребителям часов (iat, exp, эпохи отзыва) достаточно точности до секунды, поэтому
+     * шаг по умолчанию - 100 мс. Фоновый поток CachedClock останавливается при закрытии контекста.
+     * @param tickMillis шаг обновления кэшированного времени в миллисекундах.
+     * @return экземпляр объекта Clock.
+     */
+    @Bean
+    public Clock clock(@Value("${clock.tick-millis:100}") long tickMillis) {
+        if (tickMillis <= 0) {
+            log.info("IN clock - используются системные часы UTC");
+            return Clock.systemUTC();
+        }
+        log.info("IN clock - используются кэшированные часы UTC с шагом обновления {} мс", tickMillis);
+        return new CachedClock(tickMillis);
+    }
+}
@@ -0,0 +1,202 @@
+package ru.averkiev.greenchat_auth.configs;
+
+import org.apache.hc.client5.http.classic.HttpClient;
+import org.apache.hc.core5.concurrent.Cancellable;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Класс представляет собой фабрику HTTP-запросов на основе Apache HttpClient, ограничивающую общее время
+ * выполнения запроса. Таймауты подключения и чтения ограничивают только отдельные операции, поэтому сервис,
+ * медленно отдающий ответ по частям, может удерживать поток сколь угодно долго. По истечении общего времени
+ * запрос отменяется, соединение закрывается, а вызывающий получает ResourceAccessException. Запланированная отмена
+ * снимается при закрытии ответа или ошибке запроса, поэтому очередь потока отмены содержит только выполняющиеся
+ * запросы.
+ * @author mrGreenNV
+ */
+public class DeadlineClientHttpRequestFactory extends HttpComponentsClientHttpRequestFactory {
+
+    private final long deadlineMillis;
+    private final ScheduledThreadPoolExecutor canceller;
+
+    /**
+     * Отмена, запланированная в createHttpUriRequest() и передаваемая в createRequest() того же потока.
+     */
+    private final ThreadLocal<ScheduledFuture<?>> scheduledDeadline = new ThreadLocal<>();
+
+    /**
+     * @param httpClient HTTP-клиент, выполняющий запросы.
+     * @param deadlineMillis общее время выполнения запроса в миллисекундах; при неположительном значении
+     *                       ограничение не применяется.
+     */
+    public DeadlineClientHttpRequestFactory(HttpClient httpClient, long deadlineMillis) {
+        super(httpClient);
+        this.deadlineMillis = deadlineMillis;
+        if (deadlineMillis > 0) {
+            this.canceller = new ScheduledThreadPoolExecutor(1, runnable -> {
+                final Thread thread = new Thread(runnable, "user-service-http-deadline");
+                thread.setDaemon(true);
+                return thread;
+            });
+            // Снятая отмена сразу удаляется из очереди, а не хранится до истечения срока.
+            this.canceller.setRemoveOnCancelPolicy(true);
+        } else {
+            this.canceller = null;
+        }
+    }
+
+    /**
+     * Создаёт запрос, отмена которого снимается при закрытии ответа.
+     */
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+        final ClientHttpRequest request;
+        final ScheduledFuture<?> deadline;
+        try {
+            request = super.createRequest(uri, httpMethod);
+        } catch (IOException | RuntimeException ex) {
+            cancel(scheduledDeadline.get());
+            throw ex;
+        } finally {
+            deadline = scheduledDeadline.get();
+            scheduledDeadline.remove();
+        }
+        return deadline == null ? request : new DeadlineClientHttpRequest(request, deadline);
+    }
+
+    /**
+     * Создаёт запрос и планирует его отмену по истечении общего времени выполнения. RestTemplate выполняет
+     * запрос сразу после создания, поэтому отсчёт начинается здесь. Отмена уже завершённого запроса не влияет
+     * на соединение, возвращённое в пул.
+     */
+    @Override
+    protected ClassicHttpRequest createHttpUriRequest(HttpMethod httpMethod, URI uri) {
+        final ClassicHttpRequest request = super.createHttpUriRequest(httpMethod, uri);
+        if (canceller != null && request instanceof Cancellable cancellable) {
+            scheduledDeadline.set(canceller.schedule(cancellable::cancel, deadlineMillis, TimeUnit.MILLISECONDS));
+        }
+        return request;
+    }
+
+    /**
+     * Возвращает количество запланированных отмен, то есть выполняющихся запросов.
+     * @return размер очереди потока отмены.
+     */
+    int pendingDeadlines() {
+        return canceller == null ? 0 : canceller.getQueue().size();
+    }
+
+    /**
+     * Останавливает поток отмены запросов и закрывает HTTP-клиент.
+     */
+    @Override
+    public void destroy() throws Exception {
+        if (canceller != null) {
+            canceller.shutdownNow();
+        }
+        super.destroy();
+    }
+
+    private static void cancel(ScheduledFuture<?> deadline) {
+        if (deadline != null) {
+            deadline.cancel(false);
+        }
+    }
+
+    /**
+     * Запрос, снимающий запланированную отмену при ошибке выполнения и передающий её ответу.
+     */
+    private static final class DeadlineClientHttpRequest implements ClientHttpRequest {
+
+        private final ClientHttpRequest delegate;
+        private final ScheduledFuture<?> deadline;
+
+        private DeadlineClientHttpRequest(ClientHttpRequest delegate, ScheduledFuture<?> deadline) {
+            this.delegate = delegate;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public ClientHttpResponse execute() throws IOException {
+            try {
+                return new DeadlineClientHttpResponse(delegate.execute(), deadline);
+            } catch (IOException | RuntimeException ex) {
+                cancel(deadline);
+                throw ex;
+            }
+        }
+
+        @Override
+        public OutputStream getBody() throws IOException {
+            return delegate.getBody();
+        }
+
+        @Override
+        public HttpMethod getMethod() {
+            return delegate.getMethod();
+        }
+
+        @Override
+        public URI getURI() {
+            return delegate.getURI();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+    }
+
+    /**
+     * Ответ, снимающий запланированную отмену запроса при закрытии.
+     */
+    private static final class DeadlineClientHttpResponse implements ClientHttpResponse {
+
+        private final ClientHttpResponse delegate;
+        private final ScheduledFuture<?> deadline;
+
+        private DeadlineClientHttpResponse(ClientHttpResponse delegate, ScheduledFuture<?> deadline) {
+            this.delegate = delegate;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            return delegate.getBody();
+        }
+
+        @Override
+        public void close() {
+            cancel(deadline);
+            delegate.close();
+        }
+    }
+}
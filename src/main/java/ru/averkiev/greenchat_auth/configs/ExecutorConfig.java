@@ -0,0 +1,66 @@
+package ru.averkiev.greenchat_auth.configs;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.averkiev.greenchat_auth.utils.BatchExecutor;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Класс представляет собой конфигурацию пулов потоков сервиса аутентификации. Пулы ограничены по количеству
+ * потоков и размеру очереди и не используют общий ForkJoinPool.
+ * @author mrGreenNV
+ */
+@Slf4j
+@Configuration
+public class ExecutorConfig {
+
+    /**
+     * Создаёт пул потоков пакетной проверки refresh токенов. Потоки останавливаются при закрытии контекста.
+     * @param threads количество потоков; 0 - по числу процессоров.
+     * @param queueCapacity максимальное количество частей пакетов, ожидающих свободного потока.
+     * @return экземпляр объекта BatchExecutor.
+     */
+    @Bean
+    public BatchExecutor validationExecutor(@Value("${jwt.validate.threads:0}") int threads,
+                                            @Value("${jwt.validate.queue-capacity:64}") int queueCapacity) {
+        log.info("IN validationExecutor - пул пакетной проверки токенов, потоков: {}, очередь: {}",
+                threads, queueCapacity);
+        return new BatchExecutor("jwt-validate-", threads, queueCapacity);
+    }
+
+    /**
+     * Создаёт пул потоков, в котором асинхронные вход и обновление токенов продолжаются после получения данных
+     * пользователя: проверка пароля, выпуск и сохранение токенов. Эти этапы не выполняются в потоках асинхронного
+     * клиента микросервиса пользователей, поэтому bcrypt и запросы к базе данных не задерживают обработку ответов.
+     * При заполненной очереди задача отклоняется исключением RejectedExecutionException, а не выполняется в
+     * потоке клиента. Потоки останавливаются при закрытии контекста.
+     * @param threads количество потоков; 0 - по числу процессоров.
+     * @param queueCapacity максимальное количество задач, ожидающих свободного потока.
+     * @return экземпляр объекта ThreadPoolExecutor.
+     */
+    @Bean
+    public ThreadPoolExecutor authExecutor(@Value("${user_management.async.auth-threads:0}") int threads,
+                                           @Value("${user_management.async.auth-queue-capacity:256}")
+                                           int queueCapacity) {
+        if (threads <= 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        log.info("IN authExecutor - пул асинхронной аутентификации, потоков: {}, очередь: {}",
+                threads, queueCapacity);
+        final AtomicInteger threadNumber = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    final Thread thread = new Thread(runnable, "auth-async-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+}
@@ -0,0 +1,35 @@
+package ru.averkiev.greenchat_auth.configs;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Класс представляет собой источник данных, направляющий соединения read-only транзакций на реплику, а все
+ * остальные соединения - на основной сервер базы данных. Используется вместе с LazyConnectionDataSourceProxy:
+ * физическое соединение запрашивается при первом SQL запросе, когда признак read-only транзакции уже установлен.
+ * @author mrGreenNV
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    /**
+     * Ключ выбора источника данных.
+     */
+    public enum Route {
+        PRIMARY,
+        REPLICA
+    }
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica) {
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? Route.REPLICA : Route.PRIMARY;
+    }
+}
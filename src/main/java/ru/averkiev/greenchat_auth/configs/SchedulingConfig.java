@@ -0,0 +1,14 @@
+package ru.averkiev.greenchat_auth.configs;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Класс представляет собой конфигурацию, включающую выполнение фоновых задач по расписанию, например удаления
+ * токенов с истёкшим сроком действия.
+ * @author mrGreenNV
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -11,7 +11,6 @@ import org.springframework.security.config.annotation.web.configurers.AbstractHt
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
-import org.springframework.web.client.RestTemplate;
 import ru.averkiev.greenchat_auth.security.JwtFilter;
 
 /**
@@ -30,16 +29,6 @@ public class SecurityConfig {
      */
     private final JwtFilter jwtFilter;
 
-    /**
-     * Создает экземпляр объекта RestTemplate, который будет использоваться для взаимодействия с другими
-     * микросервисами через HTTP.
-     * @return возвращает экземпляр объекта RestTemplate.
-     */
-    @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
-    }
-
     /**
      * Создаёт экземпляр объекта BCryptPasswordEncoder, который будет использоваться для хеширования паролей.
      * @return экземпляр объекта BCryptPasswordEncoder
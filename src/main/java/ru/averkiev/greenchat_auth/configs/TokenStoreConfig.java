@@ -0,0 +1,109 @@
+package ru.averkiev.greenchat_auth.configs;
+
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.SocketOptions;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import ru.averkiev.greenchat_auth.models.AccessToken;
+import ru.averkiev.greenchat_auth.models.RefreshToken;
+import ru.averkiev.greenchat_auth.repositories.AccessTokenRepository;
+import ru.averkiev.greenchat_auth.repositories.RefreshTokenRepository;
+import ru.averkiev.greenchat_auth.services.TokenStore;
+import ru.averkiev.greenchat_auth.services.TokenType;
+import ru.averkiev.greenchat_auth.services.impl.InMemoryTokenStore;
+import ru.averkiev.greenchat_auth.services.impl.JpaAccessTokenStore;
+import ru.averkiev.greenchat_auth.services.impl.JpaRefreshTokenStore;
+import ru.averkiev.greenchat_auth.services.impl.RedisTokenStore;
+import ru.averkiev.greenchat_auth.services.impl.ReplicaReadRouter;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Класс представляет собой конфигурацию хранилищ access и refresh токенов. Тип хранилища задаётся настройкой
+ * jwt.token-store.type: jpa - таблицы базы данных (по умолчанию), memory - память процесса (один экземпляр
+ * сервиса или тесты), redis - сервер, совместимый с протоколом Redis. Подключение к Redis (клиент Lettuce)
+ * создаётся только для хранилища redis, поэтому автоконфигурация Redis Spring Boot отключена.
+ * @author mrGreenNV
+ */
+@Slf4j
+@Configuration
+public class TokenStoreConfig {
+
+    @Value("${jwt.token-store.type:jpa}")
+    private String type;
+
+    @Value("${jwt.token-store.memory.shards:16}")
+    private int shards;
+
+    @Value("${jwt.token-store.redis.key-prefix:greenchat:auth}")
+    private String keyPrefix;
+
+    /**
+     * Создаёт хранилище access токенов выбранного типа.
+     * @return экземпляр объекта TokenStore.
+     */
+    @Bean
+    public TokenStore<AccessToken> accessTokenStore(AccessTokenRepository accessTokenRepository,
+                                                    ReplicaReadRouter replicaReadRouter,
+                                                    ObjectProvider<RedisConnectionFactory> redisConnectionFactory,
+                                                    Clock clock) {
+        log.info("IN accessTokenStore - хранилище access токенов: {}", type);
+        return switch (type) {
+            case "jpa" -> new JpaAccessTokenStore(accessTokenRepository, replicaReadRouter);
+            case "memory" -> new InMemoryTokenStore<>(TokenType.ACCESS, shards, clock);
+            case "redis" -> new RedisTokenStore<>(
+                    TokenType.ACCESS, redisConnectionFactory.getObject(), keyPrefix, clock);
+            default -> throw new IllegalArgumentException("Неизвестный тип хранилища токенов: " + type);
+        };
+    }
+
+    /**
+     * Создаёт хранилище refresh токенов выбранного типа.
+     * @return экземпляр объекта TokenStore.
+     */
+    @Bean
+    public TokenStore<RefreshToken> refreshTokenStore(RefreshTokenRepository refreshTokenRepository,
+                                                      ReplicaReadRouter replicaReadRouter,
+                                                      ObjectProvider<RedisConnectionFactory> redisConnectionFactory,
+                                                      Clock clock) {
+        log.info("IN refreshTokenStore - хранилище refresh токенов: {}", type);
+        return switch (type) {
+            case "jpa" -> new JpaRefreshTokenStore(refreshTokenRepository, replicaReadRouter);
+            case "memory" -> new InMemoryTokenStore<>(TokenType.REFRESH, shards, clock);
+            case "redis" -> new RedisTokenStore<>(
+                    TokenType.REFRESH, redisConnectionFactory.getObject(), keyPrefix, clock);
+            default -> throw new IllegalArgumentException("Неизвестный тип хранилища токенов: " + type);
+        };
+    }
+
+    /**
+     * Создаёт фабрику подключений Lettuce к серверу, совместимому с протоколом Redis. Lettuce выполняет команды
+     * всех потоков через одно потокобезопасное соединение, которое закрывается при закрытии контекста.
+     * @return экземпляр объекта LettuceConnectionFactory.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "jwt.token-store.type", havingValue = "redis")
+    public LettuceConnectionFactory redisConnectionFactory(
+            @Value("${jwt.token-store.redis.host:localhost}") String host,
+            @Value("${jwt.token-store.redis.port:6379}") int port,
+            @Value("${jwt.token-store.redis.timeout-ms:2000}") long timeoutMillis) {
+        final Duration timeout = Duration.ofMillis(timeoutMillis);
+        final LettuceClientConfiguration clientConfiguration = LettuceClientConfiguration.builder()
+                .commandTimeout(timeout)
+                .clientOptions(ClientOptions.builder()
+                        .socketOptions(SocketOptions.builder().connectTimeout(timeout).build())
+                        .build())
+                .build();
+        log.info("IN redisConnectionFactory - сервер Redis: {}:{}", host, port);
+        return new LettuceConnectionFactory(new RedisStandaloneConfiguration(host, port), clientConfiguration);
+    }
+}
@@ -0,0 +1,118 @@
+package ru.averkiev.greenchat_auth.configs;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.function.ToIntFunction;
+
+/**
+ * Класс представляет собой конфигурацию HTTP-клиента для обращений к микросервису пользователей. Соединения
+ * переиспользуются из ограниченного пула (user_management.http.max-connections и
+ * user_management.http.max-connections-per-route), простаивающие соединения закрываются фоновым потоком, а каждое
+ * обращение ограничено таймаутами получения соединения из пула, подключения, чтения и общего времени запроса.
+ * Поэтому медленный микросервис пользователей не может занять все потоки Tomcat. Заполненность пула публикуется
+ * в метриках user-service.http.pool.*.
+ * @author mrGreenNV
+ */
+@Slf4j
+@Configuration
+public class UserServiceHttpClientConfig {
+
+    /**
+     * Создаёт пул соединений с микросервисом пользователей и регистрирует метрики его заполненности.
+     * @return экземпляр объекта PoolingHttpClientConnectionManager.
+     */
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager userServiceConnectionManager(
+            MeterRegistry meterRegistry,
+            @Value("${user_management.http.max-connections:50}") int maxConnections,
+            @Value("${user_management.http.max-connections-per-route:50}") int maxConnectionsPerRoute,
+            @Value("${user_management.http.connect-timeout-ms:1000}") long connectTimeoutMillis,
+            @Value("${user_management.http.read-timeout-ms:2000}") long readTimeoutMillis,
+            @Value("${user_management.http.connection-ttl-ms:60000}") long connectionTtlMillis,
+            @Value("${user_management.http.validate-after-inactivity-ms:2000}") long validateAfterInactivityMillis) {
+        final PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnectionsPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMillis))
+                        .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMillis))
+                        .setTimeToLive(TimeValue.ofMilliseconds(connectionTtlMillis))
+                        .setValidateAfterInactivity(TimeValue.ofMilliseconds(validateAfterInactivityMillis))
+                        .build())
+                .build();
+
+        registerPoolGauge(meterRegistry, connectionManager, "leased",
+                "Количество соединений с микросервисом пользователей, занятых запросами", PoolStats::getLeased);
+        registerPoolGauge(meterRegistry, connectionManager, "available",
+                "Количество простаивающих соединений с микросервисом пользователей", PoolStats::getAvailable);
+        registerPoolGauge(meterRegistry, connectionManager, "pending",
+                "Количество запросов, ожидающих свободного соединения", PoolStats::getPending);
+        registerPoolGauge(meterRegistry, connectionManager, "max",
+                "Максимальное количество соединений с микросервисом пользователей", PoolStats::getMax);
+
+        log.info("IN userServiceConnectionManager - пул соединений с микросервисом пользователей: {}, на маршрут: {}",
+                maxConnections, maxConnectionsPerRoute);
+        return connectionManager;
+    }
+
+    /**
+     * Создаёт фабрику запросов на основе Apache HttpClient с пулом соединений и ограничением общего времени
+     * запроса. HTTP-клиент закрывается вместе с фабрикой при закрытии контекста.
+     * @return экземпляр объекта DeadlineClientHttpRequestFactory.
+     */
+    @Bean
+    public DeadlineClientHttpRequestFactory userServiceRequestFactory(
+            PoolingHttpClientConnectionManager userServiceConnectionManager,
+            @Value("${user_management.http.connection-request-timeout-ms:500}") long connectionRequestTimeoutMillis,
+            @Value("${user_management.http.read-timeout-ms:2000}") long readTimeoutMillis,
+            @Value("${user_management.http.request-timeout-ms:3000}") long requestTimeoutMillis,
+            @Value("${user_management.http.idle-eviction-ms:30000}") long idleEvictionMillis) {
+        final CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(userServiceConnectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(connectionRequestTimeoutMillis))
+                        .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMillis))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofMilliseconds(idleEvictionMillis))
+                .disableAutomaticRetries()
+                .build();
+        return new DeadlineClientHttpRequestFactory(httpClient, requestTimeoutMillis);
+    }
+
+    /**
+     * Создает экземпляр объекта RestTemplate, который будет использоваться для взаимодействия с другими
+     * микросервисами через HTTP.
+     * @return возвращает экземпляр объекта RestTemplate.
+     */
+    @Bean
+    public RestTemplate restTemplate(DeadlineClientHttpRequestFactory userServiceRequestFactory) {
+        return new RestTemplate(userServiceRequestFactory);
+    }
+
+    private static void registerPoolGauge(MeterRegistry meterRegistry,
+                                          PoolingHttpClientConnectionManager connectionManager,
+                                          String name,
+                                          String description,
+                                          ToIntFunction<PoolStats> stat) {
+        Gauge.builder("user-service.http.pool." + name, connectionManager,
+                        manager -> stat.applyAsInt(manager.getTotalStats()))
+                .description(description)
+                .register(meterRegistry);
+    }
+}
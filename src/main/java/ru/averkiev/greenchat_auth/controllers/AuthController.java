@@ -1,21 +1,37 @@
 package ru.averkiev.greenchat_auth.controllers;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import ru.averkiev.greenchat_auth.models.JwtIntrospectionResponse;
 import ru.averkiev.greenchat_auth.models.JwtRequest;
+import ru.averkiev.greenchat_auth.models.JwtRequestBatchValidate;
+import ru.averkiev.greenchat_auth.models.JwtRequestIntrospect;
 import ru.averkiev.greenchat_auth.models.JwtRequestRefresh;
+import ru.averkiev.greenchat_auth.models.JwtRequestRevoke;
 import ru.averkiev.greenchat_auth.models.JwtResponse;
+import ru.averkiev.greenchat_auth.models.JwtValidationResult;
 import ru.averkiev.greenchat_auth.services.AuthService;
 
+import java.time.Clock;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Класс представляет собой REST-контроллер для аутентификации и авторизации пользователей в системе.
  * Этот класс предоставляет API-endpoints для выполнения операций входа в систему, получения новых и обновления JWT
- * токенов. Все запросы выполняются в формате JSON.
+ * токенов. Все запросы выполняются в формате JSON. При user_management.async.enabled = true операции входа, получения
+ * и обновления токенов обращаются к микросервису пользователей асинхронно: поток Tomcat освобождается на время
+ * запроса, а ответ отправляется после его завершения.
  * @author mrGreenNV
  */
 @RestController
@@ -24,6 +40,19 @@ import ru.averkiev.greenchat_auth.services.AuthService;
 public class AuthController {
 
     private final AuthService authService;
+    private final Clock clock;
+
+    @Value("${jwt.jwks.max-age:3600}")
+    long jwksMaxAgeInSeconds;
+
+    @Value("${jwt.validate.max-batch-size:1000}")
+    int maxBatchSize;
+
+    @Value("${user_management.async.enabled:false}")
+    boolean asyncEnabled;
+
+    @Value("${jwt.expiration.access}")
+    long accessExpirationInMinutes;
 
     /**
      * API-endpoint для выполнения операции входа в систему.
@@ -31,9 +60,12 @@ public class AuthController {
      * @return ResponseEntity с объектом JwtResponse, содержащим access и refresh токены.
      */
     @PostMapping("login")
-    public ResponseEntity<JwtResponse> login(@RequestBody JwtRequest jwtRequest) {
+    public CompletableFuture<ResponseEntity<JwtResponse>> login(@RequestBody JwtRequest jwtRequest) {
+        if (asyncEnabled) {
+            return authService.loginAsync(jwtRequest).thenApply(ResponseEntity::ok);
+        }
         final JwtResponse token = authService.login(jwtRequest);
-        return ResponseEntity.ok(token);
+        return CompletableFuture.completedFuture(ResponseEntity.ok(token));
     }
 
     /**
@@ -42,9 +74,12 @@ public class AuthController {
      * @return ResponseEntity с объектом JwtResponse, содержащим access токен.
      */
     @PostMapping("token")
-    public ResponseEntity<JwtResponse> getNewAccessToken(@RequestBody JwtRequestRefresh request) {
+    public CompletableFuture<ResponseEntity<JwtResponse>> getNewAccessToken(@RequestBody JwtRequestRefresh request) {
+        if (asyncEnabled) {
+            return authService.getAccessTokenAsync(request.getRefreshToken()).thenApply(ResponseEntity::ok);
+        }
         final JwtResponse token = authService.getAccessToken(request.getRefreshToken());
-        return ResponseEntity.ok(token);
+        return CompletableFuture.completedFuture(ResponseEntity.ok(token));
     }
 
     /**
@@ -53,9 +88,12 @@ public class AuthController {
      * @return ResponseEntity с объектом JwtResponse, содержащим access и refresh токены.
      */
     @PostMapping("refresh")
-    public ResponseEntity<JwtResponse> getNewRefreshToken(@RequestBody JwtRequestRefresh request) {
+    public CompletableFuture<ResponseEntity<JwtResponse>> getNewRefreshToken(@RequestBody JwtRequestRefresh request) {
+        if (asyncEnabled) {
+            return authService.refreshAsync(request.getRefreshToken()).thenApply(ResponseEntity::ok);
+        }
         final JwtResponse token = authService.refresh(request.getRefreshToken());
-        return ResponseEntity.ok(token);
+        return CompletableFuture.completedFuture(ResponseEntity.ok(token));
     }
 
     /**
@@ -79,4 +117,72 @@ public class AuthController {
         authService.validate(request.getRefreshToken());
         return ResponseEntity.ok(HttpStatus.OK);
     }
+
+    /**
+     * API-endpoint для пакетной проверки refresh токенов. Позволяет проверить множество токенов за один запрос,
+     * например при массовом переподключении клиентов.
+     * @param request POST запрос с объектом JwtRequestBatchValidate, содержащим список refresh токенов.
+     * @return ResponseEntity со списком результатов проверки в порядке переданных токенов.
+     * @throws IllegalArgumentException выбрасывается, если количество токенов превышает jwt.validate.max-batch-size.
+     */
+    @PostMapping("validate/batch")
+    public ResponseEntity<List<JwtValidationResult>> validateBatch(@RequestBody JwtRequestBatchValidate request) {
+        final List<String> refreshTokens = request.getRefreshTokens();
+        if (refreshTokens == null || refreshTokens.isEmpty()) {
+            return ResponseEntity.ok(List.of());
+        }
+        if (refreshTokens.size() > maxBatchSize) {
+            throw new IllegalArgumentException("Количество токенов в запросе превышает " + maxBatchSize);
+        }
+        return ResponseEntity.ok(authService.validateAll(refreshTokens));
+    }
+
+    /**
+     * API-endpoint для интроспекции токена в духе RFC 7662. В отличие от validate, недействительный токен не
+     * приводит к ошибке: возвращается ответ с active = false и запретом кэширования. Ответ для действительного
+     * токена содержит заголовок Cache-Control: private с max-age, равным оставшемуся сроку действия токена, но не
+     * более срока действия access токена, поэтому вызывающий сервис может кэшировать его, а общие кэши - нет.
+     * Ограничение не позволяет кэшировать ответ для refresh токена на несколько дней после выхода пользователя.
+     * @param request POST запрос с объектом JwtRequestIntrospect, содержащим токен и подсказку его типа.
+     * @return ResponseEntity с объектом JwtIntrospectionResponse.
+     */
+    @PostMapping("introspect")
+    public ResponseEntity<JwtIntrospectionResponse> introspect(@RequestBody JwtRequestIntrospect request) {
+        final JwtIntrospectionResponse response =
+                authService.introspect(request.getToken(), request.getTokenTypeHint());
+        if (!response.isActive()) {
+            return ResponseEntity.ok().cacheControl(CacheControl.noStore()).body(response);
+        }
+        final long remainingSeconds = Math.max(0, response.getExp() - clock.millis() / 1000);
+        final long maxAgeSeconds = Math.min(remainingSeconds, TimeUnit.MINUTES.toSeconds(accessExpirationInMinutes));
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS).cachePrivate())
+                .body(response);
+    }
+
+    /**
+     * API-endpoint для отзыва отдельного access токена в духе RFC 7009, например при выходе на одном из устройств.
+     * Ответ не зависит от того, был ли токен действителен, чтобы не раскрывать сведения о чужих токенах.
+     * @param request POST запрос с объектом JwtRequestRevoke, содержащим access токен.
+     * @return HttpStatus запроса.
+     */
+    @PostMapping("revoke")
+    public ResponseEntity<HttpStatus> revoke(@RequestBody JwtRequestRevoke request) {
+        authService.revoke(request.getToken());
+        return ResponseEntity.ok(HttpStatus.OK);
+    }
+
+    /**
+     * API-endpoint для получения набора открытых ключей (JWKS), которыми другие сервисы проверяют access токены
+     * самостоятельно, без обращения к микросервису аутентификации. Ответ кэшируется на стороне клиента в течение
+     * jwt.jwks.max-age секунд, а повторный запрос с заголовком If-None-Match получает ответ 304.
+     * @return ResponseEntity с JWKS и заголовками Cache-Control и ETag.
+     */
+    @GetMapping(".well-known/jwks.json")
+    public ResponseEntity<Map<String, Object>> getJwks() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(jwksMaxAgeInSeconds, TimeUnit.SECONDS).cachePublic())
+                .eTag(authService.getJwksETag())
+                .body(authService.getJwks());
+    }
 }
\ No newline at end of file
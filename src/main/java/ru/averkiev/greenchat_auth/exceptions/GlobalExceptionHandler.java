@@ -1,6 +1,7 @@
 package ru.averkiev.greenchat_auth.exceptions;
 
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
@@ -11,6 +12,8 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import ru.averkiev.greenchat_auth.utils.ErrorResponse;
 
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -98,6 +101,51 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(response.getStatus()).body(response);
     }
 
+    /**
+     * Позволяет обработать ошибки, связанные с недоступностью микросервиса пользователей. Если известно время
+     * до следующей попытки обращения к микросервису, оно передаётся в заголовке Retry-After.
+     * @param usuEx ошибка при обращении к микросервису пользователей.
+     * @param request HTTP запрос.
+     * @return ResponseEntity, содержащий информацию об ошибке.
+     */
+    @ExceptionHandler(UserServiceUnavailableException.class)
+    public ResponseEntity<ErrorResponse> handleUserServiceUnavailableException(UserServiceUnavailableException usuEx,
+                                                                               HttpServletRequest request) {
+
+        ErrorResponse response = new ErrorResponse(
+                HttpStatus.SERVICE_UNAVAILABLE,
+                usuEx.getMessage(),
+                request.getRequestURI()
+        );
+
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(response.getStatus());
+        if (usuEx.getRetryAfterMillis() > 0) {
+            builder.header(HttpHeaders.RETRY_AFTER,
+                    Long.toString(TimeUnit.MILLISECONDS.toSeconds(usuEx.getRetryAfterMillis() + 999)));
+        }
+        return builder.body(response);
+    }
+
+    /**
+     * Позволяет обработать отклонение асинхронного входа или обновления токенов, когда очередь пула потоков
+     * аутентификации заполнена.
+     * @param reEx ошибка постановки задачи в очередь пула потоков.
+     * @param request HTTP запрос.
+     * @return ResponseEntity, содержащий информацию об ошибке.
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<ErrorResponse> handleRejectedExecutionException(RejectedExecutionException reEx,
+                                                                          HttpServletRequest request) {
+
+        ErrorResponse response = new ErrorResponse(
+                HttpStatus.SERVICE_UNAVAILABLE,
+                "Сервис аутентификации перегружен",
+                request.getRequestURI()
+        );
+
+        return ResponseEntity.status(response.getStatus()).body(response);
+    }
+
     /**
      * Позволяет обработать прочие ошибки возникшие при взаимодействии с сервисом.
      * @param ex ошибка при взаимодействии с сервисом.
@@ -0,0 +1,29 @@
+package ru.averkiev.greenchat_auth.exceptions;
+
+/**
+ * Класс представляет собой исключение, которое возникает в случае, когда микросервис пользователей недоступен:
+ * запрос к нему завершился ошибкой или был отклонён без обращения к сервису автоматическим выключателем или
+ * ограничением количества одновременных запросов.
+ * @author mrGreenNV
+ */
+public class UserServiceUnavailableException extends RuntimeException {
+
+    /**
+     * Время в миллисекундах, через которое имеет смысл повторить запрос; 0, если оно неизвестно.
+     */
+    private final long retryAfterMillis;
+
+    public UserServiceUnavailableException(String msg, long retryAfterMillis) {
+        super(msg);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public UserServiceUnavailableException(String msg, Throwable cause) {
+        super(msg, cause);
+        this.retryAfterMillis = 0;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
@@ -2,11 +2,13 @@ package ru.averkiev.greenchat_auth.models;
 
 import jakarta.persistence.*;
 import lombok.*;
+import ru.averkiev.greenchat_auth.utils.TokenDigest;
 
 import java.util.Date;
 
 /**
- * Класс представляет собой модель access токена.
+ * Класс представляет собой модель access токена. В базе данных хранится не сам токен, а его SHA-256 дайджест
+ * фиксированной длины; значение токена доступно только у объекта, созданного при выпуске токена.
  * @author mrGreenNV
  */
 @Entity
@@ -18,7 +20,7 @@ public class AccessToken {
 
     public AccessToken(int userId, String accessToken, Date createdAt, Date expiresAt) {
         this.userId = userId;
-        this.accessToken = accessToken;
+        setAccessToken(accessToken);
         this.createdAt = createdAt;
         this.expiresAt = expiresAt;
     }
@@ -31,12 +33,39 @@ public class AccessToken {
     @Column(name = "user_id")
     private int userId;
 
-    @Column(name = "access_token")
+    @Transient
     private String accessToken;
 
+    @Column(name = "access_token_digest")
+    private byte[] accessTokenDigest;
+
+    /**
+     * Логин пользователя; сохраняется для непрозрачных токенов, чтобы восстановить сессию на любом экземпляре.
+     */
+    @Column(name = "login")
+    private String login;
+
     @Column(name = "created_at")
     private Date createdAt;
 
     @Column(name = "expires_at")
     private Date expiresAt;
+
+    /**
+     * Устанавливает значение токена и пересчитывает его дайджест.
+     * @param accessToken значение access токена.
+     */
+    public void setAccessToken(String accessToken) {
+        this.accessToken = accessToken;
+        this.accessTokenDigest = accessToken == null ? null : TokenDigest.sha256(accessToken);
+    }
+
+    /**
+     * Проверяет, соответствует ли переданный токен сохранённому дайджесту.
+     * @param accessToken проверяемый токен.
+     * @return true, если токен совпадает с сохранённым.
+     */
+    public boolean matches(String accessToken) {
+        return TokenDigest.matches(accessTokenDigest, accessToken);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,34 @@
+package ru.averkiev.greenchat_auth.models;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Класс представляет собой ответ на запрос интроспекции токена в духе RFC 7662. Для недействительного токена
+ * содержит только признак active = false, для действительного - тип токена (access_token или refresh_token),
+ * субъект, срок действия в секундах и роли.
+ * @author mrGreenNV
+ */
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class JwtIntrospectionResponse {
+    private boolean active;
+    @JsonProperty("token_type")
+    private String tokenType;
+    private String sub;
+    private Long exp;
+    private List<String> authorities;
+
+    public static JwtIntrospectionResponse active(String tokenType, String sub, long exp, List<String> authorities) {
+        return new JwtIntrospectionResponse(true, tokenType, sub, exp, authorities);
+    }
+
+    public static JwtIntrospectionResponse inactive() {
+        return new JwtIntrospectionResponse(false, null, null, null, null);
+    }
+}
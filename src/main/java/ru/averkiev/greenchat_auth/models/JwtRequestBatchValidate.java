@@ -0,0 +1,16 @@
+package ru.averkiev.greenchat_auth.models;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Класс представляет собой модель для передачи в запросе списка JWT refresh токенов для пакетной проверки.
+ * @author mrGreenNV
+ */
+@Getter
+@Setter
+public class JwtRequestBatchValidate {
+    private List<String> refreshTokens;
+}
@@ -0,0 +1,16 @@
+package ru.averkiev.greenchat_auth.models;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Класс представляет собой модель запроса интроспекции токена (RFC 7662). Подсказка типа токена необязательна:
+ * без неё токен сначала проверяется как access токен, затем как refresh токен.
+ * @author mrGreenNV
+ */
+@Getter
+@Setter
+public class JwtRequestIntrospect {
+    private String token;
+    private String tokenTypeHint;
+}
@@ -0,0 +1,14 @@
+package ru.averkiev.greenchat_auth.models;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Класс представляет собой модель запроса отзыва отдельного access токена (RFC 7009).
+ * @author mrGreenNV
+ */
+@Getter
+@Setter
+public class JwtRequestRevoke {
+    private String token;
+}
@@ -0,0 +1,28 @@
+package ru.averkiev.greenchat_auth.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Date;
+
+/**
+ * Класс представляет собой результат проверки одного токена при пакетной проверке. Для действительного токена
+ * содержит субъект и срок действия, для недействительного - описание ошибки.
+ * @author mrGreenNV
+ */
+@Getter
+@AllArgsConstructor
+public class JwtValidationResult {
+    private boolean valid;
+    private String subject;
+    private Date expiresAt;
+    private String error;
+
+    public static JwtValidationResult valid(String subject, Date expiresAt) {
+        return new JwtValidationResult(true, subject, expiresAt, null);
+    }
+
+    public static JwtValidationResult invalid(String error) {
+        return new JwtValidationResult(false, null, null, error);
+    }
+}
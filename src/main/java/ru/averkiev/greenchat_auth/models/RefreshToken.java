@@ -2,11 +2,13 @@ package ru.averkiev.greenchat_auth.models;
 
 import jakarta.persistence.*;
 import lombok.*;
+import ru.averkiev.greenchat_auth.utils.TokenDigest;
 
 import java.util.Date;
 
 /**
- * Класс представляет собой модель refresh токена.
+ * Класс представляет собой модель refresh токена. В базе данных хранится не сам токен, а его SHA-256 дайджест
+ * фиксированной длины; значение токена доступно только у объекта, созданного при выпуске токена.
  * @author mrGreenNV
  */
 @Entity
@@ -18,7 +20,7 @@ public class RefreshToken {
 
     public RefreshToken(int userId, String refreshToken, Date createdAt, Date expiresAt) {
         this.userId = userId;
-        this.refreshToken = refreshToken;
+        setRefreshToken(refreshToken);
         this.createdAt = createdAt;
         this.expiresAt = expiresAt;
     }
@@ -31,12 +33,33 @@ public class RefreshToken {
     @Column(name = "user_id")
     private int userId;
 
-    @Column(name = "refresh_token")
+    @Transient
     private String refreshToken;
 
+    @Column(name = "refresh_token_digest")
+    private byte[] refreshTokenDigest;
+
     @Column(name = "created_at")
     private Date createdAt;
 
     @Column(name = "expires_at")
     private Date expiresAt;
+
+    /**
+     * Устанавливает значение токена и пересчитывает его дайджест.
+     * @param refreshToken значение refresh токена.
+     */
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+        this.refreshTokenDigest = refreshToken == null ? null : TokenDigest.sha256(refreshToken);
+    }
+
+    /**
+     * Проверяет, соответствует ли переданный токен сохранённому дайджесту.
+     * @param refreshToken проверяемый токен.
+     * @return true, если токен совпадает с сохранённым.
+     */
+    public boolean matches(String refreshToken) {
+        return TokenDigest.matches(refreshTokenDigest, refreshToken);
+    }
 }
\ No newline at end of file
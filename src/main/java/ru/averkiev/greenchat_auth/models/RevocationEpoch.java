@@ -0,0 +1,27 @@
+package ru.averkiev.greenchat_auth.models;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.Date;
+
+/**
+ * Класс представляет собой модель эпохи отзыва access токенов пользователя: все access токены пользователя,
+ * выпущенные раньше момента revokedBefore, считаются недействительными.
+ * @author mrGreenNV
+ */
+@Entity
+@Table(name = "revocation_epochs")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevocationEpoch {
+
+    @Id
+    @Column(name = "user_id")
+    private int userId;
+
+    @Column(name = "revoked_before")
+    private Date revokedBefore;
+}
@@ -0,0 +1,30 @@
+package ru.averkiev.greenchat_auth.models;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.Date;
+
+/**
+ * Класс представляет собой модель отозванного access токена: идентификатор токена (jti), момент отзыва и момент
+ * истечения срока действия, после которого запись больше не нужна.
+ * @author mrGreenNV
+ */
+@Entity
+@Table(name = "revoked_tokens")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevokedToken {
+
+    @Id
+    @Column(name = "jti")
+    private String jti;
+
+    @Column(name = "revoked_at")
+    private Date revokedAt;
+
+    @Column(name = "expires_at")
+    private Date expiresAt;
+}
@@ -1,9 +1,14 @@
 package ru.averkiev.greenchat_auth.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.averkiev.greenchat_auth.models.AccessToken;
 
+import java.util.Date;
 import java.util.Optional;
 
 /**
@@ -13,5 +18,50 @@ import java.util.Optional;
 public interface AccessTokenRepository extends JpaRepository<AccessToken, Integer> {
     Optional<AccessToken> findByUserId(int UserId);
 
+    /**
+     * Выполняет поиск access токена по SHA-256 дайджесту его значения. Используется для восстановления сессий
+     * непрозрачных токенов.
+     */
+    Optional<AccessToken> findByAccessTokenDigest(byte[] accessTokenDigest);
+
+    @Transactional
     void deleteByUserId(int userId);
+
+    /**
+     * Сохраняет access токен пользователя одним запросом: вставляет новую запись или, если запись пользователя
+     * уже существует, заменяет в ней дайджест токена, логин и сроки, если сохраняемый токен выпущен не раньше
+     * сохранённого. Выполняется в текущей транзакции или, если её нет, в собственной.
+     * @return количество вставленных или обновлённых записей.
+     */
+    @Transactional
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            INSERT INTO access_tokens (user_id, access_token_digest, login, created_at, expires_at)
+            VALUES (:userId, :accessTokenDigest, :login, :createdAt, :expiresAt)
+            ON CONFLICT (user_id) DO UPDATE SET
+                access_token_digest = EXCLUDED.access_token_digest,
+                login = EXCLUDED.login,
+                created_at = EXCLUDED.created_at,
+                expires_at = EXCLUDED.expires_at
+            WHERE access_tokens.created_at <= EXCLUDED.created_at
+            """)
+    int upsert(@Param("userId") int userId,
+               @Param("accessTokenDigest") byte[] accessTokenDigest,
+               @Param("login") String login,
+               @Param("createdAt") Date createdAt,
+               @Param("expiresAt") Date expiresAt);
+
+    /**
+     * Удаляет не более batchSize записей с истёкшим сроком действия. Записи выбираются по физическому адресу
+     * строки (ctid), поэтому удаление не сканирует таблицу целиком и держит блокировки только на время одной
+     * пачки. Каждый вызов выполняется в отдельной короткой транзакции.
+     * @return количество удалённых записей.
+     */
+    @Transactional
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            DELETE FROM access_tokens
+            WHERE ctid IN (SELECT ctid FROM access_tokens WHERE expires_at < :now LIMIT :batchSize)
+            """)
+    int deleteExpiredBatch(@Param("now") Date now, @Param("batchSize") int batchSize);
 }
@@ -1,9 +1,14 @@
 package ru.averkiev.greenchat_auth.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.averkiev.greenchat_auth.models.RefreshToken;
 
+import java.util.Date;
 import java.util.Optional;
 
 /**
@@ -12,5 +17,47 @@ import java.util.Optional;
 @Repository
 public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Integer> {
     Optional<RefreshToken> findByUserId(int UserId);
+
+    /**
+     * Выполняет поиск refresh токена по SHA-256 дайджесту его значения.
+     */
+    Optional<RefreshToken> findByRefreshTokenDigest(byte[] refreshTokenDigest);
+
+    @Transactional
     void deleteByUserId(int userId);
+
+    /**
+     * Сохраняет refresh токен пользователя одним запросом: вставляет новую запись или, если запись пользователя
+     * уже существует, заменяет в ней дайджест токена и его сроки.
+     * Выполняется в текущей транзакции или, если её нет, в собственной.
+     * @return количество вставленных или обновлённых записей.
+     */
+    @Transactional
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            INSERT INTO refresh_tokens (user_id, refresh_token_digest, created_at, expires_at)
+            VALUES (:userId, :refreshTokenDigest, :createdAt, :expiresAt)
+            ON CONFLICT (user_id) DO UPDATE SET
+                refresh_token_digest = EXCLUDED.refresh_token_digest,
+                created_at = EXCLUDED.created_at,
+                expires_at = EXCLUDED.expires_at
+            """)
+    int upsert(@Param("userId") int userId,
+               @Param("refreshTokenDigest") byte[] refreshTokenDigest,
+               @Param("createdAt") Date createdAt,
+               @Param("expiresAt") Date expiresAt);
+
+    /**
+     * Удаляет не более batchSize записей с истёкшим сроком действия. Записи выбираются по физическому адресу
+     * строки (ctid), поэтому удаление не сканирует таблицу целиком и держит блокировки только на время одной
+     * пачки. Каждый вызов выполняется в отдельной короткой транзакции.
+     * @return количество удалённых записей.
+     */
+    @Transactional
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            DELETE FROM refresh_tokens
+            WHERE ctid IN (SELECT ctid FROM refresh_tokens WHERE expires_at < :now LIMIT :batchSize)
+            """)
+    int deleteExpiredBatch(@Param("now") Date now, @Param("batchSize") int batchSize);
 }
@@ -0,0 +1,48 @@
+package ru.averkiev.greenchat_auth.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.averkiev.greenchat_auth.models.RevocationEpoch;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Интерфейс представляет собой репозиторий эпох отзыва access токенов.
+ */
+@Repository
+public interface RevocationEpochRepository extends JpaRepository<RevocationEpoch, Integer> {
+
+    /**
+     * Возвращает эпохи отзыва, которые ещё могут отклонить действующий access токен.
+     */
+    List<RevocationEpoch> findByRevokedBeforeAfter(Date threshold);
+
+    /**
+     * Сохраняет эпоху отзыва пользователя одним запросом. Эпоха только сдвигается вперёд, поэтому одновременные
+     * выходы из системы на разных экземплярах сервиса не отменяют друг друга.
+     * @return количество вставленных или обновлённых записей.
+     */
+    @Transactional
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            INSERT INTO revocation_epochs (user_id, revoked_before)
+            VALUES (:userId, :revokedBefore)
+            ON CONFLICT (user_id) DO UPDATE SET
+                revoked_before = GREATEST(revocation_epochs.revoked_before, EXCLUDED.revoked_before)
+            """)
+    int upsert(@Param("userId") int userId, @Param("revokedBefore") Date revokedBefore);
+
+    /**
+     * Удаляет эпохи отзыва, раньше которых истёк срок действия всех access токенов.
+     * @return количество удалённых записей.
+     */
+    @Transactional
+    @Modifying
+    @Query(nativeQuery = true, value = "DELETE FROM revocation_epochs WHERE revoked_before < :threshold")
+    int deleteOlderThan(@Param("threshold") Date threshold);
+}
@@ -0,0 +1,52 @@
+package ru.averkiev.greenchat_auth.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.averkiev.greenchat_auth.models.RevokedToken;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Интерфейс представляет собой репозиторий отозванных access токенов.
+ */
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, String> {
+
+    /**
+     * Возвращает отозванные после заданного момента токены, срок действия которых ещё не истёк.
+     */
+    List<RevokedToken> findByRevokedAtAfterAndExpiresAtAfter(Date revokedAfter, Date expiresAfter);
+
+    /**
+     * Сохраняет отозванный токен; повторный отзыв того же токена игнорируется.
+     * @return количество вставленных записей.
+     */
+    @Transactional
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            INSERT INTO revoked_tokens (jti, revoked_at, expires_at)
+            VALUES (:jti, :revokedAt, :expiresAt)
+            ON CONFLICT (jti) DO NOTHING
+            """)
+    int insertIgnore(@Param("jti") String jti,
+                     @Param("revokedAt") Date revokedAt,
+                     @Param("expiresAt") Date expiresAt);
+
+    /**
+     * Удаляет не более batchSize отозванных токенов с истёкшим сроком действия, как и
+     * AccessTokenRepository.deleteExpiredBatch.
+     * @return количество удалённых записей.
+     */
+    @Transactional
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            DELETE FROM revoked_tokens
+            WHERE ctid IN (SELECT ctid FROM revoked_tokens WHERE expires_at < :now LIMIT :batchSize)
+            """)
+    int deleteExpiredBatch(@Param("now") Date now, @Param("batchSize") int batchSize);
+}
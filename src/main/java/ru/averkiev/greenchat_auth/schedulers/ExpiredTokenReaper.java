@@ -0,0 +1,132 @@
+package ru.averkiev.greenchat_auth.schedulers;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.averkiev.greenchat_auth.repositories.AccessTokenRepository;
+import ru.averkiev.greenchat_auth.repositories.RefreshTokenRepository;
+import ru.averkiev.greenchat_auth.repositories.RevokedTokenRepository;
+
+import java.time.Clock;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Класс представляет собой фоновую задачу удаления access и refresh токенов, а также записей об отозванных
+ * токенах, с истёкшим сроком действия. Записи удаляются пачками ограниченного размера, каждая пачка - в отдельной
+ * короткой транзакции, а общее время одного запуска ограничено, поэтому задача не держит долгих блокировок и не
+ * мешает входу пользователей.
+ * Количество удалённых записей и время работы публикуются в метриках jwt.reaper.purged и jwt.reaper.duration.
+ * @author mrGreenNV
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "jwt.reaper.enabled", havingValue = "true", matchIfMissing = true)
+public class ExpiredTokenReaper {
+
+    private static final String ACCESS_TOKENS = "access_tokens";
+    private static final String REFRESH_TOKENS = "refresh_tokens";
+    private static final String REVOKED_TOKENS = "revoked_tokens";
+
+    private final AccessTokenRepository accessTokenRepository;
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final Clock clock;
+    private final int batchSize;
+    private final long maxRuntimeMillis;
+
+    private final Counter purgedAccessTokens;
+    private final Counter purgedRefreshTokens;
+    private final Counter purgedRevokedTokens;
+    private final Timer duration;
+
+    public ExpiredTokenReaper(AccessTokenRepository accessTokenRepository,
+                              RefreshTokenRepository refreshTokenRepository,
+                              RevokedTokenRepository revokedTokenRepository,
+                              MeterRegistry meterRegistry,
+                              Clock clock,
+                              @Value("${jwt.reaper.batch-size:1000}") int batchSize,
+                              @Value("${jwt.reaper.max-runtime-ms:30000}") long maxRuntimeMillis) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Размер пачки удаления должен быть положительным");
+        }
+        this.accessTokenRepository = accessTokenRepository;
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.clock = clock;
+        this.batchSize = batchSize;
+        this.maxRuntimeMillis = maxRuntimeMillis;
+        this.purgedAccessTokens = Counter.builder("jwt.reaper.purged")
+                .description("Количество удалённых токенов с истёкшим сроком действия")
+                .tag("table", ACCESS_TOKENS)
+                .register(meterRegistry);
+        this.purgedRefreshTokens = Counter.builder("jwt.reaper.purged")
+                .description("Количество удалённых токенов с истёкшим сроком действия")
+                .tag("table", REFRESH_TOKENS)
+                .register(meterRegistry);
+        this.purgedRevokedTokens = Counter.builder("jwt.reaper.purged")
+                .description("Количество удалённых токенов с истёкшим сроком действия")
+                .tag("table", REVOKED_TOKENS)
+                .register(meterRegistry);
+        this.duration = Timer.builder("jwt.reaper.duration")
+                .description("Время одного запуска удаления токенов с истёкшим сроком действия")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Запускается по расписанию и удаляет токены с истёкшим сроком действия.
+     */
+    @Scheduled(
+            initialDelayString = "${jwt.reaper.initial-delay-ms:60000}",
+            fixedDelayString = "${jwt.reaper.fixed-delay-ms:300000}"
+    )
+    public void scheduledPurge() {
+        try {
+            purgeExpired();
+        } catch (Exception ex) {
+            log.error("IN scheduledPurge - удаление токенов с истёкшим сроком действия завершилось ошибкой", ex);
+        }
+    }
+
+    /**
+     * Удаляет access и refresh токены, а также записи об отозванных токенах, срок действия которых истёк к моменту
+     * запуска. Пачки удаляются, пока очередная пачка заполнена целиком и не исчерпано время запуска; оставшиеся
+     * записи будут удалены при следующем запуске.
+     * @return общее количество удалённых записей.
+     */
+    public int purgeExpired() {
+        final long startedNanos = System.nanoTime();
+        final long deadlineMillis = clock.millis() + maxRuntimeMillis;
+        final Date now = new Date(clock.millis());
+
+        final int accessPurged = purge(
+                batch -> accessTokenRepository.deleteExpiredBatch(now, batch), purgedAccessTokens, deadlineMillis);
+        final int refreshPurged = purge(
+                batch -> refreshTokenRepository.deleteExpiredBatch(now, batch), purgedRefreshTokens, deadlineMillis);
+        final int revokedPurged = purge(
+                batch -> revokedTokenRepository.deleteExpiredBatch(now, batch), purgedRevokedTokens, deadlineMillis);
+
+        final long elapsedNanos = System.nanoTime() - startedNanos;
+        duration.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        log.info("IN purgeExpired - удалено access токенов: {}, refresh токенов: {}, отозванных токенов: {}, "
+                + "за {} мс", accessPurged, refreshPurged, revokedPurged, TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        return accessPurged + refreshPurged + revokedPurged;
+    }
+
+    private int purge(IntUnaryOperator deleteBatch, Counter purged, long deadlineMillis) {
+        int total = 0;
+        int deleted;
+        do {
+            deleted = deleteBatch.applyAsInt(batchSize);
+            total += deleted;
+            purged.increment(deleted);
+        } while (deleted == batchSize && clock.millis() < deadlineMillis);
+        return total;
+    }
+}
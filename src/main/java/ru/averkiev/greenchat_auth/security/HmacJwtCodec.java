@@ -0,0 +1,389 @@
+package ru.averkiev.greenchat_auth.security;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.springframework.security.core.GrantedAuthority;
+import ru.averkiev.greenchat_auth.exceptions.AuthException;
+import ru.averkiev.greenchat_auth.utils.JwtUtils;
+
+import javax.crypto.Mac;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Класс представляет собой быстрый путь подписи и проверки JWT токенов, подписанных HMAC ключами (HS256/HS384/HS512).
+ * В отличие от jjwt, класс работает непосредственно с байтами токена: сегменты заголовка в кодировке Base64URL
+ * вычисляются один раз для каждого ключа, экземпляр Mac переиспользуется в пределах потока, а подпись сравнивается
+ * за постоянное время. Токены, которые не удаётся обработать быстрым путём (неизвестный заголовок, асимметричная
+ * подпись, поле nbf и т.п.), передаются на проверку в jjwt.
+ * @author mrGreenNV
+ */
+final class HmacJwtCodec {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final String AUTHORITIES_CLAIM = "authorities";
+    private static final String AUTHORITY_FIELD = "authority";
+    private static final Base64.Encoder BASE64_URL_ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder BASE64_URL_DECODER = Base64.getUrlDecoder();
+
+    private final JwtKeyRing keyRing;
+    private final Clock clock;
+
+    /**
+     * Заголовки, которые распознаются быстрым путём. Список неизменяем и заменяется целиком при ротации ключей,
+     * поэтому чтение не требует синхронизации.
+     */
+    private volatile List<HeaderEntry> entries;
+
+    HmacJwtCodec(JwtKeyRing keyRing, Clock clock) {
+        this.keyRing = keyRing;
+        this.clock = clock;
+        final JwtKey initialKey = keyRing.getActiveKey();
+        final List<HeaderEntry> initialEntries = new ArrayList<>();
+        if (supports(initialKey)) {
+            initialEntries.add(HeaderEntry.of(initialKey, initialKey.getKeyId()));
+            // Токены, выпущенные до появления заголовка kid, проверяются первоначальным ключом набора.
+            initialEntries.add(HeaderEntry.of(initialKey, null));
+        }
+        this.entries = List.copyOf(initialEntries);
+    }
+
+    /**
+     * Проверяет, может ли ключ использоваться быстрым путём.
+     * @param key ключ подписи.
+     * @return true, если ключ является HMAC ключом, иначе false.
+     */
+    static boolean supports(JwtKey key) {
+        return !key.isAsymmetric() && key.getAlgorithm().isHmac();
+    }
+
+    /**
+     * Регистрирует новый ключ после ротации и удаляет заголовки ключей, выведенных из набора.
+     * @param key новый ключ набора.
+     * @return сведения о заголовке ключа или null, если ключ не поддерживается быстрым путём.
+     */
+    synchronized HeaderEntry register(JwtKey key) {
+        final List<HeaderEntry> updated = new ArrayList<>();
+        HeaderEntry registered = null;
+        for (HeaderEntry entry : entries) {
+            if (entry.key() == key && key.getKeyId().equals(entry.keyId())) {
+                registered = entry;
+            }
+            if (keyRing.findKey(entry.keyId()) == entry.key()) {
+                updated.add(entry);
+            }
+        }
+        if (registered == null && supports(key)) {
+            registered = HeaderEntry.of(key, key.getKeyId());
+            updated.add(registered);
+        }
+        entries = List.copyOf(updated);
+        return registered;
+    }
+
+    /**
+     * Подписывает готовое тело токена HMAC ключом и возвращает компактное представление JWT.
+     * @param key HMAC ключ подписи.
+     * @param payloadJson тело токена в формате JSON.
+     * @return подписанный токен.
+     * @throws IllegalArgumentException выбрасывается, если ключ не является HMAC ключом.
+     */
+    String sign(JwtKey key, String payloadJson) {
+        HeaderEntry entry = findEntry(key);
+        if (entry == null) {
+            entry = register(key);
+            if (entry == null) {
+                throw new IllegalArgumentException("Ключ с kid: " + key.getKeyId() + " не является HMAC ключом");
+            }
+        }
+        final StringBuilder token = new StringBuilder(entry.header().length() + payloadJson.length() * 2 + 100)
+                .append(entry.header())
+                .append('.')
+                .append(BASE64_URL_ENCODER.encodeToString(payloadJson.getBytes(StandardCharsets.UTF_8)));
+        final Mac mac = entry.mac();
+        final byte[] signature = mac.doFinal(token.toString().getBytes(StandardCharsets.US_ASCII));
+        return token.append('.').append(BASE64_URL_ENCODER.encodeToString(signature)).toString();
+    }
+
+    /**
+     * Проверяет подпись и срок действия токена быстрым путём и возвращает его Claims.
+     * @param token проверяемый токен.
+     * @return объект Claims или null, если токен не может быть проверен быстрым путём и должен быть передан в jjwt.
+     * @throws AuthException выбрасывается, если подпись недействительна или истёк срок действия токена.
+     */
+    Claims verify(String token) throws AuthException {
+        final int headerEnd = token.indexOf('.');
+        if (headerEnd <= 0) {
+            return null;
+        }
+        final int payloadEnd = token.indexOf('.', headerEnd + 1);
+        if (payloadEnd < 0 || token.indexOf('.', payloadEnd + 1) >= 0) {
+            return null;
+        }
+        final HeaderEntry entry = matchHeader(token, headerEnd);
+        if (entry == null || keyRing.findKey(entry.keyId()) != entry.key()) {
+            return null;
+        }
+
+        final byte[] ascii = token.getBytes(StandardCharsets.US_ASCII);
+        final byte[] actualSignature;
+        final ByteBuffer payload;
+        try {
+            actualSignature = toArray(BASE64_URL_DECODER.decode(
+                    ByteBuffer.wrap(ascii, payloadEnd + 1, ascii.length - payloadEnd - 1)));
+            payload = BASE64_URL_DECODER.decode(ByteBuffer.wrap(ascii, headerEnd + 1, payloadEnd - headerEnd - 1));
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+        final Mac mac = entry.mac();
+        mac.update(ascii, 0, payloadEnd);
+        if (!MessageDigest.isEqual(mac.doFinal(), actualSignature)) {
+            throw new AuthException("Недействительная подпись");
+        }
+
+        final Claims claims;
+        try {
+            claims = readClaims(payload.array(), payload.arrayOffset() + payload.position(), payload.remaining());
+        } catch (IOException ex) {
+            return null;
+        }
+        if (claims == null || !(claims.get(Claims.EXPIRATION) instanceof Number expiration)) {
+            return null;
+        }
+        if (clock.millis() > expiration.longValue() * 1000) {
+            throw new AuthException("Истек срок действия токена");
+        }
+        return claims;
+    }
+
+    /**
+     * Читает тело токена потоковым парсером непосредственно из байтов, без промежуточного дерева или Map.
+     * Распознаются только поля, которые записывает JwtProvider: строковые поля, числовые exp, iat, iat_ms и uid и список
+     * ролей. Любое другое содержимое (nbf, aud, вложенные объекты и т.п.) возвращает null, и токен проверяется
+     * jjwt.
+     * @return Claims токена или null, если тело не может быть разобрано быстрым путём.
+     */
+    private static Claims readClaims(byte[] json, int offset, int length) throws IOException {
+        final Claims claims = Jwts.claims();
+        try (JsonParser parser = JSON_FACTORY.createParser(json, offset, length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+                final String name = parser.getCurrentName();
+                final JsonToken value = parser.nextToken();
+                switch (name) {
+                    case Claims.EXPIRATION, Claims.ISSUED_AT, JwtUtils.ISSUED_AT_MILLIS_CLAIM,
+                         JwtUtils.USER_ID_CLAIM -> {
+                        if (value != JsonToken.VALUE_NUMBER_INT) {
+                            return null;
+                        }
+                        claims.put(name, parser.getNumberValue());
+                    }
+                    case AUTHORITIES_CLAIM -> {
+                        final List<Map<String, String>> authorities = readAuthorities(parser, value);
+                        if (authorities == null) {
+                            return null;
+                        }
+                        claims.put(name, authorities);
+                    }
+                    default -> {
+                        if (value != JsonToken.VALUE_STRING) {
+                            return null;
+                        }
+                        claims.put(name, parser.getText());
+                    }
+                }
+            }
+            if (token != JsonToken.END_OBJECT || parser.nextToken() != null) {
+                return null;
+            }
+        }
+        return claims;
+    }
+
+    /**
+     * Читает роли в том виде, в котором их записывает jjwt: [{"authority":"..."}].
+     * @return список ролей или null, если формат отличается.
+     */
+    private static List<Map<String, String>> readAuthorities(JsonParser parser, JsonToken value) throws IOException {
+        if (value != JsonToken.START_ARRAY) {
+            return null;
+        }
+        final List<Map<String, String>> authorities = new ArrayList<>();
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            if (parser.nextToken() != JsonToken.FIELD_NAME || !AUTHORITY_FIELD.equals(parser.getCurrentName())
+                    || parser.nextToken() != JsonToken.VALUE_STRING) {
+                return null;
+            }
+            authorities.add(Map.of(AUTHORITY_FIELD, parser.getText()));
+            if (parser.nextToken() != JsonToken.END_OBJECT) {
+                return null;
+            }
+        }
+        return parser.currentToken() == JsonToken.END_ARRAY ? authorities : null;
+    }
+
+    private HeaderEntry findEntry(JwtKey key) {
+        for (HeaderEntry entry : entries) {
+            if (entry.key() == key && key.getKeyId().equals(entry.keyId())) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Ищет заголовок токена среди заранее вычисленных заголовков без выделения памяти под подстроку.
+     */
+    private HeaderEntry matchHeader(String token, int headerEnd) {
+        for (HeaderEntry entry : entries) {
+            final String header = entry.header();
+            if (header.length() == headerEnd && token.regionMatches(0, header, 0, headerEnd)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        final byte[] array = buffer.array();
+        if (buffer.arrayOffset() == 0 && buffer.position() == 0 && buffer.remaining() == array.length) {
+            return array;
+        }
+        final int from = buffer.arrayOffset() + buffer.position();
+        return Arrays.copyOfRange(array, from, from + buffer.remaining());
+    }
+
+    private static void appendJsonString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char ch = value.charAt(i);
+            switch (ch) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                case '\b' -> json.append("\\b");
+                case '\f' -> json.append("\\f");
+                default -> {
+                    if (ch < 0x20) {
+                        json.append(String.format("\\u%04x", (int) ch));
+                    } else {
+                        json.append(ch);
+                    }
+                }
+            }
+        }
+        json.append('"');
+    }
+
+    /**
+     * Заранее вычисленный сегмент заголовка в кодировке Base64URL для ключа и экземпляры Mac этого ключа,
+     * закреплённые за потоками.
+     * @param keyId значение заголовка kid или null для заголовка без kid.
+     */
+    record HeaderEntry(JwtKey key, String keyId, String header, ThreadLocal<Mac> macs) {
+
+        static HeaderEntry of(JwtKey key, String keyId) {
+            final StringBuilder json = new StringBuilder("{");
+            if (keyId != null) {
+                json.append("\"kid\":");
+                appendJsonString(json, keyId);
+                json.append(',');
+            }
+            json.append("\"alg\":\"").append(key.getAlgorithm().getValue()).append("\"}");
+            final String header = BASE64_URL_ENCODER.encodeToString(json.toString().getBytes(StandardCharsets.UTF_8));
+            return new HeaderEntry(key, keyId, header, ThreadLocal.withInitial(() -> newMac(key)));
+        }
+
+        Mac mac() {
+            return macs.get();
+        }
+
+        private static Mac newMac(JwtKey key) {
+            try {
+                final Mac mac = Mac.getInstance(key.getAlgorithm().getJcaName());
+                mac.init(key.getSigningKey());
+                return mac;
+            } catch (GeneralSecurityException ex) {
+                throw new IllegalStateException("Не удалось инициализировать " + key.getAlgorithm().getJcaName(), ex);
+            }
+        }
+    }
+
+    /**
+     * Построитель тела токена в формате JSON. Поля со значением null пропускаются так же, как это делает jjwt.
+     */
+    static final class Payload {
+
+        private final StringBuilder json = new StringBuilder(256).append('{');
+
+        Payload claim(String name, String value) {
+            if (value != null) {
+                name(name);
+                appendJsonString(json, value);
+            }
+            return this;
+        }
+
+        Payload claim(String name, long value) {
+            name(name);
+            json.append(value);
+            return this;
+        }
+
+        /**
+         * Записывает роли пользователя в том же виде, в котором их сериализует jjwt: [{"authority":"..."}].
+         */
+        Payload authorities(String name, Collection<? extends GrantedAuthority> authorities) {
+            if (authorities != null) {
+                name(name);
+                json.append('[');
+                boolean first = true;
+                for (GrantedAuthority authority : authorities) {
+                    if (!first) {
+                        json.append(',');
+                    }
+                    first = false;
+                    json.append("{\"authority\":");
+                    if (authority.getAuthority() == null) {
+                        json.append("null");
+                    } else {
+                        appendJsonString(json, authority.getAuthority());
+                    }
+                    json.append('}');
+                }
+                json.append(']');
+            }
+            return this;
+        }
+
+        String toJson() {
+            return json.append('}').toString();
+        }
+
+        private void name(String name) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            appendJsonString(json, name);
+            json.append(':');
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package ru.averkiev.greenchat_auth.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Date;
+
+/**
+ * Класс представляет собой результат выпуска JWT токена: сам токен в компактной форме вместе с его
+ * идентификатором (jti), временем выпуска и временем истечения срока действия. Позволяет создать сущности
+ * AccessToken и RefreshToken без повторного разбора только что подписанного токена.
+ * @author mrGreenNV
+ */
+@Getter
+@AllArgsConstructor
+public class IssuedToken {
+
+    /** Токен в компактной форме. */
+    private final String token;
+
+    /** Идентификатор токена (jti). */
+    private final String tokenId;
+
+    /** Время выпуска токена (iat) с точностью до секунды. */
+    private final Date issuedAt;
+
+    /** Время истечения срока действия токена (exp) с точностью до секунды. */
+    private final Date expiresAt;
+}
@@ -21,6 +21,21 @@ public class JwtAuthentication implements Authentication {
     private String firstname;
     private List<? extends GrantedAuthority> roles;
 
+    /**
+     * Идентификатор пользователя или null, если токен выпущен без поля uid.
+     */
+    private Integer userId;
+
+    /**
+     * Идентификатор токена (jti).
+     */
+    private String tokenId;
+
+    /**
+     * Время выпуска токена в миллисекундах с начала эпохи Unix.
+     */
+    private long issuedAt;
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return roles;
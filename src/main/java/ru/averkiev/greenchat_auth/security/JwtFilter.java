@@ -1,6 +1,5 @@
 package ru.averkiev.greenchat_auth.security;
 
-import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.ServletRequest;
@@ -15,7 +14,6 @@ import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.GenericFilterBean;
 import ru.averkiev.greenchat_auth.exceptions.AuthException;
-import ru.averkiev.greenchat_auth.utils.JwtUtils;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
@@ -34,13 +32,21 @@ public class JwtFilter extends GenericFilterBean {
 
     private static final String AUTHORIZATION = "Authorization";
     private final JwtProvider jwtProvider;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final OpaqueTokenIndex opaqueTokenIndex;
+    private final RevocationEpochs revocationEpochs;
+    private final RevokedTokenDenylist revokedTokenDenylist;
 
     /**
      * Метод doFilter обрабатывает HTTP-запросы, проходящие через данный фильтр.
      * Он извлекает JSON Web Token (JWT) из заголовка Authorization HTTP-запроса,
-     * сравнивает его с помощью JwtProvider, и если токен действителен,
+     * проверяет его и извлекает Claims за один разбор с помощью JwtProvider, и если токен действителен,
      * создает объект JwtAuthentication с помощью JwtUtils.generate и устанавливает его в контекст безопасности
      * с помощью SecurityContextHolder.getContext().setAuthentication(jwtInfoToken).
+     * Результат проверки кэшируется в VerifiedTokenCache до истечения срока действия токена. В режиме
+     * непрозрачных токенов сведения о пользователе находятся в OpaqueTokenIndex. Токен, выпущенный до эпохи
+     * отзыва пользователя в RevocationEpochs (например, до выхода из системы) или отозванный по идентификатору
+     * в RevokedTokenDenylist, отклоняется.
      * После успешной обработки, запрос передается на следующий фильтр или обработчик.
      *
      * @param servletRequest  HTTP-запрос.
@@ -54,11 +60,8 @@ public class JwtFilter extends GenericFilterBean {
         final String token = getTokenFromRequest((HttpServletRequest) servletRequest);
 
         try {
-            if (token != null && jwtProvider.validateAccessToken(token)) {
-                final Claims claims = jwtProvider.getAccessClaims(token);
-                final JwtAuthentication jwtInfoToken = JwtUtils.generate(claims);
-                jwtInfoToken.setAuthenticated(true);
-                SecurityContextHolder.getContext().setAuthentication(jwtInfoToken);
+            if (token != null) {
+                SecurityContextHolder.getContext().setAuthentication(authenticate(token));
             }
             filterChain.doFilter(servletRequest, servletResponse);
         } catch (AuthException e) {
@@ -75,6 +78,37 @@ public class JwtFilter extends GenericFilterBean {
         }
     }
 
+    /**
+     * Возвращает объект JwtAuthentication для access токена. Непрозрачный токен ищется в OpaqueTokenIndex,
+     * а JWT проверяется с помощью JwtProvider; повторно предъявленный JWT берётся из кэша без проверки подписи
+     * и разбора Claims. Проверка эпохи отзыва выполняется и для токенов из кэша.
+     * @param token access токен из заголовка Authorization.
+     * @return объект JwtAuthentication, содержащий информацию о пользователе.
+     * @throws AuthException выбрасывается, если токен недействителен.
+     */
+    private JwtAuthentication authenticate(String token) throws AuthException {
+        final JwtAuthentication authentication = resolve(token);
+        if (authentication.getUserId() != null
+                && revocationEpochs.isRevoked(authentication.getUserId(), authentication.getIssuedAt())) {
+            throw new AuthException("Токен отозван");
+        }
+        if (revokedTokenDenylist.isRevoked(authentication.getTokenId())) {
+            throw new AuthException("Токен отозван");
+        }
+        return authentication;
+    }
+
+    private JwtAuthentication resolve(String token) throws AuthException {
+        if (opaqueTokenIndex.isEnabled() && OpaqueTokenIndex.isOpaque(token)) {
+            final OpaqueTokenIndex.OpaqueSession session = opaqueTokenIndex.find(token);
+            if (session == null) {
+                throw new AuthException("Недействительный токен");
+            }
+            return session.authentication();
+        }
+        return verifiedTokenCache.getOrVerify(token, jwtProvider::verifyAccessToken);
+    }
+
     /**
      * Приватный метод getTokenFromRequest извлекает JSON Web Token (JWT) из заголовка Authorization HTTP-запроса.
      * Если токен присутствует и начинается с префикса "Bearer ", метод возвращает сам токен (без префикса),
@@ -0,0 +1,185 @@
+package ru.averkiev.greenchat_auth.security;
+
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.StringUtils;
+
+import javax.crypto.SecretKey;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Класс представляет собой ключ подписи JWT токенов вместе с его идентификатором (kid) и алгоритмом.
+ * Для симметричных алгоритмов (HS256/HS384/HS512) ключ подписи и ключ проверки совпадают. Для асимметричных
+ * алгоритмов (RS256/ES256) токены подписываются закрытым ключом, а проверяются открытым, который публикуется
+ * в формате JWK и позволяет другим сервисам проверять токены самостоятельно.
+ * @author mrGreenNV
+ */
+@Slf4j
+@Getter
+public final class JwtKey {
+
+    /**
+     * Идентификатор ключа, записываемый в заголовок kid подписанного токена.
+     */
+    private final String keyId;
+
+    /**
+     * Алгоритм подписи.
+     */
+    private final SignatureAlgorithm algorithm;
+
+    /**
+     * Ключ, которым подписываются токены.
+     */
+    private final Key signingKey;
+
+    /**
+     * Ключ, которым проверяется подпись токенов.
+     */
+    private final Key verificationKey;
+
+    private JwtKey(String keyId, SignatureAlgorithm algorithm, Key signingKey, Key verificationKey) {
+        this.keyId = keyId;
+        this.algorithm = algorithm;
+        this.signingKey = signingKey;
+        this.verificationKey = verificationKey;
+    }
+
+    /**
+     * Создаёт симметричный HMAC ключ из секрета в кодировке Base64. Алгоритм выбирается по длине секрета.
+     * @param keyId идентификатор ключа.
+     * @param secret секрет в кодировке Base64.
+     * @return объект JwtKey.
+     */
+    public static JwtKey hmac(String keyId, String secret) {
+        final SecretKey secretKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
+        return new JwtKey(keyId, SignatureAlgorithm.forSigningKey(secretKey), secretKey, secretKey);
+    }
+
+    /**
+     * Создаёт симметричный HMAC ключ из секрета в кодировке Base64 для заданного алгоритма.
+     * @param keyId идентификатор ключа.
+     * @param secret секрет в кодировке Base64.
+     * @param algorithm HMAC алгоритм подписи.
+     * @return объект JwtKey.
+     * @throws io.jsonwebtoken.security.InvalidKeyException выбрасывается, если длина секрета недостаточна для
+     * алгоритма.
+     */
+    public static JwtKey hmac(String keyId, String secret, SignatureAlgorithm algorithm) {
+        final SecretKey secretKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
+        algorithm.assertValidSigningKey(secretKey);
+        return new JwtKey(keyId, algorithm, secretKey, secretKey);
+    }
+
+    /**
+     * Создаёт асимметричный ключ из закрытого ключа в формате PKCS#8 и открытого ключа в формате X.509,
+     * переданных в кодировке Base64. Если ключи не заданы, генерируется новая пара ключей, которая действует
+     * только до перезапуска сервиса.
+     * @param keyId идентификатор ключа.
+     * @param algorithm асимметричный алгоритм подписи (RS256 или ES256).
+     * @param privateKey закрытый ключ PKCS#8 в кодировке Base64.
+     * @param publicKey открытый ключ X.509 в кодировке Base64.
+     * @return объект JwtKey.
+     * @throws IllegalArgumentException выбрасывается, если алгоритм не поддерживается или ключи некорректны.
+     */
+    public static JwtKey asymmetric(String keyId, SignatureAlgorithm algorithm, String privateKey, String publicKey) {
+        if (!algorithm.isRsa() && !algorithm.isEllipticCurve()) {
+            throw new IllegalArgumentException("Алгоритм " + algorithm + " не является асимметричным");
+        }
+        if (!StringUtils.hasText(privateKey) || !StringUtils.hasText(publicKey)) {
+            log.warn("IN asymmetric - ключи для алгоритма {} не заданы, сгенерирована временная пара ключей " +
+                    "с kid: {}", algorithm, keyId);
+            final KeyPair keyPair = Keys.keyPairFor(algorithm);
+            return new JwtKey(keyId, algorithm, keyPair.getPrivate(), keyPair.getPublic());
+        }
+        try {
+            final KeyFactory keyFactory = KeyFactory.getInstance(algorithm.isRsa() ? "RSA" : "EC");
+            return new JwtKey(
+                    keyId,
+                    algorithm,
+                    keyFactory.generatePrivate(new PKCS8EncodedKeySpec(Decoders.BASE64.decode(privateKey))),
+                    keyFactory.generatePublic(new X509EncodedKeySpec(Decoders.BASE64.decode(publicKey)))
+            );
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalArgumentException("Некорректная пара ключей для алгоритма " + algorithm, ex);
+        }
+    }
+
+    /**
+     * Проверяет, является ли ключ асимметричным, то есть может ли он быть опубликован в JWKS.
+     * @return true, если ключ асимметричный, иначе false.
+     */
+    public boolean isAsymmetric() {
+        return verificationKey instanceof PublicKey;
+    }
+
+    /**
+     * Возвращает открытую часть ключа в формате JWK (RFC 7517).
+     * @return JWK в виде упорядоченного Map.
+     * @throws IllegalStateException выбрасывается для симметричных ключей, которые нельзя публиковать.
+     */
+    public Map<String, Object> toJwk() {
+        final Map<String, Object> jwk = new LinkedHashMap<>();
+        if (verificationKey instanceof RSAPublicKey rsaKey) {
+            jwk.put("kty", "RSA");
+            jwk.put("n", base64Url(unsigned(rsaKey.getModulus())));
+            jwk.put("e", base64Url(unsigned(rsaKey.getPublicExponent())));
+        } else if (verificationKey instanceof ECPublicKey ecKey) {
+            final int fieldSize = (ecKey.getParams().getCurve().getField().getFieldSize() + 7) / 8;
+            jwk.put("kty", "EC");
+            jwk.put("crv", "P-" + ecKey.getParams().getCurve().getField().getFieldSize());
+            jwk.put("x", base64Url(padded(ecKey.getW().getAffineX(), fieldSize)));
+            jwk.put("y", base64Url(padded(ecKey.getW().getAffineY(), fieldSize)));
+        } else {
+            throw new IllegalStateException("Симметричный ключ с kid: " + keyId + " не может быть опубликован");
+        }
+        jwk.put("use", "sig");
+        jwk.put("alg", algorithm.getValue());
+        jwk.put("kid", keyId);
+        return jwk;
+    }
+
+    private static String base64Url(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * Возвращает беззнаковое big-endian представление числа без ведущего нулевого байта знака.
+     */
+    private static byte[] unsigned(BigInteger value) {
+        final byte[] bytes = value.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            return Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        return bytes;
+    }
+
+    /**
+     * Возвращает беззнаковое big-endian представление координаты, дополненное нулями до длины поля кривой.
+     */
+    private static byte[] padded(BigInteger value, int length) {
+        final byte[] bytes = unsigned(value);
+        if (bytes.length == length) {
+            return bytes;
+        }
+        final byte[] result = new byte[length];
+        System.arraycopy(bytes, 0, result, length - bytes.length, bytes.length);
+        return result;
+    }
+}
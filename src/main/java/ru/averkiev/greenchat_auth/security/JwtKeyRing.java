@@ -0,0 +1,188 @@
+package ru.averkiev.greenchat_auth.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.security.SignatureException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.security.Key;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Класс представляет собой набор ключей одного типа токенов (access или refresh) с поддержкой ротации.
+ * Новые токены подписываются активным ключом, идентификатор которого записывается в заголовок kid.
+ * При проверке ключ выбирается по kid за O(1). Состав набора задаётся общим для всех экземпляров сервиса
+ * источником (см. JwtKeySetLoader): ключ, исключённый из источника, остаётся в наборе и принимается до тех пор,
+ * пока не истечёт срок действия всех подписанных им токенов, поэтому ротация не прерывает действующие сессии.
+ * @author mrGreenNV
+ */
+@Slf4j
+public class JwtKeyRing extends SigningKeyResolverAdapter {
+
+    /**
+     * Ключи набора по их идентификатору.
+     */
+    private final Map<String, RingEntry> keys = new ConcurrentHashMap<>();
+
+    /**
+     * Идентификатор ключа, которым проверяются токены без заголовка kid, выпущенные до появления набора ключей.
+     */
+    private final String legacyKeyId;
+
+    /**
+     * Максимальный срок действия токена, подписанного ключом этого набора.
+     */
+    private final Duration maxTokenLifetime;
+
+    private final Clock clock;
+
+    private volatile JwtKey activeKey;
+
+    public JwtKeyRing(JwtKey initialKey, Duration maxTokenLifetime, Clock clock) {
+        this.legacyKeyId = initialKey.getKeyId();
+        this.maxTokenLifetime = maxTokenLifetime;
+        this.clock = clock;
+        this.activeKey = initialKey;
+        this.keys.put(initialKey.getKeyId(), new RingEntry(initialKey, null));
+    }
+
+    /**
+     * Возвращает активный ключ, которым подписываются новые токены.
+     * @return активный ключ.
+     */
+    public JwtKey getActiveKey() {
+        return activeKey;
+    }
+
+    /**
+     * Приводит набор к опубликованному составу ключей. Опубликованные ключи принимаются при проверке, ключ
+     * activeKeyId становится активным. Ключ, исключённый из публикации, принимается ещё в течение максимального
+     * срока действия токена, а ключи, срок приёма которых истёк, удаляются из набора. Идентификатор ключа
+     * неизменяем: если под уже известным kid опубликован другой ключ, сохраняется прежний.
+     * @param published опубликованные ключи.
+     * @param activeKeyId идентификатор ключа, которым подписываются новые токены.
+     * @throws IllegalArgumentException выбрасывается, если активный ключ отсутствует среди опубликованных.
+     */
+    public synchronized void update(Collection<JwtKey> published, String activeKeyId) {
+        final Map<String, JwtKey> publishedById = new HashMap<>();
+        for (JwtKey key : published) {
+            publishedById.put(key.getKeyId(), key);
+        }
+        if (!publishedById.containsKey(activeKeyId)) {
+            throw new IllegalArgumentException("Активный ключ с kid: " + activeKeyId + " не опубликован");
+        }
+        final Instant now = clock.instant();
+        for (JwtKey key : publishedById.values()) {
+            final RingEntry existing = keys.get(key.getKeyId());
+            if (existing == null) {
+                keys.put(key.getKeyId(), new RingEntry(key, null));
+                log.info("IN update - в набор добавлен ключ с kid: {}", key.getKeyId());
+                continue;
+            }
+            if (!existing.key().getVerificationKey().equals(key.getVerificationKey())) {
+                log.warn("IN update - ключ с kid: {} изменён в источнике, используется прежний ключ",
+                        key.getKeyId());
+            }
+            if (existing.acceptUntil() != null) {
+                keys.put(key.getKeyId(), new RingEntry(existing.key(), null));
+            }
+        }
+        final Instant retireAt = now.plus(maxTokenLifetime);
+        for (RingEntry entry : keys.values()) {
+            if (entry.acceptUntil() == null && !publishedById.containsKey(entry.key().getKeyId())) {
+                keys.put(entry.key().getKeyId(), new RingEntry(entry.key(), retireAt));
+                log.info("IN update - ключ с kid: {} исключён из набора и принимается до {}",
+                        entry.key().getKeyId(), retireAt);
+            }
+        }
+        final JwtKey previousKey = activeKey;
+        activeKey = keys.get(activeKeyId).key();
+        purgeExpired(now);
+        if (previousKey != activeKey) {
+            log.info("IN update - активный ключ изменён с kid: {} на kid: {}",
+                    previousKey.getKeyId(), activeKeyId);
+        }
+    }
+
+    /**
+     * Возвращает ключ набора по его идентификатору.
+     * @param keyId идентификатор ключа (kid); null для токенов, выпущенных без заголовка kid.
+     * @return ключ или null, если ключ не найден или срок его приёма истёк.
+     */
+    public JwtKey findKey(String keyId) {
+        final RingEntry entry = keys.get(keyId != null ? keyId : legacyKeyId);
+        if (entry == null || (entry.acceptUntil() != null && clock.instant().isAfter(entry.acceptUntil()))) {
+            return null;
+        }
+        return entry.key();
+    }
+
+    /**
+     * Возвращает все ключи, которые принимаются при проверке, начиная с активного.
+     * @return неизменяемый список ключей.
+     */
+    public List<JwtKey> getAcceptedKeys() {
+        final Instant now = clock.instant();
+        final List<JwtKey> accepted = new ArrayList<>();
+        accepted.add(activeKey);
+        for (RingEntry entry : keys.values()) {
+            if (entry.key() != activeKey && (entry.acceptUntil() == null || !now.isAfter(entry.acceptUntil()))) {
+                accepted.add(entry.key());
+            }
+        }
+        return Collections.unmodifiableList(accepted);
+    }
+
+    /**
+     * Выбирает ключ проверки подписи по заголовку kid. Используется парсером JwtParser.
+     * @param header заголовок токена.
+     * @param claims Claims токена.
+     * @return ключ проверки подписи.
+     * @throws SignatureException выбрасывается, если ключ с указанным kid неизвестен или выведен из набора.
+     */
+    @Override
+    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+        final JwtKey key = findKey(header.getKeyId());
+        if (key == null) {
+            throw new SignatureException("Неизвестный идентификатор ключа: " + header.getKeyId());
+        }
+        return key.getVerificationKey();
+    }
+
+    /**
+     * Возвращает ближайший момент, когда один из прежних ключей перестанет приниматься при проверке.
+     * @return момент вывода ключа из набора или Instant.MAX, если прежних ключей нет.
+     */
+    public Instant getNextRetirement() {
+        final Instant now = clock.instant();
+        Instant next = Instant.MAX;
+        for (RingEntry entry : keys.values()) {
+            final Instant acceptUntil = entry.acceptUntil();
+            if (acceptUntil != null && !now.isAfter(acceptUntil) && acceptUntil.isBefore(next)) {
+                next = entry.acceptUntil();
+            }
+        }
+        return next;
+    }
+
+    private void purgeExpired(Instant now) {
+        final Collection<RingEntry> entries = keys.values();
+        entries.removeIf(entry -> entry.acceptUntil() != null && now.isAfter(entry.acceptUntil()));
+    }
+
+    /**
+     * Запись набора: ключ и момент, до которого он принимается при проверке (null для активного ключа).
+     */
+    private record RingEntry(JwtKey key, Instant acceptUntil) {
+    }
+}
@@ -0,0 +1,71 @@
+package ru.averkiev.greenchat_auth.security;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Класс представляет собой служебный endpoint Spring Boot Actuator для просмотра ключей подписи JWT и
+ * немедленной загрузки общего файла набора ключей (см. JwtKeySetLoader). По умолчанию endpoint не опубликован:
+ * его необходимо явно включить через JMX (spring.jmx.enabled) или в management.endpoints.web.exposure.include,
+ * закрыв от внешнего трафика.
+ * @author mrGreenNV
+ */
+@Component
+@Endpoint(id = "jwtkeys")
+@RequiredArgsConstructor
+public class JwtKeyRotationEndpoint {
+
+    private static final String ACCESS = "access";
+    private static final String REFRESH = "refresh";
+
+    private final JwtProvider jwtProvider;
+    private final JwtKeySetLoader jwtKeySetLoader;
+
+    /**
+     * Возвращает идентификаторы активных и принимаемых ключей для access и refresh токенов.
+     * @return описание наборов ключей.
+     */
+    @ReadOperation
+    public Map<String, Object> keys() {
+        final Map<String, Object> result = new LinkedHashMap<>();
+        result.put(ACCESS, describe(jwtProvider.getAccessKeyRing()));
+        result.put(REFRESH, describe(jwtProvider.getRefreshKeyRing()));
+        return result;
+    }
+
+    /**
+     * Немедленно перечитывает общий файл набора ключей на этом экземпляре, не дожидаясь периодической загрузки.
+     * Сами ключи через endpoint не передаются: ротация выполняется изменением файла jwt.signing.key-set-file,
+     * который применяют все экземпляры сервиса.
+     * @return описание наборов ключей после загрузки.
+     * @throws IllegalStateException выбрасывается, если файл набора ключей не задан.
+     */
+    @WriteOperation
+    public Map<String, Object> reload() {
+        if (!jwtKeySetLoader.isEnabled()) {
+            throw new IllegalStateException("Файл набора ключей jwt.signing.key-set-file не задан");
+        }
+        jwtKeySetLoader.load();
+        return keys();
+    }
+
+    private Map<String, Object> describe(JwtKeyRing keyRing) {
+        final JwtKey activeKey = keyRing.getActiveKey();
+        final List<String> accepted = keyRing.getAcceptedKeys().stream()
+                .map(JwtKey::getKeyId)
+                .collect(Collectors.toList());
+        final Map<String, Object> description = new LinkedHashMap<>();
+        description.put("activeKeyId", activeKey.getKeyId());
+        description.put("algorithm", activeKey.getAlgorithm().getValue());
+        description.put("acceptedKeyIds", accepted);
+        return description;
+    }
+}
@@ -0,0 +1,174 @@
+package ru.averkiev.greenchat_auth.security;
+
+import io.jsonwebtoken.SignatureAlgorithm;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import ru.averkiev.greenchat_auth.utils.TokenDigest;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Класс загружает ключи подписи JWT из файла набора ключей (jwt.signing.key-set-file), общего для всех
+ * экземпляров сервиса, например смонтированного из хранилища секретов. Файл перечитывается каждые
+ * jwt.signing.key-set-reload-ms, поэтому ротация выполняется изменением файла, а не обращением к отдельному
+ * экземпляру, и сохраняется после перезапуска. Формат файла - Java properties:
+ * <pre>
+ * access.active=access-2
+ * access.access-1.secret=...            # HMAC секрет в Base64
+ * access.access-2.algorithm=RS256
+ * access.access-2.private-key=...       # PKCS#8 в Base64
+ * access.access-2.public-key=...        # X.509 в Base64
+ * refresh.active=refresh-1
+ * refresh.refresh-1.secret=...
+ * </pre>
+ * Ротация выполняется в два шага: сначала новый ключ добавляется в файл, чтобы его начали принимать все
+ * экземпляры, и только после периода перечитывания он назначается активным. Прежний ключ следует хранить в файле,
+ * пока не истечёт срок действия подписанных им токенов. Если файл не задан, используются ключи из jwt.secret.* и
+ * jwt.signing.*.
+ * @author mrGreenNV
+ */
+@Slf4j
+@Component
+public class JwtKeySetLoader {
+
+    private static final String ACCESS = "access";
+    private static final String REFRESH = "refresh";
+    private static final String ACTIVE = "active";
+
+    private final JwtProvider jwtProvider;
+    private final String keySetFile;
+
+    /**
+     * Дайджест последнего применённого содержимого файла; неизменённый файл не применяется повторно.
+     */
+    private volatile String appliedDigest;
+
+    public JwtKeySetLoader(JwtProvider jwtProvider,
+                           @Value("${jwt.signing.key-set-file:}") String keySetFile) {
+        this.jwtProvider = jwtProvider;
+        this.keySetFile = keySetFile;
+    }
+
+    /**
+     * Загружает набор ключей при запуске. Ошибка в файле прерывает запуск сервиса, чтобы экземпляр не начал
+     * подписывать токены ключами, которых нет у остальных экземпляров.
+     */
+    @PostConstruct
+    public void init() {
+        if (isEnabled()) {
+            load();
+        }
+    }
+
+    /**
+     * Перечитывает файл набора ключей и применяет его, если содержимое изменилось. При ошибке сохраняется
+     * текущий набор ключей.
+     */
+    @Scheduled(
+            initialDelayString = "${jwt.signing.key-set-reload-ms:60000}",
+            fixedDelayString = "${jwt.signing.key-set-reload-ms:60000}"
+    )
+    public void reload() {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            load();
+        } catch (RuntimeException ex) {
+            log.error("IN reload - не удалось применить набор ключей из файла: {}", keySetFile, ex);
+        }
+    }
+
+    /**
+     * Проверяет, задан ли файл набора ключей.
+     * @return true, если ключи загружаются из файла.
+     */
+    public boolean isEnabled() {
+        return StringUtils.hasText(keySetFile);
+    }
+
+    /**
+     * Читает файл набора ключей и применяет его к JwtProvider.
+     * @throws IllegalArgumentException выбрасывается, если файл содержит некорректный набор ключей.
+     * @throws UncheckedIOException выбрасывается, если файл не удалось прочитать.
+     */
+    public synchronized void load() {
+        final String content;
+        try {
+            content = Files.readString(Path.of(keySetFile), StandardCharsets.UTF_8);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Не удалось прочитать файл набора ключей: " + keySetFile, ex);
+        }
+        final String digest = TokenDigest.sha256Key(content);
+        if (digest.equals(appliedDigest)) {
+            return;
+        }
+        final Properties properties = new Properties();
+        try {
+            properties.load(new StringReader(content));
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Некорректный файл набора ключей: " + keySetFile, ex);
+        }
+        final List<JwtKey> accessKeys = parseKeys(properties, ACCESS);
+        final List<JwtKey> refreshKeys = parseKeys(properties, REFRESH);
+        if (!accessKeys.isEmpty()) {
+            jwtProvider.applyAccessKeys(accessKeys, required(properties, ACCESS + "." + ACTIVE));
+        }
+        if (!refreshKeys.isEmpty()) {
+            jwtProvider.applyRefreshKeys(refreshKeys, required(properties, REFRESH + "." + ACTIVE));
+        }
+        appliedDigest = digest;
+        log.info("IN load - применён набор ключей: access {}, refresh {}", accessKeys.size(), refreshKeys.size());
+    }
+
+    private static List<JwtKey> parseKeys(Properties properties, String tokenType) {
+        final String prefix = tokenType + ".";
+        final Set<String> keyIds = new TreeSet<>();
+        for (String name : properties.stringPropertyNames()) {
+            final int attributeStart = name.lastIndexOf('.');
+            if (name.startsWith(prefix) && attributeStart > prefix.length()) {
+                keyIds.add(name.substring(prefix.length(), attributeStart));
+            }
+        }
+        final List<JwtKey> keys = new ArrayList<>();
+        for (String keyId : keyIds) {
+            final String keyPrefix = prefix + keyId + ".";
+            final String algorithm = properties.getProperty(keyPrefix + "algorithm", "");
+            final String secret = properties.getProperty(keyPrefix + "secret");
+            final String privateKey = properties.getProperty(keyPrefix + "private-key");
+            final String publicKey = properties.getProperty(keyPrefix + "public-key");
+            if (StringUtils.hasText(algorithm) && !SignatureAlgorithm.forName(algorithm).isHmac()) {
+                // Временная пара ключей не подходит для общего набора: её нет у остальных экземпляров.
+                if (!StringUtils.hasText(privateKey) || !StringUtils.hasText(publicKey)) {
+                    throw new IllegalArgumentException("Для ключа с kid: " + keyId + " не задана пара ключей");
+                }
+            } else if (!StringUtils.hasText(secret)) {
+                throw new IllegalArgumentException("Для ключа с kid: " + keyId + " не задан секрет");
+            }
+            keys.add(JwtProvider.createAccessKey(algorithm, keyId, secret, privateKey, publicKey));
+        }
+        return keys;
+    }
+
+    private static String required(Properties properties, String name) {
+        final String value = properties.getProperty(name);
+        if (!StringUtils.hasText(value)) {
+            throw new IllegalArgumentException("В файле набора ключей не задано значение " + name);
+        }
+        return value.trim();
+    }
+}
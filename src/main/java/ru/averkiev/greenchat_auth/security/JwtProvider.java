@@ -1,29 +1,27 @@
 package ru.averkiev.greenchat_auth.security;
 
 import io.jsonwebtoken.*;
-import io.jsonwebtoken.io.Decoders;
-import io.jsonwebtoken.security.Keys;
 import io.jsonwebtoken.security.SignatureException;
 import jakarta.validation.constraints.NotNull;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 import ru.averkiev.greenchat_auth.exceptions.AuthException;
 import ru.averkiev.greenchat_auth.models.JwtUser;
+import ru.averkiev.greenchat_auth.utils.JwtUtils;
+import ru.averkiev.greenchat_auth.utils.TokenDigest;
 
-import javax.crypto.SecretKey;
-import java.security.Key;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
 import java.util.Date;
-import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 /**
@@ -33,71 +31,330 @@ import java.util.stream.Collectors;
 @Slf4j
 @Component
 public class JwtProvider {
+
+    public static final String DEFAULT_ACCESS_KEY_ID = "access-1";
+    public static final String DEFAULT_REFRESH_KEY_ID = "refresh-1";
+
+    /**
+     * Набор ключей токенов доступа. Ключи могут быть симметричными (HMAC) или асимметричными (RS256/ES256).
+     */
+    private final JwtKeyRing accessKeyRing;
+
+    /**
+     * Набор секретных ключей токенов обновления.
+     */
+    private final JwtKeyRing refreshKeyRing;
+
     /**
-     * Секретный ключ для подписи доступных токенов доступа.
+     * Парсер токенов доступа. Экземпляр неизменяем и потокобезопасен, поэтому создаётся один раз при инициализации.
      */
-    private final SecretKey jwtAccessSecret;
+    private final JwtParser jwtAccessParser;
 
     /**
-     * Секретный ключ для подписи токенов обновления.
+     * Парсер токенов обновления. Экземпляр неизменяем и потокобезопасен, поэтому создаётся один раз при инициализации.
      */
-    private final SecretKey jwtRefreshSecret;
+    private final JwtParser jwtRefreshParser;
+
+    /**
+     * Быстрый путь подписи и проверки токенов доступа, подписанных HMAC ключами.
+     */
+    private final HmacJwtCodec accessCodec;
+
+    /**
+     * Быстрый путь подписи и проверки токенов обновления.
+     */
+    private final HmacJwtCodec refreshCodec;
+
+    /**
+     * Набор открытых ключей (JWKS), которыми другие сервисы могут проверять токены доступа самостоятельно.
+     * Пересобирается при ротации ключей и при выводе из набора прежних ключей.
+     */
+    private volatile JwksSnapshot jwksSnapshot;
 
     private final long expirationAccessTokenInMinutes;
     private final long expirationRefreshTokenInDays;
 
+    /**
+     * Часы UTC, по которым выставляются время выпуска и срок действия токенов и проверяется их истечение.
+     */
+    private final Clock clock;
+
+    public JwtProvider(String jwtAccessSecret,
+                       String jwtRefreshSecret,
+                       long expirationAccessTokenInMinutes,
+                       long expirationRefreshTokenInDays
+    ) {
+        this(jwtAccessSecret, jwtRefreshSecret, expirationAccessTokenInMinutes, expirationRefreshTokenInDays,
+                Clock.systemUTC());
+    }
+
+    public JwtProvider(String jwtAccessSecret,
+                       String jwtRefreshSecret,
+                       long expirationAccessTokenInMinutes,
+                       long expirationRefreshTokenInDays,
+                       Clock clock
+    ) {
+        this(jwtAccessSecret, jwtRefreshSecret, expirationAccessTokenInMinutes, expirationRefreshTokenInDays,
+                "", DEFAULT_ACCESS_KEY_ID, "", "", clock);
+    }
+
+    public JwtProvider(String jwtAccessSecret,
+                       String jwtRefreshSecret,
+                       long expirationAccessTokenInMinutes,
+                       long expirationRefreshTokenInDays,
+                       String signingAlgorithm,
+                       String accessKeyId,
+                       String signingPrivateKey,
+                       String signingPublicKey
+    ) {
+        this(jwtAccessSecret, jwtRefreshSecret, expirationAccessTokenInMinutes, expirationRefreshTokenInDays,
+                signingAlgorithm, accessKeyId, signingPrivateKey, signingPublicKey, Clock.systemUTC());
+    }
+
     @Autowired
     public JwtProvider(@Value("${jwt.secret.access}") String jwtAccessSecret,
                        @Value("${jwt.secret.refresh}") String jwtRefreshSecret,
                        @Value("${jwt.expiration.access}") long expirationAccessTokenInMinutes,
-                       @Value("${jwt.expiration.refresh}") long expirationRefreshTokenInDays
+                       @Value("${jwt.expiration.refresh}") long expirationRefreshTokenInDays,
+                       @Value("${jwt.signing.algorithm:}") String signingAlgorithm,
+                       @Value("${jwt.signing.key-id:" + DEFAULT_ACCESS_KEY_ID + "}") String accessKeyId,
+                       @Value("${jwt.signing.private-key:}") String signingPrivateKey,
+                       @Value("${jwt.signing.public-key:}") String signingPublicKey,
+                       Clock clock
     ) {
-        this.jwtAccessSecret = Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtAccessSecret));
-        this.jwtRefreshSecret = Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtRefreshSecret));
+        this.clock = clock;
+        this.accessKeyRing = new JwtKeyRing(
+                createAccessKey(signingAlgorithm, accessKeyId, jwtAccessSecret, signingPrivateKey, signingPublicKey),
+                Duration.ofMinutes(expirationAccessTokenInMinutes),
+                clock
+        );
+        this.refreshKeyRing = new JwtKeyRing(
+                JwtKey.hmac(DEFAULT_REFRESH_KEY_ID, jwtRefreshSecret),
+                Duration.ofDays(expirationRefreshTokenInDays),
+                clock
+        );
+        // Ключ проверки выбирается по заголовку kid, поэтому парсеры не нужно пересоздавать при ротации.
+        final io.jsonwebtoken.Clock parserClock = () -> new Date(clock.millis());
+        this.jwtAccessParser = Jwts.parserBuilder()
+                .setSigningKeyResolver(this.accessKeyRing)
+                .setClock(parserClock)
+                .build();
+        this.jwtRefreshParser = Jwts.parserBuilder()
+                .setSigningKeyResolver(this.refreshKeyRing)
+                .setClock(parserClock)
+                .build();
+        this.accessCodec = new HmacJwtCodec(this.accessKeyRing, clock);
+        this.refreshCodec = new HmacJwtCodec(this.refreshKeyRing, clock);
+        this.jwksSnapshot = JwksSnapshot.of(this.accessKeyRing);
         this.expirationAccessTokenInMinutes = expirationAccessTokenInMinutes;
         this.expirationRefreshTokenInDays = expirationRefreshTokenInDays;
+        log.info("IN JwtProvider - токены доступа подписываются алгоритмом {} ключом с kid: {}",
+                accessKeyRing.getActiveKey().getAlgorithm().getValue(), accessKeyRing.getActiveKey().getKeyId());
     }
 
     /**
-     * Генерирует и возвращает токен доступа на основе переданного объекта JwtUser. Метод создаёт токен с
-     * указанным субъектом (именем пользователя), сроком действия и подписывает его с использованием
-     * секретного ключа jwtAccessSecret. Метод также добавляет дополнительные поля такие как: имя, фамилия,
-     * роли пользователя, используя данные из объекта JwtUser.
-     * @param jwtUser передаваемый объект, для которого генерируется токен доступа.
-     * @return строка, содержащая токен доступа.
+     * Создаёт ключ подписи токенов доступа. Если алгоритм не задан или является HMAC алгоритмом, используется
+     * секрет, иначе - пара ключей в кодировке Base64.
+     * @param signingAlgorithm название алгоритма подписи или пустая строка.
+     * @param keyId идентификатор ключа.
+     * @param secret секрет HMAC в кодировке Base64.
+     * @param privateKey закрытый ключ PKCS#8 в кодировке Base64.
+     * @param publicKey открытый ключ X.509 в кодировке Base64.
+     * @return ключ подписи токенов доступа.
      */
-    public String generateAccessToken(@NotNull JwtUser jwtUser) {
-        final LocalDateTime now = LocalDateTime.now();
-        final Instant accessExpirationInstance = now.plusMinutes(expirationAccessTokenInMinutes).atZone(ZoneId.systemDefault()).toInstant();
-        final Date accessExpiration = Date.from(accessExpirationInstance);
-        return Jwts.builder()
+    public static JwtKey createAccessKey(String signingAlgorithm, String keyId, String secret,
+                                         String privateKey, String publicKey) {
+        if (!StringUtils.hasText(signingAlgorithm)) {
+            return JwtKey.hmac(keyId, secret);
+        }
+        final SignatureAlgorithm algorithm = SignatureAlgorithm.forName(signingAlgorithm);
+        if (algorithm.isHmac()) {
+            return JwtKey.hmac(keyId, secret, algorithm);
+        }
+        return JwtKey.asymmetric(keyId, algorithm, privateKey, publicKey);
+    }
+
+    /**
+     * Применяет опубликованный набор ключей токенов доступа без перезапуска сервиса. Новые токены подписываются
+     * активным ключом, а токены, подписанные исключённым из набора ключом, принимаются до истечения их срока
+     * действия.
+     * @param keys опубликованные ключи токенов доступа.
+     * @param activeKeyId идентификатор ключа, которым подписываются новые токены.
+     */
+    public void applyAccessKeys(@NotNull Collection<JwtKey> keys, @NotNull String activeKeyId) {
+        accessKeyRing.update(keys, activeKeyId);
+        accessKeyRing.getAcceptedKeys().forEach(accessCodec::register);
+        jwksSnapshot = JwksSnapshot.of(accessKeyRing);
+    }
+
+    /**
+     * Применяет опубликованный набор секретных ключей токенов обновления без перезапуска сервиса. Токены,
+     * подписанные исключённым из набора ключом, принимаются до истечения их срока действия.
+     * @param keys опубликованные HMAC ключи токенов обновления.
+     * @param activeKeyId идентификатор ключа, которым подписываются новые токены.
+     * @throws IllegalArgumentException выбрасывается, если один из ключей не является симметричным.
+     */
+    public void applyRefreshKeys(@NotNull Collection<JwtKey> keys, @NotNull String activeKeyId) {
+        for (JwtKey key : keys) {
+            if (key.isAsymmetric()) {
+                throw new IllegalArgumentException("Токены обновления подписываются только HMAC ключами");
+            }
+        }
+        refreshKeyRing.update(keys, activeKeyId);
+        refreshKeyRing.getAcceptedKeys().forEach(refreshCodec::register);
+    }
+
+    /**
+     * Возвращает набор ключей токенов доступа.
+     * @return набор ключей токенов доступа.
+     */
+    public JwtKeyRing getAccessKeyRing() {
+        return accessKeyRing;
+    }
+
+    /**
+     * Возвращает набор ключей токенов обновления.
+     * @return набор ключей токенов обновления.
+     */
+    public JwtKeyRing getRefreshKeyRing() {
+        return refreshKeyRing;
+    }
+
+    /**
+     * Выпускает токен доступа на основе переданного объекта JwtUser. Метод создаёт токен с указанным субъектом
+     * (именем пользователя), идентификатором (jti), сроком действия и подписывает его с использованием
+     * активного ключа из набора accessKeyRing, идентификатор которого записывается в заголовок kid. Метод также
+     * добавляет дополнительные поля такие как: имя, фамилия, идентификатор (uid) и роли пользователя, используя
+     * данные из объекта JwtUser. Токен подписывается один раз, а его метаданные возвращаются без повторного
+     * разбора. Токены, подписанные HMAC ключом, формируются быстрым путём HmacJwtCodec без промежуточных Map
+     * и Jackson.
+     * @param jwtUser передаваемый объект, для которого выпускается токен доступа.
+     * @return объект IssuedToken, содержащий токен доступа, его идентификатор, время выпуска и истечения.
+     */
+    public IssuedToken mintAccessToken(@NotNull JwtUser jwtUser) {
+        // Время в JWT хранится с точностью до секунды, поэтому метаданные усекаются так же, как в самом токене.
+        // Точное время выпуска записывается в поле iat_ms для сравнения с эпохой отзыва.
+        final Instant issuedAtExact = clock.instant();
+        final Instant now = issuedAtExact.truncatedTo(ChronoUnit.SECONDS);
+        final Date issuedAt = Date.from(now);
+        final Date accessExpiration = Date.from(now.plus(expirationAccessTokenInMinutes, ChronoUnit.MINUTES));
+        final String tokenId = UUID.randomUUID().toString();
+        final JwtKey accessKey = accessKeyRing.getActiveKey();
+        if (HmacJwtCodec.supports(accessKey)) {
+            final String payload = new HmacJwtCodec.Payload()
+                    .claim(Claims.ID, tokenId)
+                    .claim(Claims.SUBJECT, jwtUser.getUsername())
+                    .claim(Claims.EXPIRATION, accessExpiration.getTime() / 1000)
+                    .claim(Claims.ISSUED_AT, issuedAt.getTime() / 1000)
+                    .claim(JwtUtils.ISSUED_AT_MILLIS_CLAIM, issuedAtExact.toEpochMilli())
+                    .claim("firstname", jwtUser.getFirstname())
+                    .claim("lastname", jwtUser.getLastname())
+                    .claim(JwtUtils.USER_ID_CLAIM, jwtUser.getId())
+                    .authorities("authorities", jwtUser.getAuthorities())
+                    .toJson();
+            return new IssuedToken(accessCodec.sign(accessKey, payload), tokenId, issuedAt, accessExpiration);
+        }
+        final String token = Jwts.builder()
+                .setId(tokenId)
                 .setSubject(jwtUser.getUsername())
                 .setExpiration(accessExpiration)
-                .setIssuedAt(Date.from(now.atZone(ZoneId.systemDefault()).toInstant()))
-                .signWith(jwtAccessSecret)
+                .setIssuedAt(issuedAt)
+                .claim(JwtUtils.ISSUED_AT_MILLIS_CLAIM, issuedAtExact.toEpochMilli())
+                .setHeaderParam(JwsHeader.KEY_ID, accessKey.getKeyId())
+                .signWith(accessKey.getSigningKey(), accessKey.getAlgorithm())
                 .claim("firstname", jwtUser.getFirstname())
                 .claim("lastname", jwtUser.getLastname())
+                .claim(JwtUtils.USER_ID_CLAIM, jwtUser.getId())
                 .claim("authorities", jwtUser.getAuthorities())
                 .compact();
+        return new IssuedToken(token, tokenId, issuedAt, accessExpiration);
+    }
+
+    /**
+     * Выпускает токен обновления на основе переданного объекта JwtUser. Метод создаёт токен с указанным субъектом
+     * (именем пользователя), идентификатором (jti), сроком действия и подписывает его с использованием
+     * активного секретного ключа из набора refreshKeyRing, идентификатор которого записывается в заголовок kid.
+     * @param jwtUser передаваемый объект, для которого выпускается токен обновления.
+     * @return объект IssuedToken, содержащий токен обновления, его идентификатор, время выпуска и истечения.
+     */
+    public IssuedToken mintRefreshToken(@NotNull JwtUser jwtUser) {
+        final Instant now = clock.instant().truncatedTo(ChronoUnit.SECONDS);
+        final Date issuedAt = Date.from(now);
+        final Date refreshExpiration = Date.from(now.plus(expirationRefreshTokenInDays, ChronoUnit.DAYS));
+        final String tokenId = UUID.randomUUID().toString();
+        final String payload = new HmacJwtCodec.Payload()
+                .claim(Claims.ID, tokenId)
+                .claim(Claims.SUBJECT, jwtUser.getUsername())
+                .claim(Claims.EXPIRATION, refreshExpiration.getTime() / 1000)
+                .claim(Claims.ISSUED_AT, issuedAt.getTime() / 1000)
+                .toJson();
+        final String token = refreshCodec.sign(refreshKeyRing.getActiveKey(), payload);
+        return new IssuedToken(token, tokenId, issuedAt, refreshExpiration);
     }
 
     /**
-     * Генерирует и возвращает токен обновления на основе переданного объекта JwtUser. Метод создаёт токен с
-     * указанным субъектом (именем пользователя), сроком действия и подписывает его с использованием
-     * секретного ключа jwtAccessSecret.
+     * Генерирует и возвращает токен доступа на основе переданного объекта JwtUser с помощью метода
+     * mintAccessToken.
+     * @param jwtUser передаваемый объект, для которого генерируется токен доступа.
+     * @return строка, содержащая токен доступа.
+     */
+    public String generateAccessToken(@NotNull JwtUser jwtUser) {
+        return mintAccessToken(jwtUser).getToken();
+    }
+
+    /**
+     * Генерирует и возвращает токен обновления на основе переданного объекта JwtUser с помощью метода
+     * mintRefreshToken.
      * @param jwtUser передаваемый объект, для которого генерируется токен обновления.
      * @return строка, содержащая токен обновления.
      */
     public String generateRefreshToken(@NotNull JwtUser jwtUser) {
-        final LocalDateTime now = LocalDateTime.now();
-        final Instant refreshExpirationInstant = now.plusDays(expirationRefreshTokenInDays).atZone(ZoneId.systemDefault()).toInstant();
-        final Date refreshExpiration = Date.from(refreshExpirationInstant);
-        return Jwts.builder()
-                .setSubject(jwtUser.getUsername())
-                .setExpiration(refreshExpiration)
-                .setIssuedAt(Date.from(now.atZone(ZoneId.systemDefault()).toInstant()))
-                .signWith(jwtRefreshSecret)
-                .compact();
+        return mintRefreshToken(jwtUser).getToken();
+    }
+
+    /**
+     * Проверяет подпись и срок действия токена доступа и возвращает его Claims. Токен разбирается ровно один раз,
+     * поэтому метод следует использовать вместо последовательного вызова validateAccessToken и getAccessClaims.
+     * @param accessToken передаваемый токен доступа, который необходимо проверить.
+     * @return объект Claims, содержащий body переданного токена.
+     * @throws AuthException выбрасывается, если токен недействителен.
+     */
+    public Claims verifyAccessToken(@NotNull String accessToken) throws AuthException {
+        return verifyToken(accessToken, accessCodec, jwtAccessParser, true);
+    }
+
+    /**
+     * Проверяет токен доступа так же, как verifyAccessToken, но журналирует отказ на уровне DEBUG. Используется
+     * интроспекцией, для которой недействительный токен - ожидаемый результат, а не ошибка.
+     * @param accessToken передаваемый токен доступа, который необходимо проверить.
+     * @return объект Claims, содержащий body переданного токена.
+     * @throws AuthException выбрасывается, если токен недействителен.
+     */
+    public Claims verifyAccessTokenQuietly(@NotNull String accessToken) throws AuthException {
+        return verifyToken(accessToken, accessCodec, jwtAccessParser, false);
+    }
+
+    /**
+     * Проверяет подпись и срок действия токена обновления и возвращает его Claims. Токен разбирается ровно один раз,
+     * поэтому метод следует использовать вместо последовательного вызова validateRefreshToken и getRefreshClaims.
+     * @param refreshToken передаваемый токен обновления, который необходимо проверить.
+     * @return объект Claims, содержащий body переданного токена.
+     * @throws AuthException выбрасывается, если токен недействителен.
+     */
+    public Claims verifyRefreshToken(@NotNull String refreshToken) throws AuthException {
+        return verifyToken(refreshToken, refreshCodec, jwtRefreshParser, true);
+    }
+
+    /**
+     * Проверяет токен обновления так же, как verifyRefreshToken, но журналирует отказ на уровне DEBUG.
+     * Используется пакетной проверкой и интроспекцией, чтобы пакет недействительных токенов не заполнял журнал
+     * ошибками со стеком вызовов.
+     * @param refreshToken передаваемый токен обновления, который необходимо проверить.
+     * @return объект Claims, содержащий body переданного токена.
+     * @throws AuthException выбрасывается, если токен недействителен.
+     */
+    public Claims verifyRefreshTokenQuietly(@NotNull String refreshToken) throws AuthException {
+        return verifyToken(refreshToken, refreshCodec, jwtRefreshParser, false);
     }
 
     /**
@@ -106,7 +363,8 @@ public class JwtProvider {
      * @return возвращает результат проверки токена доступа.
      */
     public boolean validateAccessToken(@NotNull String accessToken) {
-        return validateToken(accessToken, jwtAccessSecret);
+        verifyAccessToken(accessToken);
+        return true;
     }
 
     /**
@@ -115,74 +373,118 @@ public class JwtProvider {
      * @return возвращает результат проверки токена обновления.
      */
     public boolean validateRefreshToken(@NotNull String refreshToken) {
-        return validateToken(refreshToken, jwtRefreshSecret);
+        verifyRefreshToken(refreshToken);
+        return true;
     }
 
     /**
-     * Проверяет и возвращает результат проверки токена.
+     * Проверяет токен быстрым путём, а если это невозможно - с помощью заранее созданного парсера jjwt,
+     * и возвращает его Claims.
      * @param token переданный токен, который необходимо проверить.
-     * @param secret секретный ключ для разбора токена и проверки его целостности.
-     * @return возвращает результат проверки токена.
-     * @exception ExpiredJwtException выбрасывается если токен недействителен.
-     * @exception UnsupportedJwtException выбрасывается если токен не поддерживается.
-     * @exception MalformedJwtException выбрасывается если токен некорректен.
-     * @exception SignatureException выбрасывается если секретный ключ недействителен.
-     */
-    public boolean validateToken(@NotNull String token, @NotNull Key secret)
-            throws ExpiredJwtException, UnsupportedJwtException, MalformedJwtException,
-            SignatureException, AuthException {
+     * @param codec быстрый путь проверки HMAC токенов соответствующего типа.
+     * @param parser парсер, настроенный на секретный ключ соответствующего типа токенов.
+     * @param logFailures true - отказ журналируется на уровне ERROR, false - на уровне DEBUG.
+     * @return объект Claims, содержащий body переданного токена.
+     * @throws AuthException выбрасывается, если токен просрочен, не поддерживается, некорректен или имеет
+     * недействительную подпись.
+     */
+    private Claims verifyToken(@NotNull String token, @NotNull HmacJwtCodec codec, @NotNull JwtParser parser,
+                               boolean logFailures) throws AuthException {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(secret)
-                    .build()
-                    .parseClaimsJws(token);
-            return true;
+            final Claims claims = codec.verify(token);
+            if (claims != null) {
+                return claims;
+            }
+            return parser.parseClaimsJws(token).getBody();
+        } catch (AuthException authEx) {
+            throw failure(authEx.getMessage(), null, logFailures);
         } catch (ExpiredJwtException expEx) {
-            log.error("Истек срок действия токена");
-            throw new AuthException("Истек срок действия токена");
+            throw failure("Истек срок действия токена", null, logFailures);
         } catch (UnsupportedJwtException unsEx) {
-            log.error("Неподдерживаемый JWT", unsEx);
-            throw new AuthException("Неподдерживаемый JWT");
+            throw failure("Неподдерживаемый JWT", unsEx, logFailures);
         } catch (MalformedJwtException malEx) {
-            log.error("Некорректный JWT", malEx);
-            throw new AuthException("Некорректный JWT");
+            throw failure("Некорректный JWT", malEx, logFailures);
         } catch (SignatureException sEx) {
-            log.error("Недействительная подпись");
-            throw new AuthException("Недействительная подпись");
+            throw failure("Недействительная подпись", null, logFailures);
         }
     }
 
     /**
-     * Извлекает и возвращает объект Claims из разобранного access токена, с помощью вызова метода getClaims.
+     * Журналирует отказ в проверке токена и создаёт исключение AuthException.
+     */
+    private static AuthException failure(String message, Exception cause, boolean logFailures) {
+        if (!logFailures) {
+            log.debug("IN verifyToken - {}", message);
+        } else if (cause != null) {
+            log.error(message, cause);
+        } else {
+            log.error(message);
+        }
+        return new AuthException(message);
+    }
+
+    /**
+     * Извлекает и возвращает объект Claims из разобранного access токена.
      * @param AccessToken - токен, из которого извлекаются Claims.
      * @return объект Claims, содержащий body переданного токена.
      */
     public Claims getAccessClaims(@NotNull String AccessToken) {
-        return getClaims(AccessToken, jwtAccessSecret);
+        return jwtAccessParser.parseClaimsJws(AccessToken).getBody();
     }
 
     /**
-     * Извлекает и возвращает объект Claims из разобранного refresh токена, с помощью вызова метода getClaims.
+     * Извлекает и возвращает объект Claims из разобранного refresh токена.
      * @param refreshToken - токен, из которого извлекаются Claims.
      * @return объект Claims, содержащий body переданного токена.
      */
     public Claims getRefreshClaims(@NotNull String refreshToken) {
-        return getClaims(refreshToken, jwtRefreshSecret);
+        return jwtRefreshParser.parseClaimsJws(refreshToken).getBody();
     }
 
     /**
-     * Извлекает и возвращает объект Claims из разобранного токена. Метод использует парсер для разбора токена и
-     * извлечения полезной нагрузки (payload) токена.
-     * @param token передаваемый токен, из которого необходимо извлечь объект Claims.
-     * @param secret секретный ключ для разбора передаваемого токена.
-     * @return объект Claims, содержащий body переданного токена.
+     * Возвращает набор открытых ключей (JWKS) для проверки токенов доступа. При симметричной подписи набор пуст,
+     * так как секретный ключ не может быть опубликован.
+     * @return JWKS в виде Map с единственным полем keys.
+     */
+    public Map<String, Object> getJwks() {
+        return currentJwks().jwks();
+    }
+
+    /**
+     * Возвращает значение заголовка ETag для набора открытых ключей. Значение меняется только при смене ключей.
+     * @return строка ETag в кавычках.
+     */
+    public String getJwksETag() {
+        return currentJwks().eTag();
+    }
+
+    /**
+     * Возвращает актуальный набор открытых ключей, пересобирая его, если один из прежних ключей выведен из набора.
      */
-    private Claims getClaims(@NotNull String token, @NotNull Key secret) {
-        return Jwts.parserBuilder()
-                .setSigningKey(secret)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    private JwksSnapshot currentJwks() {
+        JwksSnapshot snapshot = jwksSnapshot;
+        if (clock.instant().isAfter(snapshot.validUntil())) {
+            snapshot = JwksSnapshot.of(accessKeyRing);
+            jwksSnapshot = snapshot;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Неизменяемый снимок набора открытых ключей вместе с его ETag и моментом, когда из него выпадет
+     * ближайший прежний ключ.
+     */
+    private record JwksSnapshot(Map<String, Object> jwks, String eTag, Instant validUntil) {
+
+        static JwksSnapshot of(JwtKeyRing keyRing) {
+            final List<Map<String, Object>> keys = keyRing.getAcceptedKeys().stream()
+                    .filter(JwtKey::isAsymmetric)
+                    .map(JwtKey::toJwk)
+                    .collect(Collectors.toList());
+            final Map<String, Object> jwks = Map.of("keys", keys);
+            return new JwksSnapshot(jwks, "\"" + TokenDigest.sha256Key(jwks.toString()) + "\"",
+                    keyRing.getNextRetirement());
+        }
     }
 
 }
\ No newline at end of file
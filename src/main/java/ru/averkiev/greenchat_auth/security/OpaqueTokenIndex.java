@@ -0,0 +1,326 @@
+package ru.averkiev.greenchat_auth.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.averkiev.greenchat_auth.models.JwtUser;
+import ru.averkiev.greenchat_auth.utils.TokenDigest;
+
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Класс представляет собой индекс сессий для режима непрозрачных (opaque) access токенов. Вместо JWT клиент получает
+ * короткую случайную строку, а сведения о пользователе хранятся на стороне сервиса и находятся по токену за O(1)
+ * без проверки подписи. Индекс хранит не более одной сессии на пользователя, так же как таблица access_tokens,
+ * в которую записываются дайджест непрозрачного токена и логин пользователя.
+ * Индекс является кэшем записей access_tokens: токен, которого нет в памяти (выпущенный другим экземпляром сервиса
+ * или до перезапуска), ищется в хранилище SessionStore по дайджесту и добавляется в индекс. Дайджесты токенов,
+ * не найденных в хранилище, запоминаются на jwt.opaque.unknown-ttl-ms, поэтому повторное предъявление
+ * неизвестной строки не обращается к базе данных. Сессия выпущенного
+ * токена добавляется в индекс только после фиксации транзакции, сохранившей его запись, а истёкшие сессии
+ * удаляются фоновой задачей каждые jwt.opaque.sweep-ms.
+ * @author mrGreenNV
+ */
+@Slf4j
+@Component
+public class OpaqueTokenIndex {
+
+    /**
+     * Длина непрозрачного токена в байтах до кодирования в Base64URL (256 бит энтропии).
+     */
+    private static final int TOKEN_BYTES = 32;
+
+    private static final Base64.Encoder BASE64_URL_ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private static final long DEFAULT_UNKNOWN_TTL_MILLIS = 30_000;
+    private static final long DEFAULT_UNKNOWN_CACHE_SIZE = 10_000;
+
+    private final boolean enabled;
+    private final Duration tokenLifetime;
+    private final Clock clock;
+    private final SessionStore sessionStore;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    /**
+     * Сессии по непрозрачному токену.
+     */
+    private final Map<String, OpaqueSession> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * Текущий непрозрачный токен каждого пользователя. Изменения обеих таблиц выполняются внутри compute по
+     * идентификатору пользователя, поэтому сессии одного пользователя изменяются атомарно.
+     */
+    private final Map<Integer, String> tokensByUser = new ConcurrentHashMap<>();
+
+    /**
+     * Дайджесты токенов, которые не найдены в хранилище SessionStore. Размер и время хранения ограничены, поэтому
+     * перебор случайных строк не увеличивает потребление памяти.
+     */
+    private final Cache<String, Boolean> unknownTokens;
+
+    public OpaqueTokenIndex(boolean enabled, long expirationAccessTokenInMinutes, Clock clock) {
+        this(enabled, expirationAccessTokenInMinutes, clock, (SessionStore) null);
+    }
+
+    public OpaqueTokenIndex(boolean enabled,
+                            long expirationAccessTokenInMinutes,
+                            Clock clock,
+                            SessionStore sessionStore) {
+        this(enabled, expirationAccessTokenInMinutes, clock, sessionStore, DEFAULT_UNKNOWN_TTL_MILLIS,
+                DEFAULT_UNKNOWN_CACHE_SIZE);
+    }
+
+    public OpaqueTokenIndex(boolean enabled,
+                            long expirationAccessTokenInMinutes,
+                            Clock clock,
+                            SessionStore sessionStore,
+                            long unknownTokenTtlMillis,
+                            long unknownTokenCacheSize) {
+        this.enabled = enabled;
+        this.tokenLifetime = Duration.ofMinutes(expirationAccessTokenInMinutes);
+        this.clock = clock;
+        this.sessionStore = sessionStore;
+        this.unknownTokens = Caffeine.newBuilder()
+                .maximumSize(unknownTokenCacheSize)
+                .expireAfterWrite(unknownTokenTtlMillis, TimeUnit.MILLISECONDS)
+                .ticker(() -> TimeUnit.MILLISECONDS.toNanos(clock.millis()))
+                .build();
+        log.info("IN OpaqueTokenIndex - режим непрозрачных access токенов {}", enabled ? "включён" : "выключен");
+    }
+
+    @Autowired
+    public OpaqueTokenIndex(@Value("${jwt.opaque.enabled:false}") boolean enabled,
+                            @Value("${jwt.expiration.access}") long expirationAccessTokenInMinutes,
+                            Clock clock,
+                            ObjectProvider<SessionStore> sessionStore,
+                            @Value("${jwt.opaque.unknown-ttl-ms:30000}") long unknownTokenTtlMillis,
+                            @Value("${jwt.opaque.unknown-cache-size:10000}") long unknownTokenCacheSize) {
+        this(enabled, expirationAccessTokenInMinutes, clock, sessionStore.getIfAvailable(), unknownTokenTtlMillis,
+                unknownTokenCacheSize);
+    }
+
+    /**
+     * Проверяет, включён ли режим непрозрачных access токенов.
+     * @return true, если access токены выдаются в непрозрачном виде.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Проверяет, может ли строка быть непрозрачным токеном. В отличие от JWT, непрозрачный токен не содержит точек.
+     * @param token проверяемая строка.
+     * @return true, если строка похожа на непрозрачный токен.
+     */
+    public static boolean isOpaque(String token) {
+        return token != null && token.indexOf('.') < 0;
+    }
+
+    /**
+     * Выпускает непрозрачный access токен для пользователя. Сессия заменяет предыдущую сессию пользователя после
+     * фиксации текущей транзакции, а вне транзакции - сразу.
+     * @param jwtUser пользователь, для которого выпускается токен.
+     * @return объект IssuedToken, содержащий непрозрачный токен, его идентификатор, время выпуска и истечения.
+     */
+    public IssuedToken issue(JwtUser jwtUser) {
+        final byte[] bytes = new byte[TOKEN_BYTES];
+        secureRandom.nextBytes(bytes);
+        final String token = BASE64_URL_ENCODER.encodeToString(bytes);
+        final long issuedAtMillis = clock.millis();
+        final long expiresAtMillis = issuedAtMillis + tokenLifetime.toMillis();
+        final OpaqueSession session = newSession(token, jwtUser, issuedAtMillis, expiresAtMillis);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    register(token, session);
+                }
+            });
+        } else {
+            register(token, session);
+        }
+        return new IssuedToken(
+                token,
+                session.authentication().getTokenId(),
+                new Date(issuedAtMillis),
+                new Date(expiresAtMillis)
+        );
+    }
+
+    /**
+     * Находит действующую сессию по непрозрачному токену. Токен, которого нет в индексе, ищется в хранилище
+     * SessionStore, если он не был недавно отклонён как неизвестный. Просроченная сессия удаляется из индекса.
+     * @param token непрозрачный токен.
+     * @return сессия или null, если токен неизвестен или истёк.
+     */
+    public OpaqueSession find(String token) {
+        if (token == null) {
+            return null;
+        }
+        OpaqueSession session = sessions.get(token);
+        if (session == null) {
+            session = load(token);
+            if (session == null) {
+                return null;
+            }
+        }
+        if (clock.millis() > session.expiresAtMillis()) {
+            remove(token, session);
+            return null;
+        }
+        return session;
+    }
+
+    /**
+     * Удаляет сессию пользователя, например при выходе из системы.
+     * @param userId идентификатор пользователя.
+     */
+    public void revoke(int userId) {
+        tokensByUser.computeIfPresent(userId, (id, token) -> {
+            sessions.remove(token);
+            return null;
+        });
+    }
+
+    /**
+     * Удаляет из индекса сессии с истёкшим сроком действия, к которым больше не обращаются.
+     * @return количество удалённых сессий.
+     */
+    @Scheduled(
+            initialDelayString = "${jwt.opaque.sweep-ms:60000}",
+            fixedDelayString = "${jwt.opaque.sweep-ms:60000}"
+    )
+    public int sweep() {
+        final long now = clock.millis();
+        int removed = 0;
+        for (Map.Entry<String, OpaqueSession> entry : sessions.entrySet()) {
+            if (now > entry.getValue().expiresAtMillis() && remove(entry.getKey(), entry.getValue())) {
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            log.debug("IN sweep - удалено истёкших сессий: {}", removed);
+        }
+        return removed;
+    }
+
+    /**
+     * Возвращает количество сессий в индексе.
+     * @return количество сессий.
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Добавляет сессию в индекс, заменяя прежнюю сессию пользователя, если она выпущена не позже новой.
+     */
+    private void register(String token, OpaqueSession session) {
+        tokensByUser.compute(session.userId(), (userId, previousToken) -> {
+            if (previousToken != null && !previousToken.equals(token)) {
+                final OpaqueSession previous = sessions.get(previousToken);
+                if (previous != null && previous.authentication().getIssuedAt()
+                        > session.authentication().getIssuedAt()) {
+                    return previousToken;
+                }
+                sessions.remove(previousToken);
+            }
+            sessions.put(token, session);
+            return token;
+        });
+    }
+
+    private boolean remove(String token, OpaqueSession session) {
+        final boolean[] removed = new boolean[1];
+        tokensByUser.compute(session.userId(), (userId, currentToken) -> {
+            removed[0] = sessions.remove(token, session);
+            return token.equals(currentToken) ? null : currentToken;
+        });
+        return removed[0];
+    }
+
+    private OpaqueSession load(String token) {
+        if (!enabled || sessionStore == null) {
+            return null;
+        }
+        final byte[] digest = TokenDigest.sha256(token);
+        final String digestKey = BASE64_URL_ENCODER.encodeToString(digest);
+        if (unknownTokens.getIfPresent(digestKey) != null) {
+            return null;
+        }
+        final StoredSession stored = sessionStore.find(digest);
+        if (stored == null) {
+            unknownTokens.put(digestKey, Boolean.TRUE);
+            return null;
+        }
+        final OpaqueSession session = newSession(token, stored.jwtUser(), stored.issuedAtMillis(),
+                stored.expiresAtMillis());
+        if (clock.millis() > session.expiresAtMillis()) {
+            return null;
+        }
+        register(token, session);
+        // Если в индексе уже есть более новая сессия пользователя, сохранённый токен заменён и не принимается.
+        return sessions.get(token);
+    }
+
+    private static OpaqueSession newSession(String token, JwtUser jwtUser, long issuedAtMillis,
+                                            long expiresAtMillis) {
+        final JwtAuthentication authentication = new JwtAuthentication();
+        authentication.setLogin(jwtUser.getUsername());
+        authentication.setFirstname(jwtUser.getFirstname());
+        authentication.setRoles(jwtUser.getAuthorities() == null
+                ? List.of()
+                : new ArrayList<GrantedAuthority>(jwtUser.getAuthorities()));
+        authentication.setUserId(jwtUser.getId());
+        // Идентификатор выводится из токена, поэтому совпадает на всех экземплярах сервиса.
+        authentication.setTokenId(TokenDigest.sha256Key(token));
+        authentication.setIssuedAt(issuedAtMillis);
+        authentication.setAuthenticated(true);
+        return new OpaqueSession(jwtUser.getId(), authentication, expiresAtMillis);
+    }
+
+    /**
+     * Сессия непрозрачного токена: идентификатор пользователя, готовый объект аутентификации и момент истечения
+     * срока действия токена в миллисекундах.
+     */
+    public record OpaqueSession(int userId, JwtAuthentication authentication, long expiresAtMillis) {
+    }
+
+    /**
+     * Сохранённая запись непрозрачного токена: пользователь и сроки действия токена в миллисекундах.
+     */
+    public record StoredSession(JwtUser jwtUser, long issuedAtMillis, long expiresAtMillis) {
+    }
+
+    /**
+     * Хранилище записей непрозрачных токенов, общее для всех экземпляров сервиса.
+     */
+    @FunctionalInterface
+    public interface SessionStore {
+
+        /**
+         * Находит запись непрозрачного токена по SHA-256 дайджесту его значения.
+         * @param tokenDigest дайджест токена.
+         * @return запись токена или null, если токен неизвестен.
+         */
+        StoredSession find(byte[] tokenDigest);
+    }
+}
@@ -0,0 +1,106 @@
+package ru.averkiev.greenchat_auth.security;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.averkiev.greenchat_auth.models.RevocationEpoch;
+import ru.averkiev.greenchat_auth.repositories.RevocationEpochRepository;
+import ru.averkiev.greenchat_auth.utils.ConcurrentIntLongMap;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Класс представляет собой хранилище эпох отзыва access токенов пользователей. Эпоха - это момент (в миллисекундах
+ * с начала эпохи Unix), до которого все выпущенные пользователю access токены считаются недействительными.
+ * Эпохи хранятся в таблице revocation_epochs и копируются в память в примитивную хэш-таблицу по идентификатору
+ * пользователя, поэтому проверка токена сводится к одному поиску без создания объектов и без обращения к базе
+ * данных. Эпохи, созданные на других экземплярах сервиса, подгружаются периодически. Эпохи старше срока
+ * действия access токена ничего не отклоняют и удаляются.
+ * Эпоха сравнивается с временем выпуска токена в миллисекундах (поле iat_ms), поэтому токен, полученный новым
+ * входом сразу после выхода, остаётся действительным. Для токенов без поля iat_ms используется iat.
+ * Другие экземпляры сервиса узнают об эпохе при очередной загрузке, поэтому на них отозванный токен принимается
+ * ещё не дольше jwt.revocation.reload-ms.
+ * @author mrGreenNV
+ */
+@Slf4j
+@Component
+public class RevocationEpochs {
+
+    private final RevocationEpochRepository revocationEpochRepository;
+    private final Clock clock;
+    private final Duration accessTokenLifetime;
+
+    /**
+     * Эпохи отзыва в миллисекундах по идентификатору пользователя.
+     */
+    private final ConcurrentIntLongMap epochs = new ConcurrentIntLongMap();
+
+    @Autowired
+    public RevocationEpochs(RevocationEpochRepository revocationEpochRepository,
+                            Clock clock,
+                            @Value("${jwt.expiration.access}") long expirationAccessTokenInMinutes) {
+        this.revocationEpochRepository = revocationEpochRepository;
+        this.clock = clock;
+        this.accessTokenLifetime = Duration.ofMinutes(expirationAccessTokenInMinutes);
+    }
+
+    /**
+     * Загружает из базы данных эпохи отзыва, которые ещё могут отклонить действующий access токен, и удаляет
+     * устаревшие эпохи из памяти и из базы данных.
+     */
+    @PostConstruct
+    @Scheduled(
+            initialDelayString = "${jwt.revocation.reload-ms:30000}",
+            fixedDelayString = "${jwt.revocation.reload-ms:30000}"
+    )
+    public void reload() {
+        final Date threshold = new Date(clock.millis() - accessTokenLifetime.toMillis());
+        try {
+            final List<RevocationEpoch> recent = revocationEpochRepository.findByRevokedBeforeAfter(threshold);
+            for (RevocationEpoch epoch : recent) {
+                epochs.putMax(epoch.getUserId(), epoch.getRevokedBefore().getTime());
+            }
+            final int expired = epochs.removeValuesBelow(threshold.getTime());
+            revocationEpochRepository.deleteOlderThan(threshold);
+            log.info("IN reload - загружено эпох отзыва: {}, удалено устаревших: {}", recent.size(), expired);
+        } catch (Exception ex) {
+            log.error("IN reload - не удалось загрузить эпохи отзыва access токенов", ex);
+        }
+    }
+
+    /**
+     * Отзывает все access токены пользователя, выпущенные до текущего момента.
+     * @param userId идентификатор пользователя.
+     */
+    public void revokeAll(int userId) {
+        final long epochMillis = clock.millis();
+        epochs.putMax(userId, epochMillis);
+        revocationEpochRepository.upsert(userId, new Date(epochMillis));
+        log.info("IN revokeAll - access токены пользователя с id: {} выпущенные до {} отозваны", userId, epochMillis);
+    }
+
+    /**
+     * Проверяет, отозван ли access токен пользователя.
+     * @param userId идентификатор пользователя.
+     * @param issuedAtMillis время выпуска токена в миллисекундах.
+     * @return true, если токен выпущен раньше эпохи отзыва пользователя.
+     */
+    public boolean isRevoked(int userId, long issuedAtMillis) {
+        final long epochMillis = epochs.get(userId);
+        return epochMillis != 0 && issuedAtMillis < epochMillis;
+    }
+
+    /**
+     * Возвращает количество эпох отзыва в памяти.
+     * @return количество эпох.
+     */
+    public int size() {
+        return epochs.size();
+    }
+}
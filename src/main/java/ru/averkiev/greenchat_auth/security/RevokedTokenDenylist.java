@@ -0,0 +1,154 @@
+package ru.averkiev.greenchat_auth.security;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.averkiev.greenchat_auth.models.RevokedToken;
+import ru.averkiev.greenchat_auth.repositories.RevokedTokenRepository;
+import ru.averkiev.greenchat_auth.utils.BloomFilter;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Класс представляет собой список отозванных access токенов (denylist) по их идентификатору jti. Отозванные токены
+ * хранятся в таблице revoked_tokens и копируются в память в поколения, каждое из которых содержит фильтр Блума и
+ * точное множество jti токенов, истекающих в одном интервале времени шириной в срок действия access токена.
+ * Проверка токена обращается к точному множеству только тогда, когда фильтр Блума отвечает «возможно», поэтому
+ * для подавляющего большинства неотозванных токенов она не затрагивает хэш-таблицы.
+ * Поколение удаляется целиком, когда истекает срок действия всех его токенов, поэтому объём памяти определяется
+ * количеством отзывов за срок действия access токена и не растёт с общим количеством отзывов. Отзывы, сделанные
+ * на других экземплярах сервиса, подгружаются периодически.
+ * @author mrGreenNV
+ */
+@Slf4j
+@Component
+public class RevokedTokenDenylist {
+
+    /**
+     * Перекрытие интервалов загрузки, компенсирующее расхождение часов экземпляров сервиса и базы данных.
+     */
+    private static final Duration RELOAD_OVERLAP = Duration.ofMinutes(1);
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final Clock clock;
+    private final long generationWidthMillis;
+    private final long expectedPerGeneration;
+    private final double falsePositiveProbability;
+
+    /**
+     * Поколения по номеру интервала истечения срока действия: expiresAt / generationWidthMillis.
+     */
+    private final ConcurrentNavigableMap<Long, Generation> generations = new ConcurrentSkipListMap<>();
+
+    private volatile long lastReloadMillis;
+
+    @Autowired
+    public RevokedTokenDenylist(RevokedTokenRepository revokedTokenRepository,
+                                Clock clock,
+                                @Value("${jwt.expiration.access}") long expirationAccessTokenInMinutes,
+                                @Value("${jwt.denylist.expected-per-generation:100000}") long expectedPerGeneration,
+                                @Value("${jwt.denylist.false-positive-probability:0.001}")
+                                double falsePositiveProbability) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.clock = clock;
+        this.generationWidthMillis = Duration.ofMinutes(Math.max(1, expirationAccessTokenInMinutes)).toMillis();
+        this.expectedPerGeneration = expectedPerGeneration;
+        this.falsePositiveProbability = falsePositiveProbability;
+    }
+
+    /**
+     * Отзывает access токен: сохраняет его идентификатор в базе данных и в памяти до истечения срока действия.
+     * @param jti идентификатор токена.
+     * @param expiresAt момент истечения срока действия токена.
+     */
+    public void revoke(String jti, Date expiresAt) {
+        final long now = clock.millis();
+        if (expiresAt.getTime() <= now) {
+            return;
+        }
+        add(jti, expiresAt.getTime());
+        revokedTokenRepository.insertIgnore(jti, new Date(now), expiresAt);
+        log.info("IN revoke - access токен с jti: {} отозван до {}", jti, expiresAt);
+    }
+
+    /**
+     * Проверяет, отозван ли access токен.
+     * @param jti идентификатор токена.
+     * @return true, если токен отозван.
+     */
+    public boolean isRevoked(String jti) {
+        if (jti == null) {
+            return false;
+        }
+        for (Generation generation : generations.values()) {
+            if (generation.filter().mightContain(jti) && generation.jtis().contains(jti)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Загружает отзывы, сделанные после предыдущей загрузки (в том числе на других экземплярах сервиса), и удаляет
+     * поколения, срок действия всех токенов которых истёк.
+     */
+    @PostConstruct
+    @Scheduled(
+            initialDelayString = "${jwt.denylist.reload-ms:30000}",
+            fixedDelayString = "${jwt.denylist.reload-ms:30000}"
+    )
+    public void reload() {
+        final long now = clock.millis();
+        generations.headMap(now / generationWidthMillis).clear();
+        try {
+            final Date revokedAfter = new Date(Math.max(0, lastReloadMillis - RELOAD_OVERLAP.toMillis()));
+            final List<RevokedToken> revoked =
+                    revokedTokenRepository.findByRevokedAtAfterAndExpiresAtAfter(revokedAfter, new Date(now));
+            for (RevokedToken revokedToken : revoked) {
+                add(revokedToken.getJti(), revokedToken.getExpiresAt().getTime());
+            }
+            lastReloadMillis = now;
+            log.info("IN reload - загружено отозванных токенов: {}, поколений в памяти: {}",
+                    revoked.size(), generations.size());
+        } catch (Exception ex) {
+            log.error("IN reload - не удалось загрузить отозванные access токены", ex);
+        }
+    }
+
+    /**
+     * Возвращает количество отозванных токенов в памяти.
+     * @return количество токенов.
+     */
+    public int size() {
+        int size = 0;
+        for (Generation generation : generations.values()) {
+            size += generation.jtis().size();
+        }
+        return size;
+    }
+
+    private void add(String jti, long expiresAtMillis) {
+        final Generation generation = generations.computeIfAbsent(expiresAtMillis / generationWidthMillis,
+                index -> new Generation(new BloomFilter(expectedPerGeneration, falsePositiveProbability),
+                        ConcurrentHashMap.newKeySet()));
+        // Сначала точное множество, затем фильтр: проверка, увидевшая бит в фильтре, найдёт jti и в множестве.
+        generation.jtis().add(jti);
+        generation.filter().put(jti);
+    }
+
+    /**
+     * Поколение отозванных токенов, истекающих в одном интервале времени.
+     */
+    private record Generation(BloomFilter filter, Set<String> jtis) {
+    }
+}
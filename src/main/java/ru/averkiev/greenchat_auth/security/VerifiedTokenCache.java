@@ -0,0 +1,149 @@
+package ru.averkiev.greenchat_auth.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.averkiev.greenchat_auth.exceptions.AuthException;
+import ru.averkiev.greenchat_auth.utils.JwtUtils;
+import ru.averkiev.greenchat_auth.utils.TokenDigest;
+
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Класс представляет собой ограниченный по размеру потокобезопасный кэш уже проверенных access токенов.
+ * Ключом служит SHA-256 дайджест токена, значением - готовый объект JwtAuthentication. Запись удаляется из кэша
+ * в момент истечения срока действия токена (exp), поэтому повторное предъявление того же токена не требует
+ * проверки подписи и разбора Claims.
+ * @author mrGreenNV
+ */
+@Slf4j
+@Component
+public class VerifiedTokenCache {
+
+    /**
+     * Имя кэша, под которым публикуются метрики попаданий, промахов и вытеснений.
+     */
+    public static final String CACHE_NAME = "jwt.verified-tokens";
+
+    private final boolean enabled;
+    private final Cache<String, VerifiedToken> cache;
+
+    @Autowired
+    public VerifiedTokenCache(@Value("${jwt.cache.enabled:true}") boolean enabled,
+                              @Value("${jwt.cache.max-size:10000}") long maxSize,
+                              MeterRegistry meterRegistry,
+                              Clock clock) {
+        this(enabled, maxSize, clock);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    public VerifiedTokenCache(boolean enabled, long maxSize) {
+        this(enabled, maxSize, Clock.systemUTC());
+    }
+
+    public VerifiedTokenCache(boolean enabled, long maxSize, Clock clock) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new ExpiryAtTokenExpiration(clock))
+                .recordStats()
+                .build();
+        log.info("IN VerifiedTokenCache - кэш проверенных токенов {}, максимальный размер: {}",
+                enabled ? "включён" : "выключен", maxSize);
+    }
+
+    /**
+     * Возвращает объект JwtAuthentication для переданного access токена. При промахе токен проверяется с помощью
+     * переданной функции, а результат помещается в кэш до истечения срока действия токена. Одновременные
+     * промахи по одному и тому же токену приводят к единственной проверке.
+     * @param token access токен, предъявленный в запросе.
+     * @param verifier функция, проверяющая подпись токена и возвращающая его Claims.
+     * @return объект JwtAuthentication, содержащий информацию о пользователе из JWT.
+     * @throws AuthException выбрасывается, если токен недействителен или не содержит срока действия (exp).
+     * Недействительные токены не кэшируются.
+     */
+    public JwtAuthentication getOrVerify(String token, Function<String, Claims> verifier) throws AuthException {
+        if (!enabled) {
+            return toAuthentication(verifier.apply(token)).authentication();
+        }
+        return cache.get(TokenDigest.sha256Key(token), key -> toAuthentication(verifier.apply(token)))
+                .authentication();
+    }
+
+    /**
+     * Удаляет все записи из кэша.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Возвращает статистику кэша: количество попаданий, промахов и вытеснений.
+     * @return снимок статистики кэша.
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * Возвращает приблизительное количество записей в кэше.
+     * @return количество записей.
+     */
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    private VerifiedToken toAuthentication(Claims claims) {
+        if (claims.getExpiration() == null) {
+            // Токен без срока действия не может быть удалён из кэша по exp и не принимается.
+            throw new AuthException("Токен не содержит срока действия");
+        }
+        final JwtAuthentication jwtInfoToken = JwtUtils.generate(claims);
+        jwtInfoToken.setAuthenticated(true);
+        return new VerifiedToken(jwtInfoToken, claims.getExpiration().getTime());
+    }
+
+    /**
+     * Запись кэша: готовый объект аутентификации и момент истечения срока действия токена в миллисекундах.
+     */
+    private record VerifiedToken(JwtAuthentication authentication, long expiresAtMillis) {
+    }
+
+    /**
+     * Политика истечения, при которой запись живёт ровно до момента exp соответствующего токена.
+     */
+    private static final class ExpiryAtTokenExpiration implements Expiry<String, VerifiedToken> {
+
+        private final Clock clock;
+
+        private ExpiryAtTokenExpiration(Clock clock) {
+            this.clock = clock;
+        }
+
+        @Override
+        public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+            final long remainingMillis = value.expiresAtMillis() - clock.millis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMillis, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
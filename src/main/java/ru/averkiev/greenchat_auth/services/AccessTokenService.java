@@ -11,6 +11,7 @@ import java.util.Optional;
 public interface AccessTokenService {
     boolean save(AccessToken accessToken);
     boolean update(int id, AccessToken updateAccessToken);
+    boolean upsert(AccessToken accessToken);
     Optional<AccessToken> findByUserId(int userId);
     boolean delete(int id);
 }
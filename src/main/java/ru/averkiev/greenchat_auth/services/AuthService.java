@@ -2,8 +2,14 @@ package ru.averkiev.greenchat_auth.services;
 
 import org.springframework.security.core.Authentication;
 import ru.averkiev.greenchat_auth.security.JwtAuthentication;
+import ru.averkiev.greenchat_auth.models.JwtIntrospectionResponse;
 import ru.averkiev.greenchat_auth.models.JwtRequest;
 import ru.averkiev.greenchat_auth.models.JwtResponse;
+import ru.averkiev.greenchat_auth.models.JwtValidationResult;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author mrGreenNV
@@ -12,7 +18,15 @@ public interface AuthService {
     JwtResponse login(JwtRequest authRequest);
     JwtResponse getAccessToken(String refreshToken);
     JwtResponse refresh(String refreshToken);
+    CompletableFuture<JwtResponse> loginAsync(JwtRequest authRequest);
+    CompletableFuture<JwtResponse> getAccessTokenAsync(String refreshToken);
+    CompletableFuture<JwtResponse> refreshAsync(String refreshToken);
     JwtAuthentication getAuthInfo();
     boolean logout(String refreshToken);
     boolean validate(String refreshToken);
+    List<JwtValidationResult> validateAll(List<String> refreshTokens);
+    JwtIntrospectionResponse introspect(String token, String tokenTypeHint);
+    boolean revoke(String accessToken);
+    Map<String, Object> getJwks();
+    String getJwksETag();
 }
\ No newline at end of file
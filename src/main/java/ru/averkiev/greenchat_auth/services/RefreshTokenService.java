@@ -2,6 +2,7 @@ package ru.averkiev.greenchat_auth.services;
 
 import ru.averkiev.greenchat_auth.models.RefreshToken;
 
+import java.util.Date;
 import java.util.Optional;
 
 /**
@@ -11,6 +12,10 @@ import java.util.Optional;
 public interface RefreshTokenService {
     boolean save(RefreshToken refreshToken);
     boolean update(int userId, RefreshToken updateRefresh);
+    boolean upsert(RefreshToken refreshToken);
     Optional<RefreshToken> findByUserId(int userId);
+    Optional<RefreshToken> findStoredByUserId(int userId);
+    Optional<RefreshToken> findMatching(int userId, String refreshToken, Date issuedAt);
+    Optional<RefreshToken> findByToken(String refreshToken);
     boolean delete(int userId);
 }
@@ -0,0 +1,79 @@
+package ru.averkiev.greenchat_auth.services;
+
+import java.util.Optional;
+import java.util.function.Predicate;
+
+/**
+ * Интерфейс представляет собой хранилище записей токенов одного типа (access или refresh), в котором у каждого
+ * пользователя не более одной записи. Реализации: JPA (таблицы access_tokens и refresh_tokens), хэш-таблица
+ * в памяти с удалением записей по истечении срока действия и хранилище, совместимое с протоколом Redis.
+ * Хранилище выбирается настройкой token-store.type, поэтому AccessTokenService и RefreshTokenService не зависят
+ * от конкретного способа хранения. Ошибки хранилища пробрасываются вызывающему коду.
+ * @param <T> тип записи токена.
+ * @author mrGreenNV
+ */
+public interface TokenStore<T> {
+
+    /**
+     * Возвращает имя хранилища для журналов и метрик.
+     * @return имя хранилища.
+     */
+    String name();
+
+    /**
+     * Сохраняет запись токена. В JPA хранилище запись сохраняется как сущность (вставка или обновление по id),
+     * в остальных хранилищах - аналогично upsert.
+     * @param token запись токена.
+     */
+    void save(T token);
+
+    /**
+     * Сохраняет запись токена пользователя: создаёт её или заменяет существующую запись пользователя.
+     * @param token запись токена.
+     */
+    void upsert(T token);
+
+    /**
+     * Выполняет поиск записи токена по идентификатору пользователя.
+     * @param userId идентификатор пользователя.
+     * @return Optional с результатами поиска; записи с истёкшим сроком действия могут не возвращаться.
+     */
+    Optional<T> findByUserId(int userId);
+
+    /**
+     * Выполняет поиск записи токена по идентификатору пользователя. Хранилище с репликами повторяет поиск
+     * в основном хранилище, если запись с реплики не прошла проверку актуальности.
+     * @param userId идентификатор пользователя.
+     * @param current проверка актуальности записи, найденной на реплике.
+     * @return Optional с результатами поиска.
+     */
+    default Optional<T> findByUserId(int userId, Predicate<? super T> current) {
+        return findByUserId(userId);
+    }
+
+    /**
+     * Выполняет поиск записи токена по идентификатору пользователя в основном хранилище, минуя реплики. Используется
+     * для подтверждения замены токена внутри транзакции записи.
+     * @param userId идентификатор пользователя.
+     * @return Optional с результатами поиска.
+     */
+    default Optional<T> findByUserIdOnPrimary(int userId) {
+        return findByUserId(userId);
+    }
+
+    /**
+     * Выполняет поиск записи по SHA-256 дайджесту значения токена. Поиск поддерживают хранилища с индексом по
+     * дайджесту; остальные хранилища возвращают пустой результат.
+     * @param tokenDigest дайджест значения токена.
+     * @return Optional с результатами поиска.
+     */
+    default Optional<T> findByTokenDigest(byte[] tokenDigest) {
+        return Optional.empty();
+    }
+
+    /**
+     * Удаляет запись токена пользователя.
+     * @param userId идентификатор пользователя.
+     */
+    void deleteByUserId(int userId);
+}
@@ -0,0 +1,103 @@
+package ru.averkiev.greenchat_auth.services;
+
+import ru.averkiev.greenchat_auth.models.AccessToken;
+import ru.averkiev.greenchat_auth.models.RefreshToken;
+
+import java.util.Date;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Класс описывает тип записи токена для хранилищ TokenStore, не связанных с JPA: как получить из записи
+ * идентификатор пользователя, дайджест и сроки действия и как восстановить запись из этих полей.
+ * @param <T> тип записи токена.
+ * @author mrGreenNV
+ */
+public final class TokenType<T> {
+
+    public static final TokenType<AccessToken> ACCESS = new TokenType<>(
+            "access",
+            AccessToken::getUserId,
+            AccessToken::getAccessTokenDigest,
+            AccessToken::getCreatedAt,
+            AccessToken::getExpiresAt,
+            (userId, digest, createdAt, expiresAt) -> {
+                final AccessToken accessToken = new AccessToken();
+                accessToken.setUserId(userId);
+                accessToken.setAccessTokenDigest(digest);
+                accessToken.setCreatedAt(createdAt);
+                accessToken.setExpiresAt(expiresAt);
+                return accessToken;
+            }
+    );
+
+    public static final TokenType<RefreshToken> REFRESH = new TokenType<>(
+            "refresh",
+            RefreshToken::getUserId,
+            RefreshToken::getRefreshTokenDigest,
+            RefreshToken::getCreatedAt,
+            RefreshToken::getExpiresAt,
+            (userId, digest, createdAt, expiresAt) -> {
+                final RefreshToken refreshToken = new RefreshToken();
+                refreshToken.setUserId(userId);
+                refreshToken.setRefreshTokenDigest(digest);
+                refreshToken.setCreatedAt(createdAt);
+                refreshToken.setExpiresAt(expiresAt);
+                return refreshToken;
+            }
+    );
+
+    private final String name;
+    private final ToIntFunction<T> userId;
+    private final Function<T, byte[]> digest;
+    private final Function<T, Date> createdAt;
+    private final Function<T, Date> expiresAt;
+    private final Factory<T> factory;
+
+    private TokenType(String name,
+                      ToIntFunction<T> userId,
+                      Function<T, byte[]> digest,
+                      Function<T, Date> createdAt,
+                      Function<T, Date> expiresAt,
+                      Factory<T> factory) {
+        this.name = name;
+        this.userId = userId;
+        this.digest = digest;
+        this.createdAt = createdAt;
+        this.expiresAt = expiresAt;
+        this.factory = factory;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public int userId(T token) {
+        return userId.applyAsInt(token);
+    }
+
+    public byte[] digest(T token) {
+        return digest.apply(token);
+    }
+
+    public Date createdAt(T token) {
+        return createdAt.apply(token);
+    }
+
+    public Date expiresAt(T token) {
+        return expiresAt.apply(token);
+    }
+
+    /**
+     * Восстанавливает запись токена из сохранённых полей.
+     * @return запись токена без значения самого токена (хранится только дайджест).
+     */
+    public T create(int userId, byte[] digest, Date createdAt, Date expiresAt) {
+        return factory.create(userId, digest, createdAt, expiresAt);
+    }
+
+    @FunctionalInterface
+    private interface Factory<T> {
+        T create(int userId, byte[] digest, Date createdAt, Date expiresAt);
+    }
+}
@@ -5,13 +5,13 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import ru.averkiev.greenchat_auth.exceptions.UserNotFoundException;
 import ru.averkiev.greenchat_auth.models.AccessToken;
-import ru.averkiev.greenchat_auth.repositories.AccessTokenRepository;
 import ru.averkiev.greenchat_auth.services.AccessTokenService;
+import ru.averkiev.greenchat_auth.services.TokenStore;
 
 import java.util.Optional;
 
 /**
- * Класс реализует функционал взаимодействия access токена с базой данных (сохранение, обновление, удаление и
+ * Класс реализует функционал взаимодействия access токена с хранилищем TokenStore (сохранение, обновление, удаление и
  * поиск по идентификатору пользователя, к которому относится токен).
  * @author mrGreenNV
  */
@@ -20,17 +20,17 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class AccessTokenServiceImpl implements AccessTokenService {
 
-    private final AccessTokenRepository accessTokenRepository;
+    private final TokenStore<AccessToken> accessTokenStore;
 
     /**
-     * Сохраняет access токен в базу данных.
-     * @param accessToken токен, который необходимо сохранить в базе данных.
+     * Сохраняет access токен в хранилище.
+     * @param accessToken токен, который необходимо сохранить в хранилище.
      * @return возвращает результат сохранения.
      */
     @Override
     public boolean save(AccessToken accessToken) {
         try {
-            accessTokenRepository.save(accessToken);
+            accessTokenStore.save(accessToken);
             log.info("IN save - access токен с id: {} успешно сохранён", accessToken.getId());
             return true;
         } catch (Exception ex) {
@@ -40,11 +40,11 @@ public class AccessTokenServiceImpl implements AccessTokenService {
     }
 
     /**
-     * Обновляет access токен в базе данных.
+     * Обновляет access токен в хранилище.
      * @param userId - идентификатор пользователя, токен которого необходимо обновить.
      * @param updateAccessToken - обновленный токен.
      * @return - возвращает результат обновления.
-     * @exception UserNotFoundException - исключение выбрасывается, если токен не найден в базе данных.
+     * @exception UserNotFoundException - исключение выбрасывается, если токен не найден в хранилище.
      */
     @Override
     public boolean update(int userId, AccessToken updateAccessToken) {
@@ -54,7 +54,7 @@ public class AccessTokenServiceImpl implements AccessTokenService {
                 throw new UserNotFoundException("Токен принадлежащий пользователю с id: " + userId + " не найден");
             }
             updateAccessToken.setId(accessToken.getId());
-            accessTokenRepository.save(updateAccessToken);
+            accessTokenStore.save(updateAccessToken);
             log.info("IN update - access токен пользователя с userId: {} успешно обновлён", userId);
             return true;
         } catch (UserNotFoundException tknEx) {
@@ -64,26 +64,46 @@ public class AccessTokenServiceImpl implements AccessTokenService {
     }
 
     /**
-     * Выполняет поиск access токена в базе данных по идентификатору пользователя.
+     * Сохраняет access токен пользователя одной операцией хранилища: создаёт запись, если у пользователя её ещё нет,
+     * иначе заменяет в ней токен. В JPA хранилище это один SQL запрос INSERT ... ON CONFLICT (user_id) DO UPDATE,
+     * который, в отличие от пары findByUserId и save/update, не требует предварительного поиска записи.
+     * @param accessToken токен, который необходимо сохранить в хранилище.
+     * @return возвращает результат сохранения.
+     */
+    @Override
+    public boolean upsert(AccessToken accessToken) {
+        try {
+            accessTokenStore.upsert(accessToken);
+            log.info("IN upsert - access токен пользователя с userId: {} успешно сохранён", accessToken.getUserId());
+            return true;
+        } catch (Exception ex) {
+            log.error("IN upsert - access токен пользователя с userId: {} сохранить не удалось",
+                    accessToken.getUserId(), ex);
+        }
+        return false;
+    }
+
+    /**
+     * Выполняет поиск access токена в хранилище по идентификатору пользователя.
      * @param userId - идентификатор пользователя, которому соответствует искомый access токен.
      * @return - Optional с результатами поиска.
      */
     @Override
     public Optional<AccessToken> findByUserId(int userId) {
-        Optional<AccessToken> accessToken = accessTokenRepository.findByUserId(userId);
+        Optional<AccessToken> accessToken = accessTokenStore.findByUserId(userId);
         log.info("IN findByUserId - поиск завершён успешно.");
         return accessToken;
     }
 
     /**
-     * Удаляет из базы данных access токен по идентификатору пользователя, которому он соответствует.
+     * Удаляет из хранилища access токен по идентификатору пользователя, которому он соответствует.
      * @param userId - идентификатор пользователя, токен которого необходимо удалить.
      * @return - возвращает результат удаления.
      */
     @Override
     public boolean delete(int userId) {
         try {
-            accessTokenRepository.deleteByUserId(userId);
+            accessTokenStore.deleteByUserId(userId);
             log.info("IN delete - access токен пользователя с userId: {} успешно удалён", userId);
             return true;
         } catch (Exception Ex) {
@@ -0,0 +1,294 @@
+package ru.averkiev.greenchat_auth.services.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.averkiev.greenchat_auth.models.AccessToken;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Класс представляет собой очередь отложенной записи (write-behind) access токенов. Записи access токенов не
+ * читаются ни при одном запросе, поэтому вход и обновление токенов не ждут их сохранения: AuthServiceImpl кладёт
+ * запись в ограниченную очередь, а фоновый поток периодически сохраняет накопленные записи пакетами JDBC.
+ * Если очередь заполнена и место не освободилось за время ожидания, запись не принимается и вызывающий код
+ * сохраняет её синхронно, поэтому при перегрузке базы данных вход замедляется, а не теряет записи.
+ * Внутри транзакции место в очереди резервируется сразу, а запись попадает в очередь только после фиксации
+ * транзакции; при откате резерв освобождается. Пакет, который не удалось сохранить, возвращается в очередь
+ * и сохраняется при следующей выгрузке. При остановке сервиса выгружаются все оставшиеся записи. Глубина очереди
+ * и время сохранения пакета публикуются в метриках jwt.write-behind.queue.size и jwt.write-behind.flush. Очередь
+ * пишет напрямую в таблицу access_tokens, поэтому включается только для хранилища токенов jpa. Запись из очереди
+ * не заменяет более новую запись, сохранённую синхронно, поскольку обновление выполняется только при неубывающем
+ * времени выпуска.
+ * @author mrGreenNV
+ */
+@Slf4j
+@Component
+public class AccessTokenWriteBehindQueue implements AutoCloseable {
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO access_tokens (user_id, access_token_digest, login, created_at, expires_at)
+            VALUES (?, ?, ?, ?, ?)
+            ON CONFLICT (user_id) DO UPDATE SET
+                access_token_digest = EXCLUDED.access_token_digest,
+                login = EXCLUDED.login,
+                created_at = EXCLUDED.created_at,
+                expires_at = EXCLUDED.expires_at
+            WHERE access_tokens.created_at <= EXCLUDED.created_at
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long offerTimeoutMillis;
+    private final BlockingQueue<AccessToken> queue;
+
+    /**
+     * Свободные места в очереди. Место занимается при приёме записи и освобождается только после её сохранения
+     * или удаления из очереди, поэтому записи из зафиксированных транзакций и возвращённые после ошибки записи
+     * всегда помещаются в очередь.
+     */
+    private final Semaphore permits;
+
+    /**
+     * Блокировка гарантирует, что извлечённые из очереди записи сохраняются раньше, чем следующая выгрузка
+     * (например, перед удалением токенов при выходе пользователя) вернёт управление.
+     */
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final ScheduledExecutorService flusher;
+    private final Timer flushTimer;
+    private final Counter failedWrites;
+
+    public AccessTokenWriteBehindQueue(JdbcTemplate jdbcTemplate,
+                                       MeterRegistry meterRegistry,
+                                       @Value("#{${jwt.write-behind.enabled:false}"
+                                               + " and '${jwt.token-store.type:jpa}' == 'jpa'}") boolean enabled,
+                                       @Value("${jwt.write-behind.capacity:10000}") int capacity,
+                                       @Value("${jwt.write-behind.batch-size:500}") int batchSize,
+                                       @Value("${jwt.write-behind.flush-interval-ms:50}") long flushIntervalMillis,
+                                       @Value("${jwt.write-behind.offer-timeout-ms:10}") long offerTimeoutMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.permits = new Semaphore(capacity);
+        this.flushTimer = Timer.builder("jwt.write-behind.flush")
+                .description("Время сохранения пакета access токенов")
+                .register(meterRegistry);
+        this.failedWrites = Counter.builder("jwt.write-behind.failed")
+                .description("Количество access токенов, сохранение которых не удалось и будет повторено")
+                .register(meterRegistry);
+        Gauge.builder("jwt.write-behind.queue.size", queue, BlockingQueue::size)
+                .description("Количество access токенов, ожидающих сохранения")
+                .register(meterRegistry);
+
+        if (enabled && flushIntervalMillis > 0) {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "access-token-write-behind");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.flusher.scheduleWithFixedDelay(
+                    this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.flusher = null;
+        }
+        log.info("IN AccessTokenWriteBehindQueue - отложенная запись access токенов {}, ёмкость очереди: {}",
+                enabled ? "включена" : "выключена", capacity);
+    }
+
+    /**
+     * Проверяет, включена ли отложенная запись access токенов.
+     * @return true, если записи сохраняются фоновым потоком.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Помещает запись access токена в очередь отложенной записи. Внутри транзакции запись попадает в очередь после
+     * её фиксации и не сохраняется, если транзакция откатится.
+     * @param accessToken запись access токена.
+     * @return true, если запись принята; false, если отложенная запись выключена или очередь заполнена -
+     * в этом случае запись необходимо сохранить синхронно.
+     */
+    public boolean enqueue(AccessToken accessToken) {
+        if (!enabled) {
+            return false;
+        }
+        try {
+            if (permits.tryAcquire(offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                offerAfterCommit(accessToken);
+                return true;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        log.warn("IN enqueue - очередь отложенной записи заполнена, access токен пользователя с userId: {} "
+                + "будет сохранён синхронно", accessToken.getUserId());
+        return false;
+    }
+
+    /**
+     * Сохраняет все записи, накопленные в очереди, пакетами JDBC. Из нескольких записей одного пользователя
+     * в пакете сохраняется только последняя. Если пакет сохранить не удалось, его записи возвращаются в очередь,
+     * а выгрузка прекращается до следующего вызова.
+     * @return количество сохранённых записей.
+     */
+    public int flush() {
+        flushLock.lock();
+        try {
+            int written = 0;
+            final List<AccessToken> batch = new ArrayList<>(Math.min(batchSize, queue.size() + 1));
+            while (queue.drainTo(batch, batchSize) > 0) {
+                final int batchWritten = write(batch);
+                batch.clear();
+                if (batchWritten < 0) {
+                    break;
+                }
+                written += batchWritten;
+            }
+            return written;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Удаляет из очереди записи пользователя, не дожидаясь выгрузки остальных записей. Если запись пользователя
+     * уже извлечена фоновым потоком, метод дожидается окончания её сохранения, поэтому последующее удаление
+     * токена из хранилища не будет отменено отложенной записью.
+     * @param userId идентификатор пользователя.
+     * @return количество удалённых из очереди записей.
+     */
+    public int discard(int userId) {
+        if (!enabled) {
+            return 0;
+        }
+        flushLock.lock();
+        try {
+            final int sizeBefore = queue.size();
+            queue.removeIf(accessToken -> accessToken.getUserId() == userId);
+            final int discarded = Math.max(0, sizeBefore - queue.size());
+            permits.release(discarded);
+            return discarded;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Возвращает количество записей, ожидающих сохранения.
+     * @return размер очереди.
+     */
+    public int size() {
+        return queue.size();
+    }
+
+    /**
+     * Останавливает фоновый поток и сохраняет оставшиеся в очереди записи.
+     */
+    @Override
+    public void close() {
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        final int written = flush();
+        log.info("IN close - при остановке сохранено access токенов: {}", written);
+        if (!queue.isEmpty()) {
+            log.error("IN close - при остановке не удалось сохранить access токенов: {}", queue.size());
+        }
+    }
+
+    /**
+     * Помещает запись с зарезервированным местом в очередь после фиксации текущей транзакции, а вне транзакции -
+     * сразу. При откате транзакции резерв освобождается.
+     */
+    private void offerAfterCommit(AccessToken accessToken) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            queue.add(accessToken);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    queue.add(accessToken);
+                } else {
+                    permits.release();
+                }
+            }
+        });
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception ex) {
+            log.error("IN flushQuietly - ошибка отложенной записи access токенов", ex);
+        }
+    }
+
+    /**
+     * Сохраняет пакет записей и освобождает занятые ими места в очереди.
+     * @return количество сохранённых записей или -1, если пакет возвращён в очередь после ошибки.
+     */
+    private int write(List<AccessToken> batch) {
+        final Map<Integer, AccessToken> latestByUser = new LinkedHashMap<>();
+        for (AccessToken accessToken : batch) {
+            latestByUser.put(accessToken.getUserId(), accessToken);
+        }
+        final List<Object[]> args = new ArrayList<>(latestByUser.size());
+        for (AccessToken accessToken : latestByUser.values()) {
+            args.add(new Object[]{
+                    accessToken.getUserId(),
+                    accessToken.getAccessTokenDigest(),
+                    accessToken.getLogin(),
+                    new Timestamp(accessToken.getCreatedAt().getTime()),
+                    new Timestamp(accessToken.getExpiresAt().getTime())
+            });
+        }
+        final long startedNanos = System.nanoTime();
+        try {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, args);
+            permits.release(batch.size());
+            return args.size();
+        } catch (Exception ex) {
+            failedWrites.increment(args.size());
+            // Места возвращаемых записей остаются занятыми, поэтому они всегда помещаются в очередь. Более старая
+            // запись не заменит более новую: обновление выполняется только при неубывающем времени выпуска.
+            queue.addAll(latestByUser.values());
+            permits.release(batch.size() - latestByUser.size());
+            log.error("IN write - пакет из {} access токенов сохранить не удалось, записи возвращены в очередь",
+                    args.size(), ex);
+            return -1;
+        } finally {
+            flushTimer.record(System.nanoTime() - startedNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
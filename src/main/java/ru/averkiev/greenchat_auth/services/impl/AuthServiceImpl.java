@@ -1,19 +1,43 @@
 package ru.averkiev.greenchat_auth.services.impl;
 
 import io.jsonwebtoken.Claims;
-import jakarta.transaction.Transactional;
+import io.jsonwebtoken.JwtException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
 import ru.averkiev.greenchat_auth.exceptions.AuthException;
-import ru.averkiev.greenchat_auth.models.*;
+import ru.averkiev.greenchat_auth.models.AccessToken;
+import ru.averkiev.greenchat_auth.models.JwtIntrospectionResponse;
+import ru.averkiev.greenchat_auth.models.JwtRequest;
+import ru.averkiev.greenchat_auth.models.JwtResponse;
+import ru.averkiev.greenchat_auth.models.JwtUser;
+import ru.averkiev.greenchat_auth.models.JwtValidationResult;
+import ru.averkiev.greenchat_auth.models.RefreshToken;
+import ru.averkiev.greenchat_auth.security.IssuedToken;
 import ru.averkiev.greenchat_auth.security.JwtAuthentication;
 import ru.averkiev.greenchat_auth.security.JwtProvider;
+import ru.averkiev.greenchat_auth.security.OpaqueTokenIndex;
+import ru.averkiev.greenchat_auth.security.RevocationEpochs;
+import ru.averkiev.greenchat_auth.security.RevokedTokenDenylist;
 import ru.averkiev.greenchat_auth.services.AccessTokenService;
 import ru.averkiev.greenchat_auth.services.AuthService;
 import ru.averkiev.greenchat_auth.services.RefreshTokenService;
+import ru.averkiev.greenchat_auth.utils.BatchExecutor;
+import ru.averkiev.greenchat_auth.utils.JwtUtils;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.stream.Collectors;
 
 /**
  * Класс предоставляет функционал для аутентификации и авторизации пользователей.
@@ -23,11 +47,43 @@ import ru.averkiev.greenchat_auth.services.RefreshTokenService;
 @RequiredArgsConstructor
 public class AuthServiceImpl implements AuthService {
 
-    private final UserDetailsService jwtUserDetailsService;
+    private static final String ACCESS_TOKEN_TYPE = "access_token";
+    private static final String REFRESH_TOKEN_TYPE = "refresh_token";
+
+    private final JwtUserDetailsService jwtUserDetailsService;
     private final AccessTokenService accessTokenService;
     private final RefreshTokenService refreshTokenService;
     private final JwtProvider jwtProvider;
     private final BCryptPasswordEncoder passwordEncoder;
+    private final OpaqueTokenIndex opaqueTokenIndex;
+    private final AccessTokenWriteBehindQueue accessTokenWriteBehindQueue;
+    private final RevocationEpochs revocationEpochs;
+    private final RevokedTokenDenylist revokedTokenDenylist;
+
+    /**
+     * Ограниченный пул потоков пакетной проверки токенов.
+     */
+    private final BatchExecutor validationExecutor;
+
+    /**
+     * Ограниченный пул потоков, в котором асинхронные вход и обновление токенов продолжаются после получения
+     * данных пользователя.
+     */
+    private final ThreadPoolExecutor authExecutor;
+
+    /**
+     * Транзакции сохранения и удаления токенов. Транзакция открывается только на время записи в хранилище, после
+     * обращения к микросервису пользователей и проверки пароля, поэтому соединение с базой данных не удерживается
+     * на время этих операций.
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Режим без хранения access токенов: записи в таблицу access_tokens не выполняются, а access токены
+     * отзываются удалением refresh токена и эпохой отзыва пользователя.
+     */
+    @Value("${jwt.stateless.enabled:false}")
+    private boolean stateless;
 
     /**
      * Выполняет аутентификацию пользователя при входе в систему.
@@ -40,79 +96,211 @@ public class AuthServiceImpl implements AuthService {
 
         // Получение данных из микросервиса пользователей.
         final JwtUser jwtUser = (JwtUser) jwtUserDetailsService.loadUserByUsername(authRequest.getLogin());
+        return issueLoginTokens(authRequest, jwtUser);
+    }
+
+    /**
+     * Асинхронно выполняет аутентификацию пользователя при входе в систему. Поток не блокируется на время запроса
+     * к микросервису пользователей; пароль проверяется, а токены выпускаются и сохраняются в пуле authExecutor
+     * после получения данных пользователя. Повторный запрос данных пользователя при несовпадении пароля также
+     * выполняется асинхронно и не занимает поток authExecutor.
+     * @param authRequest - запрос на аутентификацию пользователя.
+     * @return - ответ на запрос аутентификации; при неверном пароле результат завершается исключением AuthException.
+     */
+    @Override
+    public CompletableFuture<JwtResponse> loginAsync(JwtRequest authRequest) {
+        return jwtUserDetailsService.loadUserByUsernameAsync(authRequest.getLogin())
+                .thenComposeAsync(jwtUser -> verifyPasswordAsync(authRequest, jwtUser), authExecutor)
+                .thenApplyAsync(this::saveLoginTokens, authExecutor);
+    }
 
+    /**
+     * Проверяет пароль пользователя и выпускает access и refresh токены. Пароль проверяется вне транзакции;
+     * транзакция открывается только для сохранения токенов.
+     */
+    private JwtResponse issueLoginTokens(JwtRequest authRequest, JwtUser loadedUser) {
         // Сравнение пароля, полученного из запроса аутентификации с паролем, полученным от микросервиса
         // пользователей.
-        if (passwordEncoder.matches(authRequest.getPassword(), jwtUser.getPassword())) {
-            // Генерация access токена с помощью JwtProvider.
-            final String accessTokenStr = jwtProvider.generateAccessToken(jwtUser);
+        return saveLoginTokens(verifyPassword(authRequest, loadedUser));
+    }
+
+    /**
+     * Выпускает access и refresh токены пользователя с подтверждённым паролем и сохраняет их в одной транзакции.
+     */
+    private JwtResponse saveLoginTokens(JwtUser jwtUser) {
+        return transactionTemplate.execute(status -> {
+            // Выпуск access токена.
+            final IssuedToken issuedAccessToken = mintAccessToken(jwtUser);
             // Создание объекта AccessToken.
-            AccessToken accessToken = new AccessToken(
-                    jwtUser.getId(),
-                    accessTokenStr,
-                    jwtProvider.getAccessClaims(accessTokenStr).getIssuedAt(),
-                    jwtProvider.getAccessClaims(accessTokenStr).getExpiration()
-            );
+            AccessToken accessToken = newAccessToken(jwtUser, issuedAccessToken);
 
-            // Сохранение access токена в базе данных.
-            if (accessTokenService.findByUserId(jwtUser.getId()).isPresent()) {
-                accessTokenService.update(jwtUser.getId(), accessToken);
-            } else {
-                accessTokenService.save(accessToken);
-            }
+            // Сохранение access токена в базе данных одним запросом, без предварительного поиска записи.
+            saveAccessToken(accessToken);
 
-            // Генерация access токена с помощью JwtProvider.
-            final String refreshTokenStr = jwtProvider.generateRefreshToken(jwtUser);
-            // Создание объекта AccessToken.
+            // Выпуск refresh токена с помощью JwtProvider.
+            final IssuedToken issuedRefreshToken = jwtProvider.mintRefreshToken(jwtUser);
+            // Создание объекта RefreshToken.
             RefreshToken refreshToken = new RefreshToken(
                     jwtUser.getId(),
-                    refreshTokenStr,
-                    jwtProvider.getRefreshClaims(refreshTokenStr).getIssuedAt(),
-                    jwtProvider.getRefreshClaims(refreshTokenStr).getExpiration()
+                    issuedRefreshToken.getToken(),
+                    issuedRefreshToken.getIssuedAt(),
+                    issuedRefreshToken.getExpiresAt()
             );
 
-            // Сохранение access токена в базе данных.
-            if (refreshTokenService.findByUserId(jwtUser.getId()).isPresent()) {
-                refreshTokenService.update(jwtUser.getId(), refreshToken);
-            } else {
-                refreshTokenService.save(refreshToken);
-            }
+            // Сохранение refresh токена в базе данных одним запросом, без предварительного поиска записи.
+            saveRefreshToken(refreshToken);
+
+            return new JwtResponse(issuedAccessToken.getToken(), issuedRefreshToken.getToken());
+        });
+    }
 
-            return new JwtResponse(accessTokenStr, refreshTokenStr);
-        } else {
-            throw new AuthException("Неправильный пароль");
+    /**
+     * Сравнивает пароль из запроса аутентификации с паролем пользователя. Данные пользователя могут быть получены
+     * из кэша, поэтому при несовпадении они однократно запрашиваются повторно: пароль мог быть изменён после
+     * кэширования. Если повторно полученный пароль не изменился, он повторно не проверяется.
+     * @return пользователь с подтверждённым паролем.
+     * @throws AuthException выбрасывается, если пароль не совпадает.
+     */
+    private JwtUser verifyPassword(JwtRequest authRequest, JwtUser jwtUser) {
+        if (passwordEncoder.matches(authRequest.getPassword(), jwtUser.getPassword())) {
+            return jwtUser;
+        }
+        final JwtUser reloadedUser = jwtUserDetailsService.reloadUserByUsername(authRequest.getLogin());
+        return verifyReloadedPassword(authRequest, jwtUser, reloadedUser);
+    }
+
+    /**
+     * Асинхронный вариант verifyPassword(): при несовпадении пароля данные пользователя запрашиваются повторно
+     * без блокировки потока, а повторная проверка пароля выполняется в пуле authExecutor.
+     * @return пользователь с подтверждённым паролем; при несовпадении результат завершается исключением
+     * AuthException.
+     */
+    private CompletableFuture<JwtUser> verifyPasswordAsync(JwtRequest authRequest, JwtUser jwtUser) {
+        if (passwordEncoder.matches(authRequest.getPassword(), jwtUser.getPassword())) {
+            return CompletableFuture.completedFuture(jwtUser);
+        }
+        return jwtUserDetailsService.reloadUserByUsernameAsync(authRequest.getLogin())
+                .thenApplyAsync(reloadedUser -> verifyReloadedPassword(authRequest, jwtUser, reloadedUser),
+                        authExecutor);
+    }
+
+    private JwtUser verifyReloadedPassword(JwtRequest authRequest, JwtUser jwtUser, JwtUser reloadedUser) {
+        if (!Objects.equals(reloadedUser.getPassword(), jwtUser.getPassword())
+                && passwordEncoder.matches(authRequest.getPassword(), reloadedUser.getPassword())) {
+            return reloadedUser;
+        }
+        throw new AuthException("Неправильный пароль");
+    }
+
+    /**
+     * Выпускает access токен: JWT с помощью JwtProvider или, в режиме непрозрачных токенов, короткую случайную
+     * строку, сведения о пользователе для которой хранятся в OpaqueTokenIndex.
+     * @param jwtUser пользователь, для которого выпускается токен.
+     * @return объект IssuedToken, содержащий access токен и его метаданные.
+     */
+    private IssuedToken mintAccessToken(JwtUser jwtUser) {
+        if (opaqueTokenIndex.isEnabled()) {
+            return opaqueTokenIndex.issue(jwtUser);
+        }
+        return jwtProvider.mintAccessToken(jwtUser);
+    }
+
+    /**
+     * Создаёт запись access токена. Для непрозрачного токена в записи сохраняется логин пользователя, по которому
+     * сессия восстанавливается на другом экземпляре сервиса.
+     */
+    private AccessToken newAccessToken(JwtUser jwtUser, IssuedToken issuedAccessToken) {
+        final AccessToken accessToken = new AccessToken(
+                jwtUser.getId(),
+                issuedAccessToken.getToken(),
+                issuedAccessToken.getIssuedAt(),
+                issuedAccessToken.getExpiresAt()
+        );
+        if (opaqueTokenIndex.isEnabled()) {
+            accessToken.setLogin(jwtUser.getUsername());
+        }
+        return accessToken;
+    }
+
+    /**
+     * Сохраняет запись access токена: через очередь отложенной записи, если она включена и приняла запись,
+     * иначе - синхронно одним запросом upsert. В режиме без хранения access токенов запись не сохраняется.
+     * Запись непрозрачного токена всегда сохраняется синхронно: без неё токен не принимается другими
+     * экземплярами сервиса.
+     * @param accessToken запись access токена.
+     * @throws IllegalStateException выбрасывается, если запись не удалось сохранить; транзакция откатывается.
+     */
+    private void saveAccessToken(AccessToken accessToken) {
+        if (!opaqueTokenIndex.isEnabled() && (stateless || accessTokenWriteBehindQueue.enqueue(accessToken))) {
+            return;
+        }
+        if (!accessTokenService.upsert(accessToken)) {
+            throw new IllegalStateException(
+                    "Не удалось сохранить access токен пользователя с userId: " + accessToken.getUserId());
+        }
+    }
+
+    /**
+     * Сохраняет запись refresh токена одним запросом upsert.
+     * @param refreshToken запись refresh токена.
+     * @throws IllegalStateException выбрасывается, если запись не удалось сохранить; транзакция откатывается.
+     */
+    private void saveRefreshToken(RefreshToken refreshToken) {
+        if (!refreshTokenService.upsert(refreshToken)) {
+            throw new IllegalStateException(
+                    "Не удалось сохранить refresh токен пользователя с userId: " + refreshToken.getUserId());
         }
     }
 
     /**
      * Получение нового access токена на основе переданного refresh токена.
      * @param refreshToken - refresh токен.
-     * @return объект JwtResponse, содержащий новый access токен.
+     * @return объект JwtResponse, содержащий новый access токен, или JwtResponse с пустыми полями, если refresh
+     * токен не совпадает с сохранённым.
+     * @throws AuthException выбрасывается, если передан недействительный JWT токен.
      */
     @Override
     public JwtResponse getAccessToken(String refreshToken) {
-        if (jwtProvider.validateRefreshToken(refreshToken)) {
-            final Claims claims = jwtProvider.getRefreshClaims(refreshToken);
-            final String username = claims.getSubject();
+        // Проверка подписи и разбор refresh токена выполняются за один проход.
+        final Claims claims = jwtProvider.verifyRefreshToken(refreshToken);
+        final String username = claims.getSubject();
 
-            final JwtUser jwtUser = (JwtUser) jwtUserDetailsService.loadUserByUsername(username);
-            final RefreshToken saveRefreshToken = refreshTokenService.findByUserId(jwtUser.getId()).orElse(null);
+        // При недоступности микросервиса пользователей допускаются последние известные данные пользователя.
+        final JwtUser jwtUser = jwtUserDetailsService.loadUserForRefresh(username);
+        return issueAccessToken(refreshToken, claims.getIssuedAt(), jwtUser);
+    }
 
-            if (saveRefreshToken != null && saveRefreshToken.getRefreshToken().equals(refreshToken)) {
-                // Генерация access токена с помощью JwtProvider.
-                final String accessTokenStr = jwtProvider.generateAccessToken(jwtUser);
+    /**
+     * Асинхронно выпускает новый access токен на основе переданного refresh токена. Подпись refresh токена
+     * проверяется в вызывающем потоке, данные пользователя запрашиваются без блокировки потока.
+     * @param refreshToken - refresh токен.
+     * @return объект JwtResponse, содержащий новый access токен, или JwtResponse с пустыми полями, если refresh
+     * токен не совпадает с сохранённым.
+     * @throws AuthException выбрасывается, если передан недействительный JWT токен.
+     */
+    @Override
+    public CompletableFuture<JwtResponse> getAccessTokenAsync(String refreshToken) {
+        final Claims claims = jwtProvider.verifyRefreshToken(refreshToken);
+        return jwtUserDetailsService.loadUserForRefreshAsync(claims.getSubject())
+                .thenApplyAsync(jwtUser -> issueAccessToken(refreshToken, claims.getIssuedAt(), jwtUser), authExecutor);
+    }
+
+    /**
+     * Выпускает access токен, если переданный refresh токен совпадает с сохранённым. Сохранённый токен ищется
+     * через кэш refresh токенов и реплику с защитой read-your-writes; refresh токен при этом не заменяется.
+     */
+    private JwtResponse issueAccessToken(String refreshToken, Date issuedAt, JwtUser jwtUser) {
+        if (refreshTokenService.findMatching(jwtUser.getId(), refreshToken, issuedAt).isPresent()) {
+            return transactionTemplate.execute(status -> {
+                // Выпуск access токена.
+                final IssuedToken issuedAccessToken = mintAccessToken(jwtUser);
                 // Создание объекта AccessToken.
-                final AccessToken newAccessToken = new AccessToken(
-                        jwtUser.getId(),
-                        accessTokenStr,
-                        jwtProvider.getAccessClaims(accessTokenStr).getIssuedAt(),
-                        jwtProvider.getAccessClaims(accessTokenStr).getExpiration()
-                );
+                final AccessToken newAccessToken = newAccessToken(jwtUser, issuedAccessToken);
 
                 // Обновление access токена в базе данных.
-                accessTokenService.update(jwtUser.getId(), newAccessToken);
-                return new JwtResponse(accessTokenStr, null);
-            }
+                saveAccessToken(newAccessToken);
+                return new JwtResponse(issuedAccessToken.getToken(), null);
+            });
         }
         return new JwtResponse(null, null);
     }
@@ -125,42 +313,69 @@ public class AuthServiceImpl implements AuthService {
      */
     @Override
     public JwtResponse refresh(String refreshToken) {
-        if (jwtProvider.validateRefreshToken(refreshToken)) {
-            final Claims claims = jwtProvider.getRefreshClaims(refreshToken);
-            final String username = claims.getSubject();
+        // Проверка подписи и разбор refresh токена выполняются за один проход.
+        final Claims claims = jwtProvider.verifyRefreshToken(refreshToken);
+        final String username = claims.getSubject();
+
+        // При недоступности микросервиса пользователей допускаются последние известные данные пользователя.
+        final JwtUser jwtUser = jwtUserDetailsService.loadUserForRefresh(username);
+        return issueRefreshedTokens(refreshToken, claims.getIssuedAt(), jwtUser);
+    }
 
-            final JwtUser jwtUser = (JwtUser) jwtUserDetailsService.loadUserByUsername(username);
-            final RefreshToken saveRefreshToken = refreshTokenService.findByUserId(jwtUser.getId()).orElse(null);
+    /**
+     * Асинхронно обновляет access и refresh токены на основе переданного refresh токена. Подпись refresh токена
+     * проверяется в вызывающем потоке, данные пользователя запрашиваются без блокировки потока.
+     * @param refreshToken - refresh токен.
+     * @return - объект JwtResponse, содержащий новые access и refresh токены.
+     * @throws AuthException выбрасывается, если передан недействительный JWT токен.
+     */
+    @Override
+    public CompletableFuture<JwtResponse> refreshAsync(String refreshToken) {
+        final Claims claims = jwtProvider.verifyRefreshToken(refreshToken);
+        return jwtUserDetailsService.loadUserForRefreshAsync(claims.getSubject())
+                .thenApplyAsync(jwtUser -> issueRefreshedTokens(refreshToken, claims.getIssuedAt(), jwtUser),
+                        authExecutor);
+    }
 
-            if (saveRefreshToken != null && saveRefreshToken.getRefreshToken().equals(refreshToken)) {
+    /**
+     * Выпускает новые access и refresh токены, если переданный refresh токен совпадает с сохранённым. Несовпадающий
+     * токен отклоняется по кэшу refresh токенов и реплике с защитой read-your-writes; совпадение перед заменой
+     * подтверждается чтением из основного хранилища внутри транзакции записи, чтобы не заменить токен, уже
+     * заменённый на другом экземпляре.
+     */
+    private JwtResponse issueRefreshedTokens(String refreshToken, Date issuedAt, JwtUser jwtUser) {
+        if (refreshTokenService.findMatching(jwtUser.getId(), refreshToken, issuedAt).isPresent()) {
+            return transactionTemplate.execute(status -> {
+                // Подтверждение замены по основному хранилищу.
+                final boolean stored = refreshTokenService.findStoredByUserId(jwtUser.getId())
+                        .filter(saveRefreshToken -> saveRefreshToken.matches(refreshToken))
+                        .isPresent();
+                if (!stored) {
+                    throw new AuthException("Неверный JWT токен");
+                }
 
-                // Генерация access токена с помощью JwtProvider.
-                final String accessTokenStr = jwtProvider.generateAccessToken(jwtUser);
+                // Выпуск access токена.
+                final IssuedToken issuedAccessToken = mintAccessToken(jwtUser);
                 // Создание объекта AccessToken.
-                final AccessToken newAccessToken = new AccessToken(
-                        jwtUser.getId(),
-                        accessTokenStr,
-                        jwtProvider.getAccessClaims(accessTokenStr).getIssuedAt(),
-                        jwtProvider.getAccessClaims(accessTokenStr).getExpiration()
-                );
+                final AccessToken newAccessToken = newAccessToken(jwtUser, issuedAccessToken);
 
-                // Генерация refresh токена с помощью JwtProvider.
-                final String refreshTokenStr = jwtProvider.generateRefreshToken(jwtUser);
+                // Выпуск refresh токена с помощью JwtProvider.
+                final IssuedToken issuedRefreshToken = jwtProvider.mintRefreshToken(jwtUser);
                 // Создание объекта RefreshToken.
                 final RefreshToken newRefreshToken = new RefreshToken(
                         jwtUser.getId(),
-                        refreshTokenStr,
-                        jwtProvider.getRefreshClaims(refreshTokenStr).getIssuedAt(),
-                        jwtProvider.getRefreshClaims(refreshTokenStr).getExpiration()
+                        issuedRefreshToken.getToken(),
+                        issuedRefreshToken.getIssuedAt(),
+                        issuedRefreshToken.getExpiresAt()
                 );
 
                 // Обновление access токена в базе данных.
-                accessTokenService.update(jwtUser.getId(), newAccessToken);
+                saveAccessToken(newAccessToken);
                 // Обновление refresh токена в базе данных.
-                refreshTokenService.update(jwtUser.getId(), newRefreshToken);
+                saveRefreshToken(newRefreshToken);
 
                 return new JwtResponse(newAccessToken.getAccessToken(), newRefreshToken.getRefreshToken());
-            }
+            });
         }
         throw new AuthException("Неверный JWT токен");
     }
@@ -177,22 +392,35 @@ public class AuthServiceImpl implements AuthService {
     /**
      * Осуществление пользователем выхода из системы, путём удаления токенов.
      * @param refreshToken refresh токен.
-     * @return true, если выход успешно осуществлён, иначе false.
+     * @return true, если выход успешно осуществлён.
+     * @throws AuthException выбрасывается, если передан недействительный JWT токен.
      */
     @Override
-    @Transactional
     public boolean logout(String refreshToken) {
-        if (jwtProvider.validateRefreshToken(refreshToken)) {
-            final Claims claims = jwtProvider.getRefreshClaims(refreshToken);
-            final String username = claims.getSubject();
+        // Проверка подписи и разбор refresh токена выполняются за один проход.
+        final Claims claims = jwtProvider.verifyRefreshToken(refreshToken);
+        final String username = claims.getSubject();
 
-            final JwtUser jwtUser = (JwtUser) jwtUserDetailsService.loadUserByUsername(username);
-            refreshTokenService.delete(jwtUser.getId());
-            accessTokenService.delete(jwtUser.getId());
+        final JwtUser jwtUser = (JwtUser) jwtUserDetailsService.loadUserByUsername(username);
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!refreshTokenService.delete(jwtUser.getId())) {
+                throw new IllegalStateException(
+                        "Не удалось удалить refresh токен пользователя с userId: " + jwtUser.getId());
+            }
+            if (!stateless || opaqueTokenIndex.isEnabled()) {
+                // Отложенная запись access токена пользователя отбрасывается, чтобы не восстановить удалённый токен.
+                accessTokenWriteBehindQueue.discard(jwtUser.getId());
+                if (!accessTokenService.delete(jwtUser.getId())) {
+                    throw new IllegalStateException(
+                            "Не удалось удалить access токен пользователя с userId: " + jwtUser.getId());
+                }
+            }
+        });
+        opaqueTokenIndex.revoke(jwtUser.getId());
+        // Выпущенные ранее access токены перестают приниматься JwtFilter.
+        revocationEpochs.revokeAll(jwtUser.getId());
 
-            return true;
-        }
-        return false;
+        return true;
     }
 
     /**
@@ -204,4 +432,168 @@ public class AuthServiceImpl implements AuthService {
     public boolean validate(String refreshToken) {
         return jwtProvider.validateRefreshToken(refreshToken);
     }
+
+    /**
+     * Пакетная проверка refresh токенов. Токены проверяются параллельно в ограниченном пуле потоков
+     * jwt.validate.threads, а ошибка проверки одного токена не прерывает проверку остальных и журналируется на
+     * уровне DEBUG.
+     * @param refreshTokens список проверяемых refresh токенов.
+     * @return список результатов проверки в том же порядке, что и переданные токены.
+     */
+    @Override
+    public List<JwtValidationResult> validateAll(List<String> refreshTokens) {
+        return validationExecutor.mapAll(refreshTokens, this::validateOne);
+    }
+
+    /**
+     * Интроспекция токена. Токен проверяется как access токен, а при неудаче - как refresh токен; при подсказке
+     * refresh_token порядок обратный. Refresh токен активен, только если совпадает с сохранённым для пользователя,
+     * поэтому заменённый или удалённый при выходе refresh токен неактивен. Недействительный токен не приводит к
+     * исключению.
+     * @param token проверяемый токен.
+     * @param tokenTypeHint подсказка типа токена: access_token, refresh_token или null.
+     * @return ответ интроспекции с признаком active, типом токена, субъектом, сроком действия и ролями.
+     */
+    @Override
+    public JwtIntrospectionResponse introspect(String token, String tokenTypeHint) {
+        if (!StringUtils.hasText(token)) {
+            return JwtIntrospectionResponse.inactive();
+        }
+        if (opaqueTokenIndex.isEnabled() && OpaqueTokenIndex.isOpaque(token)) {
+            return introspectOpaque(token);
+        }
+        boolean refreshToken = REFRESH_TOKEN_TYPE.equals(tokenTypeHint);
+        Claims claims = verifyQuietly(token, refreshToken);
+        if (claims == null) {
+            refreshToken = !refreshToken;
+            claims = verifyQuietly(token, refreshToken);
+        }
+        if (claims == null || claims.getExpiration() == null || isRevoked(claims)) {
+            return JwtIntrospectionResponse.inactive();
+        }
+        if (refreshToken && !isStoredRefreshToken(claims, token)) {
+            return JwtIntrospectionResponse.inactive();
+        }
+        final List<String> authorities = JwtUtils.getRoles(claims).stream()
+                .map(SimpleGrantedAuthority::getAuthority)
+                .collect(Collectors.toList());
+        return JwtIntrospectionResponse.active(
+                refreshToken ? REFRESH_TOKEN_TYPE : ACCESS_TOKEN_TYPE,
+                claims.getSubject(),
+                claims.getExpiration().getTime() / 1000,
+                authorities
+        );
+    }
+
+    /**
+     * Отзыв отдельного access токена (одной сессии) без выхода пользователя на остальных устройствах. JWT
+     * заносится в список отозванных по идентификатору jti до истечения срока действия, непрозрачный токен
+     * удаляется из индекса сессий. Токен проверяется перед отзывом, поэтому отозвать можно только выпущенный
+     * сервисом токен.
+     * @param accessToken отзываемый access токен.
+     * @return true, если токен отозван; false, если токен недействителен или уже истёк.
+     */
+    @Override
+    public boolean revoke(String accessToken) {
+        if (!StringUtils.hasText(accessToken)) {
+            return false;
+        }
+        if (opaqueTokenIndex.isEnabled() && OpaqueTokenIndex.isOpaque(accessToken)) {
+            final OpaqueTokenIndex.OpaqueSession session = opaqueTokenIndex.find(accessToken);
+            if (session == null) {
+                return false;
+            }
+            opaqueTokenIndex.revoke(session.userId());
+            return true;
+        }
+        final Claims claims = verifyQuietly(accessToken, false);
+        if (claims == null || claims.getId() == null || claims.getExpiration() == null) {
+            return false;
+        }
+        revokedTokenDenylist.revoke(claims.getId(), claims.getExpiration());
+        return true;
+    }
+
+    /**
+     * Интроспекция непрозрачного токена поиском сессии в индексе за O(1), без проверки подписи.
+     */
+    private JwtIntrospectionResponse introspectOpaque(String token) {
+        final OpaqueTokenIndex.OpaqueSession session = opaqueTokenIndex.find(token);
+        if (session == null
+                || revocationEpochs.isRevoked(session.userId(), session.authentication().getIssuedAt())) {
+            return JwtIntrospectionResponse.inactive();
+        }
+        final List<String> authorities = session.authentication().getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.toList());
+        return JwtIntrospectionResponse.active(
+                ACCESS_TOKEN_TYPE,
+                session.authentication().getLogin(),
+                session.expiresAtMillis() / 1000,
+                authorities
+        );
+    }
+
+    private boolean isRevoked(Claims claims) {
+        if (revokedTokenDenylist.isRevoked(claims.getId())) {
+            return true;
+        }
+        final Integer userId = JwtUtils.getUserId(claims);
+        if (userId == null) {
+            return false;
+        }
+        return revocationEpochs.isRevoked(userId, JwtUtils.getIssuedAtMillis(claims));
+    }
+
+    /**
+     * Проверяет, что refresh токен совпадает с сохранённым для пользователя, то есть не был заменён при
+     * обновлении токенов и не удалён при выходе из системы. Refresh токен без поля uid ищется по дайджесту.
+     */
+    private boolean isStoredRefreshToken(Claims claims, String refreshToken) {
+        final Integer userId = JwtUtils.getUserId(claims);
+        if (userId == null) {
+            return refreshTokenService.findByToken(refreshToken).isPresent();
+        }
+        return refreshTokenService.findMatching(userId, refreshToken, claims.getIssuedAt()).isPresent();
+    }
+
+    private Claims verifyQuietly(String token, boolean refreshToken) {
+        try {
+            return refreshToken
+                    ? jwtProvider.verifyRefreshTokenQuietly(token)
+                    : jwtProvider.verifyAccessTokenQuietly(token);
+        } catch (AuthException | JwtException | IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    private JwtValidationResult validateOne(String refreshToken) {
+        if (!StringUtils.hasText(refreshToken)) {
+            return JwtValidationResult.invalid("Токен отсутствует");
+        }
+        try {
+            final Claims claims = jwtProvider.verifyRefreshTokenQuietly(refreshToken);
+            return JwtValidationResult.valid(claims.getSubject(), claims.getExpiration());
+        } catch (AuthException | JwtException | IllegalArgumentException ex) {
+            return JwtValidationResult.invalid(ex.getMessage());
+        }
+    }
+
+    /**
+     * Получение набора открытых ключей (JWKS) для самостоятельной проверки access токенов другими сервисами.
+     * @return JWKS в виде Map с единственным полем keys.
+     */
+    @Override
+    public Map<String, Object> getJwks() {
+        return jwtProvider.getJwks();
+    }
+
+    /**
+     * Получение значения заголовка ETag для набора открытых ключей.
+     * @return строка ETag, которая меняется только при смене ключей.
+     */
+    @Override
+    public String getJwksETag() {
+        return jwtProvider.getJwksETag();
+    }
 }
\ No newline at end of file
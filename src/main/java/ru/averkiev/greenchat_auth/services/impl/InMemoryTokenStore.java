@@ -0,0 +1,143 @@
+package ru.averkiev.greenchat_auth.services.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.averkiev.greenchat_auth.services.TokenStore;
+import ru.averkiev.greenchat_auth.services.TokenType;
+
+import java.time.Clock;
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Класс реализует хранилище записей токенов в памяти процесса для развёртывания в одном экземпляре и для тестов.
+ * Записи распределены по нескольким ConcurrentHashMap (сегментам) по идентификатору пользователя, чтобы
+ * изменение размера одной таблицы не затрагивало остальные. Запись с истёкшим сроком действия не возвращается
+ * при поиске и удаляется сразу; кроме того, каждый сегмент периодически очищается от истёкших записей при
+ * записи в него, поэтому фоновый поток не требуется. Как и остальные хранилища, хранилище держит только
+ * дайджест и сроки действия: запись пересоздаётся через TokenType, а переданный объект со значением токена
+ * не сохраняется.
+ * @param <T> тип записи токена.
+ * @author mrGreenNV
+ */
+@Slf4j
+public class InMemoryTokenStore<T> implements TokenStore<T> {
+
+    /**
+     * Количество записей в сегмент, после которого сегмент очищается от истёкших записей.
+     */
+    private static final int SWEEP_EVERY_WRITES = 1024;
+
+    private final TokenType<T> tokenType;
+    private final Clock clock;
+    private final Shard<T>[] shards;
+    private final int shardMask;
+
+    @SuppressWarnings("unchecked")
+    public InMemoryTokenStore(TokenType<T> tokenType, int shardCount, Clock clock) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Количество сегментов должно быть положительным");
+        }
+        this.tokenType = tokenType;
+        this.clock = clock;
+        // Количество сегментов округляется вверх до степени двойки, чтобы номер сегмента вычислялся маской.
+        int size = 1;
+        while (size < shardCount) {
+            size <<= 1;
+        }
+        this.shards = new Shard[size];
+        for (int i = 0; i < size; i++) {
+            this.shards[i] = new Shard<>();
+        }
+        this.shardMask = size - 1;
+        log.info("IN InMemoryTokenStore - хранилище {} токенов в памяти, сегментов: {}", tokenType.name(), size);
+    }
+
+    @Override
+    public String name() {
+        return "memory";
+    }
+
+    @Override
+    public void save(T token) {
+        upsert(token);
+    }
+
+    @Override
+    public void upsert(T token) {
+        final int userId = tokenType.userId(token);
+        final Shard<T> shard = shard(userId);
+        final Date expiresAt = tokenType.expiresAt(token);
+        final long expiresAtMillis = expiresAt == null ? Long.MAX_VALUE : expiresAt.getTime();
+        final T stored = tokenType.create(userId, tokenType.digest(token), tokenType.createdAt(token), expiresAt);
+        shard.entries.put(userId, new Entry<>(stored, expiresAtMillis));
+        if (shard.writes.incrementAndGet() % SWEEP_EVERY_WRITES == 0) {
+            sweep(shard, clock.millis());
+        }
+    }
+
+    @Override
+    public Optional<T> findByUserId(int userId) {
+        final Shard<T> shard = shard(userId);
+        final Entry<T> entry = shard.entries.get(userId);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        if (entry.expiresAtMillis() <= clock.millis()) {
+            shard.entries.remove(userId, entry);
+            return Optional.empty();
+        }
+        return Optional.of(entry.token());
+    }
+
+    @Override
+    public void deleteByUserId(int userId) {
+        shard(userId).entries.remove(userId);
+    }
+
+    /**
+     * Удаляет записи с истёкшим сроком действия из всех сегментов.
+     * @return количество удалённых записей.
+     */
+    public int evictExpired() {
+        final long now = clock.millis();
+        int evicted = 0;
+        for (Shard<T> shard : shards) {
+            evicted += sweep(shard, now);
+        }
+        return evicted;
+    }
+
+    /**
+     * Возвращает количество записей во всех сегментах, включая ещё не удалённые истёкшие.
+     * @return количество записей.
+     */
+    public int size() {
+        int size = 0;
+        for (Shard<T> shard : shards) {
+            size += shard.entries.size();
+        }
+        return size;
+    }
+
+    private int sweep(Shard<T> shard, long now) {
+        final int before = shard.entries.size();
+        shard.entries.values().removeIf(entry -> entry.expiresAtMillis() <= now);
+        return Math.max(0, before - shard.entries.size());
+    }
+
+    private Shard<T> shard(int userId) {
+        // Перемешивание битов, чтобы последовательные идентификаторы распределялись по всем сегментам.
+        final int hash = userId * 0x9E3779B9;
+        return shards[(hash ^ (hash >>> 16)) & shardMask];
+    }
+
+    private record Entry<T>(T token, long expiresAtMillis) {
+    }
+
+    private static final class Shard<T> {
+        private final ConcurrentHashMap<Integer, Entry<T>> entries = new ConcurrentHashMap<>();
+        private final AtomicInteger writes = new AtomicInteger();
+    }
+}
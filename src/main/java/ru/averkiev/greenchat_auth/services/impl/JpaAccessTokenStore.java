@@ -0,0 +1,66 @@
+package ru.averkiev.greenchat_auth.services.impl;
+
+import ru.averkiev.greenchat_auth.models.AccessToken;
+import ru.averkiev.greenchat_auth.repositories.AccessTokenRepository;
+import ru.averkiev.greenchat_auth.services.TokenStore;
+
+import java.util.Optional;
+
+/**
+ * Класс реализует хранилище access токенов в таблице access_tokens с помощью AccessTokenRepository. Поиск записи
+ * направляется на реплику базы данных через ReplicaReadRouter, если она настроена.
+ * @author mrGreenNV
+ */
+public class JpaAccessTokenStore implements TokenStore<AccessToken> {
+
+    private final AccessTokenRepository accessTokenRepository;
+    private final ReplicaReadRouter replicaReadRouter;
+
+    public JpaAccessTokenStore(AccessTokenRepository accessTokenRepository) {
+        this(accessTokenRepository, ReplicaReadRouter.primaryOnly());
+    }
+
+    public JpaAccessTokenStore(AccessTokenRepository accessTokenRepository, ReplicaReadRouter replicaReadRouter) {
+        this.accessTokenRepository = accessTokenRepository;
+        this.replicaReadRouter = replicaReadRouter;
+    }
+
+    @Override
+    public String name() {
+        return "jpa";
+    }
+
+    @Override
+    public void save(AccessToken accessToken) {
+        accessTokenRepository.save(accessToken);
+        replicaReadRouter.written(accessToken.getUserId());
+    }
+
+    @Override
+    public void upsert(AccessToken accessToken) {
+        accessTokenRepository.upsert(
+                accessToken.getUserId(),
+                accessToken.getAccessTokenDigest(),
+                accessToken.getLogin(),
+                accessToken.getCreatedAt(),
+                accessToken.getExpiresAt()
+        );
+        replicaReadRouter.written(accessToken.getUserId());
+    }
+
+    @Override
+    public Optional<AccessToken> findByUserId(int userId) {
+        return replicaReadRouter.read(userId, () -> accessTokenRepository.findByUserId(userId));
+    }
+
+    @Override
+    public Optional<AccessToken> findByUserIdOnPrimary(int userId) {
+        return replicaReadRouter.readPrimary(() -> accessTokenRepository.findByUserId(userId));
+    }
+
+    @Override
+    public void deleteByUserId(int userId) {
+        accessTokenRepository.deleteByUserId(userId);
+        replicaReadRouter.written(userId);
+    }
+}
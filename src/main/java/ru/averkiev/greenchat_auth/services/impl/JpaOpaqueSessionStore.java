@@ -0,0 +1,51 @@
+package ru.averkiev.greenchat_auth.services.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+import ru.averkiev.greenchat_auth.models.AccessToken;
+import ru.averkiev.greenchat_auth.models.JwtUser;
+import ru.averkiev.greenchat_auth.repositories.AccessTokenRepository;
+import ru.averkiev.greenchat_auth.security.OpaqueTokenIndex;
+
+/**
+ * Класс реализует поиск записей непрозрачных access токенов в таблице access_tokens по дайджесту токена. Поиск
+ * выполняется на основном сервере базы данных, поскольку запись могла быть сохранена другим экземпляром сервиса
+ * только что; данные пользователя загружаются по сохранённому логину через JwtUserDetailsService. Используется
+ * OpaqueTokenIndex, если токена нет в памяти экземпляра.
+ * @author mrGreenNV
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "jwt.token-store.type", havingValue = "jpa", matchIfMissing = true)
+public class JpaOpaqueSessionStore implements OpaqueTokenIndex.SessionStore {
+
+    private final AccessTokenRepository accessTokenRepository;
+    private final JwtUserDetailsService jwtUserDetailsService;
+
+    @Override
+    public OpaqueTokenIndex.StoredSession find(byte[] tokenDigest) {
+        final AccessToken accessToken = accessTokenRepository.findByAccessTokenDigest(tokenDigest).orElse(null);
+        if (accessToken == null || accessToken.getLogin() == null) {
+            return null;
+        }
+        final JwtUser jwtUser;
+        try {
+            jwtUser = jwtUserDetailsService.loadUserForRefresh(accessToken.getLogin());
+        } catch (UsernameNotFoundException ex) {
+            log.info("IN find - пользователь непрозрачного токена с userId: {} не найден", accessToken.getUserId());
+            return null;
+        }
+        if (jwtUser.getId() != accessToken.getUserId()) {
+            return null;
+        }
+        return new OpaqueTokenIndex.StoredSession(
+                jwtUser,
+                accessToken.getCreatedAt().getTime(),
+                accessToken.getExpiresAt().getTime()
+        );
+    }
+}
@@ -0,0 +1,77 @@
+package ru.averkiev.greenchat_auth.services.impl;
+
+import ru.averkiev.greenchat_auth.models.RefreshToken;
+import ru.averkiev.greenchat_auth.repositories.RefreshTokenRepository;
+import ru.averkiev.greenchat_auth.services.TokenStore;
+
+import java.util.Optional;
+import java.util.function.Predicate;
+
+/**
+ * Класс реализует хранилище refresh токенов в таблице refresh_tokens с помощью RefreshTokenRepository. Поиск записи
+ * направляется на реплику базы данных через ReplicaReadRouter, если она настроена. Поиск по дайджесту токена
+ * использует индекс idx_refresh_tokens_digest.
+ * @author mrGreenNV
+ */
+public class JpaRefreshTokenStore implements TokenStore<RefreshToken> {
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final ReplicaReadRouter replicaReadRouter;
+
+    public JpaRefreshTokenStore(RefreshTokenRepository refreshTokenRepository) {
+        this(refreshTokenRepository, ReplicaReadRouter.primaryOnly());
+    }
+
+    public JpaRefreshTokenStore(RefreshTokenRepository refreshTokenRepository, ReplicaReadRouter replicaReadRouter) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.replicaReadRouter = replicaReadRouter;
+    }
+
+    @Override
+    public String name() {
+        return "jpa";
+    }
+
+    @Override
+    public void save(RefreshToken refreshToken) {
+        refreshTokenRepository.save(refreshToken);
+        replicaReadRouter.written(refreshToken.getUserId());
+    }
+
+    @Override
+    public void upsert(RefreshToken refreshToken) {
+        refreshTokenRepository.upsert(
+                refreshToken.getUserId(),
+                refreshToken.getRefreshTokenDigest(),
+                refreshToken.getCreatedAt(),
+                refreshToken.getExpiresAt()
+        );
+        replicaReadRouter.written(refreshToken.getUserId());
+    }
+
+    @Override
+    public Optional<RefreshToken> findByUserId(int userId) {
+        return replicaReadRouter.read(userId, () -> refreshTokenRepository.findByUserId(userId));
+    }
+
+    @Override
+    public Optional<RefreshToken> findByUserId(int userId, Predicate<? super RefreshToken> current) {
+        return replicaReadRouter.read(userId, () -> refreshTokenRepository.findByUserId(userId), current);
+    }
+
+    @Override
+    public Optional<RefreshToken> findByUserIdOnPrimary(int userId) {
+        return replicaReadRouter.readPrimary(() -> refreshTokenRepository.findByUserId(userId));
+    }
+
+    @Override
+    public Optional<RefreshToken> findByTokenDigest(byte[] tokenDigest) {
+        return replicaReadRouter.read(() -> refreshTokenRepository.findByRefreshTokenDigest(tokenDigest));
+    }
+
+    @Override
+    public void deleteByUserId(int userId) {
+        refreshTokenRepository.deleteByUserId(userId);
+        replicaReadRouter.written(userId);
+    }
+}
@@ -7,10 +7,13 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import ru.averkiev.greenchat_auth.models.User;
-import ru.averkiev.greenchat_auth.clients.impl.UserServiceClientImpl;
+import ru.averkiev.greenchat_auth.clients.AsyncUserServiceClient;
+import ru.averkiev.greenchat_auth.clients.UserServiceClient;
 import ru.averkiev.greenchat_auth.models.JwtUser;
 import ru.averkiev.greenchat_auth.models.JwtUserFactory;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Класс предоставляет сервис для загрузки пользователей по имени пользователя, реализуя интерфейс UserDetailsService.
  * Этот класс используется для аутентификации и авторизации пользователей в greenchat с использованием JWT.
@@ -22,8 +25,15 @@ import ru.averkiev.greenchat_auth.models.JwtUserFactory;
 public class JwtUserDetailsService implements UserDetailsService {
     /**
      * UserServiceClient используется для получения данных о пользователе посредством API-вызова к стороннему сервису.
+     * По умолчанию внедряется кэширующая обёртка CachingUserServiceClient.
+     */
+    private final UserServiceClient userServiceClient;
+
+    /**
+     * AsyncUserServiceClient используется для получения данных о пользователе без блокировки потока на время
+     * API-вызова. По умолчанию внедряется кэширующая обёртка CachingUserServiceClient.
      */
-    private final UserServiceClientImpl userServiceClientImpl;
+    private final AsyncUserServiceClient asyncUserServiceClient;
 
     /**
      * Загружает и возвращает объект UserDetails для пользователя с заданным именем. Использует UserServiceClient для
@@ -34,7 +44,7 @@ public class JwtUserDetailsService implements UserDetailsService {
      */
     @Override
     public UserDetails loadUserByUsername(String login) throws UsernameNotFoundException {
-        User user = userServiceClientImpl.getUserByLogin(login);
+        User user = userServiceClient.getUserByLogin(login);
 
         if (user == null) {
             throw new  UsernameNotFoundException("Пользователь с логином:" + login + " не найден");
@@ -45,4 +55,89 @@ public class JwtUserDetailsService implements UserDetailsService {
 
         return jwtUser;
     }
-}
\ No newline at end of file
+
+    /**
+     * Загружает пользователя для обновления токенов. В отличие от loadUserByUsername() при недоступности
+     * микросервиса пользователей допускает последние известные данные пользователя, поскольку пользователь уже
+     * подтверждён refresh токеном. Для входа по паролю этот метод не используется.
+     * @param login - имя пользователя, указанное в refresh токене.
+     * @return - возвращает объект JwtUser с использованием JwtUserFactory.
+     * @throws UsernameNotFoundException - выбрасывается в случае, когда по имени не удалось найти пользователя.
+     */
+    public JwtUser loadUserForRefresh(String login) throws UsernameNotFoundException {
+        User user = userServiceClient.getUserByLoginAllowStale(login);
+
+        if (user == null) {
+            throw new  UsernameNotFoundException("Пользователь с логином:" + login + " не найден");
+        }
+
+        JwtUser jwtUser = JwtUserFactory.created(user);
+        log.info("IN loadUserForRefresh - пользователь с логином: {} успешно загружен", login);
+
+        return jwtUser;
+    }
+
+    /**
+     * Повторно загружает пользователя с заданным именем у микросервиса пользователей в обход кэша, если данные
+     * в кэше не получены только что. Используется при несовпадении пароля при входе.
+     * @param login - имя пользователя, для которого необходимо загрузить объект JwtUser.
+     * @return - возвращает объект JwtUser с использованием JwtUserFactory.
+     * @throws UsernameNotFoundException - выбрасывается в случае, когда по имени не удалось найти пользователя.
+     */
+    public JwtUser reloadUserByUsername(String login) throws UsernameNotFoundException {
+        User user = userServiceClient.getUserByLoginFresh(login);
+
+        if (user == null) {
+            throw new  UsernameNotFoundException("Пользователь с логином:" + login + " не найден");
+        }
+
+        JwtUser jwtUser = JwtUserFactory.created(user);
+        log.info("IN reloadUserByUsername - пользователь с логином: {} повторно загружен", login);
+
+        return jwtUser;
+    }
+
+    /**
+     * Асинхронно загружает пользователя с заданным именем. Поток не блокируется на время обращения к микросервису
+     * пользователей.
+     * @param login - имя пользователя, для которого необходимо загрузить объект JwtUser.
+     * @return - объект JwtUser; если пользователь не найден, результат завершается исключением
+     * UsernameNotFoundException.
+     */
+    public CompletableFuture<JwtUser> loadUserByUsernameAsync(String login) {
+        return asyncUserServiceClient.getUserByLoginAsync(login).thenApply(user -> toJwtUser(login, user));
+    }
+
+    /**
+     * Асинхронно загружает пользователя для обновления токенов, допуская при недоступности микросервиса
+     * пользователей последние известные данные пользователя (см. loadUserForRefresh()).
+     * @param login - имя пользователя, указанное в refresh токене.
+     * @return - объект JwtUser; если пользователь не найден, результат завершается исключением
+     * UsernameNotFoundException.
+     */
+    public CompletableFuture<JwtUser> loadUserForRefreshAsync(String login) {
+        return asyncUserServiceClient.getUserByLoginAllowStaleAsync(login).thenApply(user -> toJwtUser(login, user));
+    }
+
+    /**
+     * Асинхронно повторно загружает пользователя с заданным именем у микросервиса пользователей в обход кэша
+     * (см. reloadUserByUsername()). Поток не блокируется на время обращения к микросервису пользователей.
+     * @param login - имя пользователя, для которого необходимо загрузить объект JwtUser.
+     * @return - объект JwtUser; если пользователь не найден, результат завершается исключением
+     * UsernameNotFoundException.
+     */
+    public CompletableFuture<JwtUser> reloadUserByUsernameAsync(String login) {
+        return asyncUserServiceClient.getUserByLoginFreshAsync(login).thenApply(user -> toJwtUser(login, user));
+    }
+
+    private JwtUser toJwtUser(String login, User user) {
+        if (user == null) {
+            throw new  UsernameNotFoundException("Пользователь с логином:" + login + " не найден");
+        }
+
+        JwtUser jwtUser = JwtUserFactory.created(user);
+        log.info("IN toJwtUser - пользователь с логином: {} успешно загружен", login);
+
+        return jwtUser;
+    }
+}
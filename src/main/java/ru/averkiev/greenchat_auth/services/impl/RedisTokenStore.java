@@ -0,0 +1,125 @@
+package ru.averkiev.greenchat_auth.services.impl;
+
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import ru.averkiev.greenchat_auth.services.TokenStore;
+import ru.averkiev.greenchat_auth.services.TokenType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.Date;
+import java.util.Optional;
+
+/**
+ * Класс реализует хранилище записей токенов на сервере, совместимом с протоколом Redis. Запись пользователя
+ * хранится под ключом {prefix}:{тип токена}:{userId} и удаляется сервером по истечении срока действия токена
+ * (SET ... PX), поэтому отдельная очистка истёкших записей не требуется. Значение - двоичная запись из моментов
+ * создания и истечения срока действия и SHA-256 дайджеста токена. Команды выполняются через RedisTemplate
+ * Spring Data Redis, ошибки сервера и соединения преобразуются в DataAccessException.
+ * @param <T> тип записи токена.
+ * @author mrGreenNV
+ */
+public class RedisTokenStore<T> implements TokenStore<T> {
+
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private final TokenType<T> tokenType;
+    private final RedisTemplate<byte[], byte[]> redisTemplate;
+    private final String keyPrefix;
+    private final Clock clock;
+
+    public RedisTokenStore(TokenType<T> tokenType, RedisConnectionFactory connectionFactory, String keyPrefix,
+                           Clock clock) {
+        this.tokenType = tokenType;
+        this.redisTemplate = new RedisTemplate<>();
+        this.redisTemplate.setConnectionFactory(connectionFactory);
+        this.redisTemplate.afterPropertiesSet();
+        this.keyPrefix = keyPrefix + ":" + tokenType.name() + ":";
+        this.clock = clock;
+    }
+
+    @Override
+    public String name() {
+        return "redis";
+    }
+
+    @Override
+    public void save(T token) {
+        upsert(token);
+    }
+
+    @Override
+    public void upsert(T token) {
+        final byte[] key = key(tokenType.userId(token));
+        final Date expiresAt = tokenType.expiresAt(token);
+        if (expiresAt == null) {
+            set(key, encode(token), Expiration.persistent());
+            return;
+        }
+        final long ttlMillis = expiresAt.getTime() - clock.millis();
+        if (ttlMillis <= 0) {
+            // Токен уже истёк: прежняя запись пользователя всё равно заменяется, а новая не нужна.
+            delete(key);
+            return;
+        }
+        set(key, encode(token), Expiration.milliseconds(ttlMillis));
+    }
+
+    @Override
+    public Optional<T> findByUserId(int userId) {
+        final byte[] key = key(userId);
+        final byte[] value = redisTemplate.execute((RedisCallback<byte[]>) connection ->
+                connection.stringCommands().get(key));
+        return value == null ? Optional.empty() : Optional.of(decode(userId, value));
+    }
+
+    @Override
+    public void deleteByUserId(int userId) {
+        delete(key(userId));
+    }
+
+    private void set(byte[] key, byte[] value, Expiration expiration) {
+        redisTemplate.execute((RedisCallback<Boolean>) connection -> connection.stringCommands()
+                .set(key, value, expiration, RedisStringCommands.SetOption.upsert()));
+    }
+
+    private void delete(byte[] key) {
+        redisTemplate.execute((RedisCallback<Long>) connection -> connection.keyCommands().del(key));
+    }
+
+    private byte[] key(int userId) {
+        return (keyPrefix + userId).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] encode(T token) {
+        final byte[] digest = tokenType.digest(token);
+        final ByteBuffer buffer = ByteBuffer.allocate(2 * Long.BYTES + (digest == null ? 0 : digest.length));
+        buffer.putLong(toMillis(tokenType.createdAt(token)));
+        buffer.putLong(toMillis(tokenType.expiresAt(token)));
+        if (digest != null) {
+            buffer.put(digest);
+        }
+        return buffer.array();
+    }
+
+    private T decode(int userId, byte[] value) {
+        final ByteBuffer buffer = ByteBuffer.wrap(value);
+        final Date createdAt = toDate(buffer.getLong());
+        final Date expiresAt = toDate(buffer.getLong());
+        final byte[] digest = new byte[buffer.remaining()];
+        buffer.get(digest);
+        return tokenType.create(userId, digest, createdAt, expiresAt);
+    }
+
+    private static long toMillis(Date date) {
+        return date == null ? NO_DATE : date.getTime();
+    }
+
+    private static Date toDate(long millis) {
+        return millis == NO_DATE ? null : new Date(millis);
+    }
+}
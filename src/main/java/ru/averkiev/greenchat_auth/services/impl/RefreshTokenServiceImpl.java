@@ -1,36 +1,92 @@
 package ru.averkiev.greenchat_auth.services.impl;
 
-import lombok.RequiredArgsConstructor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import ru.averkiev.greenchat_auth.exceptions.UserNotFoundException;
 import ru.averkiev.greenchat_auth.models.RefreshToken;
-import ru.averkiev.greenchat_auth.repositories.RefreshTokenRepository;
 import ru.averkiev.greenchat_auth.services.RefreshTokenService;
+import ru.averkiev.greenchat_auth.services.TokenStore;
+import ru.averkiev.greenchat_auth.utils.TokenDigest;
 
+import java.time.Clock;
+import java.util.Date;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Класс реализует функционал взаимодействия refresh токена с базой данных (сохранение, обновление, удаление и
+ * Класс реализует функционал взаимодействия refresh токена с хранилищем TokenStore (сохранение, обновление, удаление и
  * поиск по идентификатору пользователя, к которому относится токен).
+ * Поиск выполняется через ограниченный по размеру кэш перед хранилищем: найденный токен хранится в кэше до
+ * истечения срока действия (expires_at), но не дольше jwt.refresh-cache.max-ttl-ms, и удаляется из кэша при
+ * сохранении, обновлении и удалении токена. Верхняя граница времени жизни ограничивает окно, в течение которого
+ * экземпляр сервиса может не видеть изменение токена, сделанное на другом экземпляре. Отсутствие токена
+ * не кэшируется. Переданный токен сверяется с кэшем (findMatching): совпадение и токен, выпущенный раньше
+ * закэшированного, обрабатываются без обращения к хранилищу, и только токен, выпущенный не раньше закэшированного,
+ * перечитывается из хранилища, поскольку кэш мог устареть после замены токена на другом экземпляре. Замена
+ * токена подтверждается чтением из основного хранилища внутри транзакции записи (findStoredByUserId). Чтение
+ * не удаляет записи из кэша. Статистика кэша публикуется в метриках под именем jwt.refresh-tokens.
  * @author mrGreenNV
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class RefreshTokenServiceImpl implements RefreshTokenService {
 
-    private final RefreshTokenRepository refreshTokenRepository;
+    /**
+     * Имя кэша, под которым публикуются метрики попаданий, промахов и вытеснений.
+     */
+    public static final String CACHE_NAME = "jwt.refresh-tokens";
+
+    private final TokenStore<RefreshToken> refreshTokenStore;
+    private final boolean cacheEnabled;
+    private final Cache<Integer, RefreshToken> cache;
+
+    @Autowired
+    public RefreshTokenServiceImpl(TokenStore<RefreshToken> refreshTokenStore,
+                                   @Value("${jwt.refresh-cache.enabled:true}") boolean cacheEnabled,
+                                   @Value("${jwt.refresh-cache.max-size:10000}") long maxSize,
+                                   @Value("${jwt.refresh-cache.max-ttl-ms:30000}") long maxTtlMillis,
+                                   MeterRegistry meterRegistry,
+                                   Clock clock) {
+        this(refreshTokenStore, cacheEnabled, maxSize, maxTtlMillis, clock);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    public RefreshTokenServiceImpl(TokenStore<RefreshToken> refreshTokenStore,
+                                   boolean cacheEnabled,
+                                   long maxSize,
+                                   long maxTtlMillis,
+                                   Clock clock) {
+        this.refreshTokenStore = refreshTokenStore;
+        this.cacheEnabled = cacheEnabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new ExpiryAtTokenExpiration(clock, maxTtlMillis))
+                .recordStats()
+                .build();
+        log.info("IN RefreshTokenServiceImpl - кэш refresh токенов {}, максимальный размер: {}",
+                cacheEnabled ? "включён" : "выключен", maxSize);
+    }
 
     /**
-     * Сохраняет refresh токен в базу данных.
-     * @param refreshToken токен, который необходимо сохранить в базе данных.
+     * Сохраняет refresh токен в хранилище.
+     * @param refreshToken токен, который необходимо сохранить в хранилище.
      * @return возвращает результат сохранения.
      */
     @Override
     public boolean save(RefreshToken refreshToken) {
         try {
-            refreshTokenRepository.save(refreshToken);
+            refreshTokenStore.save(refreshToken);
+            invalidate(refreshToken.getUserId());
             log.info("IN save - refresh токен с id: {} успешно сохранён", refreshToken.getId());
             return true;
         } catch (Exception ex) {
@@ -40,21 +96,22 @@ public class RefreshTokenServiceImpl implements RefreshTokenService {
     }
 
     /**
-     * Обновляет refresh токен в базе данных.
+     * Обновляет refresh токен в хранилище.
      * @param userId - идентификатор пользователя, токен которого необходимо обновить.
      * @param updateRefreshToken - обновленный токен.
      * @return - возвращает результат обновления.
-     * @exception UserNotFoundException - исключение выбрасывается, если токен не найден в базе данных.
+     * @exception UserNotFoundException - исключение выбрасывается, если токен не найден в хранилище.
      */
     @Override
     public boolean update(int userId, RefreshToken updateRefreshToken) {
-        RefreshToken refreshToken = findByUserId(userId).orElse(null);
+        RefreshToken refreshToken = findStoredByUserId(userId).orElse(null);
         try {
             if (refreshToken == null) {
                 throw new UserNotFoundException("Токен принадлежащий пользователю с id: " + userId + " не найден");
             }
             updateRefreshToken.setId(refreshToken.getId());
-            refreshTokenRepository.save(updateRefreshToken);
+            refreshTokenStore.save(updateRefreshToken);
+            invalidate(userId);
             log.info("IN update - refresh токен пользователя с userId: {} успешно обновлён", userId);
             return true;
         } catch (UserNotFoundException tknEx) {
@@ -64,29 +121,107 @@ public class RefreshTokenServiceImpl implements RefreshTokenService {
     }
 
     /**
-     * Выполняет поиск refresh токена в базе данных по идентификатору пользователя.
+     * Сохраняет refresh токен пользователя одной операцией хранилища: создаёт запись, если у пользователя её ещё нет,
+     * иначе заменяет в ней токен. В JPA хранилище это один SQL запрос INSERT ... ON CONFLICT (user_id) DO UPDATE,
+     * который, в отличие от пары findByUserId и save/update, не требует предварительного поиска записи.
+     * @param refreshToken токен, который необходимо сохранить в хранилище.
+     * @return возвращает результат сохранения.
+     */
+    @Override
+    public boolean upsert(RefreshToken refreshToken) {
+        try {
+            refreshTokenStore.upsert(refreshToken);
+            invalidate(refreshToken.getUserId());
+            log.info("IN upsert - refresh токен пользователя с userId: {} успешно сохранён", refreshToken.getUserId());
+            return true;
+        } catch (Exception ex) {
+            log.error("IN upsert - refresh токен пользователя с userId: {} сохранить не удалось",
+                    refreshToken.getUserId(), ex);
+        }
+        return false;
+    }
+
+    /**
+     * Выполняет поиск refresh токена по идентификатору пользователя: сначала в кэше, при промахе - в хранилище.
+     * Одновременные промахи по одному пользователю приводят к единственному запросу в хранилище.
      * @param userId - идентификатор пользователя, которому соответствует искомый refresh токен.
      * @return - Optional с результатами поиска.
      */
     @Override
     public Optional<RefreshToken> findByUserId(int userId) {
-        Optional<RefreshToken> refreshToken = refreshTokenRepository.findByUserId(userId);
-        if (refreshToken.isEmpty()) {
-//            throw new TokenNotFoundException("Токен не найден");
+        if (!cacheEnabled) {
+            return refreshTokenStore.findByUserId(userId);
         }
-        log.info("IN findByUserId - поиск завершён успешно.");
-        return refreshToken;
+        final RefreshToken refreshToken = cache.get(userId,
+                key -> refreshTokenStore.findByUserId(key).orElse(null));
+        log.debug("IN findByUserId - поиск refresh токена пользователя с userId: {} завершён", userId);
+        return Optional.ofNullable(refreshToken);
     }
 
     /**
-     * Удаляет из базы данных refresh токен по идентификатору пользователя, которому он соответствует.
+     * Выполняет поиск refresh токена пользователя в основном хранилище в обход кэша и реплик. Используется для
+     * подтверждения замены токена внутри транзакции записи; кэш не изменяется.
+     * @param userId - идентификатор пользователя, которому соответствует искомый refresh токен.
+     * @return - Optional с результатами поиска.
+     */
+    @Override
+    public Optional<RefreshToken> findStoredByUserId(int userId) {
+        return refreshTokenStore.findByUserIdOnPrimary(userId);
+    }
+
+    /**
+     * Выполняет поиск сохранённого refresh токена пользователя, совпадающего с переданным. Токен сверяется с кэшем;
+     * при несовпадении токен, выпущенный раньше закэшированного, отклоняется без обращения к хранилищу: он уже
+     * заменён. Токен, выпущенный не раньше закэшированного, мог быть выпущен другим экземпляром сервиса после
+     * кэширования, поэтому запись перечитывается из хранилища и заменяет устаревшую запись кэша.
+     * @param userId - идентификатор пользователя, которому соответствует искомый refresh токен.
+     * @param refreshToken - переданный refresh токен.
+     * @param issuedAt - время выпуска переданного токена (claim iat).
+     * @return - Optional с сохранённым токеном или пустой Optional, если сохранённый токен не совпадает
+     * с переданным.
+     */
+    @Override
+    public Optional<RefreshToken> findMatching(int userId, String refreshToken, Date issuedAt) {
+        final Optional<RefreshToken> cached = findByUserId(userId);
+        if (cached.isEmpty() || cached.get().matches(refreshToken)) {
+            // Отсутствие токена не кэшируется, поэтому пустой результат уже получен из хранилища.
+            return cached;
+        }
+        if (!cacheEnabled || !isIssuedNotBefore(issuedAt, cached.get().getCreatedAt())) {
+            return Optional.empty();
+        }
+        log.debug("IN findMatching - refresh токен пользователя с userId: {} новее кэша, "
+                + "выполняется повторное чтение", userId);
+        // Запись с реплики, выпущенная раньше переданного токена, устарела и перечитывается с основного сервера.
+        final Optional<RefreshToken> reloaded = refreshTokenStore.findByUserId(userId,
+                savedRefreshToken -> savedRefreshToken.matches(refreshToken)
+                        || !isIssuedNotBefore(issuedAt, savedRefreshToken.getCreatedAt()));
+        // Запись заменяется, только если её не изменили и не удалили с момента чтения.
+        reloaded.ifPresent(savedRefreshToken -> cache.asMap().replace(userId, cached.get(), savedRefreshToken));
+        return reloaded.filter(savedRefreshToken -> savedRefreshToken.matches(refreshToken));
+    }
+
+    /**
+     * Выполняет поиск сохранённого refresh токена по SHA-256 дайджесту его значения в обход кэша. Используется,
+     * если идентификатор пользователя неизвестен, например при интроспекции refresh токена.
+     * @param refreshToken - переданный refresh токен.
+     * @return - Optional с сохранённым токеном или пустой Optional, если такой токен не сохранён.
+     */
+    @Override
+    public Optional<RefreshToken> findByToken(String refreshToken) {
+        return refreshTokenStore.findByTokenDigest(TokenDigest.sha256(refreshToken));
+    }
+
+    /**
+     * Удаляет из хранилища refresh токен по идентификатору пользователя, которому он соответствует.
      * @param userId - идентификатор пользователя, токен которого необходимо удалить.
      * @return - возвращает результат удаления.
      */
     @Override
     public boolean delete(int userId) {
         try {
-            refreshTokenRepository.deleteByUserId(userId);
+            refreshTokenStore.deleteByUserId(userId);
+            invalidate(userId);
             log.info("IN delete - refresh токен пользователя с userId: {} успешно удалён", userId);
             return true;
         } catch (Exception Ex) {
@@ -94,4 +229,72 @@ public class RefreshTokenServiceImpl implements RefreshTokenService {
         }
         return false;
     }
+
+    /**
+     * Возвращает статистику кэша refresh токенов: количество попаданий, промахов и вытеснений.
+     * @return снимок статистики кэша.
+     */
+    public CacheStats cacheStats() {
+        return cache.stats();
+    }
+
+    /**
+     * Проверяет, что токен выпущен не раньше сохранённого. JWT хранит время выпуска с точностью до секунды,
+     * поэтому время сравнивается в секундах.
+     */
+    private static boolean isIssuedNotBefore(Date issuedAt, Date storedCreatedAt) {
+        if (storedCreatedAt == null) {
+            return true;
+        }
+        return issuedAt != null && issuedAt.getTime() / 1000 >= storedCreatedAt.getTime() / 1000;
+    }
+
+    /**
+     * Удаляет refresh токен пользователя из кэша. Внутри транзакции запись удаляется повторно после фиксации,
+     * чтобы параллельный поиск не вернул в кэш значение, прочитанное до фиксации изменений.
+     */
+    private void invalidate(int userId) {
+        cache.invalidate(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidate(userId);
+                }
+            });
+        }
+    }
+
+    /**
+     * Политика истечения, при которой запись живёт до момента expires_at токена, но не дольше заданного времени.
+     */
+    private static final class ExpiryAtTokenExpiration implements Expiry<Integer, RefreshToken> {
+
+        private final Clock clock;
+        private final long maxTtlMillis;
+
+        private ExpiryAtTokenExpiration(Clock clock, long maxTtlMillis) {
+            this.clock = clock;
+            this.maxTtlMillis = maxTtlMillis;
+        }
+
+        @Override
+        public long expireAfterCreate(Integer key, RefreshToken value, long currentTime) {
+            long remainingMillis = maxTtlMillis;
+            if (value.getExpiresAt() != null) {
+                remainingMillis = Math.min(remainingMillis, value.getExpiresAt().getTime() - clock.millis());
+            }
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMillis, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(Integer key, RefreshToken value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Integer key, RefreshToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
 }
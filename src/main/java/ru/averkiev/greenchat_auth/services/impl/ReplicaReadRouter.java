@@ -0,0 +1,148 @@
+package ru.averkiev.greenchat_auth.services.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Класс направляет поиск записей токенов по идентификатору пользователя на реплику базы данных. Поиск
+ * выполняется в отдельной read-only транзакции, которую ReadWriteRoutingDataSource обслуживает соединением
+ * с реплики. Чтобы пользователь видел собственные изменения несмотря на отставание реплики, поиск записей
+ * пользователя, изменённых этим экземпляром сервиса в течение jwt.datasource.read-your-writes-ms, выполняется
+ * на основном сервере; если реплика не нашла запись или нашла запись старше известной вызывающему, поиск
+ * повторяется на основном сервере. Только на основном сервере (readPrimary) выполняется подтверждение замены
+ * токена внутри транзакции записи. Поиск
+ * на основном сервере выполняется в текущей транзакции, а без неё - в транзакции чтения-записи, поскольку
+ * read-only транзакция репозитория была бы направлена на реплику. Без настройки spring.datasource.replica.url
+ * поиск всегда выполняется в текущей транзакции.
+ * @author mrGreenNV
+ */
+@Slf4j
+@Component
+public class ReplicaReadRouter {
+
+    private final TransactionTemplate replicaReadTemplate;
+    private final TransactionTemplate primaryReadTemplate;
+    private final Cache<Integer, Boolean> recentWrites;
+
+    @Autowired
+    public ReplicaReadRouter(PlatformTransactionManager transactionManager,
+                             @Value("${spring.datasource.replica.url:}") String replicaUrl,
+                             @Value("${jwt.datasource.read-your-writes-ms:5000}") long readYourWritesMillis) {
+        this(StringUtils.hasText(replicaUrl) ? readOnlyTemplate(transactionManager) : null,
+                StringUtils.hasText(replicaUrl) ? new TransactionTemplate(transactionManager) : null,
+                readYourWritesMillis);
+        log.info("IN ReplicaReadRouter - чтение токенов с реплики {}",
+                replicaReadTemplate != null ? "включено" : "выключено");
+    }
+
+    private ReplicaReadRouter(TransactionTemplate replicaReadTemplate,
+                              TransactionTemplate primaryReadTemplate,
+                              long readYourWritesMillis) {
+        this.replicaReadTemplate = replicaReadTemplate;
+        this.primaryReadTemplate = primaryReadTemplate;
+        this.recentWrites = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(readYourWritesMillis))
+                .build();
+    }
+
+    /**
+     * Создаёт маршрутизатор, выполняющий весь поиск в текущей транзакции на основном сервере.
+     * @return экземпляр объекта ReplicaReadRouter.
+     */
+    public static ReplicaReadRouter primaryOnly() {
+        return new ReplicaReadRouter(null, null, 0);
+    }
+
+    /**
+     * Выполняет поиск записи пользователя на реплике или, если запись недавно изменена, на основном сервере.
+     * @param userId идентификатор пользователя.
+     * @param lookup поиск записи в репозитории.
+     * @return Optional с результатами поиска.
+     */
+    public <T> Optional<T> read(int userId, Supplier<Optional<T>> lookup) {
+        return read(userId, lookup, value -> true);
+    }
+
+    /**
+     * Выполняет поиск записи пользователя на реплике или, если запись недавно изменена, на основном сервере.
+     * Запись с реплики, не прошедшая проверку актуальности, перечитывается на основном сервере: например, если
+     * вызывающий предъявил токен, выпущенный позже найденной на реплике записи.
+     * @param userId идентификатор пользователя.
+     * @param lookup поиск записи в репозитории.
+     * @param current проверка актуальности записи, найденной на реплике.
+     * @return Optional с результатами поиска.
+     */
+    public <T> Optional<T> read(int userId, Supplier<Optional<T>> lookup, Predicate<? super T> current) {
+        if (replicaReadTemplate == null || recentWrites.getIfPresent(userId) != null) {
+            return readPrimary(lookup);
+        }
+        final Optional<T> fromReplica = replicaReadTemplate.execute(status -> lookup.get());
+        if (fromReplica != null && fromReplica.isPresent() && current.test(fromReplica.get())) {
+            return fromReplica;
+        }
+        // Реплика могла ещё не получить запись, сделанную другим экземпляром сервиса.
+        return readPrimary(lookup);
+    }
+
+    /**
+     * Выполняет поиск записи, не привязанной к идентификатору пользователя, на реплике. Запись, которой ещё нет на
+     * реплике, ищется на основном сервере.
+     * @param lookup поиск записи в репозитории.
+     * @return Optional с результатами поиска.
+     */
+    public <T> Optional<T> read(Supplier<Optional<T>> lookup) {
+        if (replicaReadTemplate == null) {
+            return readPrimary(lookup);
+        }
+        final Optional<T> fromReplica = replicaReadTemplate.execute(status -> lookup.get());
+        if (fromReplica != null && fromReplica.isPresent()) {
+            return fromReplica;
+        }
+        return readPrimary(lookup);
+    }
+
+    /**
+     * Выполняет поиск записи на основном сервере независимо от реплики.
+     * @param lookup поиск записи в репозитории.
+     * @return Optional с результатами поиска.
+     */
+    public <T> Optional<T> readPrimary(Supplier<Optional<T>> lookup) {
+        if (primaryReadTemplate == null) {
+            return lookup.get();
+        }
+        final Optional<T> fromPrimary = primaryReadTemplate.execute(status -> lookup.get());
+        return fromPrimary == null ? Optional.empty() : fromPrimary;
+    }
+
+    /**
+     * Отмечает изменение записи пользователя: последующий поиск в течение окна read-your-writes выполняется на
+     * основном сервере.
+     * @param userId идентификатор пользователя.
+     */
+    public void written(int userId) {
+        if (replicaReadTemplate != null) {
+            recentWrites.put(userId, Boolean.TRUE);
+        }
+    }
+
+    private static TransactionTemplate readOnlyTemplate(PlatformTransactionManager transactionManager) {
+        final TransactionTemplate template = new TransactionTemplate(transactionManager);
+        // Новая транзакция: в уже начатой транзакции соединение с основным сервером может быть уже получено.
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        template.setReadOnly(true);
+        return template;
+    }
+}
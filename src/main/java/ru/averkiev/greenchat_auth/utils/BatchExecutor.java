@@ -0,0 +1,97 @@
+package ru.averkiev.greenchat_auth.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Класс представляет собой ограниченный пул потоков для пакетной обработки, например пакетной проверки токенов.
+ * В отличие от parallelStream(), пакеты не занимают общий ForkJoinPool, которым пользуются остальные компоненты
+ * приложения. Пакет делится на части по числу потоков; если очередь пула заполнена, часть обрабатывается в
+ * вызывающем потоке, поэтому при перегрузке запросы замедляются, но не отклоняются.
+ * @author mrGreenNV
+ */
+public final class BatchExecutor implements AutoCloseable {
+
+    /**
+     * Минимальный размер части пакета: меньшие пакеты обрабатываются в вызывающем потоке без передачи в пул.
+     */
+    private static final int MIN_CHUNK_SIZE = 16;
+
+    private final ThreadPoolExecutor executor;
+    private final int threads;
+
+    /**
+     * Создаёт пул потоков.
+     * @param threadPrefix префикс имён потоков пула.
+     * @param threads количество потоков; 0 - по числу процессоров.
+     * @param queueCapacity максимальное количество частей пакетов, ожидающих свободного потока.
+     */
+    public BatchExecutor(String threadPrefix, int threads, int queueCapacity) {
+        if (threads <= 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("Размер очереди должен быть положительным: " + queueCapacity);
+        }
+        this.threads = threads;
+        final AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    final Thread thread = new Thread(runnable, threadPrefix + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Применяет функцию к каждому элементу пакета в потоках пула.
+     * @param items элементы пакета.
+     * @param mapper функция обработки одного элемента.
+     * @return результаты в том же порядке, что и переданные элементы.
+     */
+    public <T, R> List<R> mapAll(List<T> items, Function<? super T, ? extends R> mapper) {
+        final int chunks = Math.min(threads, (items.size() + MIN_CHUNK_SIZE - 1) / MIN_CHUNK_SIZE);
+        if (chunks <= 1) {
+            return map(items, mapper);
+        }
+        final int chunkSize = (items.size() + chunks - 1) / chunks;
+        final List<CompletableFuture<List<R>>> futures = new ArrayList<>(chunks);
+        for (int from = 0; from < items.size(); from += chunkSize) {
+            final List<T> chunk = items.subList(from, Math.min(from + chunkSize, items.size()));
+            futures.add(CompletableFuture.supplyAsync(() -> map(chunk, mapper), executor));
+        }
+        final List<R> results = new ArrayList<>(items.size());
+        for (CompletableFuture<List<R>> future : futures) {
+            try {
+                results.addAll(future.join());
+            } catch (RuntimeException ex) {
+                throw FutureUtils.rethrow(ex);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Останавливает потоки пула.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private static <T, R> List<R> map(List<T> items, Function<? super T, ? extends R> mapper) {
+        final List<R> results = new ArrayList<>(items.size());
+        for (T item : items) {
+            results.add(mapper.apply(item));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,96 @@
+package ru.averkiev.greenchat_auth.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Класс представляет собой потокобезопасный фильтр Блума для строк. Фильтр отвечает на вопрос «строка могла быть
+ * добавлена?» без ложноотрицательных ответов и с заданной вероятностью ложноположительных, занимая около 1.2 байта
+ * на элемент при вероятности ошибки 1% и около 1.8 байта при 0.1%. Биты хранятся в AtomicLongArray, поэтому
+ * добавление и проверка выполняются без блокировок.
+ * @author mrGreenNV
+ */
+public final class BloomFilter {
+
+    private static final double LN2 = Math.log(2);
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    /**
+     * Создаёт фильтр, рассчитанный на заданное количество элементов и вероятность ложноположительного ответа.
+     * @param expectedInsertions ожидаемое количество элементов.
+     * @param falsePositiveProbability допустимая вероятность ложноположительного ответа, от 0 до 1.
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveProbability) {
+        if (expectedInsertions <= 0) {
+            throw new IllegalArgumentException("Ожидаемое количество элементов должно быть положительным");
+        }
+        if (falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+            throw new IllegalArgumentException("Вероятность ошибки должна быть в интервале (0, 1)");
+        }
+        final long requiredBits = (long) Math.ceil(
+                -expectedInsertions * Math.log(falsePositiveProbability) / (LN2 * LN2));
+        final int words = (int) Math.max(1, (requiredBits + 63) / 64);
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * LN2));
+    }
+
+    /**
+     * Добавляет строку в фильтр.
+     * @param value добавляемая строка.
+     */
+    public void put(String value) {
+        final long hash1 = hash(value, 0x9E3779B97F4A7C15L);
+        final long hash2 = hash(value, 0xC2B2AE3D27D4EB4FL);
+        for (int i = 0; i < hashCount; i++) {
+            final long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            final int word = (int) (bit >>> 6);
+            final long mask = 1L << bit;
+            long current;
+            do {
+                current = bits.get(word);
+            } while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    /**
+     * Проверяет, могла ли строка быть добавлена в фильтр.
+     * @param value проверяемая строка.
+     * @return false, если строка точно не добавлялась; true, если строка, возможно, была добавлена.
+     */
+    public boolean mightContain(String value) {
+        final long hash1 = hash(value, 0x9E3779B97F4A7C15L);
+        final long hash2 = hash(value, 0xC2B2AE3D27D4EB4FL);
+        for (int i = 0; i < hashCount; i++) {
+            final long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Возвращает размер фильтра в байтах.
+     * @return размер битового массива в байтах.
+     */
+    public long sizeInBytes() {
+        return bitCount / 8;
+    }
+
+    private static long hash(String value, long seed) {
+        long hash = seed ^ value.length();
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001B3L;
+        }
+        // Финальное перемешивание MurmurHash3 (fmix64) для равномерного распределения битов.
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,105 @@
+package ru.averkiev.greenchat_auth.utils;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Класс представляет собой часы UTC с миллисекундной точностью, текущее время которых обновляется фоновым потоком
+ * с заданным шагом. Чтение времени сводится к чтению volatile поля и не обращается к системным часам, поэтому
+ * часы подходят для частых отметок времени при выпуске и проверке токенов, где точность до секунды достаточна.
+ * @author mrGreenNV
+ */
+public final class CachedClock extends Clock implements AutoCloseable {
+
+    private final ScheduledExecutorService ticker;
+
+    private volatile long currentMillis;
+
+    /**
+     * Создаёт часы и запускает фоновый поток, обновляющий время.
+     * @param tickMillis шаг обновления времени в миллисекундах.
+     */
+    public CachedClock(long tickMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Шаг обновления часов должен быть положительным: " + tickMillis);
+        }
+        this.currentMillis = System.currentTimeMillis();
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "cached-clock");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.ticker.scheduleAtFixedRate(
+                () -> currentMillis = System.currentTimeMillis(), tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public long millis() {
+        return currentMillis;
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(currentMillis);
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return ZoneOffset.UTC;
+    }
+
+    /**
+     * Возвращает представление этих часов в другом часовом поясе, использующее то же кэшированное время.
+     */
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return ZoneOffset.UTC.equals(zone) ? this : new ZonedView(this, zone);
+    }
+
+    /**
+     * Останавливает фоновый поток обновления времени.
+     */
+    @Override
+    public void close() {
+        ticker.shutdownNow();
+    }
+
+    /**
+     * Представление кэшированных часов в заданном часовом поясе.
+     */
+    private static final class ZonedView extends Clock {
+
+        private final CachedClock source;
+        private final ZoneId zone;
+
+        private ZonedView(CachedClock source, ZoneId zone) {
+            this.source = source;
+            this.zone = zone;
+        }
+
+        @Override
+        public long millis() {
+            return source.millis();
+        }
+
+        @Override
+        public Instant instant() {
+            return source.instant();
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return zone;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return source.withZone(zone);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package ru.averkiev.greenchat_auth.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Класс представляет собой автоматический выключатель (circuit breaker) для вызовов стороннего сервиса. В состоянии
+ * CLOSED вызовы разрешены; после заданного количества ошибок подряд выключатель переходит в состояние OPEN и в
+ * течение заданного времени отклоняет вызовы без обращения к сервису. Затем он переходит в состояние HALF_OPEN и
+ * пропускает ограниченное количество пробных вызовов: успешный пробный вызов закрывает выключатель, ошибка снова
+ * открывает его.
+ * @author mrGreenNV
+ */
+public final class CircuitBreaker {
+
+    /**
+     * Состояние выключателя.
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * Обработчик смены состояния. Вызывается под блокировкой выключателя, поэтому не должен выполнять долгих
+     * операций.
+     */
+    @FunctionalInterface
+    public interface TransitionListener {
+        void onTransition(State from, State to);
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final int halfOpenProbes;
+    private final LongSupplier nanoTime;
+    private final TransitionListener listener;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtNanos;
+    private int probesInFlight;
+
+    /**
+     * @param failureThreshold количество ошибок подряд, после которого выключатель открывается.
+     * @param openMillis время в миллисекундах, в течение которого открытый выключатель отклоняет вызовы.
+     * @param halfOpenProbes количество одновременных пробных вызовов в состоянии HALF_OPEN.
+     * @param nanoTime источник монотонного времени в наносекундах.
+     * @param listener обработчик смены состояния.
+     */
+    public CircuitBreaker(int failureThreshold, long openMillis, int halfOpenProbes, LongSupplier nanoTime,
+                          TransitionListener listener) {
+        if (failureThreshold <= 0 || halfOpenProbes <= 0) {
+            throw new IllegalArgumentException("Порог ошибок и количество пробных вызовов должны быть положительными");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+        this.halfOpenProbes = halfOpenProbes;
+        this.nanoTime = nanoTime;
+        this.listener = listener;
+    }
+
+    /**
+     * Проверяет, разрешён ли вызов. Разрешённый вызов должен завершиться вызовом onSuccess() или onFailure().
+     * @return true, если вызов разрешён.
+     */
+    public synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (nanoTime.getAsLong() - openedAtNanos < openNanos) {
+                return false;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesInFlight >= halfOpenProbes) {
+                return false;
+            }
+            probesInFlight++;
+        }
+        return true;
+    }
+
+    /**
+     * Отмечает успешный вызов. Успешный пробный вызов закрывает выключатель.
+     */
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        if (state == State.HALF_OPEN) {
+            transitionTo(State.CLOSED);
+        }
+    }
+
+    /**
+     * Отмечает неудачный вызов. Ошибка пробного вызова или достижение порога ошибок открывает выключатель.
+     */
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN || (state == State.CLOSED && ++consecutiveFailures >= failureThreshold)) {
+            openedAtNanos = nanoTime.getAsLong();
+            transitionTo(State.OPEN);
+        }
+    }
+
+    /**
+     * Возвращает текущее состояние выключателя.
+     * @return состояние выключателя.
+     */
+    public synchronized State state() {
+        return state;
+    }
+
+    /**
+     * Возвращает время, оставшееся до перехода открытого выключателя в состояние HALF_OPEN.
+     * @return время в миллисекундах; 0, если выключатель не открыт.
+     */
+    public synchronized long remainingOpenMillis() {
+        if (state != State.OPEN) {
+            return 0;
+        }
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(openNanos - (nanoTime.getAsLong() - openedAtNanos)));
+    }
+
+    private void transitionTo(State next) {
+        final State previous = state;
+        state = next;
+        consecutiveFailures = 0;
+        probesInFlight = 0;
+        listener.onTransition(previous, next);
+    }
+}
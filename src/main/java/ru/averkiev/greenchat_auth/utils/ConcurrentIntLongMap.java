@@ -0,0 +1,177 @@
+package ru.averkiev.greenchat_auth.utils;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Класс представляет собой потокобезопасную хэш-таблицу с ключами int и положительными значениями long, хранящую
+ * данные в двух примитивных массивах с открытой адресацией и линейным пробированием. В отличие от
+ * ConcurrentHashMap&lt;Integer, Long&gt; не создаёт объектов на каждую запись и при чтении.
+ * Чтение выполняется без блокировки (оптимистическое чтение StampedLock) и повторяется под блокировкой чтения
+ * только при одновременной записи. Значение 0 обозначает отсутствие записи.
+ * @author mrGreenNV
+ */
+public final class ConcurrentIntLongMap {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private final StampedLock lock = new StampedLock();
+
+    /**
+     * Массивы ключей и значений заменяются вместе одной ссылкой, поэтому оптимистическое чтение всегда видит
+     * согласованную пару массивов одной длины.
+     */
+    private Table table;
+    private int size;
+
+    public ConcurrentIntLongMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Создаёт таблицу, рассчитанную на заданное количество записей без перестроения.
+     * @param expectedSize ожидаемое количество записей.
+     */
+    public ConcurrentIntLongMap(int expectedSize) {
+        this.table = new Table(capacityFor(expectedSize));
+    }
+
+    /**
+     * Возвращает значение по ключу.
+     * @param key ключ.
+     * @return значение или 0, если запись отсутствует.
+     */
+    public long get(int key) {
+        long stamp = lock.tryOptimisticRead();
+        long value = find(table, key);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                value = find(table, key);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Сохраняет значение по ключу, если оно больше текущего.
+     * @param key ключ.
+     * @param value положительное значение.
+     */
+    public void putMax(int key, long value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException("Значение должно быть положительным: " + value);
+        }
+        final long stamp = lock.writeLock();
+        try {
+            if ((size + 1) * 2 > table.keys.length) {
+                rebuild(table.keys.length * 2, 0);
+            }
+            final Table current = table;
+            final int index = slot(current, key);
+            if (current.values[index] == 0) {
+                current.keys[index] = key;
+                current.values[index] = value;
+                size++;
+            } else if (current.values[index] < value) {
+                current.values[index] = value;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Удаляет записи, значение которых меньше заданного порога.
+     * @param threshold порог значения.
+     * @return количество удалённых записей.
+     */
+    public int removeValuesBelow(long threshold) {
+        final long stamp = lock.writeLock();
+        try {
+            final int before = size;
+            rebuild(table.keys.length, threshold);
+            return before - size;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Возвращает количество записей.
+     * @return количество записей.
+     */
+    public int size() {
+        final long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private void rebuild(int capacity, long threshold) {
+        final Table oldTable = table;
+        final Table newTable = new Table(Math.max(capacity, capacityFor(size)));
+        int newSize = 0;
+        for (int i = 0; i < oldTable.keys.length; i++) {
+            final long value = oldTable.values[i];
+            if (value != 0 && value >= threshold) {
+                final int index = slot(newTable, oldTable.keys[i]);
+                newTable.keys[index] = oldTable.keys[i];
+                newTable.values[index] = value;
+                newSize++;
+            }
+        }
+        table = newTable;
+        size = newSize;
+    }
+
+    private static long find(Table table, int key) {
+        final int mask = table.keys.length - 1;
+        int index = mix(key) & mask;
+        // Число проб ограничено длиной таблицы: при оптимистическом чтении таблица может меняться.
+        for (int probes = 0; probes < table.keys.length; probes++) {
+            final long value = table.values[index];
+            if (value == 0) {
+                return 0;
+            }
+            if (table.keys[index] == key) {
+                return value;
+            }
+            index = (index + 1) & mask;
+        }
+        return 0;
+    }
+
+    private static int slot(Table table, int key) {
+        final int mask = table.keys.length - 1;
+        int index = mix(key) & mask;
+        while (table.values[index] != 0 && table.keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        final int required = Math.max(MIN_CAPACITY, expectedSize * 2);
+        return Integer.highestOneBit(required - 1) << 1;
+    }
+
+    private static int mix(int key) {
+        final int hash = key * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static final class Table {
+
+        private final int[] keys;
+        private final long[] values;
+
+        private Table(int capacity) {
+            this.keys = new int[capacity];
+            this.values = new long[capacity];
+        }
+    }
+}
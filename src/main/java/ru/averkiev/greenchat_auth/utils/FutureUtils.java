@@ -0,0 +1,46 @@
+package ru.averkiev.greenchat_auth.utils;
+
+import lombok.NoArgsConstructor;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Класс FutureUtils предоставляет утилитарные методы для работы с CompletableFuture.
+ * @author mrGreenNV
+ */
+@NoArgsConstructor
+public final class FutureUtils {
+
+    /**
+     * Возвращает исходную ошибку асинхронного вызова. CompletableFuture оборачивает ошибки зависимых этапов в
+     * CompletionException, поэтому проверку типа ошибки следует выполнять для результата этого метода.
+     * @param ex ошибка, полученная в whenComplete(), handle() или exceptionally().
+     * @return исходная ошибка.
+     */
+    public static Throwable unwrap(Throwable ex) {
+        Throwable cause = ex;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    /**
+     * Выбрасывает исходную ошибку асинхронного вызова внутри зависимого этапа. Непроверяемые исключения
+     * выбрасываются как есть, остальные - обёрнутыми в CompletionException.
+     * @param ex ошибка, полученная в handle() или exceptionally().
+     * @return не возвращает управление; тип результата позволяет писать throw FutureUtils.rethrow(ex).
+     */
+    public static RuntimeException rethrow(Throwable ex) {
+        final Throwable cause = unwrap(ex);
+        if (cause instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        throw new CompletionException(cause);
+    }
+}
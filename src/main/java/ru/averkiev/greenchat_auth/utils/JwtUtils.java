@@ -2,8 +2,16 @@ package ru.averkiev.greenchat_auth.utils;
 
 import io.jsonwebtoken.Claims;
 import lombok.NoArgsConstructor;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import ru.averkiev.greenchat_auth.security.JwtAuthentication;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
 /**
  * Класс JwtUtils предоставляет утилитарные методы для работы с JSON Web Token (JWT).
  * В данном классе реализован метод generate, который преобразует объект Claims (представление утверждений JWT) в
@@ -13,6 +21,17 @@ import ru.averkiev.greenchat_auth.security.JwtAuthentication;
 @NoArgsConstructor
 public final class JwtUtils {
 
+    /**
+     * Имя поля access токена, содержащего идентификатор пользователя.
+     */
+    public static final String USER_ID_CLAIM = "uid";
+
+    /**
+     * Имя поля access токена, содержащего время выпуска в миллисекундах. Поле iat хранит время с точностью до
+     * секунды, чего недостаточно для сравнения с эпохой отзыва.
+     */
+    public static final String ISSUED_AT_MILLIS_CLAIM = "iat_ms";
+
     /**
      * Метод generate принимает объект Claims, который содержит утверждения из JWT, и возвращает объект
      * JwtAuthentication.
@@ -22,9 +41,54 @@ public final class JwtUtils {
      */
     public static JwtAuthentication generate(Claims claims) {
         final JwtAuthentication jwtInfoToken = new JwtAuthentication();
-//        jwtInfoToken.setRoles(getRoles(claims));
+        jwtInfoToken.setRoles(getRoles(claims));
         jwtInfoToken.setFirstname(claims.get("firstname", String.class));
         jwtInfoToken.setLogin(claims.getSubject());
+        jwtInfoToken.setUserId(getUserId(claims));
+        jwtInfoToken.setTokenId(claims.getId());
+        jwtInfoToken.setIssuedAt(getIssuedAtMillis(claims));
         return jwtInfoToken;
     }
+
+    /**
+     * Метод getIssuedAtMillis извлекает время выпуска токена в миллисекундах из поля iat_ms объекта Claims, а для
+     * токенов, выпущенных без этого поля, - из поля iat.
+     *
+     * @param claims объект Claims, содержащий утверждения из JSON Web Token (JWT).
+     * @return время выпуска токена в миллисекундах или 0, если время выпуска не указано.
+     */
+    public static long getIssuedAtMillis(Claims claims) {
+        if (claims.get(ISSUED_AT_MILLIS_CLAIM) instanceof Number issuedAtMillis) {
+            return issuedAtMillis.longValue();
+        }
+        return claims.getIssuedAt() == null ? 0 : claims.getIssuedAt().getTime();
+    }
+
+    /**
+     * Метод getUserId извлекает идентификатор пользователя из поля uid объекта Claims.
+     *
+     * @param claims объект Claims, содержащий утверждения из JSON Web Token (JWT).
+     * @return идентификатор пользователя или null, если токен выпущен без поля uid.
+     */
+    public static Integer getUserId(Claims claims) {
+        return claims.get(USER_ID_CLAIM, Integer.class);
+    }
+
+    /**
+     * Метод getRoles извлекает роли пользователя из поля authorities объекта Claims. Роли хранятся в токене в том
+     * виде, в котором их сериализует jjwt: [{"authority":"ROLE_USER"}].
+     *
+     * @param claims объект Claims, содержащий утверждения из JSON Web Token (JWT).
+     * @return список ролей пользователя; пустой список, если поле authorities отсутствует.
+     */
+    public static List<SimpleGrantedAuthority> getRoles(Claims claims) {
+        if (!(claims.get("authorities") instanceof Collection<?> authorities)) {
+            return Collections.emptyList();
+        }
+        return authorities.stream()
+                .map(authority -> authority instanceof Map<?, ?> map ? map.get("authority") : authority)
+                .filter(Objects::nonNull)
+                .map(authority -> new SimpleGrantedAuthority(authority.toString()))
+                .collect(Collectors.toList());
+    }
 }
@@ -0,0 +1,110 @@
+package ru.averkiev.greenchat_auth.utils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Класс представляет собой объединение одновременных вызовов с одинаковым ключом. Первый поток выполняет вызов,
+ * а потоки, пришедшие с тем же ключом до его завершения, ожидают и получают тот же результат или то же
+ * исключение. Асинхронные вызовы объединяются так же, но без блокировки ожидающих потоков. Результат не
+ * сохраняется после завершения вызова: следующий вызов с тем же ключом выполняется заново, поэтому устаревшие
+ * данные не возвращаются.
+ * @param <K> тип ключа.
+ * @param <V> тип результата; допускается null.
+ * @author mrGreenNV
+ */
+public final class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Выполняет вызов или присоединяется к уже выполняемому вызову с тем же ключом.
+     * @param key ключ вызова.
+     * @param call вызов, выполняемый первым потоком.
+     * @return результат вызова.
+     * @throws RuntimeException исключение, выброшенное вызовом; ожидающие потоки получают тот же экземпляр.
+     */
+    public V execute(K key, Supplier<V> call) {
+        final CompletableFuture<V> created = new CompletableFuture<>();
+        final CompletableFuture<V> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+
+        final V value;
+        try {
+            value = call.get();
+        } catch (Throwable ex) {
+            inFlight.remove(key, created);
+            created.completeExceptionally(ex);
+            throw ex;
+        }
+        // Вызов удаляется до публикации результата, поэтому поток, пришедший позже, выполнит новый вызов.
+        inFlight.remove(key, created);
+        created.complete(value);
+        return value;
+    }
+
+    /**
+     * Выполняет асинхронный вызов или присоединяется к уже выполняемому вызову с тем же ключом, не блокируя
+     * вызывающий поток. Каждый вызывающий получает собственную копию результата, поэтому отмена ожидания одним
+     * вызывающим не влияет на остальных.
+     * @param key ключ вызова.
+     * @param call асинхронный вызов, выполняемый первым вызывающим.
+     * @return результат вызова.
+     */
+    public CompletableFuture<V> executeAsync(K key, Supplier<CompletableFuture<V>> call) {
+        final CompletableFuture<V> created = new CompletableFuture<>();
+        final CompletableFuture<V> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            coalesced.increment();
+            return existing.copy();
+        }
+
+        CompletableFuture<V> started;
+        try {
+            started = call.get();
+        } catch (Throwable ex) {
+            started = CompletableFuture.failedFuture(ex);
+        }
+        started.whenComplete((value, ex) -> {
+            inFlight.remove(key, created);
+            if (ex != null) {
+                created.completeExceptionally(FutureUtils.unwrap(ex));
+            } else {
+                created.complete(value);
+            }
+        });
+        return created.copy();
+    }
+
+    /**
+     * Возвращает количество вызовов, присоединившихся к уже выполняемому вызову.
+     * @return количество объединённых вызовов.
+     */
+    public long coalescedCount() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Возвращает количество выполняемых в данный момент вызовов.
+     * @return количество ключей с незавершённым вызовом.
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private static <V> V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            throw FutureUtils.rethrow(ex);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package ru.averkiev.greenchat_auth.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * Класс TokenDigest предоставляет утилитарные методы для получения SHA-256 дайджеста токена.
+ * Дайджест имеет фиксированную длину и используется вместо самого токена там, где токен служит ключом или
+ * сравнивается с сохранённым значением.
+ * @author mrGreenNV
+ */
+public final class TokenDigest {
+
+    /**
+     * Экземпляры MessageDigest не потокобезопасны, поэтому переиспользуются в пределах потока.
+     */
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("Алгоритм SHA-256 не поддерживается", ex);
+        }
+    });
+
+    private TokenDigest() {
+
+    }
+
+    /**
+     * Вычисляет SHA-256 дайджест переданного токена.
+     * @param token токен, для которого необходимо вычислить дайджест.
+     * @return массив из 32 байт, содержащий дайджест токена.
+     */
+    public static byte[] sha256(String token) {
+        final MessageDigest digest = SHA_256.get();
+        digest.reset();
+        return digest.digest(token.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Вычисляет SHA-256 дайджест переданного токена и возвращает его в виде строки Base64URL без выравнивания.
+     * @param token токен, для которого необходимо вычислить дайджест.
+     * @return строка фиксированной длины, пригодная для использования в качестве ключа.
+     */
+    public static String sha256Key(String token) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(sha256(token));
+    }
+
+    /**
+     * Проверяет, соответствует ли токен сохранённому дайджесту. Сравнение выполняется за время, не зависящее от
+     * позиции первого несовпадающего байта.
+     * @param digest сохранённый SHA-256 дайджест.
+     * @param token проверяемый токен.
+     * @return true, если дайджест токена совпадает с сохранённым.
+     */
+    public static boolean matches(byte[] digest, String token) {
+        return digest != null && token != null && MessageDigest.isEqual(digest, sha256(token));
+    }
+}
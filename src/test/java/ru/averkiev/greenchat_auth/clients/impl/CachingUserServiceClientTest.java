@@ -0,0 +1,242 @@
+package ru.averkiev.greenchat_auth.clients.impl;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import ru.averkiev.greenchat_auth.clients.AsyncUserServiceClient;
+import ru.averkiev.greenchat_auth.clients.UserServiceClient;
+import ru.averkiev.greenchat_auth.exceptions.UserServiceUnavailableException;
+import ru.averkiev.greenchat_auth.models.User;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * Тестовый класс для проверки функциональности CachingUserServiceClient. Этот класс кэширует данные
+ * пользователей, полученные от микросервиса пользователей, в том числе отсутствие пользователя.
+ */
+public class CachingUserServiceClientTest {
+
+    @Mock
+    private UserServiceClient delegate;
+
+    @Mock
+    private AsyncUserServiceClient asyncDelegate;
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private CachingUserServiceClient client;
+
+    private final User user = new User(1, "Bob_Smith", "123456", "Bob", "Smith", "bob@gmail.com", "ACTIVE",
+            List.of("ROLE_USER"));
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        client = new CachingUserServiceClient(delegate, asyncDelegate, true, 100, 60_000, 10_000, 30_000, 3_600_000,
+                1_000, nanos::get, Runnable::run);
+    }
+
+    /**
+     * Проверяет, что повторный запрос пользователя обслуживается кэшем.
+     */
+    @Test
+    public void getUserByLogin_RepeatedLookup_HitsCache() {
+        // Создание тестовых данных.
+        when(delegate.getUserByLogin("Bob_Smith")).thenReturn(user);
+
+        // Вызов тестируемого метода.
+        User first = client.getUserByLogin("Bob_Smith");
+        User second = client.getUserByLogin("Bob_Smith");
+
+        // Проверка результатов.
+        Assertions.assertSame(user, first);
+        Assertions.assertSame(user, second);
+        verify(delegate, times(1)).getUserByLogin("Bob_Smith");
+        Assertions.assertEquals(1, client.stats().hitCount());
+        Assertions.assertEquals(1, client.stats().missCount());
+    }
+
+    /**
+     * Проверяет, что неизвестный логин кэшируется на меньшее время, чем найденный пользователь.
+     */
+    @Test
+    public void getUserByLogin_UnknownLogin_CachedForNegativeTtl() {
+        // Создание тестовых данных.
+        when(delegate.getUserByLogin("unknown"))
+                .thenThrow(HttpClientErrorException.create(HttpStatus.NOT_FOUND, "Not Found", null, null, null));
+        when(delegate.getUserByLogin("empty")).thenReturn(null);
+
+        // Вызов тестируемого метода.
+        User unknown = client.getUserByLogin("unknown");
+        User empty = client.getUserByLogin("empty");
+        client.getUserByLogin("unknown");
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(11));
+        client.getUserByLogin("unknown");
+
+        // Проверка результатов.
+        Assertions.assertNull(unknown);
+        Assertions.assertNull(empty);
+        verify(delegate, times(2)).getUserByLogin("unknown");
+        verify(delegate, times(1)).getUserByLogin("empty");
+    }
+
+    /**
+     * Проверяет, что запись обновляется в фоне после refresh-after, а ошибка обновления сохраняет прежнее
+     * значение до истечения срока жизни.
+     */
+    @Test
+    public void getUserByLogin_RefreshAhead() {
+        // Создание тестовых данных.
+        User updatedUser = new User(1, "Bob_Smith", "654321", "Bob", "Smith", "bob@gmail.com", "ACTIVE",
+                List.of("ROLE_USER"));
+        when(delegate.getUserByLogin("Bob_Smith"))
+                .thenReturn(user)
+                .thenReturn(updatedUser)
+                .thenThrow(new IllegalStateException("user service unavailable"));
+
+        // Вызов тестируемого метода.
+        client.getUserByLogin("Bob_Smith");
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(31));
+        User staleWhileRefreshing = client.getUserByLogin("Bob_Smith");
+        User refreshed = client.getUserByLogin("Bob_Smith");
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(31));
+        User afterFailedRefresh = client.getUserByLogin("Bob_Smith");
+
+        // Проверка результатов.
+        Assertions.assertSame(user, staleWhileRefreshing);
+        Assertions.assertSame(updatedUser, refreshed);
+        Assertions.assertSame(updatedUser, afterFailedRefresh);
+        verify(delegate, times(3)).getUserByLogin("Bob_Smith");
+    }
+
+    /**
+     * Проверяет, что при недоступности микросервиса пользователей обновление токенов получает последние известные
+     * данные пользователя, а обычный запрос и запрос неизвестного пользователя завершаются ошибкой.
+     */
+    @Test
+    public void getUserByLoginAllowStale_ServiceUnavailable_ReturnsLastKnownUser() {
+        // Создание тестовых данных.
+        UserServiceUnavailableException unavailable =
+                new UserServiceUnavailableException("Микросервис пользователей временно недоступен", 5_000);
+        when(delegate.getUserByLogin("Bob_Smith")).thenReturn(user).thenThrow(unavailable);
+        when(delegate.getUserByLogin("Alice")).thenThrow(unavailable);
+
+        // Вызов тестируемого метода.
+        client.getUserByLogin("Bob_Smith");
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        User stale = client.getUserByLoginAllowStale("Bob_Smith");
+
+        // Проверка результатов.
+        Assertions.assertSame(user, stale);
+        Assertions.assertThrows(UserServiceUnavailableException.class, () -> client.getUserByLogin("Bob_Smith"));
+        Assertions.assertThrows(UserServiceUnavailableException.class,
+                () -> client.getUserByLoginAllowStale("Alice"));
+    }
+
+    /**
+     * Проверяет, что асинхронный запрос сохраняет результат в кэш, повторный запрос обслуживается кэшем без
+     * обращения к микросервису, а при недоступности микросервиса обновление токенов получает последние известные
+     * данные.
+     */
+    @Test
+    public void getUserByLoginAsync_SharesCacheWithSyncLookups() {
+        // Создание тестовых данных.
+        when(asyncDelegate.getUserByLoginAsync("Bob_Smith"))
+                .thenReturn(CompletableFuture.completedFuture(user))
+                .thenReturn(CompletableFuture.failedFuture(
+                        new UserServiceUnavailableException("Микросервис пользователей временно недоступен", 5_000)));
+
+        // Вызов тестируемого метода.
+        User loaded = client.getUserByLoginAsync("Bob_Smith").join();
+        User cachedAsync = client.getUserByLoginAsync("Bob_Smith").join();
+        User cachedSync = client.getUserByLogin("Bob_Smith");
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        User stale = client.getUserByLoginAllowStaleAsync("Bob_Smith").join();
+
+        // Проверка результатов.
+        Assertions.assertSame(user, loaded);
+        Assertions.assertSame(user, cachedAsync);
+        Assertions.assertSame(user, cachedSync);
+        Assertions.assertSame(user, stale);
+        verify(asyncDelegate, times(2)).getUserByLoginAsync("Bob_Smith");
+        verify(delegate, never()).getUserByLogin(anyString());
+    }
+
+    /**
+     * Проверяет, что повторный запрос в обход кэша обращается к микросервису пользователей, только если данные
+     * в кэше получены раньше заданного времени, и заменяет ими данные в кэше.
+     */
+    @Test
+    public void getUserByLoginFresh_ReloadsOnlyAfterRecheckInterval() {
+        // Создание тестовых данных.
+        User changedPassword = new User(1, "Bob_Smith", "654321", "Bob", "Smith", "bob@gmail.com", "ACTIVE",
+                List.of("ROLE_USER"));
+        when(delegate.getUserByLogin("Bob_Smith")).thenReturn(user, changedPassword);
+
+        // Вызов тестируемого метода.
+        client.getUserByLogin("Bob_Smith");
+        User justLoaded = client.getUserByLoginFresh("Bob_Smith");
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        User reloaded = client.getUserByLoginFresh("Bob_Smith");
+
+        // Проверка результатов.
+        Assertions.assertEquals("123456", justLoaded.getPassword());
+        Assertions.assertEquals("654321", reloaded.getPassword());
+        Assertions.assertEquals("654321", client.getUserByLogin("Bob_Smith").getPassword());
+        verify(delegate, times(2)).getUserByLogin("Bob_Smith");
+    }
+
+    /**
+     * Проверяет, что асинхронный повторный запрос в обход кэша обращается к микросервису пользователей асинхронным
+     * клиентом, только если данные в кэше получены раньше заданного времени.
+     */
+    @Test
+    public void getUserByLoginFreshAsync_ReloadsOnlyAfterRecheckInterval() {
+        // Создание тестовых данных.
+        User changedPassword = new User(1, "Bob_Smith", "654321", "Bob", "Smith", "bob@gmail.com", "ACTIVE",
+                List.of("ROLE_USER"));
+        when(asyncDelegate.getUserByLoginAsync("Bob_Smith"))
+                .thenReturn(CompletableFuture.completedFuture(user))
+                .thenReturn(CompletableFuture.completedFuture(changedPassword));
+
+        // Вызов тестируемого метода.
+        client.getUserByLoginAsync("Bob_Smith").join();
+        User justLoaded = client.getUserByLoginFreshAsync("Bob_Smith").join();
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        User reloaded = client.getUserByLoginFreshAsync("Bob_Smith").join();
+
+        // Проверка результатов.
+        Assertions.assertEquals("123456", justLoaded.getPassword());
+        Assertions.assertEquals("654321", reloaded.getPassword());
+        Assertions.assertEquals("654321", client.getUserByLogin("Bob_Smith").getPassword());
+        verify(asyncDelegate, times(2)).getUserByLoginAsync("Bob_Smith");
+        verify(delegate, never()).getUserByLogin(anyString());
+    }
+
+    /**
+     * Проверяет, что выключенный кэш передаёт каждый запрос микросервису пользователей.
+     */
+    @Test
+    public void getUserByLogin_CacheDisabled_AlwaysDelegates() {
+        // Создание тестовых данных.
+        CachingUserServiceClient disabledClient = new CachingUserServiceClient(delegate, asyncDelegate, false, 100,
+                60_000, 10_000, 30_000, 3_600_000, 1_000, nanos::get, Runnable::run);
+        when(delegate.getUserByLogin("Bob_Smith")).thenReturn(user);
+
+        // Вызов тестируемого метода.
+        disabledClient.getUserByLogin("Bob_Smith");
+        disabledClient.getUserByLogin("Bob_Smith");
+
+        // Проверка результатов.
+        verify(delegate, times(2)).getUserByLogin("Bob_Smith");
+    }
+}
@@ -0,0 +1,120 @@
+package ru.averkiev.greenchat_auth.clients.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.averkiev.greenchat_auth.exceptions.UserServiceUnavailableException;
+import ru.averkiev.greenchat_auth.models.User;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Тестовый класс для проверки функциональности HttpAsyncUserServiceClient. Вместо микросервиса пользователей
+ * используется HTTP-сервер в том же процессе.
+ */
+public class HttpAsyncUserServiceClientTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private HttpServer server;
+    private HttpAsyncUserServiceClient client;
+
+    private final User user = new User(1, "Bob_Smith", "123456", "Bob", "Smith", "bob@gmail.com", "ACTIVE",
+            List.of("ROLE_USER"));
+
+    @BeforeEach
+    public void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/users/", exchange -> {
+            requests.incrementAndGet();
+            String login = exchange.getRequestURI().getPath().substring("/users/".length());
+            int status = 200;
+            byte[] body = new byte[0];
+            switch (login) {
+                case "Bob_Smith" -> body = objectMapper.writeValueAsBytes(user);
+                case "slow" -> {
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                    body = objectMapper.writeValueAsBytes(user);
+                }
+                case "broken" -> status = 500;
+                default -> status = 404;
+            }
+            exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        client = new HttpAsyncUserServiceClient(objectMapper,
+                "http://localhost:" + server.getAddress().getPort() + "/users/{username}", 1_000, 3_000, 2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        release.countDown();
+        client.close();
+        server.stop(0);
+    }
+
+    /**
+     * Проверяет получение пользователя и обработку ответа 404.
+     */
+    @Test
+    public void getUserByLoginAsync_FoundAndNotFound() {
+        // Вызов тестируемого метода.
+        User found = client.getUserByLoginAsync("Bob_Smith").join();
+        User notFound = client.getUserByLoginAsync("unknown").join();
+
+        // Проверка результатов.
+        Assertions.assertEquals(user, found);
+        Assertions.assertNull(notFound);
+    }
+
+    /**
+     * Проверяет, что ответ 5xx завершает результат исключением UserServiceUnavailableException.
+     */
+    @Test
+    public void getUserByLoginAsync_ServerError_CompletesWithUnavailable() {
+        // Вызов тестируемого метода.
+        CompletionException exception = Assertions.assertThrows(CompletionException.class,
+                () -> client.getUserByLoginAsync("broken").join());
+
+        // Проверка результатов.
+        Assertions.assertInstanceOf(UserServiceUnavailableException.class, exception.getCause());
+    }
+
+    /**
+     * Проверяет, что вызывающий поток не блокируется до получения ответа.
+     */
+    @Test
+    public void getUserByLoginAsync_SlowResponse_DoesNotBlockCaller() {
+        // Вызов тестируемого метода.
+        CompletableFuture<User> result = client.getUserByLoginAsync("slow");
+        boolean doneBeforeResponse = result.isDone();
+        release.countDown();
+
+        // Проверка результатов.
+        Assertions.assertFalse(doneBeforeResponse);
+        Assertions.assertEquals(user, result.join());
+        Assertions.assertEquals(1, requests.get());
+    }
+}
@@ -0,0 +1,247 @@
+package ru.averkiev.greenchat_auth.clients.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import ru.averkiev.greenchat_auth.clients.AsyncUserServiceClient;
+import ru.averkiev.greenchat_auth.clients.UserServiceClient;
+import ru.averkiev.greenchat_auth.exceptions.UserServiceUnavailableException;
+import ru.averkiev.greenchat_auth.models.User;
+import ru.averkiev.greenchat_auth.utils.CircuitBreaker;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * Тестовый класс для проверки функциональности ResilientUserServiceClient. Этот класс ограничивает количество
+ * одновременных запросов к микросервису пользователей и отклоняет запросы при открытом выключателе.
+ */
+public class ResilientUserServiceClientTest {
+
+    @Mock
+    private UserServiceClient delegate;
+
+    @Mock
+    private AsyncUserServiceClient asyncDelegate;
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    private ResilientUserServiceClient client;
+
+    private final User user = new User(1, "Bob_Smith", "123456", "Bob", "Smith", "bob@gmail.com", "ACTIVE",
+            List.of("ROLE_USER"));
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        client = new ResilientUserServiceClient(delegate, asyncDelegate, meterRegistry, 2, 5_000, 1, 1, 0, nanos::get);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Проверяет, что после серии ошибок запросы отклоняются без обращения к микросервису, а после истечения
+     * времени открытого состояния успешный пробный запрос закрывает выключатель.
+     */
+    @Test
+    public void getUserByLogin_RepeatedFailures_OpenBreakerAndProbe() {
+        // Создание тестовых данных.
+        when(delegate.getUserByLogin("Bob_Smith"))
+                .thenThrow(new ResourceAccessException("Read timed out"))
+                .thenThrow(new ResourceAccessException("Read timed out"))
+                .thenReturn(user);
+
+        // Вызов тестируемого метода.
+        Assertions.assertThrows(UserServiceUnavailableException.class, () -> client.getUserByLogin("Bob_Smith"));
+        Assertions.assertThrows(UserServiceUnavailableException.class, () -> client.getUserByLogin("Bob_Smith"));
+        UserServiceUnavailableException rejected = Assertions.assertThrows(UserServiceUnavailableException.class,
+                () -> client.getUserByLogin("Bob_Smith"));
+        CircuitBreaker.State stateWhileOpen = client.state();
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        User probed = client.getUserByLogin("Bob_Smith");
+
+        // Проверка результатов.
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, stateWhileOpen);
+        Assertions.assertEquals(5_000, rejected.getRetryAfterMillis());
+        Assertions.assertSame(user, probed);
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, client.state());
+        verify(delegate, times(3)).getUserByLogin("Bob_Smith");
+        Assertions.assertEquals(1, meterRegistry.get("user-service.rejected")
+                .tag("reason", "circuit_open").counter().count());
+        Assertions.assertEquals(1, meterRegistry.get("user-service.breaker.transitions")
+                .tag("from", "CLOSED").tag("to", "OPEN").counter().count());
+    }
+
+    /**
+     * Проверяет, что ответ 404 передаётся вызывающему и не открывает выключатель.
+     */
+    @Test
+    public void getUserByLogin_NotFound_NotCountedAsFailure() {
+        // Создание тестовых данных.
+        when(delegate.getUserByLogin("unknown"))
+                .thenThrow(HttpClientErrorException.create(HttpStatus.NOT_FOUND, "Not Found", null, null, null));
+
+        // Вызов тестируемого метода.
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertThrows(HttpClientErrorException.NotFound.class, () -> client.getUserByLogin("unknown"));
+        }
+
+        // Проверка результатов.
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, client.state());
+        verify(delegate, times(3)).getUserByLogin("unknown");
+    }
+
+    /**
+     * Проверяет, что ответ 429 считается ошибкой микросервиса и открывает выключатель.
+     */
+    @Test
+    public void getUserByLogin_TooManyRequests_CountedAsFailure() {
+        // Создание тестовых данных.
+        when(delegate.getUserByLogin("Bob_Smith")).thenThrow(HttpClientErrorException.create(
+                HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests", null, null, null));
+
+        // Вызов тестируемого метода.
+        for (int i = 0; i < 2; i++) {
+            Assertions.assertThrows(UserServiceUnavailableException.class, () -> client.getUserByLogin("Bob_Smith"));
+        }
+
+        // Проверка результатов.
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, client.state());
+        verify(delegate, times(2)).getUserByLogin("Bob_Smith");
+    }
+
+    /**
+     * Проверяет, что запрос другого логина сверх ограничения количества одновременных запросов отклоняется сразу.
+     */
+    @Test
+    public void getUserByLogin_BulkheadFull_RejectsImmediately() throws Exception {
+        // Создание тестовых данных.
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.getUserByLogin("Bob_Smith")).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return user;
+        });
+
+        // Вызов тестируемого метода.
+        Future<User> inFlight = executor.submit(() -> client.getUserByLogin("Bob_Smith"));
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+        Assertions.assertThrows(UserServiceUnavailableException.class, () -> client.getUserByLogin("Alice"));
+        release.countDown();
+
+        // Проверка результатов.
+        Assertions.assertSame(user, inFlight.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, meterRegistry.get("user-service.rejected")
+                .tag("reason", "bulkhead_full").counter().count());
+        Assertions.assertEquals(1, meterRegistry.get("user-service.bulkhead.available").gauge().value());
+        verify(delegate, times(1)).getUserByLogin("Bob_Smith");
+        verify(delegate, never()).getUserByLogin("Alice");
+    }
+
+    /**
+     * Проверяет, что одновременные запросы одного логина объединяются до ограничения количества одновременных
+     * запросов: ожидающий запрос не занимает место и не отклоняется, а микросервис вызывается один раз.
+     */
+    @Test
+    public void getUserByLogin_ConcurrentLookups_CoalescedBeforeBulkhead() throws Exception {
+        // Создание тестовых данных.
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.getUserByLogin("Bob_Smith")).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return user;
+        });
+
+        // Вызов тестируемого метода.
+        Future<User> first = executor.submit(() -> client.getUserByLogin("Bob_Smith"));
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<User> second = executor.submit(() -> client.getUserByLogin("Bob_Smith"));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (client.coalescedCount() < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+
+        // Проверка результатов.
+        Assertions.assertSame(user, first.get(5, TimeUnit.SECONDS));
+        Assertions.assertSame(user, second.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, client.coalescedCount());
+        Assertions.assertEquals(0, meterRegistry.get("user-service.rejected")
+                .tag("reason", "bulkhead_full").counter().count());
+        Assertions.assertEquals(1, meterRegistry.get("user-service.coalesced").functionCounter().count());
+        verify(delegate, times(1)).getUserByLogin("Bob_Smith");
+    }
+
+    /**
+     * Проверяет, что одновременные асинхронные запросы одного логина занимают одно место в ограничении
+     * количества одновременных запросов и приводят к одному вызову микросервиса.
+     */
+    @Test
+    public void getUserByLoginAsync_ConcurrentLookups_CoalescedBeforeBulkhead() {
+        // Создание тестовых данных.
+        CompletableFuture<User> response = new CompletableFuture<>();
+        when(asyncDelegate.getUserByLoginAsync("Bob_Smith")).thenReturn(response);
+
+        // Вызов тестируемого метода.
+        CompletableFuture<User> first = client.getUserByLoginAsync("Bob_Smith");
+        CompletableFuture<User> second = client.getUserByLoginAsync("Bob_Smith");
+        response.complete(user);
+
+        // Проверка результатов.
+        Assertions.assertSame(user, first.join());
+        Assertions.assertSame(user, second.join());
+        Assertions.assertEquals(1, meterRegistry.get("user-service.async.coalesced").functionCounter().count());
+        Assertions.assertEquals(1, meterRegistry.get("user-service.bulkhead.available").gauge().value());
+        verify(asyncDelegate, times(1)).getUserByLoginAsync("Bob_Smith");
+    }
+
+    /**
+     * Проверяет, что асинхронные запросы учитываются общим выключателем и после серии ошибок отклоняются без
+     * обращения к микросервису, а место в ограничении одновременных запросов освобождается по завершении запроса.
+     */
+    @Test
+    public void getUserByLoginAsync_RepeatedFailures_OpenSharedBreaker() {
+        // Создание тестовых данных.
+        when(asyncDelegate.getUserByLoginAsync("Bob_Smith"))
+                .thenReturn(CompletableFuture.failedFuture(new UserServiceUnavailableException("503", 0)));
+
+        // Вызов тестируемого метода.
+        for (int i = 0; i < 2; i++) {
+            CompletionException failed = Assertions.assertThrows(CompletionException.class,
+                    () -> client.getUserByLoginAsync("Bob_Smith").join());
+            Assertions.assertInstanceOf(UserServiceUnavailableException.class, failed.getCause());
+        }
+        CompletableFuture<User> rejected = client.getUserByLoginAsync("Bob_Smith");
+
+        // Проверка результатов.
+        Assertions.assertTrue(rejected.isCompletedExceptionally());
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, client.state());
+        Assertions.assertThrows(UserServiceUnavailableException.class, () -> client.getUserByLogin("Bob_Smith"));
+        verify(asyncDelegate, times(2)).getUserByLoginAsync("Bob_Smith");
+        verifyNoInteractions(delegate);
+        Assertions.assertEquals(1, meterRegistry.get("user-service.bulkhead.available").gauge().value());
+    }
+}
@@ -0,0 +1,47 @@
+package ru.averkiev.greenchat_auth.configs;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Тестовый класс для проверки функциональности ReadWriteRoutingDataSource. Этот класс направляет соединения
+ * read-only транзакций на реплику, а остальные - на основной сервер базы данных.
+ */
+public class ReadWriteRoutingDataSourceTest {
+
+    @AfterEach
+    public void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    /**
+     * Проверяет выбор источника данных по признаку read-only текущей транзакции.
+     */
+    @Test
+    public void getConnection_RoutesByTransactionReadOnlyFlag() throws SQLException {
+        // Создание тестовых данных.
+        DataSource primary = Mockito.mock(DataSource.class);
+        DataSource replica = Mockito.mock(DataSource.class);
+        Connection primaryConnection = Mockito.mock(Connection.class);
+        Connection replicaConnection = Mockito.mock(Connection.class);
+        Mockito.when(primary.getConnection()).thenReturn(primaryConnection);
+        Mockito.when(replica.getConnection()).thenReturn(replicaConnection);
+        ReadWriteRoutingDataSource routingDataSource = new ReadWriteRoutingDataSource(primary, replica);
+
+        // Вызов тестируемого метода.
+        Connection writeConnection = routingDataSource.getConnection();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        Connection readConnection = routingDataSource.getConnection();
+
+        // Проверка результатов.
+        Assertions.assertSame(primaryConnection, writeConnection);
+        Assertions.assertSame(replicaConnection, readConnection);
+    }
+}
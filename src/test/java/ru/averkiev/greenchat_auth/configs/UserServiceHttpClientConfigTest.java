@@ -0,0 +1,113 @@
+package ru.averkiev.greenchat_auth.configs;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+
+/**
+ * Тестовый класс для проверки функциональности UserServiceHttpClientConfig и DeadlineClientHttpRequestFactory.
+ * Вместо микросервиса пользователей используется HTTP-сервер в том же процессе, который медленно отдаёт ответ
+ * по частям.
+ */
+public class UserServiceHttpClientConfigTest {
+
+    private final UserServiceHttpClientConfig config = new UserServiceHttpClientConfig();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private HttpServer server;
+    private PoolingHttpClientConnectionManager connectionManager;
+    private DeadlineClientHttpRequestFactory requestFactory;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/fast", exchange -> {
+            byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.createContext("/trickle", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                for (int i = 0; i < 20; i++) {
+                    out.write('.');
+                    out.flush();
+                    Thread.sleep(100);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (IOException ignored) {
+                // Клиент закрыл соединение по истечении общего времени запроса.
+            }
+        });
+        server.start();
+        connectionManager = config.userServiceConnectionManager(meterRegistry, 4, 2, 1_000, 1_000, 60_000, 2_000);
+        requestFactory = config.userServiceRequestFactory(connectionManager, 500, 1_000, 500, 30_000);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        requestFactory.destroy();
+        server.stop(0);
+    }
+
+    /**
+     * Проверяет, что соединение возвращается в пул после запроса, метрики пула отражают его состояние, а отмена
+     * завершённых запросов снимается и не остаётся в очереди до истечения общего времени запроса.
+     */
+    @Test
+    public void restTemplate_ReusesPooledConnection() {
+        // Создание тестовых данных.
+        RestTemplate restTemplate = config.restTemplate(requestFactory);
+
+        // Вызов тестируемого метода.
+        String first = restTemplate.getForObject(url("/fast"), String.class);
+        String second = restTemplate.getForObject(url("/fast"), String.class);
+
+        // Проверка результатов.
+        Assertions.assertEquals("ok", first);
+        Assertions.assertEquals("ok", second);
+        Assertions.assertEquals(0, meterRegistry.get("user-service.http.pool.leased").gauge().value());
+        Assertions.assertEquals(1, meterRegistry.get("user-service.http.pool.available").gauge().value());
+        Assertions.assertEquals(4, meterRegistry.get("user-service.http.pool.max").gauge().value());
+        Assertions.assertEquals(0, requestFactory.pendingDeadlines());
+    }
+
+    /**
+     * Проверяет, что ответ, который приходит по частям быстрее таймаута чтения, прерывается по истечении общего
+     * времени запроса.
+     */
+    @Test
+    public void restTemplate_SlowResponse_AbortedByRequestTimeout() {
+        // Создание тестовых данных.
+        RestTemplate restTemplate = config.restTemplate(requestFactory);
+        long startedAt = System.nanoTime();
+
+        // Вызов тестируемого метода и проверка результатов.
+        Assertions.assertThrows(ResourceAccessException.class,
+                () -> restTemplate.getForObject(url("/trickle"), String.class));
+        long elapsedMillis = (System.nanoTime() - startedAt) / 1_000_000;
+        Assertions.assertTrue(elapsedMillis < 1_500, "Запрос выполнялся " + elapsedMillis + " мс");
+        Assertions.assertEquals(0, meterRegistry.get("user-service.http.pool.leased").gauge().value());
+        Assertions.assertEquals(0, requestFactory.pendingDeadlines());
+    }
+
+    private String url(String path) {
+        return "http://localhost:" + server.getAddress().getPort() + path;
+    }
+}
@@ -10,15 +10,30 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.MediaType;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import ru.averkiev.greenchat_auth.models.JwtIntrospectionResponse;
 import ru.averkiev.greenchat_auth.models.JwtRequest;
+import ru.averkiev.greenchat_auth.models.JwtRequestBatchValidate;
+import ru.averkiev.greenchat_auth.models.JwtRequestIntrospect;
 import ru.averkiev.greenchat_auth.models.JwtRequestRefresh;
 import ru.averkiev.greenchat_auth.models.JwtResponse;
+import ru.averkiev.greenchat_auth.models.JwtValidationResult;
 import ru.averkiev.greenchat_auth.services.impl.AuthServiceImpl;
 
+import java.time.Clock;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
 import static org.mockito.ArgumentMatchers.any;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -35,6 +50,9 @@ public class AuthControllerTest {
     @Mock
     private AuthServiceImpl authService;
 
+    @Mock
+    private Clock clock;
+
     @InjectMocks
     private AuthController authController;
 
@@ -58,11 +76,13 @@ public class AuthControllerTest {
         when(authService.login(any(JwtRequest.class))).thenReturn(jwtResponse);
 
         // Вызов тестируемого метода.
-        authController.login(jwtRequest);
-
-        mockMvc.perform(post("/greenchat/auth/login")
+        MvcResult mvcResult = mockMvc.perform(post("/greenchat/auth-service/v1/login")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(jwtRequest)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$.accessToken").value("access_token"))
@@ -71,7 +91,37 @@ public class AuthControllerTest {
         );
 
         // Проверка результатов.
-        verify(authService).login(jwtRequest);
+        verify(authService).login(any(JwtRequest.class));
+    }
+
+    /**
+     * Проверяет, что при включённом асинхронном режиме вход выполняется через AuthService.loginAsync, а ответ
+     * отправляется после завершения асинхронного запроса.
+     */
+    @Test
+    public void testLoginAsyncEnabled() throws Exception {
+        // Создание тестовых данных.
+        authController.asyncEnabled = true;
+        JwtRequest jwtRequest = new JwtRequest("test_user", "testPassword");
+        CompletableFuture<JwtResponse> pending = new CompletableFuture<>();
+
+        when(authService.loginAsync(any(JwtRequest.class))).thenReturn(pending);
+
+        // Вызов тестируемого метода.
+        MvcResult mvcResult = mockMvc.perform(post("/greenchat/auth-service/v1/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(jwtRequest)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        pending.complete(new JwtResponse("access_token", "refresh_token"));
+
+        // Проверка результатов.
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accessToken").value("access_token"))
+                .andExpect(jsonPath("$.refreshToken").value("refresh_token"));
+        verify(authService).loginAsync(any(JwtRequest.class));
+        verify(authService, never()).login(any());
     }
 
     /**
@@ -88,9 +138,13 @@ public class AuthControllerTest {
         when(authService.getAccessToken(jwtRequestRefresh.getRefreshToken())).thenReturn(jwtResponse);
 
         // Вызов тестируемого метода.
-        mockMvc.perform(post("/greenchat/auth/token")
+        MvcResult mvcResult = mockMvc.perform(post("/greenchat/auth-service/v1/token")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(jwtRequestRefresh)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$.accessToken").value("access_token"))
@@ -115,9 +169,13 @@ public class AuthControllerTest {
         when(authService.refresh(jwtRequestRefresh.getRefreshToken())).thenReturn(jwtResponse);
 
         // Вызов тестируемого метода.
-        mockMvc.perform(post("/greenchat/auth/refresh")
+        MvcResult mvcResult = mockMvc.perform(post("/greenchat/auth-service/v1/refresh")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(jwtRequestRefresh)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$.accessToken").value("test_access_token"))
                 .andExpect(jsonPath("$.refreshToken").value("test_refresh_token")
@@ -126,4 +184,151 @@ public class AuthControllerTest {
         // Проверка результатов.
         verify(authService).refresh(jwtRequestRefresh.getRefreshToken());
     }
-}
\ No newline at end of file
+
+    /**
+     * Проверяет получение набора открытых ключей.
+     * Ожидается успешный ответ с заголовками Cache-Control и ETag.
+     */
+    @Test
+    public void testGetJwks() throws Exception {
+        // Создание тестовых данных.
+        authController.jwksMaxAgeInSeconds = 600;
+        when(authService.getJwks()).thenReturn(Map.of("keys", List.of(Map.of("kid", "access-1"))));
+        when(authService.getJwksETag()).thenReturn("\"jwks\"");
+
+        // Вызов тестируемого метода.
+        mockMvc.perform(get("/greenchat/auth-service/v1/.well-known/jwks.json"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "max-age=600, public"))
+                .andExpect(header().string("ETag", "\"jwks\""))
+                .andExpect(jsonPath("$.keys[0].kid").value("access-1"));
+
+        // Проверка результатов.
+        verify(authService).getJwks();
+    }
+
+    /**
+     * Проверяет пакетную проверку refresh токенов.
+     * Ожидается успешный ответ с результатом для каждого токена.
+     */
+    @Test
+    public void testValidateBatch() throws Exception {
+        // Создание тестовых данных.
+        authController.maxBatchSize = 10;
+        JwtRequestBatchValidate request = new JwtRequestBatchValidate();
+        request.setRefreshTokens(List.of("valid_token", "invalid_token"));
+        when(authService.validateAll(List.of("valid_token", "invalid_token"))).thenReturn(List.of(
+                JwtValidationResult.valid("test_user", new Date(1000)),
+                JwtValidationResult.invalid("Некорректный JWT")
+        ));
+
+        // Вызов тестируемого метода.
+        mockMvc.perform(post("/greenchat/auth-service/v1/validate/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].valid").value(true))
+                .andExpect(jsonPath("$[0].subject").value("test_user"))
+                .andExpect(jsonPath("$[0].expiresAt").value(1000))
+                .andExpect(jsonPath("$[1].valid").value(false))
+                .andExpect(jsonPath("$[1].error").value("Некорректный JWT"));
+
+        // Проверка результатов.
+        verify(authService).validateAll(List.of("valid_token", "invalid_token"));
+    }
+
+    /**
+     * Проверяет отклонение запроса пакетной проверки, превышающего допустимое количество токенов.
+     */
+    @Test
+    public void testValidateBatch_TooManyTokens() {
+        // Создание тестовых данных.
+        authController.maxBatchSize = 1;
+        JwtRequestBatchValidate request = new JwtRequestBatchValidate();
+        request.setRefreshTokens(List.of("first_token", "second_token"));
+
+        // Проверка результатов.
+        assertThrows(IllegalArgumentException.class, () -> authController.validateBatch(request));
+        verify(authService, never()).validateAll(any());
+    }
+
+    /**
+     * Проверяет интроспекцию действительного токена.
+     * Ожидается ответ со сведениями о токене и max-age, равным оставшемуся сроку действия токена.
+     */
+    @Test
+    public void testIntrospect_ActiveToken() throws Exception {
+        // Создание тестовых данных.
+        authController.accessExpirationInMinutes = 15;
+        JwtRequestIntrospect request = new JwtRequestIntrospect();
+        request.setToken("access_token");
+        when(authService.introspect("access_token", null)).thenReturn(
+                JwtIntrospectionResponse.active("access_token", "test_user", 2000, List.of("ROLE_USER")));
+        when(clock.millis()).thenReturn(1_400_000L);
+
+        // Вызов тестируемого метода.
+        mockMvc.perform(post("/greenchat/auth-service/v1/introspect")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "max-age=600, private"))
+                .andExpect(jsonPath("$.active").value(true))
+                .andExpect(jsonPath("$.token_type").value("access_token"))
+                .andExpect(jsonPath("$.sub").value("test_user"))
+                .andExpect(jsonPath("$.exp").value(2000))
+                .andExpect(jsonPath("$.authorities[0]").value("ROLE_USER"));
+
+        // Проверка результатов.
+        verify(authService).introspect("access_token", null);
+    }
+
+    /**
+     * Проверяет интроспекцию действительного refresh токена.
+     * Ожидается max-age, ограниченный сроком действия access токена.
+     */
+    @Test
+    public void testIntrospect_RefreshToken_MaxAgeCappedAtAccessLifetime() throws Exception {
+        // Создание тестовых данных.
+        authController.accessExpirationInMinutes = 5;
+        JwtRequestIntrospect request = new JwtRequestIntrospect();
+        request.setToken("refresh_token");
+        when(authService.introspect("refresh_token", null)).thenReturn(
+                JwtIntrospectionResponse.active("refresh_token", "test_user", 605_000, List.of()));
+        when(clock.millis()).thenReturn(5_000_000L);
+
+        // Вызов тестируемого метода.
+        mockMvc.perform(post("/greenchat/auth-service/v1/introspect")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "max-age=300, private"))
+                .andExpect(jsonPath("$.token_type").value("refresh_token"));
+
+        // Проверка результатов.
+        verify(authService).introspect("refresh_token", null);
+    }
+
+    /**
+     * Проверяет интроспекцию недействительного токена.
+     * Ожидается успешный ответ с active = false, который запрещено кэшировать.
+     */
+    @Test
+    public void testIntrospect_InactiveToken() throws Exception {
+        // Создание тестовых данных.
+        JwtRequestIntrospect request = new JwtRequestIntrospect();
+        request.setToken("invalid_token");
+        when(authService.introspect("invalid_token", null)).thenReturn(JwtIntrospectionResponse.inactive());
+
+        // Вызов тестируемого метода.
+        mockMvc.perform(post("/greenchat/auth-service/v1/introspect")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "no-store"))
+                .andExpect(jsonPath("$.active").value(false))
+                .andExpect(jsonPath("$.sub").doesNotExist());
+
+        // Проверка результатов.
+        verify(authService).introspect("invalid_token", null);
+    }
+}
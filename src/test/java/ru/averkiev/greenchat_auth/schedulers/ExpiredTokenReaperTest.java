@@ -0,0 +1,112 @@
+package ru.averkiev.greenchat_auth.schedulers;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import ru.averkiev.greenchat_auth.repositories.AccessTokenRepository;
+import ru.averkiev.greenchat_auth.repositories.RefreshTokenRepository;
+import ru.averkiev.greenchat_auth.repositories.RevokedTokenRepository;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Date;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Тестовый класс для проверки функциональности ExpiredTokenReaper. Этот класс удаляет токены с истёкшим сроком
+ * действия пачками ограниченного размера.
+ */
+public class ExpiredTokenReaperTest {
+
+    private static final Instant NOW = Instant.parse("2023-09-20T12:00:00Z");
+
+    @Mock
+    private AccessTokenRepository accessTokenRepository;
+
+    @Mock
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Mock
+    private RevokedTokenRepository revokedTokenRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    /**
+     * Проверяет, что пачки удаляются, пока очередная пачка заполнена целиком, а количество удалённых записей
+     * публикуется в метриках.
+     */
+    @Test
+    public void purgeExpired_DeletesBatchesUntilPartialBatch() {
+        // Создание тестовых данных.
+        ExpiredTokenReaper reaper = new ExpiredTokenReaper(accessTokenRepository, refreshTokenRepository,
+                revokedTokenRepository, meterRegistry, Clock.fixed(NOW, ZoneOffset.UTC), 100, 30_000);
+        when(accessTokenRepository.deleteExpiredBatch(any(Date.class), eq(100))).thenReturn(100, 100, 7);
+        when(refreshTokenRepository.deleteExpiredBatch(any(Date.class), eq(100))).thenReturn(3);
+        when(revokedTokenRepository.deleteExpiredBatch(any(Date.class), eq(100))).thenReturn(5);
+
+        // Вызов тестируемого метода.
+        int purged = reaper.purgeExpired();
+
+        // Проверка результатов.
+        Assertions.assertEquals(215, purged);
+        verify(accessTokenRepository, times(3)).deleteExpiredBatch(Date.from(NOW), 100);
+        verify(refreshTokenRepository, times(1)).deleteExpiredBatch(Date.from(NOW), 100);
+        Assertions.assertEquals(207, meterRegistry.get("jwt.reaper.purged")
+                .tag("table", "access_tokens").counter().count());
+        Assertions.assertEquals(3, meterRegistry.get("jwt.reaper.purged")
+                .tag("table", "refresh_tokens").counter().count());
+        Assertions.assertEquals(5, meterRegistry.get("jwt.reaper.purged")
+                .tag("table", "revoked_tokens").counter().count());
+        Assertions.assertEquals(1, meterRegistry.get("jwt.reaper.duration").timer().count());
+    }
+
+    /**
+     * Проверяет, что по истечении максимального времени запуска удаление прекращается после текущей пачки.
+     */
+    @Test
+    public void purgeExpired_StopsWhenMaxRuntimeExceeded() {
+        // Создание тестовых данных.
+        ExpiredTokenReaper reaper = new ExpiredTokenReaper(accessTokenRepository, refreshTokenRepository,
+                revokedTokenRepository, meterRegistry, Clock.fixed(NOW, ZoneOffset.UTC), 100, 0);
+        when(accessTokenRepository.deleteExpiredBatch(any(Date.class), anyInt())).thenReturn(100);
+        when(refreshTokenRepository.deleteExpiredBatch(any(Date.class), anyInt())).thenReturn(100);
+
+        // Вызов тестируемого метода.
+        int purged = reaper.purgeExpired();
+
+        // Проверка результатов.
+        Assertions.assertEquals(200, purged);
+        verify(accessTokenRepository, times(1)).deleteExpiredBatch(any(Date.class), anyInt());
+        verify(refreshTokenRepository, times(1)).deleteExpiredBatch(any(Date.class), anyInt());
+    }
+
+    /**
+     * Проверяет, что ошибка базы данных при запуске по расписанию не пробрасывается в планировщик.
+     */
+    @Test
+    public void scheduledPurge_RepositoryFailure_DoesNotThrow() {
+        // Создание тестовых данных.
+        ExpiredTokenReaper reaper = new ExpiredTokenReaper(accessTokenRepository, refreshTokenRepository,
+                revokedTokenRepository, meterRegistry, Clock.fixed(NOW, ZoneOffset.UTC), 100, 30_000);
+        when(accessTokenRepository.deleteExpiredBatch(any(Date.class), anyInt()))
+                .thenThrow(new RuntimeException("connection refused"));
+
+        // Вызов тестируемого метода и проверка результатов.
+        Assertions.assertDoesNotThrow(reaper::scheduledPurge);
+        verify(refreshTokenRepository, never()).deleteExpiredBatch(any(Date.class), anyInt());
+    }
+}
@@ -0,0 +1,118 @@
+package ru.averkiev.greenchat_auth.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.averkiev.greenchat_auth.models.JwtUser;
+import ru.averkiev.greenchat_auth.models.JwtUserFactory;
+import ru.averkiev.greenchat_auth.models.User;
+import ru.averkiev.greenchat_auth.utils.JwtUtils;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH сравнение подписи и проверки access токенов через jjwt и через быстрый путь HmacJwtCodec, который
+ * использует JwtProvider для HMAC ключей. Тело токена в signJjwt совпадает с телом, которое выпускает
+ * JwtProvider.generateAccessToken. Не является тестом и не запускается при mvn test.
+ * Запуск: mvn test-compile, затем метод main этого класса с test classpath проекта.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HmacJwtCodecBenchmark {
+
+    private static final String JWT_ACCESS_SECRET =
+            "and0QWNjZXNzVG9rZW5qd3RBY2Nlc3NUb2tlbmp3dEFjY2Vzc1Rva2Vuand0QWNjZXNzVG9rZW5qd3RBY2Nlc3NUb2tlbg==";
+    private static final String JWT_REFRESH_SECRET =
+            "and0UmVmcmVzaFRva2Vuand0UmVmcmVzaFRva2Vuand0UmVmcmVzaFRva2Vuand0UmVmcmVzaFRva2Vuand0UmVmcmVzaFRva2Vu";
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2023-09-20T12:00:00Z"), ZoneOffset.UTC);
+
+    private JwtProvider jwtProvider;
+    private JwtParser jjwtParser;
+    private JwtUser jwtUser;
+    private String accessToken;
+
+    @Setup
+    public void setup() {
+        // Фиксированные часы: токен не истекает во время длительного прогона, а результаты воспроизводимы.
+        jwtProvider = new JwtProvider(JWT_ACCESS_SECRET, JWT_REFRESH_SECRET, 5, 7, CLOCK);
+        jjwtParser = Jwts.parserBuilder()
+                .setSigningKeyResolver(jwtProvider.getAccessKeyRing())
+                .setClock(() -> new Date(CLOCK.millis()))
+                .build();
+        jwtUser = JwtUserFactory.created(new User(
+                0,
+                "Bob_Smith",
+                "pass132456",
+                "Bob",
+                "Smith",
+                "bob@gmail.com",
+                "ACTIVE",
+                List.of("user", "admin")
+        ));
+        accessToken = jwtProvider.generateAccessToken(jwtUser);
+    }
+
+    @Benchmark
+    public String signJjwt() {
+        final Instant now = CLOCK.instant().truncatedTo(ChronoUnit.SECONDS);
+        final JwtKey accessKey = jwtProvider.getAccessKeyRing().getActiveKey();
+        return Jwts.builder()
+                .setId(UUID.randomUUID().toString())
+                .setSubject(jwtUser.getUsername())
+                .setExpiration(Date.from(now.plus(5, ChronoUnit.MINUTES)))
+                .setIssuedAt(Date.from(now))
+                .setHeaderParam(JwsHeader.KEY_ID, accessKey.getKeyId())
+                .signWith(accessKey.getSigningKey(), accessKey.getAlgorithm())
+                .claim("firstname", jwtUser.getFirstname())
+                .claim("lastname", jwtUser.getLastname())
+                .claim(JwtUtils.USER_ID_CLAIM, jwtUser.getId())
+                .claim("authorities", jwtUser.getAuthorities())
+                .compact();
+    }
+
+    @Benchmark
+    public String signFastPath() {
+        return jwtProvider.generateAccessToken(jwtUser);
+    }
+
+    @Benchmark
+    public Claims verifyJjwt() {
+        return jjwtParser.parseClaimsJws(accessToken).getBody();
+    }
+
+    @Benchmark
+    public Claims verifyFastPath() {
+        return jwtProvider.verifyAccessToken(accessToken);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(HmacJwtCodecBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,240 @@
+package ru.averkiev.greenchat_auth.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import ru.averkiev.greenchat_auth.exceptions.AuthException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Тестовый класс для проверки функциональности HmacJwtCodec. Этот класс подписывает и проверяет HMAC токены
+ * без использования jjwt и должен быть совместим с ним в обе стороны.
+ */
+public class HmacJwtCodecTest {
+
+    private static final String FIRST_SECRET =
+            "and0QWNjZXNzVG9rZW5qd3RBY2Nlc3NUb2tlbmp3dEFjY2Vzc1Rva2Vuand0QWNjZXNzVG9rZW5qd3RBY2Nlc3NUb2tlbg==";
+    private static final String SECOND_SECRET =
+            "and0UmVmcmVzaFRva2Vuand0UmVmcmVzaFRva2Vuand0UmVmcmVzaFRva2Vuand0UmVmcmVzaFRva2Vuand0UmVmcmVzaFRva2Vu";
+    private static final Instant NOW = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+
+    private JwtKeyRing keyRing;
+    private HmacJwtCodec codec;
+    private JwtParser parser;
+
+    @BeforeEach
+    public void setup() {
+        keyRing = new JwtKeyRing(JwtKey.hmac("key-1", FIRST_SECRET), Duration.ofMinutes(5), Clock.systemUTC());
+        codec = new HmacJwtCodec(keyRing, Clock.systemUTC());
+        parser = Jwts.parserBuilder().setSigningKeyResolver(keyRing).build();
+    }
+
+    /**
+     * Проверяет, что токен, подписанный быстрым путём, принимается jjwt и содержит те же Claims.
+     */
+    @Test
+    public void sign_TokenAcceptedByJjwt() {
+        // Создание тестовых данных.
+        String payload = new HmacJwtCodec.Payload()
+                .claim(Claims.ID, "id-1")
+                .claim(Claims.SUBJECT, "Bob \"Smith\"\n")
+                .claim(Claims.EXPIRATION, NOW.plusSeconds(300).getEpochSecond())
+                .claim(Claims.ISSUED_AT, NOW.getEpochSecond())
+                .claim("firstname", "Боб")
+                .claim("lastname", null)
+                .authorities("authorities", List.of(new SimpleGrantedAuthority("user")))
+                .toJson();
+
+        // Вызов тестируемого метода.
+        String token = codec.sign(keyRing.getActiveKey(), payload);
+        Claims claims = parser.parseClaimsJws(token).getBody();
+
+        // Проверка результатов.
+        Assertions.assertEquals("key-1", parser.parseClaimsJws(token).getHeader().getKeyId());
+        Assertions.assertEquals("id-1", claims.getId());
+        Assertions.assertEquals("Bob \"Smith\"\n", claims.getSubject());
+        Assertions.assertEquals("Боб", claims.get("firstname"));
+        Assertions.assertFalse(claims.containsKey("lastname"));
+        Assertions.assertEquals(List.of(Map.of("authority", "user")), claims.get("authorities"));
+        Assertions.assertEquals(Date.from(NOW.plusSeconds(300)), claims.getExpiration());
+    }
+
+    /**
+     * Проверяет, что токен, подписанный jjwt, проверяется быстрым путём.
+     */
+    @Test
+    public void verify_JjwtToken_ReturnsClaims() {
+        // Создание тестовых данных.
+        String token = jjwtToken(keyRing.getActiveKey(), NOW.plusSeconds(300));
+
+        // Вызов тестируемого метода.
+        Claims claims = codec.verify(token);
+
+        // Проверка результатов.
+        Assertions.assertNotNull(claims);
+        Assertions.assertEquals("Bob_Smith", claims.getSubject());
+        Assertions.assertEquals(Date.from(NOW.plusSeconds(300)), claims.getExpiration());
+    }
+
+    /**
+     * Проверяет, что Claims, полученные быстрым путём, совпадают с Claims, полученными jjwt.
+     */
+    @Test
+    public void verify_ProviderPayload_ClaimsMatchJjwt() {
+        // Создание тестовых данных.
+        String payload = new HmacJwtCodec.Payload()
+                .claim(Claims.ID, "id-1")
+                .claim(Claims.SUBJECT, "Bob_Smith")
+                .claim(Claims.EXPIRATION, NOW.plusSeconds(300).getEpochSecond())
+                .claim(Claims.ISSUED_AT, NOW.getEpochSecond())
+                .claim("firstname", "Боб")
+                .claim("uid", 42)
+                .authorities("authorities", List.of(new SimpleGrantedAuthority("user")))
+                .toJson();
+        String token = codec.sign(keyRing.getActiveKey(), payload);
+
+        // Вызов тестируемого метода.
+        Claims claims = codec.verify(token);
+
+        // Проверка результатов.
+        Assertions.assertEquals(parser.parseClaimsJws(token).getBody(), claims);
+        Assertions.assertEquals(42, claims.get("uid", Integer.class));
+        Assertions.assertEquals(Date.from(NOW), claims.getIssuedAt());
+    }
+
+    /**
+     * Проверяет, что токены с полями, которые быстрый путь не разбирает, передаются в jjwt.
+     */
+    @Test
+    public void verify_UnsupportedClaims_ReturnsNull() {
+        // Создание тестовых данных.
+        JwtKey key = keyRing.getActiveKey();
+        String notBefore = Jwts.builder()
+                .setHeaderParam(JwsHeader.KEY_ID, key.getKeyId())
+                .setSubject("Bob_Smith")
+                .setNotBefore(Date.from(NOW))
+                .setExpiration(Date.from(NOW.plusSeconds(300)))
+                .signWith(key.getSigningKey(), key.getAlgorithm())
+                .compact();
+        String nested = Jwts.builder()
+                .setHeaderParam(JwsHeader.KEY_ID, key.getKeyId())
+                .setSubject("Bob_Smith")
+                .claim("profile", Map.of("city", "Moscow"))
+                .setExpiration(Date.from(NOW.plusSeconds(300)))
+                .signWith(key.getSigningKey(), key.getAlgorithm())
+                .compact();
+
+        // Проверка результатов.
+        Assertions.assertNull(codec.verify(notBefore));
+        Assertions.assertNull(codec.verify(nested));
+    }
+
+    /**
+     * Проверяет, что тело токена, изменённое после подписи, приводит к ошибке недействительной подписи.
+     */
+    @Test
+    public void verify_TamperedPayload_ThrowsAuthException() {
+        // Создание тестовых данных.
+        String token = jjwtToken(keyRing.getActiveKey(), NOW.plusSeconds(300));
+        String forged = jjwtToken(keyRing.getActiveKey(), NOW.plusSeconds(3600));
+        String tampered = forged.substring(0, forged.lastIndexOf('.')) + token.substring(token.lastIndexOf('.'));
+
+        // Проверка результатов.
+        AuthException exception = Assertions.assertThrows(AuthException.class, () -> codec.verify(tampered));
+        Assertions.assertEquals("Недействительная подпись", exception.getMessage());
+    }
+
+    /**
+     * Проверяет, что просроченный токен отклоняется быстрым путём.
+     */
+    @Test
+    public void verify_ExpiredToken_ThrowsAuthException() {
+        // Создание тестовых данных.
+        String token = jjwtToken(keyRing.getActiveKey(), NOW.minusSeconds(60));
+
+        // Проверка результатов.
+        AuthException exception = Assertions.assertThrows(AuthException.class, () -> codec.verify(token));
+        Assertions.assertEquals("Истек срок действия токена", exception.getMessage());
+    }
+
+    /**
+     * Проверяет, что токены с неизвестным заголовком и ключи, выведенные из набора, передаются в jjwt.
+     */
+    @Test
+    public void verify_UnknownHeaderOrRetiredKey_ReturnsNull() {
+        // Создание тестовых данных.
+        String unknownKeyToken = jjwtToken(JwtKey.hmac("key-9", SECOND_SECRET), NOW.plusSeconds(300));
+        MutableClock clock = new MutableClock(NOW);
+        JwtKeyRing ring = new JwtKeyRing(JwtKey.hmac("key-1", FIRST_SECRET), Duration.ofMinutes(5), clock);
+        HmacJwtCodec rotatingCodec = new HmacJwtCodec(ring, clock);
+        String oldToken = jjwtToken(ring.getActiveKey(), NOW.plusSeconds(3600));
+
+        // Ротация ключа и вывод прежнего ключа из набора.
+        JwtKey newKey = JwtKey.hmac("key-2", SECOND_SECRET);
+        ring.update(List.of(newKey), "key-2");
+        rotatingCodec.register(newKey);
+        Assertions.assertNotNull(rotatingCodec.verify(oldToken));
+        clock.advance(Duration.ofMinutes(6));
+
+        // Проверка результатов.
+        Assertions.assertNull(codec.verify(unknownKeyToken));
+        Assertions.assertNull(codec.verify("not-a-token"));
+        Assertions.assertNull(rotatingCodec.verify(oldToken));
+        Assertions.assertNotNull(rotatingCodec.verify(jjwtToken(newKey, NOW.plusSeconds(3600))));
+    }
+
+    private static String jjwtToken(JwtKey key, Instant expiration) {
+        return Jwts.builder()
+                .setSubject("Bob_Smith")
+                .setExpiration(Date.from(expiration))
+                .setIssuedAt(Date.from(NOW.minusSeconds(120)))
+                .setHeaderParam(JwsHeader.KEY_ID, key.getKeyId())
+                .signWith(key.getSigningKey(), key.getAlgorithm())
+                .compact();
+    }
+
+    /**
+     * Часы, время которых сдвигается вручную.
+     */
+    private static final class MutableClock extends Clock {
+
+        private Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        private void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
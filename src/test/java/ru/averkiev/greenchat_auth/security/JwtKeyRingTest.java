@@ -0,0 +1,134 @@
+package ru.averkiev.greenchat_auth.security;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Тестовый класс для проверки функциональности JwtKeyRing. Этот класс хранит набор ключей подписи с поддержкой
+ * ротации по идентификатору kid.
+ */
+public class JwtKeyRingTest {
+
+    private static final String FIRST_SECRET =
+            "and0QWNjZXNzVG9rZW5qd3RBY2Nlc3NUb2tlbmp3dEFjY2Vzc1Rva2Vuand0QWNjZXNzVG9rZW5qd3RBY2Nlc3NUb2tlbg==";
+    private static final String SECOND_SECRET =
+            "and0UmVmcmVzaFRva2Vuand0UmVmcmVzaFRva2Vuand0UmVmcmVzaFRva2Vuand0UmVmcmVzaFRva2Vuand0UmVmcmVzaFRva2Vu";
+
+    private MutableClock clock;
+    private JwtKeyRing keyRing;
+
+    @BeforeEach
+    public void setup() {
+        clock = new MutableClock(Instant.parse("2023-09-20T12:00:00Z"));
+        keyRing = new JwtKeyRing(JwtKey.hmac("key-1", FIRST_SECRET), Duration.ofMinutes(5), clock);
+    }
+
+    /**
+     * Проверяет, что ключ, исключённый из набора, принимается до истечения срока действия токенов.
+     */
+    @Test
+    public void update_RemovedKeyAcceptedUntilTokenLifetimeElapses() {
+        // Ротация ключа.
+        keyRing.update(List.of(JwtKey.hmac("key-2", SECOND_SECRET)), "key-2");
+
+        // Проверка результатов.
+        Assertions.assertEquals("key-2", keyRing.getActiveKey().getKeyId());
+        Assertions.assertNotNull(keyRing.findKey("key-1"));
+        Assertions.assertEquals(List.of("key-2", "key-1"),
+                keyRing.getAcceptedKeys().stream().map(JwtKey::getKeyId).toList());
+
+        clock.advance(Duration.ofMinutes(6));
+
+        Assertions.assertNull(keyRing.findKey("key-1"));
+        Assertions.assertNotNull(keyRing.findKey("key-2"));
+        Assertions.assertEquals(Instant.MAX, keyRing.getNextRetirement());
+    }
+
+    /**
+     * Проверяет, что токены без заголовка kid проверяются исходным ключом.
+     */
+    @Test
+    public void findKey_WithoutKeyId_ReturnsInitialKey() {
+        keyRing.update(List.of(JwtKey.hmac("key-1", FIRST_SECRET), JwtKey.hmac("key-2", SECOND_SECRET)), "key-2");
+
+        Assertions.assertEquals("key-1", keyRing.findKey(null).getKeyId());
+    }
+
+    /**
+     * Проверяет, что опубликованный, но не активный ключ принимается при проверке, а подпись выполняется прежним
+     * ключом, пока новый ключ не будет назначен активным.
+     */
+    @Test
+    public void update_PublishedKeyAcceptedBeforeActivation() {
+        // Публикация нового ключа.
+        keyRing.update(List.of(JwtKey.hmac("key-1", FIRST_SECRET), JwtKey.hmac("key-2", SECOND_SECRET)), "key-1");
+
+        // Проверка результатов.
+        Assertions.assertEquals("key-1", keyRing.getActiveKey().getKeyId());
+        Assertions.assertNotNull(keyRing.findKey("key-2"));
+
+        // Назначение нового ключа активным.
+        keyRing.update(List.of(JwtKey.hmac("key-1", FIRST_SECRET), JwtKey.hmac("key-2", SECOND_SECRET)), "key-2");
+        clock.advance(Duration.ofMinutes(6));
+
+        Assertions.assertEquals("key-2", keyRing.getActiveKey().getKeyId());
+        Assertions.assertNotNull(keyRing.findKey("key-1"));
+    }
+
+    /**
+     * Проверяет, что другой ключ под уже известным идентификатором не заменяет прежний, а активный ключ должен
+     * быть опубликован.
+     */
+    @Test
+    public void update_KeyIdIsImmutableAndActiveKeyRequired() {
+        // Создание тестовых данных.
+        JwtKey initialKey = keyRing.getActiveKey();
+
+        // Вызов тестируемого метода.
+        keyRing.update(List.of(JwtKey.hmac("key-1", SECOND_SECRET)), "key-1");
+
+        // Проверка результатов.
+        Assertions.assertSame(initialKey, keyRing.findKey("key-1"));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> keyRing.update(List.of(JwtKey.hmac("key-2", SECOND_SECRET)), "key-3"));
+    }
+
+    /**
+     * Часы, время которых изменяется вручную.
+     */
+    private static final class MutableClock extends Clock {
+
+        private Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        private void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package ru.averkiev.greenchat_auth.security;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.averkiev.greenchat_auth.models.JwtUser;
+import ru.averkiev.greenchat_auth.models.JwtUserFactory;
+import ru.averkiev.greenchat_auth.models.User;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Тестовый класс для проверки функциональности JwtKeySetLoader. Этот класс применяет общий для всех экземпляров
+ * сервиса файл набора ключей подписи.
+ */
+public class JwtKeySetLoaderTest {
+
+    private static final String FIRST_SECRET =
+            "and0QWNjZXNzVG9rZW5qd3RBY2Nlc3NUb2tlbmp3dEFjY2Vzc1Rva2Vuand0QWNjZXNzVG9rZW5qd3RBY2Nlc3NUb2tlbg==";
+    private static final String SECOND_SECRET =
+            "and0UmVmcmVzaFRva2Vuand0UmVmcmVzaFRva2Vuand0UmVmcmVzaFRva2Vuand0UmVmcmVzaFRva2Vuand0UmVmcmVzaFRva2Vu";
+
+    @TempDir
+    Path tempDir;
+
+    private Path keySetFile;
+
+    private final JwtUser jwtUser = JwtUserFactory.created(new User(1, "Bob_Smith", "pass132456", "Bob", "Smith",
+            "bob@gmail.com", "ACTIVE", List.of("ROLE_USER")));
+
+    @BeforeEach
+    public void setup() throws IOException {
+        keySetFile = tempDir.resolve("jwt-keys.properties");
+        Files.writeString(keySetFile, """
+                access.active=access-1
+                access.access-1.secret=%s
+                refresh.active=refresh-1
+                refresh.refresh-1.secret=%s
+                """.formatted(FIRST_SECRET, SECOND_SECRET));
+    }
+
+    /**
+     * Проверяет, что ключ, назначенный активным в общем файле, применяется на всех экземплярах и после
+     * перезапуска: токен, подписанный одним экземпляром, принимается другим.
+     */
+    @Test
+    public void reload_RotationInFile_AppliedOnEveryInstance() throws IOException {
+        // Создание тестовых данных.
+        JwtProvider firstInstance = newProvider();
+        JwtKeySetLoader firstLoader = new JwtKeySetLoader(firstInstance, keySetFile.toString());
+        JwtProvider secondInstance = newProvider();
+        JwtKeySetLoader secondLoader = new JwtKeySetLoader(secondInstance, keySetFile.toString());
+        firstLoader.init();
+        secondLoader.init();
+
+        // Публикация нового ключа и назначение его активным.
+        Files.writeString(keySetFile, """
+                access.active=access-2
+                access.access-1.secret=%s
+                access.access-2.secret=%s
+                refresh.active=refresh-1
+                refresh.refresh-1.secret=%s
+                """.formatted(FIRST_SECRET, SECOND_SECRET, SECOND_SECRET));
+        firstLoader.reload();
+        secondLoader.reload();
+        String token = firstInstance.generateAccessToken(jwtUser);
+        JwtProvider restarted = newProvider();
+        new JwtKeySetLoader(restarted, keySetFile.toString()).init();
+
+        // Проверка результатов.
+        Assertions.assertEquals("access-2", Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECOND_SECRET)))
+                .build()
+                .parseClaimsJws(token)
+                .getHeader()
+                .getKeyId());
+        Assertions.assertEquals("Bob_Smith", secondInstance.verifyAccessToken(token).getSubject());
+        Assertions.assertEquals("Bob_Smith", restarted.verifyAccessToken(token).getSubject());
+    }
+
+    /**
+     * Проверяет, что некорректный файл не применяется при периодической загрузке и текущие ключи сохраняются,
+     * а при запуске приводит к ошибке.
+     */
+    @Test
+    public void reload_InvalidFile_KeepsCurrentKeys() throws IOException {
+        // Создание тестовых данных.
+        JwtProvider jwtProvider = newProvider();
+        JwtKeySetLoader loader = new JwtKeySetLoader(jwtProvider, keySetFile.toString());
+        loader.init();
+        Files.writeString(keySetFile, """
+                access.active=access-3
+                access.access-1.secret=%s
+                """.formatted(FIRST_SECRET));
+
+        // Вызов тестируемого метода.
+        loader.reload();
+
+        // Проверка результатов.
+        Assertions.assertEquals("access-1", jwtProvider.getAccessKeyRing().getActiveKey().getKeyId());
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new JwtKeySetLoader(newProvider(), keySetFile.toString()).init());
+    }
+
+    private JwtProvider newProvider() {
+        return new JwtProvider(FIRST_SECRET, SECOND_SECRET, 5, 7);
+    }
+}
@@ -1,5 +1,6 @@
 package ru.averkiev.greenchat_auth.security;
 
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
@@ -8,13 +9,19 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.MockitoAnnotations;
 import org.springframework.security.core.GrantedAuthority;
+import ru.averkiev.greenchat_auth.exceptions.AuthException;
 import ru.averkiev.greenchat_auth.models.JwtUser;
 import ru.averkiev.greenchat_auth.models.JwtUserFactory;
 import ru.averkiev.greenchat_auth.models.User;
+import ru.averkiev.greenchat_auth.utils.JwtUtils;
 
+import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -115,6 +122,179 @@ public class JwtProviderTest {
         Assertions.assertTrue(jwtProvider.validateAccessToken(accessToken));
     }
 
+    /**
+     * Проверяет, что проверка access токена за один разбор возвращает его Claims.
+     */
+    @Test
+    public void testVerifyAccessToken_ValidToken_ReturnsClaims() {
+        // Генерация валидного токена.
+        String accessToken = jwtProvider.generateAccessToken(jwtUser);
+
+        // Проверка access токена и извлечение Claims.
+        Claims claims = jwtProvider.verifyAccessToken(accessToken);
+
+        // Проверка результатов.
+        Assertions.assertEquals(jwtUser.getUsername(), claims.getSubject());
+        Assertions.assertEquals(jwtUser.getFirstname(), claims.get("firstname"));
+    }
+
+    /**
+     * Проверяет, что метаданные выпущенных токенов совпадают с их Claims.
+     */
+    @Test
+    public void testMintTokens_MetadataMatchesClaims() {
+        // Выпуск access и refresh токенов.
+        IssuedToken accessToken = jwtProvider.mintAccessToken(jwtUser);
+        IssuedToken refreshToken = jwtProvider.mintRefreshToken(jwtUser);
+
+        // Извлечение Claims.
+        Claims accessClaims = jwtProvider.verifyAccessToken(accessToken.getToken());
+        Claims refreshClaims = jwtProvider.verifyRefreshToken(refreshToken.getToken());
+
+        // Проверка результатов.
+        Assertions.assertEquals(accessClaims.getId(), accessToken.getTokenId());
+        Assertions.assertEquals(accessClaims.getIssuedAt(), accessToken.getIssuedAt());
+        Assertions.assertEquals(accessClaims.getExpiration(), accessToken.getExpiresAt());
+        Assertions.assertEquals(refreshClaims.getId(), refreshToken.getTokenId());
+        Assertions.assertEquals(refreshClaims.getIssuedAt(), refreshToken.getIssuedAt());
+        Assertions.assertEquals(refreshClaims.getExpiration(), refreshToken.getExpiresAt());
+        Assertions.assertNotEquals(accessToken.getTokenId(), refreshToken.getTokenId());
+        Assertions.assertEquals(jwtUser.getId(), JwtUtils.getUserId(accessClaims));
+        Assertions.assertEquals(jwtUser.getId(), JwtUtils.generate(accessClaims).getUserId());
+    }
+
+    /**
+     * Проверяет, что время выпуска и срок действия токенов определяются переданными часами.
+     */
+    @Test
+    public void testMintAccessToken_FixedClock_DeterministicTimestamps() {
+        // Создание провайдеров с часами, отстающими на 10 минут, и с текущими часами.
+        Instant issuedAt = Instant.now().minus(Duration.ofMinutes(10)).truncatedTo(ChronoUnit.SECONDS);
+        JwtProvider pastProvider = new JwtProvider(JWT_ACCESS_SECRET, JWT_REFRESH_SECRET,
+                EXPIRATION_ACCESS_TOKEN_IN_MINUTES, EXPIRATION_REFRESH_TOKEN_IN_DAYS,
+                Clock.fixed(issuedAt, ZoneOffset.UTC));
+
+        // Выпуск токена.
+        IssuedToken accessToken = pastProvider.mintAccessToken(jwtUser);
+
+        // Проверка результатов.
+        Assertions.assertEquals(Date.from(issuedAt), accessToken.getIssuedAt());
+        Assertions.assertEquals(Date.from(issuedAt.plus(Duration.ofMinutes(EXPIRATION_ACCESS_TOKEN_IN_MINUTES))),
+                accessToken.getExpiresAt());
+        Assertions.assertNotNull(pastProvider.verifyAccessToken(accessToken.getToken()));
+        AuthException exception = Assertions.assertThrows(AuthException.class,
+                () -> jwtProvider.verifyAccessToken(accessToken.getToken()));
+        Assertions.assertEquals("Истек срок действия токена", exception.getMessage());
+    }
+
+    /**
+     * Проверяет, что access токен содержит время выпуска с точностью до миллисекунды при HMAC и RSA подписи.
+     */
+    @Test
+    public void testMintAccessToken_IssuedAtMillisClaim() {
+        // Создание провайдеров с часами, указывающими на середину секунды.
+        Instant issuedAt = Instant.now().truncatedTo(ChronoUnit.SECONDS).plusMillis(750);
+        Clock clock = Clock.fixed(issuedAt, ZoneOffset.UTC);
+        JwtProvider hmacProvider = new JwtProvider(JWT_ACCESS_SECRET, JWT_REFRESH_SECRET,
+                EXPIRATION_ACCESS_TOKEN_IN_MINUTES, EXPIRATION_REFRESH_TOKEN_IN_DAYS, clock);
+        JwtProvider rsaProvider = new JwtProvider(JWT_ACCESS_SECRET, JWT_REFRESH_SECRET,
+                EXPIRATION_ACCESS_TOKEN_IN_MINUTES, EXPIRATION_REFRESH_TOKEN_IN_DAYS, "RS256", "rsa-1", "", "");
+
+        // Выпуск токенов.
+        Claims hmacClaims = hmacProvider.verifyAccessToken(hmacProvider.mintAccessToken(jwtUser).getToken());
+        Claims rsaClaims = rsaProvider.verifyAccessToken(rsaProvider.mintAccessToken(jwtUser).getToken());
+
+        // Проверка результатов.
+        Assertions.assertEquals(issuedAt.toEpochMilli(), JwtUtils.getIssuedAtMillis(hmacClaims));
+        Assertions.assertEquals(issuedAt.toEpochMilli(), JwtUtils.generate(hmacClaims).getIssuedAt());
+        Assertions.assertEquals(Date.from(issuedAt.truncatedTo(ChronoUnit.SECONDS)), hmacClaims.getIssuedAt());
+        Assertions.assertTrue(JwtUtils.getIssuedAtMillis(rsaClaims) > 0);
+        Assertions.assertEquals(rsaClaims.getIssuedAt().getTime() / 1000, JwtUtils.getIssuedAtMillis(rsaClaims) / 1000);
+    }
+
+    /**
+     * Проверяет, что access токен не проходит проверку ключом refresh токенов.
+     */
+    @Test
+    public void testVerifyRefreshToken_AccessToken_ThrowsAuthException() {
+        // Генерация access токена.
+        String accessToken = jwtProvider.generateAccessToken(jwtUser);
+
+        // Проверка результатов.
+        Assertions.assertThrows(AuthException.class, () -> jwtProvider.verifyRefreshToken(accessToken));
+    }
+
+    /**
+     * Проверяет подпись access токена асимметричным ключом и публикацию открытого ключа в JWKS.
+     */
+    @Test
+    public void testGenerateAccessToken_Rs256_PublishesJwk() {
+        // Создание провайдера с асимметричной подписью.
+        JwtProvider rsaProvider = new JwtProvider(JWT_ACCESS_SECRET, JWT_REFRESH_SECRET,
+                EXPIRATION_ACCESS_TOKEN_IN_MINUTES, EXPIRATION_REFRESH_TOKEN_IN_DAYS, "RS256", "rsa-1", "", "");
+
+        // Генерация токена доступа.
+        String accessToken = rsaProvider.generateAccessToken(jwtUser);
+
+        // Проверка результатов.
+        Assertions.assertEquals(jwtUser.getUsername(), rsaProvider.verifyAccessToken(accessToken).getSubject());
+        List<?> keys = (List<?>) rsaProvider.getJwks().get("keys");
+        Assertions.assertEquals(1, keys.size());
+        Map<?, ?> jwk = (Map<?, ?>) keys.get(0);
+        Assertions.assertEquals("RSA", jwk.get("kty"));
+        Assertions.assertEquals("RS256", jwk.get("alg"));
+        Assertions.assertEquals("rsa-1", jwk.get("kid"));
+        Assertions.assertThrows(AuthException.class, () -> jwtProvider.verifyAccessToken(accessToken));
+    }
+
+    /**
+     * Проверяет, что при симметричной подписи JWKS не содержит ключей.
+     */
+    @Test
+    public void testGetJwks_Hmac_ReturnsEmptyKeySet() {
+        Assertions.assertEquals(List.of(), jwtProvider.getJwks().get("keys"));
+    }
+
+    /**
+     * Проверяет, что после ротации ключа токены, подписанные прежним ключом, остаются действительными,
+     * а новые токены подписываются новым ключом.
+     */
+    @Test
+    public void testRotateAccessKey_OldTokensRemainValid() {
+        // Генерация токена прежним ключом.
+        String oldAccessToken = jwtProvider.generateAccessToken(jwtUser);
+
+        // Ротация ключа.
+        jwtProvider.applyAccessKeys(List.of(JwtKey.hmac("access-2", JWT_REFRESH_SECRET)), "access-2");
+        String newAccessToken = jwtProvider.generateAccessToken(jwtUser);
+
+        // Проверка результатов.
+        Assertions.assertEquals(jwtUser.getUsername(), jwtProvider.verifyAccessToken(oldAccessToken).getSubject());
+        Assertions.assertEquals(jwtUser.getUsername(), jwtProvider.verifyAccessToken(newAccessToken).getSubject());
+        Assertions.assertEquals("access-2", Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(Decoders.BASE64.decode(JWT_REFRESH_SECRET)))
+                .build()
+                .parseClaimsJws(newAccessToken)
+                .getHeader()
+                .getKeyId());
+    }
+
+    /**
+     * Проверяет, что токен с неизвестным идентификатором ключа не проходит проверку.
+     */
+    @Test
+    public void testVerifyAccessToken_UnknownKeyId_ThrowsAuthException() {
+        // Генерация токена с неизвестным kid.
+        String accessToken = Jwts.builder()
+                .setHeaderParam("kid", "unknown")
+                .setSubject(jwtUser.getUsername())
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(JWT_ACCESS_SECRET)))
+                .compact();
+
+        // Проверка результатов.
+        Assertions.assertThrows(AuthException.class, () -> jwtProvider.verifyAccessToken(accessToken));
+    }
+
     /**
      * Проверяет валидность неправильного access токена.
      */
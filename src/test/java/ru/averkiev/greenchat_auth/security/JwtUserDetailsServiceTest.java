@@ -11,8 +11,9 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import ru.averkiev.greenchat_auth.models.JwtUser;
 import ru.averkiev.greenchat_auth.models.JwtUserFactory;
 import ru.averkiev.greenchat_auth.models.User;
-import ru.averkiev.greenchat_auth.clients.impl.UserServiceClientImpl;
-import ru.averkiev.greenchat_auth.services.JwtUserDetailsService;
+import ru.averkiev.greenchat_auth.clients.AsyncUserServiceClient;
+import ru.averkiev.greenchat_auth.clients.UserServiceClient;
+import ru.averkiev.greenchat_auth.services.impl.JwtUserDetailsService;
 
 import java.util.List;
 import java.util.Set;
@@ -25,7 +26,10 @@ import java.util.Set;
 public class JwtUserDetailsServiceTest {
 
     @Mock
-    private UserServiceClientImpl userServiceClientImpl;
+    private UserServiceClient userServiceClient;
+
+    @Mock
+    private AsyncUserServiceClient asyncUserServiceClient;
 
     private JwtUserDetailsService userDetailsService;
 
@@ -33,7 +37,7 @@ public class JwtUserDetailsServiceTest {
     public void setup() {
         // Инициализация mock-объектов и тестируемого объекта перед каждым тестом.
         MockitoAnnotations.openMocks(this);
-        userDetailsService = new JwtUserDetailsService(userServiceClientImpl);
+        userDetailsService = new JwtUserDetailsService(userServiceClient, asyncUserServiceClient);
     }
 
     /**
@@ -57,7 +61,7 @@ public class JwtUserDetailsServiceTest {
         );
 
         // Установка поведения mock-объекта userServiceClient.
-        Mockito.when(userServiceClientImpl.getUserByLogin(username)).thenReturn(user);
+        Mockito.when(userServiceClient.getUserByLogin(username)).thenReturn(user);
 
         // Ожидаемый результат.
         JwtUser expectedJwtUser = JwtUserFactory.created(user);
@@ -79,7 +83,7 @@ public class JwtUserDetailsServiceTest {
         String username = "Bob_Smith";
 
         // Установка поведения mock-объекта.
-        Mockito.when(userServiceClientImpl.getUserByLogin(username)).thenReturn(null);
+        Mockito.when(userServiceClient.getUserByLogin(username)).thenReturn(null);
 
         // Проверка, что исключение UserNotFoundException выбрасывается при вызове метода loadUserByUsername().
         Assertions.assertThrows(UsernameNotFoundException.class, () ->
@@ -0,0 +1,240 @@
+package ru.averkiev.greenchat_auth.security;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.averkiev.greenchat_auth.models.JwtUser;
+import ru.averkiev.greenchat_auth.models.JwtUserFactory;
+import ru.averkiev.greenchat_auth.models.User;
+import ru.averkiev.greenchat_auth.utils.TokenDigest;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Тестовый класс для проверки функциональности OpaqueTokenIndex. Этот класс хранит сессии непрозрачных
+ * access токенов в памяти и восстанавливает их по сохранённым записям.
+ */
+public class OpaqueTokenIndexTest {
+
+    private static final Instant NOW = Instant.parse("2023-09-20T12:00:00Z");
+
+    private OpaqueTokenIndex opaqueTokenIndex;
+
+    // Создание тестовых данных.
+    private final JwtUser jwtUser = JwtUserFactory.created(new User(
+            7,
+            "Bob_Smith",
+            "pass132456",
+            "Bob",
+            "Smith",
+            "bob@gmail.com",
+            "ACTIVE",
+            List.of("user", "admin")
+    ));
+
+    @BeforeEach
+    public void setup() {
+        opaqueTokenIndex = new OpaqueTokenIndex(true, 5, Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    /**
+     * Проверяет выпуск непрозрачного токена и поиск сессии по нему.
+     */
+    @Test
+    public void issue_ReturnsShortTokenMappedToSession() {
+        // Вызов тестируемого метода.
+        IssuedToken issuedToken = opaqueTokenIndex.issue(jwtUser);
+        OpaqueTokenIndex.OpaqueSession session = opaqueTokenIndex.find(issuedToken.getToken());
+
+        // Проверка результатов.
+        Assertions.assertEquals(43, issuedToken.getToken().length());
+        Assertions.assertTrue(OpaqueTokenIndex.isOpaque(issuedToken.getToken()));
+        Assertions.assertEquals(NOW.plus(Duration.ofMinutes(5)).toEpochMilli(), issuedToken.getExpiresAt().getTime());
+        Assertions.assertNotNull(session);
+        Assertions.assertEquals(7, session.userId());
+        Assertions.assertEquals("Bob_Smith", session.authentication().getLogin());
+        Assertions.assertTrue(session.authentication().isAuthenticated());
+        Assertions.assertEquals(2, session.authentication().getAuthorities().size());
+    }
+
+    /**
+     * Проверяет, что новый токен пользователя заменяет прежний, а выход из системы удаляет сессию.
+     */
+    @Test
+    public void issueAndRevoke_KeepOneSessionPerUser() {
+        // Вызов тестируемого метода.
+        IssuedToken first = opaqueTokenIndex.issue(jwtUser);
+        IssuedToken second = opaqueTokenIndex.issue(jwtUser);
+
+        // Проверка результатов.
+        Assertions.assertNotEquals(first.getToken(), second.getToken());
+        Assertions.assertNull(opaqueTokenIndex.find(first.getToken()));
+        Assertions.assertNotNull(opaqueTokenIndex.find(second.getToken()));
+        Assertions.assertEquals(1, opaqueTokenIndex.size());
+
+        opaqueTokenIndex.revoke(jwtUser.getId());
+
+        Assertions.assertNull(opaqueTokenIndex.find(second.getToken()));
+        Assertions.assertEquals(0, opaqueTokenIndex.size());
+    }
+
+    /**
+     * Проверяет, что просроченная сессия не находится и удаляется из индекса.
+     */
+    @Test
+    public void find_ExpiredSession_ReturnsNull() {
+        // Создание тестовых данных.
+        MutableClock clock = new MutableClock(NOW);
+        OpaqueTokenIndex index = new OpaqueTokenIndex(true, 5, clock);
+        IssuedToken issuedToken = index.issue(jwtUser);
+
+        // Вызов тестируемого метода.
+        OpaqueTokenIndex.OpaqueSession beforeExpiry = index.find(issuedToken.getToken());
+        clock.instant = NOW.plus(Duration.ofMinutes(6));
+        OpaqueTokenIndex.OpaqueSession afterExpiry = index.find(issuedToken.getToken());
+
+        // Проверка результатов.
+        Assertions.assertNotNull(beforeExpiry);
+        Assertions.assertNull(afterExpiry);
+        Assertions.assertEquals(0, index.size());
+        Assertions.assertNull(index.find("unknown"));
+        Assertions.assertNull(index.find(null));
+        Assertions.assertFalse(OpaqueTokenIndex.isOpaque("header.payload.signature"));
+    }
+
+    /**
+     * Проверяет, что токен, выпущенный другим экземпляром сервиса, находится по сохранённой записи и
+     * добавляется в индекс, а неизвестный токен не принимается.
+     */
+    @Test
+    public void find_TokenIssuedByAnotherInstance_LoadedFromStore() {
+        // Создание тестовых данных.
+        IssuedToken issuedToken = opaqueTokenIndex.issue(jwtUser);
+        byte[] digest = TokenDigest.sha256(issuedToken.getToken());
+        OpaqueTokenIndex otherInstance = new OpaqueTokenIndex(true, 5, Clock.fixed(NOW, ZoneOffset.UTC),
+                tokenDigest -> Arrays.equals(digest, tokenDigest)
+                        ? new OpaqueTokenIndex.StoredSession(jwtUser, issuedToken.getIssuedAt().getTime(),
+                                issuedToken.getExpiresAt().getTime())
+                        : null);
+
+        // Вызов тестируемого метода.
+        OpaqueTokenIndex.OpaqueSession session = otherInstance.find(issuedToken.getToken());
+
+        // Проверка результатов.
+        Assertions.assertNotNull(session);
+        Assertions.assertEquals("Bob_Smith", session.authentication().getLogin());
+        Assertions.assertEquals(opaqueTokenIndex.find(issuedToken.getToken()).authentication().getTokenId(),
+                session.authentication().getTokenId());
+        Assertions.assertEquals(1, otherInstance.size());
+        Assertions.assertNull(otherInstance.find("unknown"));
+    }
+
+    /**
+     * Проверяет, что повторно предъявленный неизвестный токен отклоняется без обращения к хранилищу, пока не
+     * истечёт время хранения отрицательного результата.
+     */
+    @Test
+    public void find_RepeatedUnknownToken_DoesNotHitStoreAgain() {
+        // Создание тестовых данных.
+        MutableClock clock = new MutableClock(NOW);
+        AtomicInteger storeCalls = new AtomicInteger();
+        OpaqueTokenIndex index = new OpaqueTokenIndex(true, 5, clock, tokenDigest -> {
+            storeCalls.incrementAndGet();
+            return null;
+        }, 30_000, 100);
+
+        // Вызов тестируемого метода.
+        OpaqueTokenIndex.OpaqueSession first = index.find("unknown");
+        OpaqueTokenIndex.OpaqueSession repeated = index.find("unknown");
+        int callsBeforeExpiry = storeCalls.get();
+        clock.instant = NOW.plusSeconds(31);
+        OpaqueTokenIndex.OpaqueSession afterExpiry = index.find("unknown");
+
+        // Проверка результатов.
+        Assertions.assertNull(first);
+        Assertions.assertNull(repeated);
+        Assertions.assertNull(afterExpiry);
+        Assertions.assertEquals(1, callsBeforeExpiry);
+        Assertions.assertEquals(2, storeCalls.get());
+    }
+
+    /**
+     * Проверяет, что сессия, выпущенная в транзакции, добавляется в индекс только после её фиксации.
+     */
+    @Test
+    public void issue_InTransaction_RegisteredAfterCommit() {
+        // Создание тестовых данных.
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // Вызов тестируемого метода.
+            IssuedToken issuedToken = opaqueTokenIndex.issue(jwtUser);
+            OpaqueTokenIndex.OpaqueSession beforeCommit = opaqueTokenIndex.find(issuedToken.getToken());
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+            // Проверка результатов.
+            Assertions.assertNull(beforeCommit);
+            Assertions.assertNotNull(opaqueTokenIndex.find(issuedToken.getToken()));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    /**
+     * Проверяет, что фоновая очистка удаляет истёкшие сессии, к которым больше не обращаются.
+     */
+    @Test
+    public void sweep_RemovesExpiredSessions() {
+        // Создание тестовых данных.
+        MutableClock clock = new MutableClock(NOW);
+        OpaqueTokenIndex index = new OpaqueTokenIndex(true, 5, clock);
+        index.issue(jwtUser);
+        index.issue(JwtUserFactory.created(new User(8, "Alice", "pass132456", "Alice", "Smith", "alice@gmail.com",
+                "ACTIVE", List.of("user"))));
+
+        // Вызов тестируемого метода.
+        int beforeExpiry = index.sweep();
+        clock.instant = NOW.plus(Duration.ofMinutes(6));
+        int afterExpiry = index.sweep();
+
+        // Проверка результатов.
+        Assertions.assertEquals(0, beforeExpiry);
+        Assertions.assertEquals(2, afterExpiry);
+        Assertions.assertEquals(0, index.size());
+    }
+
+    /**
+     * Часы UTC, время которых задаётся тестом.
+     */
+    private static class MutableClock extends Clock {
+
+        private Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package ru.averkiev.greenchat_auth.security;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import ru.averkiev.greenchat_auth.models.RevocationEpoch;
+import ru.averkiev.greenchat_auth.repositories.RevocationEpochRepository;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Тестовый класс для проверки функциональности RevocationEpochs. Этот класс хранит эпохи отзыва access токенов
+ * пользователей в базе данных и в памяти.
+ */
+public class RevocationEpochsTest {
+
+    private static final Instant NOW = Instant.parse("2023-09-20T12:00:00Z");
+
+    @Mock
+    private RevocationEpochRepository revocationEpochRepository;
+
+    private RevocationEpochs revocationEpochs;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        revocationEpochs = new RevocationEpochs(revocationEpochRepository, Clock.fixed(NOW, ZoneOffset.UTC), 5);
+    }
+
+    /**
+     * Проверяет, что после отзыва недействительны токены, выпущенные раньше выхода, а токены, выпущенные в момент
+     * выхода и позже, в том числе в ту же секунду, а также токены других пользователей остаются действительными.
+     */
+    @Test
+    public void revokeAll_RejectsOnlyTokensIssuedBeforeRevocation() {
+        // Создание тестовых данных.
+        long now = NOW.toEpochMilli();
+
+        // Вызов тестируемого метода.
+        boolean revokedBefore = revocationEpochs.isRevoked(7, now - 10);
+        revocationEpochs.revokeAll(7);
+
+        // Проверка результатов.
+        Assertions.assertFalse(revokedBefore);
+        Assertions.assertTrue(revocationEpochs.isRevoked(7, now - 10));
+        Assertions.assertTrue(revocationEpochs.isRevoked(7, now - 1));
+        Assertions.assertFalse(revocationEpochs.isRevoked(7, now));
+        Assertions.assertFalse(revocationEpochs.isRevoked(7, now + 1));
+        Assertions.assertFalse(revocationEpochs.isRevoked(8, now - 10));
+        verify(revocationEpochRepository, times(1)).upsert(7, Date.from(NOW));
+    }
+
+    /**
+     * Проверяет, что эпохи, созданные другими экземплярами сервиса, загружаются из базы данных, а эпохи старше
+     * срока действия access токена удаляются.
+     */
+    @Test
+    public void reload_LoadsRecentEpochsAndDropsExpired() {
+        // Создание тестовых данных.
+        Date threshold = Date.from(NOW.minusSeconds(5 * 60));
+        when(revocationEpochRepository.findByRevokedBeforeAfter(threshold)).thenReturn(List.of(
+                new RevocationEpoch(3, Date.from(NOW.minusSeconds(60)))
+        ));
+        RevocationEpochs staleInstance = new RevocationEpochs(revocationEpochRepository,
+                Clock.fixed(NOW.minusSeconds(10 * 60), ZoneOffset.UTC), 5);
+        staleInstance.revokeAll(4);
+
+        // Вызов тестируемого метода.
+        revocationEpochs.reload();
+
+        // Проверка результатов.
+        Assertions.assertTrue(revocationEpochs.isRevoked(3, NOW.minusSeconds(120).toEpochMilli()));
+        Assertions.assertFalse(revocationEpochs.isRevoked(3, NOW.toEpochMilli()));
+        Assertions.assertEquals(1, revocationEpochs.size());
+        verify(revocationEpochRepository, times(1)).deleteOlderThan(threshold);
+    }
+
+    /**
+     * Проверяет, что ошибка базы данных при загрузке не прерывает работу сервиса.
+     */
+    @Test
+    public void reload_RepositoryFailure_DoesNotThrow() {
+        // Создание тестовых данных.
+        when(revocationEpochRepository.findByRevokedBeforeAfter(any(Date.class)))
+                .thenThrow(new RuntimeException("connection refused"));
+
+        // Вызов тестируемого метода и проверка результатов.
+        Assertions.assertDoesNotThrow(revocationEpochs::reload);
+        Assertions.assertEquals(0, revocationEpochs.size());
+    }
+}
@@ -0,0 +1,147 @@
+package ru.averkiev.greenchat_auth.security;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import ru.averkiev.greenchat_auth.models.RevokedToken;
+import ru.averkiev.greenchat_auth.repositories.RevokedTokenRepository;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Тестовый класс для проверки функциональности RevokedTokenDenylist. Этот класс хранит идентификаторы отозванных
+ * access токенов в базе данных и в памяти до истечения их срока действия.
+ */
+public class RevokedTokenDenylistTest {
+
+    private static final Instant NOW = Instant.parse("2023-09-20T12:00:00Z");
+
+    @Mock
+    private RevokedTokenRepository revokedTokenRepository;
+
+    private MutableClock clock;
+
+    private RevokedTokenDenylist denylist;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        clock = new MutableClock(NOW);
+        denylist = new RevokedTokenDenylist(revokedTokenRepository, clock, 5, 1_000, 0.001);
+    }
+
+    /**
+     * Проверяет, что отозванный токен отклоняется, остальные токены остаются действительными, а отзыв сохраняется
+     * в базе данных.
+     */
+    @Test
+    public void revoke_RejectsOnlyRevokedTokenId() {
+        // Создание тестовых данных.
+        Date expiresAt = Date.from(NOW.plus(Duration.ofMinutes(3)));
+
+        // Вызов тестируемого метода.
+        denylist.revoke("revoked-jti", expiresAt);
+
+        // Проверка результатов.
+        Assertions.assertTrue(denylist.isRevoked("revoked-jti"));
+        Assertions.assertFalse(denylist.isRevoked("other-jti"));
+        Assertions.assertFalse(denylist.isRevoked(null));
+        Assertions.assertEquals(1, denylist.size());
+        verify(revokedTokenRepository, times(1)).insertIgnore("revoked-jti", Date.from(NOW), expiresAt);
+    }
+
+    /**
+     * Проверяет, что токен с истёкшим сроком действия не заносится в список отозванных.
+     */
+    @Test
+    public void revoke_ExpiredToken_Ignored() {
+        // Вызов тестируемого метода.
+        denylist.revoke("expired-jti", Date.from(NOW.minusSeconds(1)));
+
+        // Проверка результатов.
+        Assertions.assertFalse(denylist.isRevoked("expired-jti"));
+        verify(revokedTokenRepository, never()).insertIgnore(any(), any(), any());
+    }
+
+    /**
+     * Проверяет, что при загрузке подгружаются отзывы других экземпляров сервиса, а поколения, срок действия всех
+     * токенов которых истёк, удаляются из памяти.
+     */
+    @Test
+    public void reload_LoadsRemoteRevocationsAndDropsExpiredGenerations() {
+        // Создание тестовых данных.
+        denylist.revoke("local-jti", Date.from(NOW.plus(Duration.ofMinutes(1))));
+        when(revokedTokenRepository.findByRevokedAtAfterAndExpiresAtAfter(any(Date.class), any(Date.class)))
+                .thenReturn(List.of(new RevokedToken("remote-jti", Date.from(NOW),
+                        Date.from(NOW.plus(Duration.ofMinutes(30))))));
+
+        // Вызов тестируемого метода.
+        clock.instant = NOW.plus(Duration.ofMinutes(10));
+        denylist.reload();
+
+        // Проверка результатов.
+        Assertions.assertFalse(denylist.isRevoked("local-jti"));
+        Assertions.assertTrue(denylist.isRevoked("remote-jti"));
+        Assertions.assertEquals(1, denylist.size());
+        verify(revokedTokenRepository, times(1)).findByRevokedAtAfterAndExpiresAtAfter(
+                new Date(0), Date.from(NOW.plus(Duration.ofMinutes(10))));
+    }
+
+    /**
+     * Проверяет, что повторная загрузка запрашивает только отзывы, сделанные после предыдущей загрузки, с учётом
+     * перекрытия интервалов.
+     */
+    @Test
+    public void reload_IncrementalSinceLastReload() {
+        // Создание тестовых данных.
+        when(revokedTokenRepository.findByRevokedAtAfterAndExpiresAtAfter(any(Date.class), any(Date.class)))
+                .thenReturn(List.of());
+        denylist.reload();
+        clock.instant = NOW.plus(Duration.ofMinutes(5));
+
+        // Вызов тестируемого метода.
+        denylist.reload();
+
+        // Проверка результатов.
+        verify(revokedTokenRepository, times(1)).findByRevokedAtAfterAndExpiresAtAfter(
+                Date.from(NOW.minus(Duration.ofMinutes(1))), Date.from(NOW.plus(Duration.ofMinutes(5))));
+    }
+
+    /**
+     * Часы UTC, время которых задаётся тестом.
+     */
+    private static class MutableClock extends Clock {
+
+        private Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package ru.averkiev.greenchat_auth.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import ru.averkiev.greenchat_auth.exceptions.AuthException;
+import ru.averkiev.greenchat_auth.models.JwtUser;
+import ru.averkiev.greenchat_auth.models.JwtUserFactory;
+import ru.averkiev.greenchat_auth.models.User;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Тестовый класс для проверки функциональности VerifiedTokenCache. Этот класс кэширует результат проверки
+ * access токенов до истечения их срока действия.
+ */
+public class VerifiedTokenCacheTest {
+
+    private static final String JWT_ACCESS_SECRET =
+            "and0QWNjZXNzVG9rZW5qd3RBY2Nlc3NUb2tlbmp3dEFjY2Vzc1Rva2Vuand0QWNjZXNzVG9rZW5qd3RBY2Nlc3NUb2tlbg==";
+    private static final String JWT_REFRESH_SECRET =
+            "and0UmVmcmVzaFRva2Vuand0UmVmcmVzaFRva2Vuand0UmVmcmVzaFRva2Vuand0UmVmcmVzaFRva2Vuand0UmVmcmVzaFRva2Vu";
+
+    private JwtProvider jwtProvider;
+    private VerifiedTokenCache verifiedTokenCache;
+
+    // Создание тестовых данных.
+    private final JwtUser jwtUser = JwtUserFactory.created(new User(
+            0,
+            "Bob_Smith",
+            "pass132456",
+            "Bob",
+            "Smith",
+            "bob@gmail.com",
+            "ACTIVE",
+            List.of("user", "admin")
+    ));
+
+    @BeforeEach
+    public void setup() {
+        jwtProvider = new JwtProvider(JWT_ACCESS_SECRET, JWT_REFRESH_SECRET, 5, 7);
+        verifiedTokenCache = new VerifiedTokenCache(true, 100);
+    }
+
+    /**
+     * Проверяет, что повторное предъявление токена не приводит к повторной проверке подписи.
+     */
+    @Test
+    public void getOrVerify_RepeatedToken_VerifiesOnce() {
+        // Создание тестовых данных.
+        String accessToken = jwtProvider.generateAccessToken(jwtUser);
+        AtomicInteger verifications = new AtomicInteger();
+        Function<String, Claims> verifier = token -> {
+            verifications.incrementAndGet();
+            return jwtProvider.verifyAccessToken(token);
+        };
+
+        // Вызов тестируемого метода.
+        JwtAuthentication first = verifiedTokenCache.getOrVerify(accessToken, verifier);
+        JwtAuthentication second = verifiedTokenCache.getOrVerify(accessToken, verifier);
+
+        // Проверка результатов.
+        Assertions.assertSame(first, second);
+        Assertions.assertTrue(first.isAuthenticated());
+        Assertions.assertEquals(jwtUser.getUsername(), first.getLogin());
+        Assertions.assertEquals(List.of("user", "admin"),
+                first.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList());
+        Assertions.assertEquals(1, verifications.get());
+        Assertions.assertEquals(1, verifiedTokenCache.stats().hitCount());
+        Assertions.assertEquals(1, verifiedTokenCache.stats().missCount());
+    }
+
+    /**
+     * Проверяет, что токен с действительной подписью, но без срока действия отклоняется и не попадает в кэш.
+     */
+    @Test
+    public void getOrVerify_TokenWithoutExpiration_ThrowsAuthException() {
+        // Создание тестовых данных.
+        Function<String, Claims> verifier = token -> Jwts.claims().setSubject(jwtUser.getUsername());
+
+        // Вызов тестируемого метода и проверка результатов.
+        Assertions.assertThrows(AuthException.class, () -> verifiedTokenCache.getOrVerify("no_exp_token", verifier));
+        Assertions.assertThrows(AuthException.class,
+                () -> new VerifiedTokenCache(false, 100).getOrVerify("no_exp_token", verifier));
+        Assertions.assertEquals(0, verifiedTokenCache.size());
+    }
+
+    /**
+     * Проверяет, что недействительный токен не попадает в кэш.
+     */
+    @Test
+    public void getOrVerify_InvalidToken_NotCached() {
+        // Создание тестовых данных.
+        String accessToken = jwtProvider.generateAccessToken(jwtUser);
+
+        // Проверка результатов.
+        Assertions.assertThrows(AuthException.class,
+                () -> verifiedTokenCache.getOrVerify(accessToken, jwtProvider::verifyRefreshToken));
+        Assertions.assertEquals(0, verifiedTokenCache.size());
+    }
+
+    /**
+     * Проверяет, что при выключенном кэше каждый токен проверяется заново.
+     */
+    @Test
+    public void getOrVerify_CacheDisabled_VerifiesEveryTime() {
+        // Создание тестовых данных.
+        VerifiedTokenCache disabledCache = new VerifiedTokenCache(false, 100);
+        String accessToken = jwtProvider.generateAccessToken(jwtUser);
+        AtomicInteger verifications = new AtomicInteger();
+
+        // Вызов тестируемого метода.
+        for (int i = 0; i < 3; i++) {
+            disabledCache.getOrVerify(accessToken, token -> {
+                verifications.incrementAndGet();
+                return jwtProvider.verifyAccessToken(token);
+            });
+        }
+
+        // Проверка результатов.
+        Assertions.assertEquals(3, verifications.get());
+    }
+}
@@ -3,13 +3,13 @@ package ru.averkiev.greenchat_auth.services.impl;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 import ru.averkiev.greenchat_auth.models.AccessToken;
 import ru.averkiev.greenchat_auth.repositories.AccessTokenRepository;
 
+import java.util.Date;
 import java.util.Optional;
 
 /**
@@ -22,12 +22,12 @@ public class AccessTokenServiceImplTest {
     @Mock
     private AccessTokenRepository accessTokenRepository;
 
-    @InjectMocks
     AccessTokenServiceImpl accessTokenServiceImpl;
 
     @BeforeEach
     public void setup() {
         MockitoAnnotations.openMocks(this);
+        accessTokenServiceImpl = new AccessTokenServiceImpl(new JpaAccessTokenStore(accessTokenRepository));
     }
 
     /**
@@ -101,6 +101,43 @@ public class AccessTokenServiceImplTest {
         Mockito.verify(accessTokenRepository, Mockito.times(0)).save(updateAccessToken);
     }
 
+    /**
+     * Проверяет, что access токен сохраняется одним запросом upsert без предварительного поиска записи.
+     */
+    @Test
+    public void upsert_ShouldReturnTrue_WhenAccessTokenUpserted() {
+        Date createdAt = new Date();
+        Date expiresAt = new Date(createdAt.getTime() + 60_000);
+        AccessToken accessToken = new AccessToken(1, "access_token", createdAt, expiresAt);
+
+        Mockito.when(accessTokenRepository.upsert(1, accessToken.getAccessTokenDigest(), null, createdAt, expiresAt))
+                .thenReturn(1);
+
+        boolean result = accessTokenServiceImpl.upsert(accessToken);
+
+        Assertions.assertTrue(result);
+        Mockito.verify(accessTokenRepository, Mockito.times(1))
+                .upsert(1, accessToken.getAccessTokenDigest(), null, createdAt, expiresAt);
+        Mockito.verify(accessTokenRepository, Mockito.never()).findByUserId(1);
+        Mockito.verify(accessTokenRepository, Mockito.never()).save(accessToken);
+    }
+
+    /**
+     * Проверяет верную обработку результата upsert access токена с ошибкой во время сохранения.
+     */
+    @Test
+    public void upsert_ShouldReturnFalse_WhenAccessTokenNotSaved() {
+        AccessToken accessToken = new AccessToken(1, "access_token", new Date(), new Date());
+
+        Mockito.when(accessTokenRepository.upsert(
+                Mockito.anyInt(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any()
+        )).thenThrow(new RuntimeException());
+
+        boolean result = accessTokenServiceImpl.upsert(accessToken);
+
+        Assertions.assertFalse(result);
+    }
+
     /**
      * Проверяет верную обработку результата поиска access токена в базе данных по идентификатору пользователя,
      * в случае, когда найден токен с заданным идентификатором пользователя.
@@ -0,0 +1,237 @@
+package ru.averkiev.greenchat_auth.services.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.averkiev.greenchat_auth.models.AccessToken;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.*;
+
+/**
+ * Тестовый класс для проверки функциональности AccessTokenWriteBehindQueue. Этот класс сохраняет записи access
+ * токенов в базе данных пакетами в фоновом потоке.
+ */
+public class AccessTokenWriteBehindQueueTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    /**
+     * Проверяет, что накопленные записи сохраняются пакетами, а из нескольких записей одного пользователя
+     * сохраняется последняя.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void flush_WritesBatchesWithLatestTokenPerUser() {
+        // Создание тестовых данных.
+        AccessTokenWriteBehindQueue queue = new AccessTokenWriteBehindQueue(
+                jdbcTemplate, meterRegistry, true, 10, 3, 0, 0);
+        AccessToken first = new AccessToken(1, "first", new Date(), new Date());
+        AccessToken second = new AccessToken(2, "second", new Date(), new Date());
+        AccessToken firstReplaced = new AccessToken(1, "first_replaced", new Date(), new Date());
+        AccessToken third = new AccessToken(3, "third", new Date(), new Date());
+
+        Assertions.assertTrue(queue.enqueue(first));
+        Assertions.assertTrue(queue.enqueue(second));
+        Assertions.assertTrue(queue.enqueue(firstReplaced));
+        Assertions.assertTrue(queue.enqueue(third));
+        Assertions.assertEquals(4, meterRegistry.get("jwt.write-behind.queue.size").gauge().value());
+
+        // Вызов тестируемого метода.
+        int written = queue.flush();
+
+        // Проверка результатов.
+        ArgumentCaptor<List<Object[]>> batches = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), batches.capture());
+        List<Object[]> firstBatch = batches.getAllValues().get(0);
+        Assertions.assertEquals(2, firstBatch.size());
+        Assertions.assertEquals(1, firstBatch.get(0)[0]);
+        Assertions.assertArrayEquals(firstReplaced.getAccessTokenDigest(), (byte[]) firstBatch.get(0)[1]);
+        Assertions.assertEquals(1, batches.getAllValues().get(1).size());
+        Assertions.assertEquals(3, written);
+        Assertions.assertEquals(0, queue.size());
+        Assertions.assertEquals(2, meterRegistry.get("jwt.write-behind.flush").timer().count());
+    }
+
+    /**
+     * Проверяет, что пакетная запись не заменяет более новую запись пользователя, уже сохранённую в базе данных.
+     */
+    @Test
+    public void flush_KeepsNewerStoredToken() {
+        // Создание тестовых данных.
+        AccessTokenWriteBehindQueue queue = new AccessTokenWriteBehindQueue(
+                jdbcTemplate, meterRegistry, true, 10, 10, 0, 0);
+        queue.enqueue(new AccessToken(1, "token", new Date(), new Date()));
+
+        // Вызов тестируемого метода.
+        queue.flush();
+
+        // Проверка результатов.
+        verify(jdbcTemplate, times(1)).batchUpdate(
+                contains("WHERE access_tokens.created_at <= EXCLUDED.created_at"), anyList());
+    }
+
+    /**
+     * Проверяет, что из очереди удаляются только записи указанного пользователя, а записи остальных
+     * пользователей не выгружаются и остаются в очереди.
+     */
+    @Test
+    public void discard_RemovesOnlyUserTokens() {
+        // Создание тестовых данных.
+        AccessTokenWriteBehindQueue queue = new AccessTokenWriteBehindQueue(
+                jdbcTemplate, meterRegistry, true, 10, 10, 0, 0);
+        queue.enqueue(new AccessToken(1, "first", new Date(), new Date()));
+        queue.enqueue(new AccessToken(2, "second", new Date(), new Date()));
+        queue.enqueue(new AccessToken(1, "first_replaced", new Date(), new Date()));
+
+        // Вызов тестируемого метода.
+        int discarded = queue.discard(1);
+
+        // Проверка результатов.
+        Assertions.assertEquals(2, discarded);
+        Assertions.assertEquals(1, queue.size());
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    /**
+     * Проверяет, что заполненная очередь и выключенная отложенная запись не принимают записи, и вызывающий код
+     * должен сохранить их синхронно.
+     */
+    @Test
+    public void enqueue_FullOrDisabled_ReturnsFalse() {
+        // Создание тестовых данных.
+        AccessTokenWriteBehindQueue queue = new AccessTokenWriteBehindQueue(
+                jdbcTemplate, meterRegistry, true, 1, 10, 0, 0);
+        AccessTokenWriteBehindQueue disabledQueue = new AccessTokenWriteBehindQueue(
+                jdbcTemplate, new SimpleMeterRegistry(), false, 1, 10, 0, 0);
+        AccessToken accessToken = new AccessToken(1, "token", new Date(), new Date());
+
+        // Вызов тестируемого метода и проверка результатов.
+        Assertions.assertTrue(queue.enqueue(accessToken));
+        Assertions.assertFalse(queue.enqueue(accessToken));
+        Assertions.assertFalse(disabledQueue.enqueue(accessToken));
+        Assertions.assertEquals(0, disabledQueue.size());
+    }
+
+    /**
+     * Проверяет, что внутри транзакции запись попадает в очередь только после фиксации, а при откате транзакции
+     * не сохраняется и освобождает зарезервированное место.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void enqueue_InTransaction_QueuedOnlyAfterCommit() {
+        // Создание тестовых данных.
+        AccessTokenWriteBehindQueue queue = new AccessTokenWriteBehindQueue(
+                jdbcTemplate, meterRegistry, true, 1, 10, 0, 0);
+        AccessToken rolledBack = new AccessToken(1, "rolled_back", new Date(), new Date());
+        AccessToken committed = new AccessToken(2, "committed", new Date(), new Date());
+
+        // Вызов тестируемого метода.
+        TransactionSynchronizationManager.initSynchronization();
+        boolean rolledBackAccepted;
+        int sizeBeforeRollback;
+        try {
+            rolledBackAccepted = queue.enqueue(rolledBack);
+            sizeBeforeRollback = queue.size();
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.initSynchronization();
+        boolean committedAccepted;
+        int sizeBeforeCommit;
+        try {
+            committedAccepted = queue.enqueue(committed);
+            sizeBeforeCommit = queue.size();
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        queue.flush();
+
+        // Проверка результатов.
+        Assertions.assertTrue(rolledBackAccepted);
+        Assertions.assertTrue(committedAccepted);
+        Assertions.assertEquals(0, sizeBeforeRollback);
+        Assertions.assertEquals(0, sizeBeforeCommit);
+        ArgumentCaptor<List<Object[]>> batches = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), batches.capture());
+        Assertions.assertEquals(1, batches.getValue().size());
+        Assertions.assertEquals(2, batches.getValue().get(0)[0]);
+    }
+
+    /**
+     * Проверяет, что пакет, который не удалось сохранить, возвращается в очередь и сохраняется при следующей
+     * выгрузке, а место в очереди освобождается только после сохранения.
+     */
+    @Test
+    public void flush_FailedBatch_RetriedOnNextFlush() {
+        // Создание тестовых данных.
+        AccessTokenWriteBehindQueue queue = new AccessTokenWriteBehindQueue(
+                jdbcTemplate, meterRegistry, true, 1, 10, 0, 0);
+        AccessToken accessToken = new AccessToken(1, "token", new Date(), new Date());
+        queue.enqueue(accessToken);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new RuntimeException("connection refused"))
+                .thenReturn(new int[]{1});
+
+        // Вызов тестируемого метода.
+        int failedFlush = queue.flush();
+        int sizeAfterFailure = queue.size();
+        boolean acceptedWhileRetrying = queue.enqueue(accessToken);
+        int retriedFlush = queue.flush();
+
+        // Проверка результатов.
+        Assertions.assertEquals(0, failedFlush);
+        Assertions.assertEquals(1, sizeAfterFailure);
+        Assertions.assertFalse(acceptedWhileRetrying);
+        Assertions.assertEquals(1, retriedFlush);
+        Assertions.assertEquals(0, queue.size());
+        Assertions.assertTrue(queue.enqueue(accessToken));
+        Assertions.assertEquals(1, meterRegistry.get("jwt.write-behind.failed").counter().count());
+    }
+
+    /**
+     * Проверяет, что при остановке оставшиеся записи выгружаются, а записи, которые не удалось сохранить, не
+     * удаляются из очереди и учитываются в метриках.
+     */
+    @Test
+    public void close_FailedWrite_KeepsRecordsAndCountsFailures() {
+        // Создание тестовых данных.
+        AccessTokenWriteBehindQueue queue = new AccessTokenWriteBehindQueue(
+                jdbcTemplate, meterRegistry, true, 10, 10, 0, 0);
+        queue.enqueue(new AccessToken(1, "token", new Date(), new Date()));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new RuntimeException("connection refused"));
+
+        // Вызов тестируемого метода.
+        queue.close();
+
+        // Проверка результатов.
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList());
+        Assertions.assertEquals(1, queue.size());
+        Assertions.assertEquals(1, meterRegistry.get("jwt.write-behind.failed").counter().count());
+    }
+}
@@ -1,6 +1,7 @@
 package ru.averkiev.greenchat_auth.services.impl;
 
 import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -8,13 +9,27 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.averkiev.greenchat_auth.configs.ExecutorConfig;
 import ru.averkiev.greenchat_auth.exceptions.AuthException;
 import ru.averkiev.greenchat_auth.models.*;
+import ru.averkiev.greenchat_auth.repositories.RevocationEpochRepository;
 import ru.averkiev.greenchat_auth.security.*;
+import ru.averkiev.greenchat_auth.utils.BatchExecutor;
+import ru.averkiev.greenchat_auth.utils.JwtUtils;
+import ru.averkiev.greenchat_auth.utils.TokenDigest;
 
+import java.time.Clock;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -35,6 +50,22 @@ public class AuthServiceImplTest {
     private JwtProvider jwtProvider;
     @Mock
     private BCryptPasswordEncoder passwordEncoder;
+    @Mock
+    private AccessTokenWriteBehindQueue accessTokenWriteBehindQueue;
+    @Mock
+    private RevokedTokenDenylist revokedTokenDenylist;
+
+    @Mock
+    private RevocationEpochRepository revocationEpochRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private RevocationEpochs revocationEpochs;
+
+    private final BatchExecutor validationExecutor = new BatchExecutor("jwt-validate-", 2, 4);
+
+    private final ThreadPoolExecutor authExecutor = new ExecutorConfig().authExecutor(2, 4);
 
     private AuthServiceImpl authService;
 
@@ -57,10 +88,24 @@ public class AuthServiceImplTest {
             roles
     );
 
+    @AfterEach
+    void tearDown() {
+        validationExecutor.close();
+        authExecutor.shutdownNow();
+    }
+
     @BeforeEach
     void setup() {
         MockitoAnnotations.openMocks(this);
-        authService = new AuthServiceImpl(jwtUserDetailsService, accessTokenService, refreshTokenService, jwtProvider, passwordEncoder);
+        revocationEpochs = new RevocationEpochs(revocationEpochRepository, Clock.systemUTC(), 5);
+        authService = new AuthServiceImpl(jwtUserDetailsService, accessTokenService, refreshTokenService, jwtProvider,
+                passwordEncoder, new OpaqueTokenIndex(false, 5, Clock.systemUTC()), accessTokenWriteBehindQueue,
+                revocationEpochs, revokedTokenDenylist, validationExecutor, authExecutor,
+                new TransactionTemplate(transactionManager));
+        when(accessTokenService.upsert(any(AccessToken.class))).thenReturn(true);
+        when(refreshTokenService.upsert(any(RefreshToken.class))).thenReturn(true);
+        when(accessTokenService.delete(anyInt())).thenReturn(true);
+        when(refreshTokenService.delete(anyInt())).thenReturn(true);
     }
 
     /**
@@ -81,13 +126,13 @@ public class AuthServiceImplTest {
         AccessToken accessToken = new AccessToken(0, accessTokenStr, new Date(), new Date());
         RefreshToken refreshToken = new RefreshToken(0, refreshTokenStr, new Date(), new Date());
 
-        when(jwtProvider.generateAccessToken(jwtUser)).thenReturn(accessTokenStr);
-        when(jwtProvider.generateRefreshToken(jwtUser)).thenReturn(refreshTokenStr);
-        when(jwtProvider.getAccessClaims(accessTokenStr)).thenReturn(mock(Claims.class));
-        when(jwtProvider.getRefreshClaims(refreshTokenStr)).thenReturn(mock(Claims.class));
+        when(jwtProvider.mintAccessToken(jwtUser))
+                .thenReturn(new IssuedToken(accessTokenStr, "access_id", new Date(), new Date()));
+        when(jwtProvider.mintRefreshToken(jwtUser))
+                .thenReturn(new IssuedToken(refreshTokenStr, "refresh_id", new Date(), new Date()));
 
-        when(accessTokenService.save(accessToken)).thenReturn(true);
-        when(refreshTokenService.save(refreshToken)).thenReturn(true);
+        when(accessTokenService.upsert(any(AccessToken.class))).thenReturn(true);
+        when(refreshTokenService.upsert(any(RefreshToken.class))).thenReturn(true);
 
         // Вызов тестируемого метода.
         JwtResponse jwtResponse = authService.login(authRequest);
@@ -99,8 +144,147 @@ public class AuthServiceImplTest {
 
         verify(jwtUserDetailsService, times(1)).loadUserByUsername(username);
         verify(passwordEncoder, times(1)).matches(password, user.getPassword());
-        verify(jwtProvider, times(1)).generateAccessToken(jwtUser);
-        verify(jwtProvider, times(1)).generateRefreshToken(jwtUser);
+        verify(jwtProvider, times(1)).mintAccessToken(jwtUser);
+        verify(jwtProvider, times(1)).mintRefreshToken(jwtUser);
+        verify(jwtProvider, never()).getAccessClaims(anyString());
+        verify(jwtProvider, never()).getRefreshClaims(anyString());
+        verify(accessTokenService, times(1)).upsert(argThat(token -> accessTokenStr.equals(token.getAccessToken())));
+        verify(refreshTokenService, times(1)).upsert(argThat(token -> refreshTokenStr.equals(token.getRefreshToken())));
+        verify(accessTokenService, never()).findByUserId(anyInt());
+        verify(refreshTokenService, never()).findByUserId(anyInt());
+        verify(accessTokenService, never()).save(any());
+        verify(accessTokenService, never()).update(anyInt(), any());
+    }
+
+    /**
+     * Проверяет, что при включённой отложенной записи access токен передаётся в очередь и не сохраняется
+     * синхронно, а refresh токен по-прежнему сохраняется сразу.
+     */
+    @Test
+    public void login_WriteBehindEnabled_EnqueuesAccessToken() {
+        // Создание тестовых данных.
+        JwtRequest authRequest = new JwtRequest(username, password);
+        JwtUser jwtUser = JwtUserFactory.created(user);
+
+        when(jwtUserDetailsService.loadUserByUsername(username)).thenReturn(jwtUser);
+        when(passwordEncoder.matches(password, jwtUser.getPassword())).thenReturn(true);
+        when(jwtProvider.mintAccessToken(jwtUser))
+                .thenReturn(new IssuedToken("access_token", "access_id", new Date(), new Date()));
+        when(jwtProvider.mintRefreshToken(jwtUser))
+                .thenReturn(new IssuedToken("refresh_token", "refresh_id", new Date(), new Date()));
+        when(accessTokenWriteBehindQueue.enqueue(any(AccessToken.class))).thenReturn(true);
+
+        // Вызов тестируемого метода.
+        JwtResponse jwtResponse = authService.login(authRequest);
+
+        // Проверка результатов.
+        assertEquals("access_token", jwtResponse.getAccessToken());
+        verify(accessTokenWriteBehindQueue, times(1))
+                .enqueue(argThat(token -> "access_token".equals(token.getAccessToken())));
+        verify(accessTokenService, never()).upsert(any());
+        verify(refreshTokenService, times(1)).upsert(any(RefreshToken.class));
+    }
+
+    /**
+     * Проверяет, что выход отбрасывает из очереди отложенной записи только запись выходящего пользователя,
+     * не выгружая очередь остальных пользователей, и удаляет его токены.
+     */
+    @Test
+    public void logout_WriteBehindEnabled_DiscardsOnlyUserPendingToken() {
+        // Создание тестовых данных.
+        JwtUser jwtUser = JwtUserFactory.created(user);
+        Claims claims = mock(Claims.class);
+
+        when(jwtProvider.verifyRefreshToken("refresh_token")).thenReturn(claims);
+        when(claims.getSubject()).thenReturn(username);
+        when(jwtUserDetailsService.loadUserByUsername(username)).thenReturn(jwtUser);
+
+        // Вызов тестируемого метода.
+        boolean loggedOut = authService.logout("refresh_token");
+
+        // Проверка результатов.
+        assertTrue(loggedOut);
+        verify(accessTokenWriteBehindQueue, times(1)).discard(jwtUser.getId());
+        verify(accessTokenWriteBehindQueue, never()).flush();
+        verify(accessTokenService, times(1)).delete(jwtUser.getId());
+        verify(refreshTokenService, times(1)).delete(jwtUser.getId());
+    }
+
+    /**
+     * Проверяет, что в режиме без хранения access токенов вход не записывает access токен ни синхронно, ни через
+     * очередь отложенной записи, а выход отзывает выпущенные access токены эпохой отзыва.
+     */
+    @Test
+    public void loginAndLogout_StatelessMode_SkipAccessTokenTable() {
+        // Создание тестовых данных.
+        ReflectionTestUtils.setField(authService, "stateless", true);
+        JwtRequest authRequest = new JwtRequest(username, password);
+        JwtUser jwtUser = JwtUserFactory.created(user);
+        Claims claims = mock(Claims.class);
+        long issuedAt = System.currentTimeMillis() - 60_000;
+
+        when(jwtUserDetailsService.loadUserByUsername(username)).thenReturn(jwtUser);
+        when(passwordEncoder.matches(password, jwtUser.getPassword())).thenReturn(true);
+        when(jwtProvider.mintAccessToken(jwtUser))
+                .thenReturn(new IssuedToken("access_token", "access_id", new Date(), new Date()));
+        when(jwtProvider.mintRefreshToken(jwtUser))
+                .thenReturn(new IssuedToken("refresh_token", "refresh_id", new Date(), new Date()));
+        when(jwtProvider.verifyRefreshToken("refresh_token")).thenReturn(claims);
+        when(claims.getSubject()).thenReturn(username);
+
+        // Вызов тестируемого метода.
+        JwtResponse jwtResponse = authService.login(authRequest);
+        boolean revokedBeforeLogout = revocationEpochs.isRevoked(jwtUser.getId(), issuedAt);
+        boolean loggedOut = authService.logout("refresh_token");
+
+        // Проверка результатов.
+        assertEquals("access_token", jwtResponse.getAccessToken());
+        assertTrue(loggedOut);
+        assertFalse(revokedBeforeLogout);
+        assertTrue(revocationEpochs.isRevoked(jwtUser.getId(), issuedAt));
+        verify(revocationEpochRepository, times(1)).upsert(eq(jwtUser.getId()), any(Date.class));
+        verify(accessTokenWriteBehindQueue, never()).enqueue(any());
+        verify(accessTokenService, never()).upsert(any());
+        verify(accessTokenService, never()).delete(anyInt());
+        verify(refreshTokenService, times(1)).upsert(any(RefreshToken.class));
+        verify(refreshTokenService, times(1)).delete(jwtUser.getId());
+    }
+
+    /**
+     * Проверяет, что в режиме непрозрачных токенов клиент получает короткий access токен, который сохраняется
+     * в базе данных и находится в индексе сессий.
+     */
+    @Test
+    public void login_OpaqueMode_ReturnsOpaqueAccessToken() {
+        // Создание тестовых данных.
+        OpaqueTokenIndex opaqueTokenIndex = new OpaqueTokenIndex(true, 5, Clock.systemUTC());
+        AuthServiceImpl opaqueAuthService = new AuthServiceImpl(jwtUserDetailsService, accessTokenService,
+                refreshTokenService, jwtProvider, passwordEncoder, opaqueTokenIndex, accessTokenWriteBehindQueue,
+                revocationEpochs, revokedTokenDenylist, validationExecutor, authExecutor,
+                new TransactionTemplate(transactionManager));
+        JwtRequest authRequest = new JwtRequest(username, password);
+        JwtUser jwtUser = JwtUserFactory.created(user);
+
+        when(jwtUserDetailsService.loadUserByUsername(username)).thenReturn(jwtUser);
+        when(passwordEncoder.matches(password, jwtUser.getPassword())).thenReturn(true);
+        when(jwtProvider.mintRefreshToken(jwtUser))
+                .thenReturn(new IssuedToken("refresh_token", "refresh_id", new Date(), new Date()));
+
+        // Вызов тестируемого метода.
+        JwtResponse jwtResponse = opaqueAuthService.login(authRequest);
+
+        // Проверка результатов.
+        String accessToken = jwtResponse.getAccessToken();
+        assertEquals(43, accessToken.length());
+        assertTrue(OpaqueTokenIndex.isOpaque(accessToken));
+        assertEquals(username, opaqueTokenIndex.find(accessToken).authentication().getLogin());
+        verify(accessTokenService).upsert(argThat(token -> accessToken.equals(token.getAccessToken())));
+        verify(jwtProvider, never()).mintAccessToken(any());
+
+        JwtIntrospectionResponse introspection = opaqueAuthService.introspect(accessToken, null);
+        assertTrue(introspection.isActive());
+        assertEquals(List.of("ROLE_USER", "ROLE_ADMIN"), introspection.getAuthorities());
+        verify(jwtProvider, never()).verifyAccessTokenQuietly(anyString());
     }
 
     /**
@@ -113,6 +297,7 @@ public class AuthServiceImplTest {
         JwtUser jwtUser = JwtUserFactory.created(user);
 
         when(jwtUserDetailsService.loadUserByUsername(username)).thenReturn(jwtUser);
+        when(jwtUserDetailsService.reloadUserByUsername(username)).thenReturn(jwtUser);
         when(passwordEncoder.matches(password, user.getPassword())).thenReturn(false);
 
         // Вызов проверяемого метода.
@@ -122,9 +307,170 @@ public class AuthServiceImplTest {
         assertEquals("Неправильный пароль", exception.getMessage());
 
         verify(jwtUserDetailsService, times(1)).loadUserByUsername(username);
+        verify(jwtUserDetailsService, times(1)).reloadUserByUsername(username);
         verify(passwordEncoder, times(1)).matches(password, user.getPassword());
     }
 
+    /**
+     * Проверяет, что при несовпадении пароля с данными пользователя из кэша данные запрашиваются повторно,
+     * и пароль, изменённый после кэширования, принимается.
+     */
+    @Test
+    public void login_PasswordChangedAfterCaching_ReloadsUser() {
+        // Создание тестовых данных.
+        JwtRequest authRequest = new JwtRequest(username, "new_password");
+        JwtUser cachedUser = JwtUserFactory.created(user);
+        JwtUser reloadedUser = JwtUserFactory.created(new User(0, username, "new_password_hash", firstname,
+                lastname, email, status, roles));
+
+        when(jwtUserDetailsService.loadUserByUsername(username)).thenReturn(cachedUser);
+        when(jwtUserDetailsService.reloadUserByUsername(username)).thenReturn(reloadedUser);
+        when(passwordEncoder.matches("new_password", user.getPassword())).thenReturn(false);
+        when(passwordEncoder.matches("new_password", "new_password_hash")).thenReturn(true);
+        when(jwtProvider.mintAccessToken(reloadedUser))
+                .thenReturn(new IssuedToken("access_token", "access_id", new Date(), new Date()));
+        when(jwtProvider.mintRefreshToken(reloadedUser))
+                .thenReturn(new IssuedToken("refresh_token", "refresh_id", new Date(), new Date()));
+
+        // Вызов тестируемого метода.
+        JwtResponse jwtResponse = authService.login(authRequest);
+
+        // Проверка результатов.
+        assertEquals("access_token", jwtResponse.getAccessToken());
+        verify(jwtUserDetailsService, times(1)).reloadUserByUsername(username);
+    }
+
+    /**
+     * Проверяет, что пароль проверяется вне транзакции, а ошибка сохранения токена откатывает транзакцию и
+     * приводит к исключению вместо выдачи несохранённых токенов.
+     */
+    @Test
+    public void login_TokenNotSaved_RollsBackAndThrows() {
+        // Создание тестовых данных.
+        JwtRequest authRequest = new JwtRequest(username, password);
+        JwtUser jwtUser = JwtUserFactory.created(user);
+        when(jwtUserDetailsService.loadUserByUsername(username)).thenReturn(jwtUser);
+        when(passwordEncoder.matches(password, user.getPassword())).thenAnswer(invocation -> {
+            verify(transactionManager, never()).getTransaction(any());
+            return true;
+        });
+        when(jwtProvider.mintAccessToken(jwtUser)).thenReturn(new IssuedToken("access", "id", new Date(), new Date()));
+        when(jwtProvider.mintRefreshToken(jwtUser))
+                .thenReturn(new IssuedToken("refresh", "id", new Date(), new Date()));
+        when(refreshTokenService.upsert(any(RefreshToken.class))).thenReturn(false);
+
+        // Вызов тестируемого метода.
+        assertThrows(IllegalStateException.class, () -> authService.login(authRequest));
+
+        // Проверка результатов.
+        verify(transactionManager, times(1)).rollback(any());
+        verify(transactionManager, never()).commit(any());
+    }
+
+    /**
+     * Проверяет, что асинхронный вход использует асинхронный запрос данных пользователя, а пароль проверяется и
+     * токены сохраняются в транзакции после его завершения в пуле потоков аутентификации.
+     */
+    @Test
+    public void loginAsync_ValidCredentials_ComposesOnAsyncUserLookup() {
+        // Создание тестовых данных.
+        JwtRequest authRequest = new JwtRequest(username, password);
+        JwtUser jwtUser = JwtUserFactory.created(user);
+        CompletableFuture<JwtUser> lookup = new CompletableFuture<>();
+
+        AtomicReference<String> passwordCheckThread = new AtomicReference<>();
+
+        when(jwtUserDetailsService.loadUserByUsernameAsync(username)).thenReturn(lookup);
+        when(passwordEncoder.matches(password, jwtUser.getPassword())).thenAnswer(invocation -> {
+            passwordCheckThread.set(Thread.currentThread().getName());
+            return true;
+        });
+        when(jwtProvider.mintAccessToken(jwtUser))
+                .thenReturn(new IssuedToken("access_token", "access_id", new Date(), new Date()));
+        when(jwtProvider.mintRefreshToken(jwtUser))
+                .thenReturn(new IssuedToken("refresh_token", "refresh_id", new Date(), new Date()));
+
+        // Вызов тестируемого метода.
+        CompletableFuture<JwtResponse> result = authService.loginAsync(authRequest);
+        boolean doneBeforeLookup = result.isDone();
+        lookup.complete(jwtUser);
+        JwtResponse jwtResponse = result.join();
+
+        // Проверка результатов.
+        assertFalse(doneBeforeLookup);
+        assertTrue(passwordCheckThread.get().startsWith("auth-async-"), passwordCheckThread.get());
+        assertEquals("access_token", jwtResponse.getAccessToken());
+        assertEquals("refresh_token", jwtResponse.getRefreshToken());
+        verify(jwtUserDetailsService, never()).loadUserByUsername(anyString());
+        verify(accessTokenService, times(1)).upsert(any(AccessToken.class));
+        verify(refreshTokenService, times(1)).upsert(any(RefreshToken.class));
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    /**
+     * Проверяет, что при неверном пароле результат асинхронного входа завершается исключением AuthException, а
+     * данные пользователя повторно запрашиваются асинхронно, без блокирующего запроса в пуле потоков
+     * аутентификации.
+     */
+    @Test
+    public void loginAsync_InvalidCredentials_CompletesWithAuthException() {
+        // Создание тестовых данных.
+        JwtRequest authRequest = new JwtRequest(username, password);
+        JwtUser jwtUser = JwtUserFactory.created(user);
+        CompletableFuture<JwtUser> reload = new CompletableFuture<>();
+
+        when(jwtUserDetailsService.loadUserByUsernameAsync(username))
+                .thenReturn(CompletableFuture.completedFuture(jwtUser));
+        when(jwtUserDetailsService.reloadUserByUsernameAsync(username)).thenReturn(reload);
+        when(passwordEncoder.matches(password, user.getPassword())).thenReturn(false);
+
+        // Вызов тестируемого метода.
+        CompletableFuture<JwtResponse> result = authService.loginAsync(authRequest);
+        verify(jwtUserDetailsService, timeout(1_000)).reloadUserByUsernameAsync(username);
+        boolean doneBeforeReload = result.isDone();
+        reload.complete(jwtUser);
+        CompletionException exception = assertThrows(CompletionException.class, result::join);
+
+        // Проверка результатов.
+        assertFalse(doneBeforeReload);
+        assertInstanceOf(AuthException.class, exception.getCause());
+        verify(jwtUserDetailsService, never()).reloadUserByUsername(anyString());
+        verify(accessTokenService, never()).upsert(any());
+        verify(refreshTokenService, never()).upsert(any());
+    }
+
+    /**
+     * Проверяет, что асинхронный вход принимает пароль, изменённый после кэширования данных пользователя: при
+     * несовпадении данные пользователя запрашиваются повторно асинхронно.
+     */
+    @Test
+    public void loginAsync_PasswordChangedAfterCaching_AcceptsReloadedPassword() {
+        // Создание тестовых данных.
+        JwtRequest authRequest = new JwtRequest(username, password);
+        JwtUser cachedUser = JwtUserFactory.created(user);
+        JwtUser reloadedUser = JwtUserFactory.created(new User(0, username, "new_hash", firstname, lastname, email,
+                status, roles));
+
+        when(jwtUserDetailsService.loadUserByUsernameAsync(username))
+                .thenReturn(CompletableFuture.completedFuture(cachedUser));
+        when(jwtUserDetailsService.reloadUserByUsernameAsync(username))
+                .thenReturn(CompletableFuture.completedFuture(reloadedUser));
+        when(passwordEncoder.matches(password, cachedUser.getPassword())).thenReturn(false);
+        when(passwordEncoder.matches(password, "new_hash")).thenReturn(true);
+        when(jwtProvider.mintAccessToken(reloadedUser))
+                .thenReturn(new IssuedToken("access_token", "access_id", new Date(), new Date()));
+        when(jwtProvider.mintRefreshToken(reloadedUser))
+                .thenReturn(new IssuedToken("refresh_token", "refresh_id", new Date(), new Date()));
+
+        // Вызов тестируемого метода.
+        JwtResponse jwtResponse = authService.loginAsync(authRequest).join();
+
+        // Проверка результатов.
+        assertEquals("access_token", jwtResponse.getAccessToken());
+        verify(jwtUserDetailsService, never()).reloadUserByUsername(anyString());
+        verify(transactionManager, times(1)).commit(any());
+    }
+
     /**
      * Проверяет формирование ответа на запрос обновления access токена при валидном refresh токена.
      */
@@ -142,11 +488,11 @@ public class AuthServiceImplTest {
                 new Date()
         );
 
-        when(jwtProvider.validateRefreshToken(refreshTokenStr)).thenReturn(true);
-        when(jwtProvider.getRefreshClaims(refreshTokenStr)).thenReturn(claims);
+        when(jwtProvider.verifyRefreshToken(refreshTokenStr)).thenReturn(claims);
         when(claims.getSubject()).thenReturn(username);
-        when(jwtUserDetailsService.loadUserByUsername(username)).thenReturn(jwtUser);
-        when(refreshTokenService.findByUserId(user.getId())).thenReturn(Optional.of(saveRefreshToken));
+        when(jwtUserDetailsService.loadUserForRefresh(username)).thenReturn(jwtUser);
+        when(refreshTokenService.findMatching(eq(user.getId()), eq(refreshTokenStr), any()))
+                .thenReturn(Optional.of(saveRefreshToken));
 
         String accessTokenStr = "access_token";
         AccessToken newAccessToken = new AccessToken(
@@ -156,9 +502,9 @@ public class AuthServiceImplTest {
                 new Date()
         );
 
-        when(jwtProvider.generateAccessToken(jwtUser)).thenReturn(accessTokenStr);
-        when(jwtProvider.getAccessClaims(accessTokenStr)).thenReturn(claims);
-        when(accessTokenService.update(jwtUser.getId(), newAccessToken)).thenReturn(true);
+        when(jwtProvider.mintAccessToken(jwtUser))
+                .thenReturn(new IssuedToken(accessTokenStr, "access_id", new Date(), new Date()));
+        when(accessTokenService.upsert(any(AccessToken.class))).thenReturn(true);
 
         // Вызов проверяемого метода.
         JwtResponse jwtResponse = authService.getAccessToken(refreshTokenStr);
@@ -168,37 +514,68 @@ public class AuthServiceImplTest {
         assertEquals(accessTokenStr, jwtResponse.getAccessToken());
         assertNull(jwtResponse.getRefreshToken());
 
-        verify(jwtProvider, times(1)).validateRefreshToken(refreshTokenStr);
-        verify(jwtProvider, times(1)).getRefreshClaims(refreshTokenStr);
-        verify(jwtProvider, times(1)).generateAccessToken(jwtUser);
-        verify(jwtProvider, times(2)).getAccessClaims(accessTokenStr);
+        verify(jwtProvider, times(1)).verifyRefreshToken(refreshTokenStr);
+        verify(jwtProvider, never()).validateRefreshToken(refreshTokenStr);
+        verify(jwtProvider, never()).getRefreshClaims(refreshTokenStr);
+        verify(jwtProvider, times(1)).mintAccessToken(jwtUser);
+        verify(jwtProvider, never()).getAccessClaims(anyString());
         verify(claims, times(1)).getSubject();
-        verify(jwtUserDetailsService, times(1)).loadUserByUsername(username);
-        verify(refreshTokenService, times(1)).findByUserId(jwtUser.getId());
+        verify(jwtUserDetailsService, times(1)).loadUserForRefresh(username);
+        verify(refreshTokenService, times(1)).findMatching(eq(jwtUser.getId()), eq(refreshTokenStr), any());
+        verify(refreshTokenService, never()).findStoredByUserId(anyInt());
+        verify(accessTokenService, times(1)).upsert(argThat(token ->
+                newAccessToken.getAccessToken().equals(token.getAccessToken())));
     }
 
     /**
-     * Проверяет формирование ответа на запрос обновления access токена при невалидном refresh токена.
+     * Проверяет, что запрос обновления access токена с невалидным refresh токеном отклоняется AuthException.
      */
     @Test
-    public void getAccessTokenInvalidRefreshToken_ReturnsJwtResponseWithNullValues() {
+    public void getAccessTokenInvalidRefreshToken_ThrowsAuthException() {
         // Создание тестовых данных
         String refreshTokenStr = "invalid_refresh_token";
 
-        when(jwtProvider.validateRefreshToken(refreshTokenStr)).thenReturn(false);
+        when(jwtProvider.verifyRefreshToken(refreshTokenStr)).thenThrow(new AuthException("Некорректный JWT"));
+
+        // Вызов тестируемого метода и проверка результатов.
+        assertThrows(AuthException.class, () -> authService.getAccessToken(refreshTokenStr));
+
+        verify(jwtProvider, times(1)).verifyRefreshToken(refreshTokenStr);
+        verify(jwtProvider, never()).getRefreshClaims(refreshTokenStr);
+        verify(jwtProvider, never()).getAccessClaims(anyString());
+        verify(jwtUserDetailsService, never()).loadUserForRefresh(anyString());
+    }
+
+    /**
+     * Проверяет, что refresh токен, дайджест которого не совпадает с сохранённым в базе данных, не позволяет
+     * получить новый access токен. Сохранённая запись содержит только дайджест, без значения токена.
+     */
+    @Test
+    public void getAccessToken_DigestMismatch_ReturnsEmptyJwtResponse() {
+        // Создание тестовых данных.
+        String refreshTokenStr = "refresh_token";
+        Claims claims = mock(Claims.class);
+        JwtUser jwtUser = JwtUserFactory.created(user);
+
+        RefreshToken saveRefreshToken = new RefreshToken();
+        saveRefreshToken.setRefreshTokenDigest(TokenDigest.sha256("other_refresh_token"));
+
+        when(jwtProvider.verifyRefreshToken(refreshTokenStr)).thenReturn(claims);
+        when(claims.getSubject()).thenReturn(username);
+        when(jwtUserDetailsService.loadUserForRefresh(username)).thenReturn(jwtUser);
+        when(refreshTokenService.findMatching(eq(user.getId()), eq(refreshTokenStr), any()))
+                .thenReturn(Optional.empty());
 
         // Вызов тестируемого метода.
         JwtResponse jwtResponse = authService.getAccessToken(refreshTokenStr);
 
         // Проверка результатов.
-        assertNotNull(jwtResponse);
         assertNull(jwtResponse.getAccessToken());
-        assertNull(jwtResponse.getRefreshToken());
-
-        verify(jwtProvider, times(1)).validateRefreshToken(refreshTokenStr);
-        verify(jwtProvider, never()).getRefreshClaims(refreshTokenStr);
-        verify(jwtProvider, never()).getAccessClaims(anyString());
-        verify(jwtUserDetailsService, never()).loadUserByUsername(anyString());
+        assertNull(saveRefreshToken.getRefreshToken());
+        assertFalse(saveRefreshToken.matches(refreshTokenStr));
+        assertTrue(saveRefreshToken.matches("other_refresh_token"));
+        verify(jwtProvider, never()).mintAccessToken(any());
+        verify(accessTokenService, never()).upsert(any());
     }
 
     /**
@@ -216,13 +593,12 @@ public class AuthServiceImplTest {
         );
         Claims claims = mock(Claims.class);
 
-        when(jwtProvider.validateRefreshToken(refreshTokenStr)).thenReturn(true);
-        when(jwtProvider.getRefreshClaims(refreshTokenStr)).thenReturn(claims);
+        when(jwtProvider.verifyRefreshToken(refreshTokenStr)).thenReturn(claims);
         when(claims.getSubject()).thenReturn(username);
 
         JwtUser jwtUser = JwtUserFactory.created(user);
 
-        when(jwtUserDetailsService.loadUserByUsername(username)).thenReturn(jwtUser);
+        when(jwtUserDetailsService.loadUserForRefresh(username)).thenReturn(jwtUser);
 
         String newAccessTokenStr = "new_accessToken";
         AccessToken newAccessToken = new AccessToken(
@@ -240,13 +616,15 @@ public class AuthServiceImplTest {
                 new Date()
         );
 
-        when(jwtProvider.getRefreshClaims(newRefreshTokenStr)).thenReturn(mock(Claims.class));
-        when(jwtProvider.generateRefreshToken(jwtUser)).thenReturn(newRefreshTokenStr);
-        when(jwtProvider.getAccessClaims(newAccessTokenStr)).thenReturn(mock(Claims.class));
-        when(jwtProvider.generateAccessToken(jwtUser)).thenReturn(newAccessTokenStr);
-        when(accessTokenService.update(0, newAccessToken)).thenReturn(true);
-        when(refreshTokenService.update(0, newRefreshToken)).thenReturn(true);
-        when(refreshTokenService.findByUserId(jwtUser.getId())).thenReturn(Optional.of(refreshToken));
+        when(jwtProvider.mintRefreshToken(jwtUser))
+                .thenReturn(new IssuedToken(newRefreshTokenStr, "refresh_id", new Date(), new Date()));
+        when(jwtProvider.mintAccessToken(jwtUser))
+                .thenReturn(new IssuedToken(newAccessTokenStr, "access_id", new Date(), new Date()));
+        when(accessTokenService.upsert(any(AccessToken.class))).thenReturn(true);
+        when(refreshTokenService.upsert(any(RefreshToken.class))).thenReturn(true);
+        when(refreshTokenService.findMatching(eq(jwtUser.getId()), eq(refreshTokenStr), any()))
+                .thenReturn(Optional.of(refreshToken));
+        when(refreshTokenService.findStoredByUserId(jwtUser.getId())).thenReturn(Optional.of(refreshToken));
 
         // Вызов тестируемого метода.
         JwtResponse jwtResponse = authService.refresh(refreshTokenStr);
@@ -256,12 +634,48 @@ public class AuthServiceImplTest {
         assertEquals(newAccessTokenStr, jwtResponse.getAccessToken());
         assertEquals(newRefreshTokenStr, jwtResponse.getRefreshToken());
 
-        verify(jwtProvider, times(1)).validateRefreshToken(refreshTokenStr);
-        verify(jwtProvider, times(1)).getRefreshClaims(refreshTokenStr);
+        verify(jwtProvider, times(1)).verifyRefreshToken(refreshTokenStr);
+        verify(jwtProvider, never()).validateRefreshToken(refreshTokenStr);
+        verify(jwtProvider, never()).getRefreshClaims(refreshTokenStr);
         verify(claims, times(1)).getSubject();
-        verify(jwtUserDetailsService, times(1)).loadUserByUsername(username);
-        verify(jwtProvider, times(1)).generateAccessToken(jwtUser);
-        verify(jwtProvider, times(1)).generateRefreshToken(jwtUser);
+        verify(jwtUserDetailsService, times(1)).loadUserForRefresh(username);
+        verify(jwtProvider, times(1)).mintAccessToken(jwtUser);
+        verify(jwtProvider, times(1)).mintRefreshToken(jwtUser);
+        verify(jwtProvider, never()).getAccessClaims(anyString());
+        verify(accessTokenService, times(1)).upsert(argThat(token ->
+                newAccessToken.getAccessToken().equals(token.getAccessToken())));
+        verify(refreshTokenService, times(1)).upsert(argThat(token ->
+                newRefreshToken.getRefreshToken().equals(token.getRefreshToken())));
+    }
+
+    /**
+     * Проверяет, что refresh токен, совпавший с кэшем, но уже заменённый в основном хранилище на другом экземпляре
+     * сервиса, не заменяется повторно: транзакция откатывается без сохранения токенов.
+     */
+    @Test
+    public void refresh_ReplacedOnPrimary_ThrowsAuthExceptionAndRollsBack() {
+        // Создание тестовых данных.
+        String refreshTokenStr = "refresh_token";
+        Claims claims = mock(Claims.class);
+        JwtUser jwtUser = JwtUserFactory.created(user);
+        RefreshToken cachedRefreshToken = new RefreshToken(0, refreshTokenStr, new Date(), new Date());
+        RefreshToken storedRefreshToken = new RefreshToken(0, "other_refresh_token", new Date(), new Date());
+
+        when(jwtProvider.verifyRefreshToken(refreshTokenStr)).thenReturn(claims);
+        when(claims.getSubject()).thenReturn(username);
+        when(jwtUserDetailsService.loadUserForRefresh(username)).thenReturn(jwtUser);
+        when(refreshTokenService.findMatching(eq(jwtUser.getId()), eq(refreshTokenStr), any()))
+                .thenReturn(Optional.of(cachedRefreshToken));
+        when(refreshTokenService.findStoredByUserId(jwtUser.getId())).thenReturn(Optional.of(storedRefreshToken));
+
+        // Вызов тестируемого метода.
+        assertThrows(AuthException.class, () -> authService.refresh(refreshTokenStr));
+
+        // Проверка результатов.
+        verify(jwtProvider, never()).mintRefreshToken(any());
+        verify(accessTokenService, never()).upsert(any());
+        verify(refreshTokenService, never()).upsert(any());
+        verify(transactionManager, times(1)).rollback(any());
     }
 
     /**
@@ -272,13 +686,183 @@ public class AuthServiceImplTest {
         // Создание тестовых данных.
         String refreshTokenStr = "invalid_refresh_token";
 
-        when(jwtProvider.validateRefreshToken(refreshTokenStr)).thenReturn(false);
+        when(jwtProvider.verifyRefreshToken(refreshTokenStr)).thenThrow(new AuthException("Некорректный JWT"));
 
         // Вызов тестируемого метода.
         AuthException exception = assertThrows(AuthException.class, () ->authService.refresh(refreshTokenStr));
 
         // Проверка результатов.
-        assertEquals("Неверный JWT токен", exception.getMessage());
+        assertEquals("Некорректный JWT", exception.getMessage());
+    }
+
+    /**
+     * Проверяет пакетную проверку refresh токенов: результаты возвращаются в порядке токенов, а ошибка одного
+     * токена не прерывает проверку остальных.
+     */
+    @Test
+    public void validateAll_MixedTokens_ReturnsResultPerToken() {
+        // Создание тестовых данных.
+        Claims claims = mock(Claims.class);
+        Date expiration = new Date();
+        when(claims.getSubject()).thenReturn(username);
+        when(claims.getExpiration()).thenReturn(expiration);
+        when(jwtProvider.verifyRefreshTokenQuietly("valid_token")).thenReturn(claims);
+        when(jwtProvider.verifyRefreshTokenQuietly("expired_token"))
+                .thenThrow(new AuthException("Истек срок действия токена"));
+
+        // Вызов тестируемого метода.
+        List<JwtValidationResult> results = authService.validateAll(List.of("valid_token", "expired_token", ""));
+
+        // Проверка результатов.
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isValid());
+        assertEquals(username, results.get(0).getSubject());
+        assertEquals(expiration, results.get(0).getExpiresAt());
+        assertFalse(results.get(1).isValid());
+        assertEquals("Истек срок действия токена", results.get(1).getError());
+        assertFalse(results.get(2).isValid());
+        verify(jwtProvider, never()).verifyRefreshTokenQuietly("");
+    }
+
+    /**
+     * Проверяет интроспекцию действительного access токена.
+     */
+    @Test
+    public void introspect_ValidAccessToken_ReturnsActiveResponse() {
+        // Создание тестовых данных.
+        Claims claims = mock(Claims.class);
+        when(claims.getSubject()).thenReturn(username);
+        when(claims.getExpiration()).thenReturn(new Date(1_700_000_000_000L));
+        when(claims.get("authorities")).thenReturn(List.of(Map.of("authority", "ROLE_USER")));
+        when(jwtProvider.verifyAccessTokenQuietly("access_token")).thenReturn(claims);
+
+        // Вызов тестируемого метода.
+        JwtIntrospectionResponse response = authService.introspect("access_token", null);
+
+        // Проверка результатов.
+        assertTrue(response.isActive());
+        assertEquals("access_token", response.getTokenType());
+        assertEquals(username, response.getSub());
+        assertEquals(1_700_000_000L, response.getExp());
+        assertEquals(List.of("ROLE_USER"), response.getAuthorities());
+        verify(jwtProvider, never()).verifyRefreshTokenQuietly(anyString());
+    }
+
+    /**
+     * Проверяет интроспекцию refresh токена с подсказкой типа и недействительного токена.
+     */
+    @Test
+    public void introspect_RefreshHintAndInvalidToken() {
+        // Создание тестовых данных.
+        Claims claims = mock(Claims.class);
+        when(claims.getSubject()).thenReturn(username);
+        when(claims.getExpiration()).thenReturn(new Date(1_700_000_000_000L));
+        when(claims.get(JwtUtils.USER_ID_CLAIM, Integer.class)).thenReturn(0);
+        when(jwtProvider.verifyRefreshTokenQuietly("refresh_token")).thenReturn(claims);
+        when(jwtProvider.verifyAccessTokenQuietly("invalid_token")).thenThrow(new AuthException("Некорректный JWT"));
+        when(jwtProvider.verifyRefreshTokenQuietly("invalid_token")).thenThrow(new AuthException("Некорректный JWT"));
+        when(refreshTokenService.findMatching(eq(0), eq("refresh_token"), any()))
+                .thenReturn(Optional.of(new RefreshToken(0, "refresh_token", new Date(), new Date())));
+
+        // Вызов тестируемого метода.
+        JwtIntrospectionResponse refreshResponse = authService.introspect("refresh_token", "refresh_token");
+        JwtIntrospectionResponse invalidResponse = authService.introspect("invalid_token", null);
+
+        // Проверка результатов.
+        assertTrue(refreshResponse.isActive());
+        assertEquals("refresh_token", refreshResponse.getTokenType());
+        assertEquals(List.of(), refreshResponse.getAuthorities());
+        verify(jwtProvider, never()).verifyAccessTokenQuietly("refresh_token");
+        assertFalse(invalidResponse.isActive());
+        assertNull(invalidResponse.getSub());
+    }
+
+    /**
+     * Проверяет, что refresh токен без поля uid ищется по дайджесту значения.
+     */
+    @Test
+    public void introspect_RefreshTokenWithoutUserId_LooksUpByDigest() {
+        // Создание тестовых данных.
+        Claims claims = mock(Claims.class);
+        when(claims.getSubject()).thenReturn(username);
+        when(claims.getExpiration()).thenReturn(new Date(1_700_000_000_000L));
+        when(jwtProvider.verifyRefreshTokenQuietly("refresh_token")).thenReturn(claims);
+        when(jwtProvider.verifyRefreshTokenQuietly("old_refresh_token")).thenReturn(claims);
+        when(refreshTokenService.findByToken("refresh_token"))
+                .thenReturn(Optional.of(new RefreshToken(0, "refresh_token", new Date(), new Date())));
+        when(refreshTokenService.findByToken("old_refresh_token")).thenReturn(Optional.empty());
+
+        // Вызов тестируемого метода.
+        JwtIntrospectionResponse stored = authService.introspect("refresh_token", "refresh_token");
+        JwtIntrospectionResponse replaced = authService.introspect("old_refresh_token", "refresh_token");
+
+        // Проверка результатов.
+        assertTrue(stored.isActive());
+        assertFalse(replaced.isActive());
+        verify(refreshTokenService, never()).findMatching(anyInt(), anyString(), any());
+    }
+
+    /**
+     * Проверяет, что refresh токен с действительной подписью, но заменённый при обновлении или удалённый при
+     * выходе из системы, неактивен.
+     */
+    @Test
+    public void introspect_ReplacedRefreshToken_ReturnsInactiveResponse() {
+        // Создание тестовых данных.
+        Claims claims = mock(Claims.class);
+        when(claims.getExpiration()).thenReturn(new Date(1_700_000_000_000L));
+        when(claims.get(JwtUtils.USER_ID_CLAIM, Integer.class)).thenReturn(0);
+        when(jwtProvider.verifyRefreshTokenQuietly("old_refresh_token")).thenReturn(claims);
+        when(refreshTokenService.findMatching(eq(0), eq("old_refresh_token"), any())).thenReturn(Optional.empty());
+
+        // Вызов тестируемого метода.
+        JwtIntrospectionResponse replaced = authService.introspect("old_refresh_token", "refresh_token");
+        JwtIntrospectionResponse loggedOut = authService.introspect("old_refresh_token", "refresh_token");
+
+        // Проверка результатов.
+        assertFalse(replaced.isActive());
+        assertFalse(loggedOut.isActive());
+    }
+
+    /**
+     * Проверяет отзыв отдельного access токена: идентификатор jti заносится в список отозванных до истечения срока
+     * действия токена, а интроспекция отозванного токена возвращает неактивный ответ.
+     */
+    @Test
+    public void revoke_ValidAccessToken_AddsTokenIdToDenylist() {
+        // Создание тестовых данных.
+        Date expiration = new Date(System.currentTimeMillis() + 60_000);
+        Claims claims = mock(Claims.class);
+        when(claims.getId()).thenReturn("token-id");
+        when(claims.getSubject()).thenReturn(username);
+        when(claims.getExpiration()).thenReturn(expiration);
+        when(jwtProvider.verifyAccessTokenQuietly("access_token")).thenReturn(claims);
+        when(revokedTokenDenylist.isRevoked("token-id")).thenReturn(true);
+
+        // Вызов тестируемого метода.
+        boolean revoked = authService.revoke("access_token");
+        JwtIntrospectionResponse response = authService.introspect("access_token", null);
+
+        // Проверка результатов.
+        assertTrue(revoked);
+        verify(revokedTokenDenylist, times(1)).revoke("token-id", expiration);
+        assertFalse(response.isActive());
+    }
+
+    /**
+     * Проверяет, что недействительный токен не заносится в список отозванных.
+     */
+    @Test
+    public void revoke_InvalidAccessToken_ReturnsFalse() {
+        // Создание тестовых данных.
+        when(jwtProvider.verifyAccessTokenQuietly("invalid_token")).thenThrow(new AuthException("Некорректный JWT"));
+
+        // Вызов тестируемого метода.
+        boolean revoked = authService.revoke("invalid_token");
+
+        // Проверка результатов.
+        assertFalse(revoked);
+        verify(revokedTokenDenylist, never()).revoke(anyString(), any(Date.class));
     }
 
     /**
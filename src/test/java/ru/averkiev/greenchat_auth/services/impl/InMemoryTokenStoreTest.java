@@ -0,0 +1,69 @@
+package ru.averkiev.greenchat_auth.services.impl;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import ru.averkiev.greenchat_auth.models.RefreshToken;
+import ru.averkiev.greenchat_auth.services.TokenType;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.Optional;
+
+/**
+ * Тестовый класс для проверки функциональности InMemoryTokenStore. Этот класс хранит записи токенов в памяти
+ * процесса в нескольких сегментах ConcurrentHashMap.
+ */
+public class InMemoryTokenStoreTest {
+
+    private static final Instant NOW = Instant.parse("2023-09-20T12:00:00Z");
+
+    /**
+     * Проверяет, что у пользователя хранится одна запись, которую заменяет upsert и удаляет deleteByUserId,
+     * а значение токена в хранилище не попадает.
+     */
+    @Test
+    public void upsert_ReplacesUserRecord() {
+        // Создание тестовых данных.
+        InMemoryTokenStore<RefreshToken> store = new InMemoryTokenStore<>(TokenType.REFRESH, 4,
+                Clock.fixed(NOW, ZoneOffset.UTC));
+        Date expiresAt = Date.from(NOW.plusSeconds(60));
+
+        // Вызов тестируемого метода.
+        store.upsert(new RefreshToken(1, "old_token", Date.from(NOW), expiresAt));
+        store.upsert(new RefreshToken(1, "new_token", Date.from(NOW), expiresAt));
+        store.upsert(new RefreshToken(2, "other_token", Date.from(NOW), expiresAt));
+        Optional<RefreshToken> found = store.findByUserId(1);
+        store.deleteByUserId(2);
+
+        // Проверка результатов.
+        Assertions.assertTrue(found.orElseThrow().matches("new_token"));
+        Assertions.assertNull(found.get().getRefreshToken());
+        Assertions.assertTrue(store.findByUserId(2).isEmpty());
+        Assertions.assertEquals(1, store.size());
+    }
+
+    /**
+     * Проверяет, что запись с истёкшим сроком действия не возвращается при поиске и удаляется при очистке.
+     */
+    @Test
+    public void findByUserId_ExpiredRecord_ReturnsEmptyAndEvicts() {
+        // Создание тестовых данных.
+        InMemoryTokenStore<RefreshToken> store = new InMemoryTokenStore<>(TokenType.REFRESH, 3,
+                Clock.fixed(NOW, ZoneOffset.UTC));
+        store.upsert(new RefreshToken(1, "expired", Date.from(NOW.minusSeconds(120)), Date.from(NOW)));
+        store.upsert(new RefreshToken(2, "expired", Date.from(NOW.minusSeconds(120)), Date.from(NOW)));
+        store.upsert(new RefreshToken(3, "active", Date.from(NOW), Date.from(NOW.plusSeconds(60))));
+
+        // Вызов тестируемого метода.
+        Optional<RefreshToken> expired = store.findByUserId(1);
+        int evicted = store.evictExpired();
+
+        // Проверка результатов.
+        Assertions.assertTrue(expired.isEmpty());
+        Assertions.assertEquals(1, evicted);
+        Assertions.assertEquals(1, store.size());
+        Assertions.assertTrue(store.findByUserId(3).isPresent());
+    }
+}
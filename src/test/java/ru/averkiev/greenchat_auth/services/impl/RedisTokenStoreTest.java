@@ -0,0 +1,244 @@
+package ru.averkiev.greenchat_auth.services.impl;
+
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.protocol.ProtocolVersion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import ru.averkiev.greenchat_auth.models.AccessToken;
+import ru.averkiev.greenchat_auth.services.TokenType;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Тестовый класс для проверки функциональности RedisTokenStore. Вместо сервера Redis используется сервер-заглушка
+ * в том же процессе, реализующий команды GET, SET, DEL и PING протокола RESP, к которому подключается клиент
+ * Lettuce.
+ */
+public class RedisTokenStoreTest {
+
+    private static final Instant NOW = Instant.parse("2023-09-20T12:00:00Z");
+
+    private RespStandInServer server;
+    private LettuceConnectionFactory connectionFactory;
+    private RedisTokenStore<AccessToken> store;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        server = new RespStandInServer();
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration("localhost", server.port()),
+                LettuceClientConfiguration.builder()
+                        .commandTimeout(Duration.ofSeconds(2))
+                        // Сервер-заглушка не поддерживает команду HELLO протокола RESP3.
+                        .clientOptions(ClientOptions.builder().protocolVersion(ProtocolVersion.RESP2).build())
+                        .build());
+        connectionFactory.afterPropertiesSet();
+        store = new RedisTokenStore<>(TokenType.ACCESS, connectionFactory, "test", Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        connectionFactory.destroy();
+        server.close();
+    }
+
+    /**
+     * Проверяет сохранение, поиск и удаление записи токена, а также время жизни ключа на сервере.
+     */
+    @Test
+    public void upsertFindDelete_RoundTrip() {
+        // Создание тестовых данных.
+        AccessToken accessToken = new AccessToken(7, "access_token", Date.from(NOW),
+                Date.from(NOW.plusSeconds(300)));
+
+        // Вызов тестируемого метода.
+        store.upsert(accessToken);
+        Optional<AccessToken> found = store.findByUserId(7);
+        Optional<AccessToken> missing = store.findByUserId(8);
+        Long ttlMillis = server.ttls.get("test:access:7");
+        store.deleteByUserId(7);
+
+        // Проверка результатов.
+        Assertions.assertTrue(found.isPresent());
+        Assertions.assertEquals(7, found.get().getUserId());
+        Assertions.assertTrue(found.get().matches("access_token"));
+        Assertions.assertEquals(accessToken.getCreatedAt(), found.get().getCreatedAt());
+        Assertions.assertEquals(accessToken.getExpiresAt(), found.get().getExpiresAt());
+        Assertions.assertTrue(missing.isEmpty());
+        Assertions.assertEquals(300_000L, ttlMillis);
+        Assertions.assertTrue(store.findByUserId(7).isEmpty());
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            Assertions.assertEquals("PONG", connection.ping());
+        }
+    }
+
+    /**
+     * Проверяет, что токен с истёкшим сроком действия не сохраняется, а прежняя запись пользователя удаляется.
+     */
+    @Test
+    public void upsert_ExpiredToken_DeletesRecord() {
+        // Создание тестовых данных.
+        store.upsert(new AccessToken(7, "old_token", Date.from(NOW), Date.from(NOW.plusSeconds(300))));
+
+        // Вызов тестируемого метода.
+        store.upsert(new AccessToken(7, "expired_token", Date.from(NOW.minusSeconds(600)), Date.from(NOW)));
+
+        // Проверка результатов.
+        Assertions.assertTrue(store.findByUserId(7).isEmpty());
+    }
+
+    /**
+     * Проверяет, что запись токена без срока действия сохраняется без времени жизни ключа.
+     */
+    @Test
+    public void upsert_TokenWithoutExpiration_StoredWithoutTtl() {
+        // Создание тестовых данных.
+        AccessToken accessToken = new AccessToken(7, "access_token", Date.from(NOW), null);
+
+        // Вызов тестируемого метода.
+        store.upsert(accessToken);
+        Optional<AccessToken> found = store.findByUserId(7);
+
+        // Проверка результатов.
+        Assertions.assertTrue(found.orElseThrow().matches("access_token"));
+        Assertions.assertNull(found.get().getExpiresAt());
+        Assertions.assertFalse(server.ttls.containsKey("test:access:7"));
+    }
+
+    /**
+     * Сервер-заглушка протокола RESP: обрабатывает каждое соединение в отдельном потоке и хранит ключи в памяти.
+     */
+    private static final class RespStandInServer implements AutoCloseable {
+
+        private final ServerSocket serverSocket = new ServerSocket(0);
+        private final Map<String, byte[]> values = new ConcurrentHashMap<>();
+        private final Map<String, Long> ttls = new ConcurrentHashMap<>();
+
+        private RespStandInServer() throws IOException {
+            final Thread acceptor = new Thread(this::accept, "resp-stand-in");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        private int port() {
+            return serverSocket.getLocalPort();
+        }
+
+        private void accept() {
+            while (!serverSocket.isClosed()) {
+                try {
+                    final Socket socket = serverSocket.accept();
+                    final Thread worker = new Thread(() -> serve(socket), "resp-stand-in-connection");
+                    worker.setDaemon(true);
+                    worker.start();
+                } catch (IOException ex) {
+                    return;
+                }
+            }
+        }
+
+        private void serve(Socket socket) {
+            try (socket) {
+                final InputStream in = new BufferedInputStream(socket.getInputStream());
+                final OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+                while (true) {
+                    final List<byte[]> command = readCommand(in);
+                    if (command == null) {
+                        return;
+                    }
+                    out.write(handle(command));
+                    out.flush();
+                }
+            } catch (IOException ex) {
+                // Соединение закрыто клиентом.
+            }
+        }
+
+        private byte[] handle(List<byte[]> command) {
+            final String name = new String(command.get(0), StandardCharsets.UTF_8);
+            final String key = command.size() > 1 ? new String(command.get(1), StandardCharsets.UTF_8) : null;
+            switch (name) {
+                case "PING":
+                    return "+PONG\r\n".getBytes(StandardCharsets.UTF_8);
+                case "GET": {
+                    final byte[] value = values.get(key);
+                    if (value == null) {
+                        return "$-1\r\n".getBytes(StandardCharsets.UTF_8);
+                    }
+                    final byte[] header = ("$" + value.length + "\r\n").getBytes(StandardCharsets.UTF_8);
+                    final byte[] reply = new byte[header.length + value.length + 2];
+                    System.arraycopy(header, 0, reply, 0, header.length);
+                    System.arraycopy(value, 0, reply, header.length, value.length);
+                    reply[reply.length - 2] = '\r';
+                    reply[reply.length - 1] = '\n';
+                    return reply;
+                }
+                case "SET":
+                    values.put(key, command.get(2));
+                    if (command.size() == 5) {
+                        ttls.put(key, Long.parseLong(new String(command.get(4), StandardCharsets.UTF_8)));
+                    }
+                    return "+OK\r\n".getBytes(StandardCharsets.UTF_8);
+                case "DEL":
+                    ttls.remove(key);
+                    return (":" + (values.remove(key) == null ? 0 : 1) + "\r\n").getBytes(StandardCharsets.UTF_8);
+                default:
+                    return ("-ERR unknown command '" + name + "'\r\n").getBytes(StandardCharsets.UTF_8);
+            }
+        }
+
+        private List<byte[]> readCommand(InputStream in) throws IOException {
+            final int type = in.read();
+            if (type == -1) {
+                return null;
+            }
+            final int count = Integer.parseInt(readLine(in));
+            final List<byte[]> args = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                in.read();
+                final int length = Integer.parseInt(readLine(in));
+                args.add(in.readNBytes(length));
+                readLine(in);
+            }
+            return args;
+        }
+
+        private String readLine(InputStream in) throws IOException {
+            final StringBuilder line = new StringBuilder();
+            int current;
+            while ((current = in.read()) != '\r') {
+                line.append((char) current);
+            }
+            in.read();
+            return line.toString();
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+        }
+    }
+}
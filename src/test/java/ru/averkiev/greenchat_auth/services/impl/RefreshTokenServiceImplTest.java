@@ -3,14 +3,17 @@ package ru.averkiev.greenchat_auth.services.impl;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 import ru.averkiev.greenchat_auth.exceptions.TokenNotFoundException;
 import ru.averkiev.greenchat_auth.models.RefreshToken;
 import ru.averkiev.greenchat_auth.repositories.RefreshTokenRepository;
+import ru.averkiev.greenchat_auth.utils.TokenDigest;
 
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.Optional;
 
 /**
@@ -23,12 +26,13 @@ public class RefreshTokenServiceImplTest {
     @Mock
     private RefreshTokenRepository refreshTokenRepository;
 
-    @InjectMocks
     RefreshTokenServiceImpl refreshTokenServiceImpl;
 
     @BeforeEach
     public void setup() {
         MockitoAnnotations.openMocks(this);
+        refreshTokenServiceImpl = new RefreshTokenServiceImpl(new JpaRefreshTokenStore(refreshTokenRepository), true,
+                100, 30_000, Clock.systemUTC());
     }
 
     /**
@@ -101,6 +105,41 @@ public class RefreshTokenServiceImplTest {
         Mockito.verify(refreshTokenRepository, Mockito.times(0)).save(updateRefreshToken);
     }
 
+    /**
+     * Проверяет, что refresh токен сохраняется одним запросом upsert без предварительного поиска записи.
+     */
+    @Test
+    public void upsert_ShouldReturnTrue_WhenRefreshTokenUpserted() {
+        Date createdAt = new Date();
+        Date expiresAt = new Date(createdAt.getTime() + 60_000);
+        RefreshToken refreshToken = new RefreshToken(1, "refresh_token", createdAt, expiresAt);
+
+        Mockito.when(refreshTokenRepository.upsert(1, refreshToken.getRefreshTokenDigest(), createdAt, expiresAt)).thenReturn(1);
+
+        boolean result = refreshTokenServiceImpl.upsert(refreshToken);
+
+        Assertions.assertTrue(result);
+        Mockito.verify(refreshTokenRepository, Mockito.times(1)).upsert(1, refreshToken.getRefreshTokenDigest(), createdAt, expiresAt);
+        Mockito.verify(refreshTokenRepository, Mockito.never()).findByUserId(1);
+        Mockito.verify(refreshTokenRepository, Mockito.never()).save(refreshToken);
+    }
+
+    /**
+     * Проверяет верную обработку результата upsert refresh токена с ошибкой во время сохранения.
+     */
+    @Test
+    public void upsert_ShouldReturnFalse_WhenRefreshTokenNotSaved() {
+        RefreshToken refreshToken = new RefreshToken(1, "refresh_token", new Date(), new Date());
+
+        Mockito.when(refreshTokenRepository.upsert(
+                Mockito.anyInt(), Mockito.any(), Mockito.any(), Mockito.any()
+        )).thenThrow(new RuntimeException());
+
+        boolean result = refreshTokenServiceImpl.upsert(refreshToken);
+
+        Assertions.assertFalse(result);
+    }
+
     /**
      * Проверяет верную обработку результата поиска access токена в базе данных по идентификатору пользователя,
      * в случае, когда найден токен с заданным идентификатором пользователя.
@@ -134,6 +173,166 @@ public class RefreshTokenServiceImplTest {
         Mockito.verify(refreshTokenRepository, Mockito.times(1)).findByUserId(userId);
     }
 
+    /**
+     * Проверяет, что повторный поиск refresh токена обслуживается кэшем без обращения к базе данных, а удаление
+     * токена удаляет его и из кэша.
+     */
+    @Test
+    public void findByUserId_ShouldUseCacheUntilDeleted() {
+        int userId = 1;
+        RefreshToken refreshToken = new RefreshToken(userId, "refresh_token", new Date(),
+                new Date(System.currentTimeMillis() + 60_000));
+
+        Mockito.when(refreshTokenRepository.findByUserId(userId))
+                .thenReturn(Optional.of(refreshToken), Optional.empty());
+
+        Optional<RefreshToken> first = refreshTokenServiceImpl.findByUserId(userId);
+        Optional<RefreshToken> second = refreshTokenServiceImpl.findByUserId(userId);
+        refreshTokenServiceImpl.delete(userId);
+        Optional<RefreshToken> afterDelete = refreshTokenServiceImpl.findByUserId(userId);
+
+        Assertions.assertSame(refreshToken, first.orElse(null));
+        Assertions.assertSame(refreshToken, second.orElse(null));
+        Assertions.assertTrue(afterDelete.isEmpty());
+        Assertions.assertEquals(1, refreshTokenServiceImpl.cacheStats().hitCount());
+        Mockito.verify(refreshTokenRepository, Mockito.times(2)).findByUserId(userId);
+    }
+
+    /**
+     * Проверяет, что сохранение токена upsert удаляет из кэша прежний токен пользователя, а отсутствие токена
+     * не кэшируется.
+     */
+    @Test
+    public void findByUserId_ShouldReloadAfterUpsertAndNotCacheAbsence() {
+        int userId = 1;
+        Date expiresAt = new Date(System.currentTimeMillis() + 60_000);
+        RefreshToken oldToken = new RefreshToken(userId, "old_token", new Date(), expiresAt);
+        RefreshToken newToken = new RefreshToken(userId, "new_token", new Date(), expiresAt);
+
+        Mockito.when(refreshTokenRepository.findByUserId(userId))
+                .thenReturn(Optional.empty(), Optional.of(oldToken), Optional.of(newToken));
+
+        Optional<RefreshToken> absent = refreshTokenServiceImpl.findByUserId(userId);
+        Optional<RefreshToken> beforeUpsert = refreshTokenServiceImpl.findByUserId(userId);
+        refreshTokenServiceImpl.upsert(newToken);
+        Optional<RefreshToken> afterUpsert = refreshTokenServiceImpl.findByUserId(userId);
+
+        Assertions.assertTrue(absent.isEmpty());
+        Assertions.assertTrue(beforeUpsert.orElseThrow().matches("old_token"));
+        Assertions.assertTrue(afterUpsert.orElseThrow().matches("new_token"));
+        Mockito.verify(refreshTokenRepository, Mockito.times(3)).findByUserId(userId);
+    }
+
+    /**
+     * Проверяет, что токен с истёкшим сроком действия не задерживается в кэше.
+     */
+    @Test
+    public void findByUserId_ShouldNotCacheExpiredToken() {
+        int userId = 1;
+        RefreshToken expiredToken = new RefreshToken(userId, "refresh_token", new Date(),
+                new Date(System.currentTimeMillis() - 1_000));
+
+        Mockito.when(refreshTokenRepository.findByUserId(userId)).thenReturn(Optional.of(expiredToken));
+
+        refreshTokenServiceImpl.findByUserId(userId);
+        refreshTokenServiceImpl.findByUserId(userId);
+
+        Mockito.verify(refreshTokenRepository, Mockito.times(2)).findByUserId(userId);
+    }
+
+    /**
+     * Проверяет, что токен, выпущенный на другом экземпляре сервиса после кэширования, находится после
+     * несовпадения с устаревшей записью кэша: токен перечитывается из базы данных и заменяет запись кэша, а токен,
+     * выпущенный раньше закэшированного, отклоняется без обращения к базе данных.
+     */
+    @Test
+    public void findMatching_ShouldReloadOnlyWhenTokenIsNewerThanCache() {
+        int userId = 1;
+        Date expiresAt = new Date(System.currentTimeMillis() + 60_000);
+        Date oldIssuedAt = new Date(1_700_000_000_000L);
+        Date newIssuedAt = new Date(1_700_000_060_000L);
+        RefreshToken oldToken = new RefreshToken(userId, "old_token", oldIssuedAt, expiresAt);
+        RefreshToken newToken = new RefreshToken(userId, "new_token", newIssuedAt, expiresAt);
+
+        Mockito.when(refreshTokenRepository.findByUserId(userId))
+                .thenReturn(Optional.of(oldToken), Optional.of(newToken));
+
+        Optional<RefreshToken> cached = refreshTokenServiceImpl.findByUserId(userId);
+        Optional<RefreshToken> matching = refreshTokenServiceImpl.findMatching(userId, "new_token", newIssuedAt);
+        Optional<RefreshToken> repeated = refreshTokenServiceImpl.findMatching(userId, "new_token", newIssuedAt);
+        Optional<RefreshToken> replaced = refreshTokenServiceImpl.findMatching(userId, "old_token", oldIssuedAt);
+
+        Assertions.assertSame(oldToken, cached.orElse(null));
+        Assertions.assertSame(newToken, matching.orElse(null));
+        Assertions.assertSame(newToken, repeated.orElse(null));
+        Assertions.assertTrue(replaced.isEmpty());
+        Mockito.verify(refreshTokenRepository, Mockito.times(2)).findByUserId(userId);
+    }
+
+    /**
+     * Проверяет, что несовпадающий токен, выпущенный раньше закэшированного, отклоняется по кэшу без обращения
+     * к базе данных.
+     */
+    @Test
+    public void findMatching_ShouldRejectOlderTokenFromCache() {
+        int userId = 1;
+        Date issuedAt = new Date(1_700_000_060_000L);
+        RefreshToken refreshToken = new RefreshToken(userId, "refresh_token", issuedAt,
+                new Date(System.currentTimeMillis() + 60_000));
+
+        Mockito.when(refreshTokenRepository.findByUserId(userId)).thenReturn(Optional.of(refreshToken));
+
+        refreshTokenServiceImpl.findByUserId(userId);
+        Optional<RefreshToken> rejected = refreshTokenServiceImpl.findMatching(userId, "other_token",
+                new Date(1_700_000_000_000L));
+
+        Assertions.assertTrue(rejected.isEmpty());
+        Assertions.assertEquals(1, refreshTokenServiceImpl.cacheStats().hitCount());
+        Mockito.verify(refreshTokenRepository, Mockito.times(1)).findByUserId(userId);
+    }
+
+    /**
+     * Проверяет, что поиск для подтверждения замены токена читает токен из базы данных, даже если он есть в кэше,
+     * и не удаляет запись кэша.
+     */
+    @Test
+    public void findStoredByUserId_ShouldBypassCacheWithoutInvalidating() {
+        int userId = 1;
+        RefreshToken refreshToken = new RefreshToken(userId, "refresh_token", new Date(),
+                new Date(System.currentTimeMillis() + 60_000));
+
+        Mockito.when(refreshTokenRepository.findByUserId(userId)).thenReturn(Optional.of(refreshToken));
+
+        refreshTokenServiceImpl.findByUserId(userId);
+        Optional<RefreshToken> stored = refreshTokenServiceImpl.findStoredByUserId(userId);
+        refreshTokenServiceImpl.findByUserId(userId);
+
+        Assertions.assertSame(refreshToken, stored.orElse(null));
+        Assertions.assertEquals(1, refreshTokenServiceImpl.cacheStats().hitCount());
+        Mockito.verify(refreshTokenRepository, Mockito.times(2)).findByUserId(userId);
+    }
+
+    /**
+     * Проверяет, что поиск по значению токена выполняется по его дайджесту.
+     */
+    @Test
+    public void findByToken_ShouldLookUpByDigest() {
+        RefreshToken refreshToken = new RefreshToken(1, "refresh_token", new Date(),
+                new Date(System.currentTimeMillis() + 60_000));
+
+        Mockito.when(refreshTokenRepository.findByRefreshTokenDigest(Mockito.any())).thenReturn(Optional.empty());
+        Mockito.when(refreshTokenRepository.findByRefreshTokenDigest(
+                Mockito.argThat(digest -> Arrays.equals(digest, TokenDigest.sha256("refresh_token")))))
+                .thenReturn(Optional.of(refreshToken));
+
+        Optional<RefreshToken> found = refreshTokenServiceImpl.findByToken("refresh_token");
+        Optional<RefreshToken> unknown = refreshTokenServiceImpl.findByToken("other_token");
+
+        Assertions.assertSame(refreshToken, found.orElse(null));
+        Assertions.assertTrue(unknown.isEmpty());
+        Mockito.verify(refreshTokenRepository, Mockito.never()).findByUserId(Mockito.anyInt());
+    }
+
     /**
      * Проверяет верную обработку результата удаления access токена из базы данных по идентификатору пользователя,
      * в случае, когда найден токен с заданным идентификатором пользователя.
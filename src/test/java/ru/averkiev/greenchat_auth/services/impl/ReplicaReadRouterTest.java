@@ -0,0 +1,150 @@
+package ru.averkiev.greenchat_auth.services.impl;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Тестовый класс для проверки функциональности ReplicaReadRouter. Этот класс направляет поиск записей токенов
+ * на реплику базы данных с учётом недавних изменений записей пользователя.
+ */
+public class ReplicaReadRouterTest {
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ReplicaReadRouter router;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        router = new ReplicaReadRouter(transactionManager, "jdbc:postgresql://replica/auth_db", 5_000);
+    }
+
+    /**
+     * Проверяет, что поиск выполняется в новой read-only транзакции, обслуживаемой репликой.
+     */
+    @Test
+    public void read_UsesNewReadOnlyTransaction() {
+        // Вызов тестируемого метода.
+        Optional<String> result = router.read(1, () -> Optional.of("token"));
+
+        // Проверка результатов.
+        Assertions.assertEquals(Optional.of("token"), result);
+        ArgumentCaptor<TransactionDefinition> definition = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager, times(1)).getTransaction(definition.capture());
+        Assertions.assertTrue(definition.getValue().isReadOnly());
+        Assertions.assertEquals(TransactionDefinition.PROPAGATION_REQUIRES_NEW,
+                definition.getValue().getPropagationBehavior());
+    }
+
+    /**
+     * Проверяет, что записи пользователя, изменённые этим экземпляром сервиса, читаются с основного сервера
+     * в транзакции чтения-записи, которую ReadWriteRoutingDataSource не направляет на реплику.
+     */
+    @Test
+    public void read_RecentlyWrittenUser_BypassesReplica() {
+        // Создание тестовых данных.
+        router.written(1);
+
+        // Вызов тестируемого метода.
+        Optional<String> result = router.read(1, () -> Optional.of("token"));
+
+        // Проверка результатов.
+        Assertions.assertEquals(Optional.of("token"), result);
+        ArgumentCaptor<TransactionDefinition> definition = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager, times(1)).getTransaction(definition.capture());
+        Assertions.assertFalse(definition.getValue().isReadOnly());
+        Assertions.assertEquals(TransactionDefinition.PROPAGATION_REQUIRED,
+                definition.getValue().getPropagationBehavior());
+    }
+
+    /**
+     * Проверяет, что поиск на основном сервере не обращается к реплике, даже если запись пользователя
+     * не изменялась.
+     */
+    @Test
+    public void readPrimary_NeverUsesReplica() {
+        // Вызов тестируемого метода.
+        Optional<String> result = router.readPrimary(() -> Optional.of("token"));
+
+        // Проверка результатов.
+        Assertions.assertEquals(Optional.of("token"), result);
+        ArgumentCaptor<TransactionDefinition> definition = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager, times(1)).getTransaction(definition.capture());
+        Assertions.assertFalse(definition.getValue().isReadOnly());
+    }
+
+    /**
+     * Проверяет, что при отсутствии записи на реплике поиск повторяется на основном сервере.
+     */
+    @Test
+    public void read_MissingOnReplica_FallsBackToPrimary() {
+        // Создание тестовых данных.
+        AtomicInteger calls = new AtomicInteger();
+
+        // Вызов тестируемого метода.
+        Optional<String> result = router.read(1,
+                () -> calls.incrementAndGet() == 1 ? Optional.empty() : Optional.of("token"));
+
+        // Проверка результатов.
+        Assertions.assertEquals(Optional.of("token"), result);
+        Assertions.assertEquals(2, calls.get());
+        ArgumentCaptor<TransactionDefinition> definitions = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager, times(2)).getTransaction(definitions.capture());
+        Assertions.assertTrue(definitions.getAllValues().get(0).isReadOnly());
+        Assertions.assertFalse(definitions.getAllValues().get(1).isReadOnly());
+    }
+
+    /**
+     * Проверяет, что запись с реплики, не прошедшая проверку актуальности (например, старше предъявленного
+     * токена), перечитывается на основном сервере.
+     */
+    @Test
+    public void read_StaleOnReplica_FallsBackToPrimary() {
+        // Создание тестовых данных.
+        AtomicInteger calls = new AtomicInteger();
+
+        // Вызов тестируемого метода.
+        Optional<String> result = router.read(1,
+                () -> Optional.of(calls.incrementAndGet() == 1 ? "old_token" : "new_token"),
+                "new_token"::equals);
+
+        // Проверка результатов.
+        Assertions.assertEquals(Optional.of("new_token"), result);
+        Assertions.assertEquals(2, calls.get());
+        ArgumentCaptor<TransactionDefinition> definitions = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager, times(2)).getTransaction(definitions.capture());
+        Assertions.assertTrue(definitions.getAllValues().get(0).isReadOnly());
+        Assertions.assertFalse(definitions.getAllValues().get(1).isReadOnly());
+    }
+
+    /**
+     * Проверяет, что без настроенной реплики поиск выполняется в текущей транзакции.
+     */
+    @Test
+    public void read_ReplicaNotConfigured_UsesCurrentTransaction() {
+        // Создание тестовых данных.
+        ReplicaReadRouter primaryOnly = new ReplicaReadRouter(transactionManager, "", 5_000);
+
+        // Вызов тестируемого метода.
+        Optional<String> result = primaryOnly.read(1, () -> Optional.of("token"));
+
+        // Проверка результатов.
+        Assertions.assertEquals(Optional.of("token"), result);
+        verify(transactionManager, never()).getTransaction(any());
+    }
+}
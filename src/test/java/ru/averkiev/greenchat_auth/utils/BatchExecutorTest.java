@@ -0,0 +1,69 @@
+package ru.averkiev.greenchat_auth.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Тестовый класс для проверки функциональности BatchExecutor. Этот класс обрабатывает пакет в ограниченном пуле
+ * потоков вместо общего ForkJoinPool.
+ */
+public class BatchExecutorTest {
+
+    private final BatchExecutor batchExecutor = new BatchExecutor("batch-test-", 2, 1);
+
+    @AfterEach
+    public void tearDown() {
+        batchExecutor.close();
+    }
+
+    /**
+     * Проверяет, что результаты возвращаются в порядке элементов пакета, а обработка выполняется потоками пула
+     * или, при заполненной очереди, вызывающим потоком, но не общим ForkJoinPool.
+     */
+    @Test
+    public void mapAll_LargeBatch_KeepsOrderAndUsesBoundedPool() {
+        // Создание тестовых данных.
+        List<Integer> items = IntStream.range(0, 1000).boxed().collect(Collectors.toList());
+        Set<String> threadNames = ConcurrentHashMap.newKeySet();
+
+        // Вызов тестируемого метода.
+        List<Integer> results = batchExecutor.mapAll(items, item -> {
+            threadNames.add(Thread.currentThread().getName());
+            return item * 2;
+        });
+
+        // Проверка результатов.
+        Assertions.assertEquals(items.stream().map(item -> item * 2).collect(Collectors.toList()), results);
+        String caller = Thread.currentThread().getName();
+        Assertions.assertTrue(threadNames.stream().allMatch(name -> name.startsWith("batch-test-")
+                || name.equals(caller)), threadNames.toString());
+    }
+
+    /**
+     * Проверяет, что ошибка обработки элемента выбрасывается вызывающему потоку без обёртки CompletionException.
+     */
+    @Test
+    public void mapAll_MapperThrows_RethrowsOriginalException() {
+        // Создание тестовых данных.
+        List<Integer> items = IntStream.range(0, 100).boxed().collect(Collectors.toList());
+
+        // Вызов тестируемого метода.
+        IllegalStateException exception = Assertions.assertThrows(IllegalStateException.class,
+                () -> batchExecutor.mapAll(items, item -> {
+                    if (item == 99) {
+                        throw new IllegalStateException("Ошибка обработки");
+                    }
+                    return item;
+                }));
+
+        // Проверка результатов.
+        Assertions.assertEquals("Ошибка обработки", exception.getMessage());
+    }
+}
@@ -0,0 +1,58 @@
+package ru.averkiev.greenchat_auth.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+/**
+ * Тестовый класс для проверки функциональности BloomFilter. Этот класс представляет собой потокобезопасный фильтр
+ * Блума для строк.
+ */
+public class BloomFilterTest {
+
+    /**
+     * Проверяет, что фильтр не даёт ложноотрицательных ответов, а доля ложноположительных ответов не превышает
+     * заданную вероятность с разумным запасом.
+     */
+    @Test
+    public void mightContain_NoFalseNegativesAndBoundedFalsePositives() {
+        // Создание тестовых данных.
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        String[] added = new String[10_000];
+        for (int i = 0; i < added.length; i++) {
+            added[i] = UUID.randomUUID().toString();
+            filter.put(added[i]);
+        }
+
+        // Вызов тестируемого метода.
+        int falseNegatives = 0;
+        for (String value : added) {
+            if (!filter.mightContain(value)) {
+                falseNegatives++;
+            }
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain(UUID.randomUUID().toString())) {
+                falsePositives++;
+            }
+        }
+
+        // Проверка результатов.
+        Assertions.assertEquals(0, falseNegatives);
+        Assertions.assertTrue(falsePositives < 2_000, "ложноположительных ответов: " + falsePositives);
+        Assertions.assertTrue(filter.sizeInBytes() < 10_000 * 2);
+    }
+
+    /**
+     * Проверяет, что фильтр нельзя создать с некорректными параметрами.
+     */
+    @Test
+    public void constructor_InvalidArguments_ThrowsException() {
+        // Вызов тестируемого метода и проверка результатов.
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new BloomFilter(0, 0.01));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 1));
+    }
+}
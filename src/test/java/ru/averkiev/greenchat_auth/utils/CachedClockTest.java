@@ -0,0 +1,59 @@
+package ru.averkiev.greenchat_auth.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * Тестовый класс для проверки функциональности CachedClock. Этот класс предоставляет часы UTC, время которых
+ * обновляется фоновым потоком.
+ */
+public class CachedClockTest {
+
+    /**
+     * Проверяет, что кэшированное время отстаёт от системного не более чем на несколько шагов обновления
+     * и продолжает обновляться.
+     */
+    @Test
+    public void millis_FollowsSystemTime() throws InterruptedException {
+        try (CachedClock clock = new CachedClock(1)) {
+            // Вызов тестируемого метода.
+            long first = clock.millis();
+            Thread.sleep(50);
+            long second = clock.millis();
+
+            // Проверка результатов.
+            Assertions.assertTrue(second > first);
+            Assertions.assertTrue(Math.abs(System.currentTimeMillis() - second) < 1000);
+            Assertions.assertEquals(clock.millis() / 1000, clock.instant().getEpochSecond(), 1);
+        }
+    }
+
+    /**
+     * Проверяет, что часы работают в UTC, а смена часового пояса не меняет источник времени.
+     */
+    @Test
+    public void withZone_KeepsCachedTime() {
+        try (CachedClock clock = new CachedClock(1)) {
+            // Вызов тестируемого метода.
+            Clock zoned = clock.withZone(ZoneId.of("Europe/Moscow"));
+
+            // Проверка результатов.
+            Assertions.assertEquals(ZoneOffset.UTC, clock.getZone());
+            Assertions.assertSame(clock, clock.withZone(ZoneOffset.UTC));
+            Assertions.assertEquals(ZoneId.of("Europe/Moscow"), zoned.getZone());
+            Assertions.assertTrue(Math.abs(zoned.millis() - clock.millis()) < 1000);
+        }
+    }
+
+    /**
+     * Проверяет, что неположительный шаг обновления отклоняется.
+     */
+    @Test
+    public void constructor_NonPositiveTick_ThrowsException() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new CachedClock(0));
+    }
+}
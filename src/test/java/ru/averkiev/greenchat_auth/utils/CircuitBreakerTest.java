@@ -0,0 +1,94 @@
+package ru.averkiev.greenchat_auth.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Тестовый класс для проверки функциональности CircuitBreaker. Этот класс отклоняет вызовы после серии ошибок и
+ * пропускает пробные вызовы по истечении времени открытого состояния.
+ */
+public class CircuitBreakerTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final List<String> transitions = new ArrayList<>();
+
+    private final CircuitBreaker breaker = new CircuitBreaker(3, 1_000, 1, nanos::get,
+            (from, to) -> transitions.add(from + "->" + to));
+
+    /**
+     * Проверяет, что выключатель открывается после заданного количества ошибок подряд, а успешный вызов
+     * сбрасывает счётчик ошибок.
+     */
+    @Test
+    public void onFailure_ThresholdReached_OpensBreaker() {
+        // Вызов тестируемого метода.
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+        breaker.onFailure();
+        CircuitBreaker.State beforeThreshold = breaker.state();
+        breaker.onFailure();
+
+        // Проверка результатов.
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, beforeThreshold);
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        Assertions.assertFalse(breaker.tryAcquirePermission());
+        Assertions.assertEquals(1_000, breaker.remainingOpenMillis());
+        Assertions.assertEquals(List.of("CLOSED->OPEN"), transitions);
+    }
+
+    /**
+     * Проверяет, что по истечении времени открытого состояния пропускается только один пробный вызов, а его
+     * успех закрывает выключатель.
+     */
+    @Test
+    public void tryAcquirePermission_AfterOpenTime_AllowsSingleProbe() {
+        // Создание тестовых данных.
+        openBreaker();
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(1_000));
+
+        // Вызов тестируемого метода.
+        boolean probe = breaker.tryAcquirePermission();
+        boolean secondProbe = breaker.tryAcquirePermission();
+        breaker.onSuccess();
+
+        // Проверка результатов.
+        Assertions.assertTrue(probe);
+        Assertions.assertFalse(secondProbe);
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        Assertions.assertTrue(breaker.tryAcquirePermission());
+        Assertions.assertEquals(List.of("CLOSED->OPEN", "OPEN->HALF_OPEN", "HALF_OPEN->CLOSED"), transitions);
+    }
+
+    /**
+     * Проверяет, что ошибка пробного вызова снова открывает выключатель на полное время.
+     */
+    @Test
+    public void onFailure_ProbeFails_ReopensBreaker() {
+        // Создание тестовых данных.
+        openBreaker();
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(1_500));
+
+        // Вызов тестируемого метода.
+        Assertions.assertTrue(breaker.tryAcquirePermission());
+        breaker.onFailure();
+
+        // Проверка результатов.
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        Assertions.assertFalse(breaker.tryAcquirePermission());
+        Assertions.assertEquals(1_000, breaker.remainingOpenMillis());
+        Assertions.assertEquals(List.of("CLOSED->OPEN", "OPEN->HALF_OPEN", "HALF_OPEN->OPEN"), transitions);
+    }
+
+    private void openBreaker() {
+        for (int i = 0; i < 3; i++) {
+            breaker.onFailure();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package ru.averkiev.greenchat_auth.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Тестовый класс для проверки функциональности ConcurrentIntLongMap. Этот класс представляет собой потокобезопасную
+ * хэш-таблицу с примитивными ключами int и значениями long.
+ */
+public class ConcurrentIntLongMapTest {
+
+    /**
+     * Проверяет сохранение наибольшего значения, рост таблицы и удаление значений ниже порога.
+     */
+    @Test
+    public void putMaxAndRemove_KeepExpectedEntries() {
+        // Создание тестовых данных.
+        ConcurrentIntLongMap map = new ConcurrentIntLongMap();
+
+        // Вызов тестируемого метода.
+        for (int key = -500; key < 500; key++) {
+            map.putMax(key, 1000 + key);
+        }
+        map.putMax(0, 5000);
+        map.putMax(1, 1);
+        int removed = map.removeValuesBelow(1000);
+
+        // Проверка результатов.
+        Assertions.assertEquals(500, removed);
+        Assertions.assertEquals(500, map.size());
+        Assertions.assertEquals(5000, map.get(0));
+        Assertions.assertEquals(1001, map.get(1));
+        Assertions.assertEquals(1499, map.get(499));
+        Assertions.assertEquals(0, map.get(-1));
+        Assertions.assertEquals(0, map.get(10_000));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> map.putMax(2, 0));
+    }
+
+    /**
+     * Проверяет, что чтение во время записи и перестроения таблицы возвращает либо отсутствие записи, либо
+     * записанное значение.
+     */
+    @Test
+    public void get_ConcurrentWithWrites_ReturnsConsistentValues() throws Exception {
+        // Создание тестовых данных.
+        ConcurrentIntLongMap map = new ConcurrentIntLongMap();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            // Вызов тестируемого метода.
+            Future<?> writer = executor.submit(() -> {
+                for (int key = 0; key < 100_000; key++) {
+                    map.putMax(key, key + 1L);
+                }
+            });
+            Future<Boolean> reader = executor.submit(() -> {
+                boolean consistent = true;
+                while (!writer.isDone()) {
+                    for (int key = 0; key < 100_000; key += 997) {
+                        long value = map.get(key);
+                        consistent &= value == 0 || value == key + 1L;
+                    }
+                }
+                return consistent;
+            });
+
+            // Проверка результатов.
+            writer.get(30, TimeUnit.SECONDS);
+            Assertions.assertTrue(reader.get(30, TimeUnit.SECONDS));
+            Assertions.assertEquals(100_000, map.size());
+            Assertions.assertEquals(100_000, map.get(99_999));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package ru.averkiev.greenchat_auth.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Тестовый класс для проверки функциональности SingleFlight. Этот класс объединяет одновременные вызовы с
+ * одинаковым ключом в один вызов.
+ */
+public class SingleFlightTest {
+
+    private static final int WAITERS = 7;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(WAITERS);
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Проверяет, что одновременные вызовы с одним ключом выполняются один раз и получают один результат, а
+     * следующий вызов после завершения выполняется заново.
+     */
+    @Test
+    public void execute_ConcurrentCallsForSameKey_ShareOneCall() throws Exception {
+        // Создание тестовых данных.
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+
+        // Вызов тестируемого метода.
+        Future<String> leader = executor.submit(() -> singleFlight.execute("Bob_Smith", () -> {
+            calls.incrementAndGet();
+            leaderStarted.countDown();
+            await(release);
+            return "user";
+        }));
+        Assertions.assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+        List<Future<String>> waiters = new ArrayList<>();
+        for (int i = 1; i < WAITERS; i++) {
+            waiters.add(executor.submit(() -> singleFlight.execute("Bob_Smith", () -> {
+                calls.incrementAndGet();
+                return "other";
+            })));
+        }
+        awaitCoalesced(singleFlight, WAITERS - 1);
+        release.countDown();
+
+        // Проверка результатов.
+        Assertions.assertEquals("user", leader.get(5, TimeUnit.SECONDS));
+        for (Future<String> waiter : waiters) {
+            Assertions.assertEquals("user", waiter.get(5, TimeUnit.SECONDS));
+        }
+        Assertions.assertEquals(1, calls.get());
+        Assertions.assertEquals(WAITERS - 1, singleFlight.coalescedCount());
+        Assertions.assertEquals(0, singleFlight.inFlightCount());
+        Assertions.assertEquals("fresh", singleFlight.execute("Bob_Smith", () -> "fresh"));
+    }
+
+    /**
+     * Проверяет, что ожидающие потоки получают исключение первого вызова.
+     */
+    @Test
+    public void execute_FailedCall_SharesException() throws Exception {
+        // Создание тестовых данных.
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        IllegalStateException failure = new IllegalStateException("user service unavailable");
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+
+        // Вызов тестируемого метода.
+        Future<String> leader = executor.submit(() -> singleFlight.execute("Bob_Smith", () -> {
+            leaderStarted.countDown();
+            await(release);
+            throw failure;
+        }));
+        Assertions.assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+        Future<String> waiter = executor.submit(() -> singleFlight.execute("Bob_Smith", () -> "other"));
+        awaitCoalesced(singleFlight, 1);
+        release.countDown();
+
+        // Проверка результатов.
+        ExecutionException leaderFailure = Assertions.assertThrows(ExecutionException.class,
+                () -> leader.get(5, TimeUnit.SECONDS));
+        ExecutionException waiterFailure = Assertions.assertThrows(ExecutionException.class,
+                () -> waiter.get(5, TimeUnit.SECONDS));
+        Assertions.assertSame(failure, leaderFailure.getCause());
+        Assertions.assertSame(failure, waiterFailure.getCause());
+        Assertions.assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    /**
+     * Проверяет, что вызовы с разными ключами не объединяются.
+     */
+    @Test
+    public void execute_DifferentKeys_NotCoalesced() {
+        // Создание тестовых данных.
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+
+        // Вызов тестируемого метода.
+        String first = singleFlight.execute("Bob_Smith", () -> singleFlight.execute("Alice", () -> "alice"));
+        String second = singleFlight.execute("Bob_Smith", () -> null);
+
+        // Проверка результатов.
+        Assertions.assertEquals("alice", first);
+        Assertions.assertNull(second);
+        Assertions.assertEquals(0, singleFlight.coalescedCount());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitCoalesced(SingleFlight<?, ?> singleFlight, long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (singleFlight.coalescedCount() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+}